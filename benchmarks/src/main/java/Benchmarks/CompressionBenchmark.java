@@ -0,0 +1,154 @@
+package Benchmarks;
+
+import Compression.FileCompressorManager;
+import Compression.FrequencyTable;
+import Compression.HuffmanEncoder;
+import Util.CodeWord;
+import Util.HuffmanTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the stages of a compression in isolation and end to end.
+ * Every stage but the one being measured is prepared once per trial from the same corpus file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+    @Param({"1", "2", "3"})
+    public int numberOfBytes;
+
+    @Param({"UNIFORM", "SKEWED", "TEXT", "RANDOM"})
+    public Corpus corpus;
+
+    @Param({"4194304"})
+    public int size;
+
+    private Path directory;
+    private String filePath;
+    private byte[] data;
+
+    private FrequencyTable frequencyTable;
+    private int[] symbols;
+    private long[] frequencies;
+    private HuffmanTree huffmanTree;
+    private CodeWord[] codeWords;
+
+    /**
+     * Writes the corpus to a temporary file and runs every stage once.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("huffman-benchmark");
+        data = corpus.generate(size);
+        Path file = directory.resolve(corpus.name().toLowerCase() + ".bin");
+        Files.write(file, data);
+        filePath = file.toString();
+
+        frequencyTable = buildFrequencyTable();
+        symbols = frequencyTable.sortedSymbols();
+        frequencies = frequencyTable.getFrequencies(symbols);
+        huffmanTree = buildTree();
+        codeWords = huffmanTree.buildCodeWords();
+    }
+
+    /**
+     * Removes the corpus and the compressed file.
+     *
+     * @throws IOException If a file cannot be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        // the compressor writes next to the input, joining the names with a backslash
+        Files.deleteIfExists(Path.of(directory + "\\Compressed." + numberOfBytes + "." + Path.of(filePath).getFileName() + ".hc"));
+        Files.deleteIfExists(Path.of(filePath));
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Counts the symbols of the corpus file.
+     *
+     * @return The frequency table.
+     */
+    @Benchmark
+    public FrequencyTable buildFrequencyTable() {
+        return new FileCompressorManager(filePath, numberOfBytes).buildFrequencyTable(numberOfBytes, filePath);
+    }
+
+    /**
+     * Builds the Huffman tree from the symbol frequencies.
+     *
+     * @return The tree.
+     */
+    @Benchmark
+    public HuffmanTree buildTree() {
+        HuffmanTree tree = new HuffmanTree(frequencies);
+        tree.buildTree();
+        return tree;
+    }
+
+    /**
+     * Derives the length limited canonical code words from the tree.
+     *
+     * @return The code word of each symbol.
+     */
+    @Benchmark
+    public CodeWord[] buildCodeWords() {
+        return huffmanTree.buildCodeWords();
+    }
+
+    /**
+     * Encodes the corpus from memory, the work writeContent does besides reading the file.
+     *
+     * @return The sync points of the encoded data.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Benchmark
+    public long[] encodeContent() throws IOException {
+        HuffmanEncoder encoder = new HuffmanEncoder(frequencyTable, symbols, codeWords, OutputStream.nullOutputStream(),
+                1_000_000, FileCompressorManager.SYNC_INTERVAL);
+        encoder.encode(data, data.length - data.length % numberOfBytes);
+        encoder.finish();
+        return encoder.getSyncPoints();
+    }
+
+    /**
+     * Compresses the corpus file from counting its symbols to writing the compressed file.
+     *
+     * @return The size of the compressed file.
+     */
+    @Benchmark
+    public long compressFile() {
+        FileCompressorManager fileCompressorManager = new FileCompressorManager(filePath, numberOfBytes);
+        FrequencyTable table = fileCompressorManager.buildFrequencyTable(numberOfBytes, filePath);
+        int[] sortedSymbols = table.sortedSymbols();
+        HuffmanTree tree = new HuffmanTree(table.getFrequencies(sortedSymbols));
+        tree.buildTree();
+        fileCompressorManager.compressFile(table, sortedSymbols, tree.buildCodeWords());
+        return fileCompressorManager.getCompressedFileSize();
+    }
+}
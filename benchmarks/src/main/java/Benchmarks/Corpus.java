@@ -0,0 +1,82 @@
+package Benchmarks;
+
+import java.util.Random;
+
+/**
+ * Synthetic inputs for the benchmarks.
+ * Every corpus is generated from a fixed seed, so all runs and releases measure the same data.
+ */
+public enum Corpus {
+
+    // Bytes drawn uniformly from 16 values
+    UNIFORM,
+
+    // Bytes with exponentially decreasing frequencies
+    SKEWED,
+
+    // Words of a Zipf distributed vocabulary separated by spaces and line breaks
+    TEXT,
+
+    // Bytes drawn uniformly from all 256 values, which Huffman coding cannot shrink
+    RANDOM;
+
+    private static final long SEED = 0x48554643L;
+
+    private static final int VOCABULARY_SIZE = 4096;
+
+    /**
+     * Generates the corpus.
+     *
+     * @param size The number of bytes to generate.
+     * @return The bytes of the corpus.
+     */
+    public byte[] generate(int size) {
+        Random random = new Random(SEED + ordinal());
+        byte[] data = new byte[size];
+        switch (this) {
+            case UNIFORM -> {
+                for (int i = 0; i < size; i++) {
+                    data[i] = (byte) ('a' + random.nextInt(16));
+                }
+            }
+            case SKEWED -> {
+                for (int i = 0; i < size; i++) {
+                    data[i] = (byte) Math.min(255, (int) (-8 * Math.log(1 - random.nextDouble())));
+                }
+            }
+            case TEXT -> generateText(random, data);
+            case RANDOM -> random.nextBytes(data);
+        }
+        return data;
+    }
+
+    /**
+     * Fills a buffer with text made of words of a random vocabulary.
+     * Picking words with a log-uniform index gives them roughly Zipf distributed frequencies,
+     * like the words of natural language.
+     *
+     * @param random The source of randomness.
+     * @param data   The buffer to fill.
+     */
+    private static void generateText(Random random, byte[] data) {
+        byte[][] vocabulary = new byte[VOCABULARY_SIZE][];
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = new byte[2 + random.nextInt(9)];
+            for (int j = 0; j < vocabulary[i].length; j++) {
+                vocabulary[i][j] = (byte) ('a' + random.nextInt(26));
+            }
+        }
+
+        int position = 0;
+        int wordsOnLine = 0;
+        while (position < data.length) {
+            byte[] word = vocabulary[(int) Math.pow(VOCABULARY_SIZE, random.nextDouble()) - 1];
+            int length = Math.min(word.length, data.length - position);
+            System.arraycopy(word, 0, data, position, length);
+            position += length;
+            if (position < data.length) {
+                data[position++] = (byte) (++wordsOnLine % 12 == 0 ? '\n' : ' ');
+            }
+        }
+    }
+}
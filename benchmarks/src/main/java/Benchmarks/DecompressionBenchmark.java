@@ -0,0 +1,176 @@
+package Benchmarks;
+
+import Compression.CompressionOptions;
+import Compression.FileCompressorManager;
+import Compression.FrequencyTable;
+import Decompression.FileDecompressorManager;
+import Decompression.HuffmanDecoder;
+import Util.BlockHeader;
+import Util.CodeWord;
+import Util.HuffmanHeader;
+import Util.HuffmanTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the stages of a decompression in isolation and end to end.
+ * The corpus is compressed once per trial, and the isolated stages work on the compressed file in memory.
+ * With interleaved set, the corpus is compressed as a single interleaved block, so decode compares
+ * the four-stream decoder with the single-stream one on the same data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecompressionBenchmark {
+
+    @Param({"1", "2", "3"})
+    public int numberOfBytes;
+
+    @Param({"UNIFORM", "SKEWED", "TEXT", "RANDOM"})
+    public Corpus corpus;
+
+    @Param({"4194304"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean interleaved;
+
+    private Path directory;
+    private Path inputFile;
+    private Path compressedFile;
+    private byte[] compressed;
+
+    private long blockOffset;
+    private BlockHeader blockHeader;
+    private long payloadOffset;
+    private HuffmanDecoder decoder;
+
+    /**
+     * Writes the corpus to a temporary file, compresses it and reads the compressed file into memory.
+     *
+     * @throws IOException If a file cannot be written or read.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("huffman-benchmark");
+        inputFile = directory.resolve(corpus.name().toLowerCase() + ".bin");
+        Files.write(inputFile, corpus.generate(size));
+
+        String filePath = inputFile.toString();
+        if (interleaved) {
+            // interleaved blocks are only written in block mode, one block holds the whole corpus
+            new FileCompressorManager(filePath, numberOfBytes,
+                    new CompressionOptions().setInterleaved(true).setBlockSize(size)).compressBlocks();
+        } else {
+            FileCompressorManager fileCompressorManager = new FileCompressorManager(filePath, numberOfBytes);
+            FrequencyTable frequencyTable = fileCompressorManager.buildFrequencyTable(numberOfBytes, filePath);
+            int[] symbols = frequencyTable.sortedSymbols();
+            HuffmanTree huffmanTree = new HuffmanTree(frequencyTable.getFrequencies(symbols));
+            huffmanTree.buildTree();
+            fileCompressorManager.compressFile(frequencyTable, symbols, huffmanTree.buildCodeWords());
+        }
+
+        // the compressor writes next to the input, joining the names with a backslash
+        compressedFile = Path.of(directory + "\\Compressed." + numberOfBytes + "." + inputFile.getFileName() + ".hc");
+        compressed = Files.readAllBytes(compressedFile);
+
+        blockOffset = readHeader().getBlockOffsets()[0];
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(compressed));
+        in.skipNBytes(blockOffset);
+        blockHeader = BlockHeader.read(in, numberOfBytes);
+        payloadOffset = blockOffset + blockHeader.size();
+        decoder = blockHeader.isStored() ? null : buildDecoder();
+    }
+
+    /**
+     * Removes the corpus, the compressed and the decompressed file.
+     *
+     * @throws IOException If a file cannot be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(Path.of(directory + "\\Decompressed." + numberOfBytes + "." + inputFile.getFileName()));
+        Files.deleteIfExists(compressedFile);
+        Files.deleteIfExists(inputFile);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Reads the file header, the work readHeader does.
+     *
+     * @return The file header.
+     * @throws IOException If the header is corrupted.
+     */
+    @Benchmark
+    public HuffmanHeader readHeader() throws IOException {
+        return HuffmanHeader.read(new DataInputStream(new ByteArrayInputStream(compressed)));
+    }
+
+    /**
+     * Reads the block header and rebuilds the decoding tables from its code word lengths.
+     *
+     * @return The decoder of the block.
+     * @throws IOException If the block header is corrupted.
+     */
+    @Benchmark
+    public HuffmanDecoder buildDecoder() throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(compressed));
+        in.skipNBytes(blockOffset);
+        BlockHeader header = BlockHeader.read(in, numberOfBytes);
+        CodeWord[] codeWords = HuffmanTree.assignCanonicalCodes(header.getCodeLengths());
+        return new HuffmanDecoder(header.getSymbols(), codeWords, 1_000_000 - 1_000_000 % numberOfBytes);
+    }
+
+    /**
+     * Decodes the payload from memory, the work decompressFile does besides reading and writing
+     * the files. A stored block is copied instead.
+     *
+     * @throws IOException If the payload is corrupted.
+     */
+    @Benchmark
+    public void decode() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(compressed, (int) payloadOffset, (int) blockHeader.getPayloadLength());
+        if (blockHeader.isStored()) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return;
+        }
+        if (blockHeader.isInterleaved()) {
+            decoder.copy().decodeInterleaved(in, blockHeader.getPayloadLength(), OutputStream.nullOutputStream(),
+                    blockHeader.getSymbolCount());
+            return;
+        }
+        decoder.copy().decode(in, blockHeader.getPayloadLength(), OutputStream.nullOutputStream(), blockHeader.getSymbolCount());
+    }
+
+    /**
+     * Decompresses the compressed file from reading its header to writing the decompressed file.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Benchmark
+    public void decompressFile() throws IOException {
+        new FileDecompressorManager(compressedFile.toString()).decompressFile();
+    }
+}
@@ -0,0 +1,99 @@
+package Compression;
+
+import Decompression.ArchiveExtractor;
+import Decompression.DecompressionOptions;
+import Util.ArchiveEntry;
+import Util.TestFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Archives directories and checks that they extract to the original files.
+ */
+class ArchiveCompressorTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes the files of the archived directory.
+     *
+     * @return The directory.
+     * @throws IOException If the files cannot be written.
+     */
+    private Path writeInput() throws IOException {
+        Path input = Files.createDirectories(directory.resolve("input").resolve("nested"));
+        Files.write(input.resolve("a.txt"), TestFiles.text(120_000, 67));
+        Files.write(input.resolve("empty.bin"), new byte[0]);
+        Files.write(input.getParent().resolve("b.bin"), TestFiles.random(30_000, 71));
+        return input.getParent();
+    }
+
+    /**
+     * Checks that the extracted files are the archived ones.
+     *
+     * @param input  The archived directory.
+     * @param output The directory the archive was extracted into.
+     * @throws IOException If a file cannot be read.
+     */
+    private static void assertExtracted(Path input, Path output) throws IOException {
+        for (String name : List.of("nested/a.txt", "nested/empty.bin", "b.bin")) {
+            assertArrayEquals(Files.readAllBytes(input.resolve(name)), Files.readAllBytes(output.resolve(name)), name);
+        }
+    }
+
+    @Test
+    void roundTripsADirectory() throws IOException {
+        Path input = writeInput();
+        Path archive = directory.resolve("archive.hca");
+        new ArchiveCompressor(ArchiveCompressor.AUTO, new CompressionOptions().setBlockSize(32 * 1024))
+                .addInput(input)
+                .compress(archive);
+
+        ArchiveExtractor extractor = new ArchiveExtractor(archive, new DecompressionOptions());
+        assertEquals(3, extractor.getIndex().getEntries().size());
+        // the files below a directory are named relative to its parent
+        ArchiveEntry entry = extractor.getIndex().find("input/nested/a.txt");
+        assertEquals(120_000, entry.getOriginalSize());
+        assertTrue(entry.getCompressedSize() < entry.getOriginalSize());
+
+        Path output = directory.resolve("output");
+        extractor.extract(output);
+        assertExtracted(input, output.resolve("input"));
+    }
+
+    @Test
+    void roundTripsWithThreadsAndALevel() throws IOException {
+        Path input = writeInput();
+        Path archive = directory.resolve("archive.hca");
+        new ArchiveCompressor(1, new CompressionOptions().setThreads(3).setLevel(2)).addInput(input).compress(archive);
+
+        Path output = directory.resolve("output");
+        new ArchiveExtractor(archive, new DecompressionOptions().setThreads(3)).extract(output);
+        assertExtracted(input, output.resolve("input"));
+    }
+
+    @Test
+    void extractsSelectedEntries() throws IOException {
+        Path input = writeInput();
+        Path archive = directory.resolve("archive.hca");
+        new ArchiveCompressor(2, new CompressionOptions()).add("renamed.bin", input.resolve("b.bin"))
+                .add("nested/a.txt", input.resolve("nested/a.txt"))
+                .compress(archive);
+
+        Path output = directory.resolve("output");
+        new ArchiveExtractor(archive, new DecompressionOptions()).extract(output, List.of("renamed.bin"));
+        assertArrayEquals(Files.readAllBytes(input.resolve("b.bin")), Files.readAllBytes(output.resolve("renamed.bin")));
+        assertFalse(Files.exists(output.resolve("nested")));
+    }
+}
@@ -0,0 +1,120 @@
+package Compression;
+
+import Util.ByteWrapper;
+import Util.TestFiles;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the Space-Saving sketch that finds the candidate symbols and the tables that count them with escapes.
+ */
+class EscapeFrequencyTableTest {
+
+    @Test
+    void sketchKeepsTheFrequentSymbols() {
+        // "aa" and "bb" each make up a quarter of the symbols, the rest are spread over 4096 others
+        byte[] chunk = new byte[2 * 100_000];
+        Random random = new Random(97);
+        for (int i = 0; i < chunk.length; i += 2) {
+            int kind = random.nextInt(4);
+            int symbol = kind == 0 ? 'a' * 257 : kind == 1 ? 'b' * 257 : random.nextInt(4096);
+            chunk[i] = (byte) (symbol >>> 8);
+            chunk[i + 1] = (byte) symbol;
+        }
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2, 16);
+        sketch.count(chunk, chunk.length);
+        assertEquals(16, sketch.size());
+
+        Set<String> symbols = new HashSet<>();
+        byte[] bytes = sketch.symbols();
+        for (int i = 0; i < bytes.length; i += 2) {
+            symbols.add(new String(bytes, i, 2, StandardCharsets.ISO_8859_1));
+        }
+        assertEquals(16, symbols.size());
+        assertTrue(symbols.contains("aa") && symbols.contains("bb"), symbols::toString);
+    }
+
+    @Test
+    void countsOtherSymbolsAsEscapes() {
+        byte[] candidates = "abcd".getBytes(StandardCharsets.US_ASCII);
+        EscapeFrequencyTable table = new EscapeFrequencyTable(2, candidates);
+        byte[] chunk = "abababcdxyab".getBytes(StandardCharsets.US_ASCII);
+        table.count(chunk, chunk.length);
+
+        int ab = table.indexOf(chunk, 0);
+        int escape = table.indexOf(chunk, 8);
+        assertEquals(table.capacity() - 1, escape);
+        assertEquals(4, table.frequency(ab));
+        assertEquals(1, table.frequency(table.indexOf(chunk, 6)));
+        assertEquals(1, table.frequency(escape));
+        assertTrue(table.hasEscapes());
+        assertArrayEquals(new byte[]{'a', 'b'}, table.symbol(ab).getBytes());
+
+        long[] literals = table.getLiteralFrequencies();
+        assertEquals(1, literals['x']);
+        assertEquals(1, literals['y']);
+        assertEquals(2, Arrays.stream(literals).sum());
+        // the candidates in ascending order, then the escape symbol
+        int[] sorted = table.sortedSymbols();
+        assertEquals(3, sorted.length);
+        assertEquals(escape, sorted[2]);
+        ByteWrapper first = table.symbol(sorted[0]);
+        assertArrayEquals(new byte[]{'a', 'b'}, first.getBytes());
+    }
+
+    @Test
+    void mergesTablesOfTheSameCandidates() {
+        byte[] candidates = TestFiles.text(64, 101);
+        byte[] first = TestFiles.text(10_000, 103);
+        byte[] second = TestFiles.text(10_000, 107);
+
+        EscapeFrequencyTable whole = new EscapeFrequencyTable(1, dedupe(candidates));
+        whole.count(first, first.length);
+        whole.count(second, second.length);
+        EscapeFrequencyTable merged = new EscapeFrequencyTable(1, dedupe(candidates));
+        merged.count(first, first.length);
+        EscapeFrequencyTable other = new EscapeFrequencyTable(1, dedupe(candidates));
+        other.count(second, second.length);
+        merged.merge(other);
+
+        for (int index = 0; index < whole.capacity(); index++) {
+            assertEquals(whole.frequency(index), merged.frequency(index), "symbol " + index);
+        }
+        assertArrayEquals(whole.getLiteralFrequencies(), merged.getLiteralFrequencies());
+    }
+
+    @Test
+    void rejectsTablesOfOtherCandidates() {
+        EscapeFrequencyTable table = new EscapeFrequencyTable(1, new byte[]{'a', 'b'});
+        assertThrows(IllegalArgumentException.class, () -> table.merge(new EscapeFrequencyTable(1, new byte[]{'a', 'c'})));
+        assertThrows(IllegalArgumentException.class, () -> table.merge(FrequencyTable.create(1)));
+    }
+
+    /**
+     * Removes the repeated bytes of a candidate list.
+     *
+     * @param bytes The bytes.
+     * @return The distinct bytes in the order they first occur.
+     */
+    private static byte[] dedupe(byte[] bytes) {
+        Set<Byte> seen = new HashSet<>();
+        byte[] distinct = new byte[bytes.length];
+        int count = 0;
+        for (byte b : bytes) {
+            if (seen.add(b)) {
+                distinct[count++] = b;
+            }
+        }
+        return Arrays.copyOf(distinct, count);
+    }
+}
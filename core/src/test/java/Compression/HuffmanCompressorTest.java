@@ -0,0 +1,133 @@
+package Compression;
+
+import Decompression.DecompressionOptions;
+import Decompression.DictionaryCache;
+import Decompression.HuffmanDecompressor;
+import Util.Dictionary;
+import Util.TestFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compresses files with the options of the command line and checks that they decompress to the original.
+ */
+class HuffmanCompressorTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Compresses a file, checks it and decompresses it with one and with several threads.
+     *
+     * @param data          The contents of the file.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param options       The compression options.
+     * @return The compressed file.
+     * @throws IOException If the compressed file is corrupted.
+     */
+    private Path assertRoundTrip(byte[] data, int numberOfBytes, CompressionOptions options) throws IOException {
+        Path file = TestFiles.write(directory, "input.bin", data);
+        Path compressed = TestFiles.compress(file, numberOfBytes, options);
+        new HuffmanDecompressor(compressed.toString(), new DecompressionOptions()).verify(TestFiles.quiet());
+        assertArrayEquals(data, TestFiles.decompress(compressed, new DecompressionOptions()));
+        assertArrayEquals(data, TestFiles.decompress(compressed, new DecompressionOptions().setThreads(4)));
+        return compressed;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 8})
+    void roundTripsEveryNumberOfBytes(int numberOfBytes) throws IOException {
+        // an odd length leaves a tail that is not a whole symbol
+        assertRoundTrip(TestFiles.text(300_001, numberOfBytes), numberOfBytes, new CompressionOptions());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3})
+    void roundTripsBlocks(int numberOfBytes) throws IOException {
+        CompressionOptions options = new CompressionOptions().setBlockSize(64 * 1024).setSyncInterval(1000);
+        assertRoundTrip(TestFiles.text(250_000, 7), numberOfBytes, options);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2})
+    void roundTripsInterleavedBlocks(int numberOfBytes) throws IOException {
+        CompressionOptions options = new CompressionOptions().setBlockSize(100_000).setInterleaved(true);
+        assertRoundTrip(TestFiles.text(250_000, 11), numberOfBytes, options);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, CompressionOptions.MAX_LEVEL})
+    void roundTripsLevels(int level) throws IOException {
+        CompressionOptions options = new CompressionOptions().setLevel(level);
+        Path compressed = assertRoundTrip(TestFiles.text(200_000, level), 1, options);
+        assertTrue(Files.size(compressed) < 200_000 / 2);
+    }
+
+    @Test
+    void roundTripsWithAnAlphabetLimit() throws IOException {
+        CompressionOptions options = new CompressionOptions().setAlphabetLimit(64).setBlockSize(64 * 1024);
+        assertRoundTrip(TestFiles.text(200_000, 13), 3, options);
+    }
+
+    @Test
+    void roundTripsWithALengthLimit() throws IOException {
+        CompressionOptions options = new CompressionOptions().setMaxCodeLength(9);
+        assertRoundTrip(TestFiles.text(200_000, 17), 2, options);
+    }
+
+    @Test
+    void roundTripsWithThreads() throws IOException {
+        CompressionOptions options = new CompressionOptions().setThreads(4).setBlockSize(32 * 1024);
+        assertRoundTrip(TestFiles.text(300_000, 19), 2, options);
+    }
+
+    @Test
+    void storesIncompressibleBlocks() throws IOException {
+        CompressionOptions options = new CompressionOptions().setBlockSize(64 * 1024);
+        Path compressed = assertRoundTrip(TestFiles.random(200_000, 23), 1, options);
+        assertTrue(Files.size(compressed) < 200_000 + 1024);
+    }
+
+    @Test
+    void roundTripsEmptyAndTinyFiles() throws IOException {
+        assertRoundTrip(new byte[0], 1, new CompressionOptions());
+        assertRoundTrip(new byte[]{42}, 1, new CompressionOptions());
+        assertRoundTrip(new byte[]{1, 2, 3}, 2, new CompressionOptions().setBlockSize(1024));
+    }
+
+    @Test
+    void roundTripsWithADictionary() throws IOException {
+        DictionaryTrainer trainer = new DictionaryTrainer(2, 15);
+        trainer.addSample(TestFiles.write(directory, "sample.txt", TestFiles.text(100_000, 29)));
+        Dictionary dictionary = trainer.train();
+
+        Path file = TestFiles.write(directory, "input.txt", TestFiles.text(150_000, 31));
+        CompressionOptions options = new CompressionOptions().setDictionary(dictionary).setBlockSize(16 * 1024);
+        Path compressed = TestFiles.compress(file, 2, options);
+
+        DecompressionOptions decompressionOptions = new DecompressionOptions()
+                .setDictionaries(new DictionaryCache().add(dictionary));
+        assertArrayEquals(Files.readAllBytes(file), TestFiles.decompress(compressed, decompressionOptions));
+        // without the dictionary the blocks cannot be decoded
+        assertThrows(IOException.class, () -> TestFiles.decompress(compressed, new DecompressionOptions()));
+    }
+
+    @Test
+    void rejectsADictionaryOfAnotherWidth() throws IOException {
+        DictionaryTrainer trainer = new DictionaryTrainer(1, 15);
+        trainer.addSample(TestFiles.write(directory, "sample.txt", TestFiles.text(10_000, 37)));
+        CompressionOptions options = new CompressionOptions().setDictionary(trainer.train());
+        Path file = TestFiles.write(directory, "input.txt", TestFiles.text(10_000, 41));
+        assertThrows(IllegalArgumentException.class, () -> TestFiles.compress(file, 2, options));
+    }
+}
@@ -0,0 +1,109 @@
+package Compression;
+
+import Decompression.DictionaryCache;
+import Decompression.HuffmanInputStream;
+import Util.Dictionary;
+import Util.TestFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compresses data as a stream and checks that it reads back as the original.
+ */
+class HuffmanOutputStreamTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Compresses data as a stream.
+     *
+     * @param data          The data.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param options       The compression options.
+     * @return The compressed stream.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static byte[] compress(byte[] data, int numberOfBytes, CompressionOptions options) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (HuffmanOutputStream out = new HuffmanOutputStream(compressed, numberOfBytes, options)) {
+            // uneven writes, so symbols and blocks are split across them
+            int position = 0;
+            for (int length = 1; position < data.length; length = length * 3 + 1) {
+                int count = Math.min(length, data.length - position);
+                out.write(data, position, count);
+                position += count;
+            }
+        }
+        return compressed.toByteArray();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4})
+    void roundTripsStreams(int numberOfBytes) throws IOException {
+        byte[] data = TestFiles.text(200_003, numberOfBytes);
+        byte[] compressed = compress(data, numberOfBytes, new CompressionOptions().setBlockSize(32 * 1024));
+        try (InputStream in = new HuffmanInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void roundTripsStreamsWithLevelsAndInterleaving() throws IOException {
+        byte[] data = TestFiles.text(150_000, 43);
+        for (CompressionOptions options : new CompressionOptions[]{
+                new CompressionOptions().setBlockSize(40_000).setLevel(5),
+                new CompressionOptions().setBlockSize(40_000).setInterleaved(true)}) {
+            try (InputStream in = new HuffmanInputStream(new ByteArrayInputStream(compress(data, 1, options)))) {
+                assertArrayEquals(data, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void readsStreamsByteByByte() throws IOException {
+        byte[] data = TestFiles.text(10_000, 47);
+        byte[] compressed = compress(data, 2, new CompressionOptions().setBlockSize(1024));
+        try (InputStream in = new HuffmanInputStream(new ByteArrayInputStream(compressed))) {
+            for (byte b : data) {
+                assertEquals(b & 0xFF, in.read());
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void roundTripsStreamsWithADictionary() throws IOException {
+        DictionaryTrainer trainer = new DictionaryTrainer(1, 12);
+        trainer.addSample(TestFiles.write(directory, "sample.txt", TestFiles.text(50_000, 53)));
+        Dictionary dictionary = trainer.train();
+
+        byte[] data = TestFiles.text(100_000, 59);
+        byte[] compressed = compress(data, 1, new CompressionOptions().setBlockSize(8 * 1024).setDictionary(dictionary));
+        try (InputStream in = new HuffmanInputStream(new ByteArrayInputStream(compressed),
+                new DictionaryCache().add(dictionary))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        assertThrows(IOException.class,
+                () -> new HuffmanInputStream(new ByteArrayInputStream(compressed), new DictionaryCache()).readAllBytes());
+    }
+
+    @Test
+    void rejectsATruncatedStream() throws IOException {
+        byte[] compressed = compress(TestFiles.text(50_000, 61), 1, new CompressionOptions().setBlockSize(8 * 1024));
+        ByteArrayInputStream truncated = new ByteArrayInputStream(compressed, 0, compressed.length / 2);
+        assertThrows(IOException.class, () -> new HuffmanInputStream(truncated).readAllBytes());
+    }
+}
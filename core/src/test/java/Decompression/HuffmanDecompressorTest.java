@@ -0,0 +1,251 @@
+package Decompression;
+
+import Compression.CompressionOptions;
+import Util.BlockHeader;
+import Util.HuffmanHeader;
+import Util.TestFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decompresses ranges of compressed files and checks that corrupted files are rejected.
+ */
+class HuffmanDecompressorTest {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int SYNC_INTERVAL = 1000;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Compresses a text file of a few blocks with sync points.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param options       The compression options.
+     * @return The compressed file.
+     * @throws IOException If the input cannot be written.
+     */
+    private Path compress(int numberOfBytes, CompressionOptions options) throws IOException {
+        Path file = TestFiles.write(directory, "input.txt", TestFiles.text(250_001, numberOfBytes));
+        return TestFiles.compress(file, numberOfBytes, options);
+    }
+
+    /**
+     * Retrieves the compression options of the files whose blocks are corrupted.
+     *
+     * @return The compression options.
+     */
+    private static CompressionOptions blockOptions() {
+        return new CompressionOptions().setBlockSize(BLOCK_SIZE).setSyncInterval(SYNC_INTERVAL);
+    }
+
+    /**
+     * Decompresses a range and checks it against the original file.
+     *
+     * @param compressed The compressed file.
+     * @param original   The contents of the original file.
+     * @param offset     The offset of the range.
+     * @param length     The length of the range.
+     * @throws IOException If the compressed file is corrupted.
+     */
+    private static void assertRange(Path compressed, byte[] original, long offset, long length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = decompressRange(compressed, offset, length, out);
+        int from = (int) Math.min(offset, original.length);
+        int to = (int) Math.min(offset + length, original.length);
+        assertEquals(to - from, written, "bytes written for the range at " + offset);
+        assertArrayEquals(Arrays.copyOfRange(original, from, to), out.toByteArray(), "range at " + offset);
+    }
+
+    /**
+     * Decompresses a range.
+     *
+     * @param compressed The compressed file.
+     * @param offset     The offset of the range.
+     * @param length     The length of the range.
+     * @param out        The stream the range is written to.
+     * @return The number of bytes written.
+     * @throws IOException If the compressed file is corrupted.
+     */
+    private static long decompressRange(Path compressed, long offset, long length, ByteArrayOutputStream out)
+            throws IOException {
+        return new HuffmanDecompressor(compressed.toString(), new DecompressionOptions())
+                .decompressRange(offset, length, out);
+    }
+
+    /**
+     * Checks the ranges at the start, the end, the block boundaries and the sync points of a file.
+     *
+     * @param compressed The compressed file.
+     * @throws IOException If the compressed file is corrupted.
+     */
+    private void assertRanges(Path compressed) throws IOException {
+        byte[] original = Files.readAllBytes(directory.resolve("in").resolve("input.txt"));
+        long[] offsets = {0, 1, 999, 2_000, 2_001, 7_777, BLOCK_SIZE - 5, BLOCK_SIZE, 100_000,
+                original.length - 3, original.length};
+        for (long offset : offsets) {
+            for (long length : new long[]{0, 1, 17, 5_000, BLOCK_SIZE + 3}) {
+                assertRange(compressed, original, offset, length);
+            }
+        }
+        assertRange(compressed, original, 0, original.length);
+        assertThrows(IllegalArgumentException.class,
+                () -> decompressRange(compressed, original.length + 1, 5, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void decompressesRangesOfASingleBlock() throws IOException {
+        assertRanges(compress(2, new CompressionOptions().setSyncInterval(SYNC_INTERVAL)));
+    }
+
+    @Test
+    void decompressesRangesAcrossBlocks() throws IOException {
+        assertRanges(compress(1, blockOptions()));
+        assertRanges(compress(3, blockOptions()));
+    }
+
+    @Test
+    void decompressesRangesOfInterleavedBlocks() throws IOException {
+        assertRanges(compress(2, new CompressionOptions().setBlockSize(BLOCK_SIZE).setInterleaved(true)));
+    }
+
+    @Test
+    void decompressesRangesOfLz77Blocks() throws IOException {
+        assertRanges(compress(1, new CompressionOptions().setBlockSize(BLOCK_SIZE).setLevel(3)));
+    }
+
+    @Test
+    void decompressesRangesOfStoredBlocks() throws IOException {
+        Path file = TestFiles.write(directory, "input.txt", TestFiles.random(200_000, 3));
+        assertRanges(TestFiles.compress(file, 1, blockOptions()));
+    }
+
+    @Test
+    void rejectsANegativeRange() throws IOException {
+        Path compressed = compress(1, blockOptions());
+        assertThrows(IllegalArgumentException.class,
+                () -> decompressRange(compressed, -1, 10, new ByteArrayOutputStream()));
+    }
+
+    /**
+     * Reads the header of a compressed file.
+     *
+     * @param compressed The compressed file.
+     * @return The header.
+     * @throws IOException If the header cannot be read.
+     */
+    private static HuffmanHeader readHeader(Path compressed) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(compressed))) {
+            return HuffmanHeader.read(in);
+        }
+    }
+
+    /**
+     * Reads the header of a block of a compressed file.
+     *
+     * @param compressed The compressed file.
+     * @param block      The index of the block.
+     * @return The header of the block.
+     * @throws IOException If the header cannot be read.
+     */
+    private static BlockHeader readBlockHeader(Path compressed, int block) throws IOException {
+        HuffmanHeader header = readHeader(compressed);
+        try (InputStream in = Files.newInputStream(compressed)) {
+            in.skipNBytes(header.getBlockOffsets()[block]);
+            return BlockHeader.read(new DataInputStream(in), header.getNumberOfBytes());
+        }
+    }
+
+    /**
+     * Checks that verifying, decompressing and decompressing a range of a corrupted file fail.
+     *
+     * @param compressed  The corrupted file.
+     * @param rangeOffset The offset of a range whose decompression decodes the corrupted bytes.
+     * @param rangeLength The length of the range.
+     */
+    private static void assertCorrupted(Path compressed, long rangeOffset, long rangeLength) {
+        HuffmanDecompressor decompressor = new HuffmanDecompressor(compressed.toString(), new DecompressionOptions());
+        assertCorruptedMessage(assertThrows(IOException.class, () -> decompressor.verify(TestFiles.quiet())));
+        assertCorruptedMessage(assertThrows(IOException.class,
+                () -> TestFiles.decompress(compressed, new DecompressionOptions())));
+        assertCorruptedMessage(assertThrows(IOException.class,
+                () -> TestFiles.decompress(compressed, new DecompressionOptions().setThreads(4))));
+        assertCorruptedMessage(assertThrows(IOException.class,
+                () -> decompressRange(compressed, rangeOffset, rangeLength, new ByteArrayOutputStream())));
+    }
+
+    /**
+     * Checks that an exception reports corrupted data.
+     *
+     * @param e The exception.
+     */
+    private static void assertCorruptedMessage(IOException e) {
+        assertTrue(e.getMessage() != null && e.getMessage().startsWith("Corrupted compressed data"), e::toString);
+    }
+
+    @Test
+    void rejectsACorruptedBlockIndex() throws IOException {
+        Path compressed = compress(2, blockOptions());
+        HuffmanHeader header = readHeader(compressed);
+        long[] offsets = header.getBlockOffsets();
+        // the last byte of the offset of the second block, the offsets end the header
+        TestFiles.corrupt(compressed, header.size() - 8L * (offsets.length - 1) + 7);
+        assertCorrupted(compressed, BLOCK_SIZE + 10, 100);
+    }
+
+    @Test
+    void rejectsACorruptedSyncPoint() throws IOException {
+        Path compressed = compress(2, blockOptions());
+        long blockOffset = readHeader(compressed).getBlockOffsets()[0];
+        BlockHeader blockHeader = readBlockHeader(compressed, 0);
+        assertTrue(blockHeader.getSyncPointCount() > 2);
+        // the last byte of the first sync point, which follows the payload
+        long syncPoints = blockOffset + blockHeader.size() + blockHeader.getPayloadLength();
+        TestFiles.corrupt(compressed, syncPoints + 7);
+        // the range starts after the first sync point, decoding starts before it and reaches it
+        assertCorrupted(compressed, 2 * SYNC_INTERVAL + 100, 100);
+    }
+
+    @Test
+    void rejectsACorruptedChecksum() throws IOException {
+        Path compressed = compress(2, blockOptions());
+        long blockOffset = readHeader(compressed).getBlockOffsets()[1];
+        BlockHeader blockHeader = readBlockHeader(compressed, 1);
+        TestFiles.corrupt(compressed, blockOffset + blockHeader.encodedLength() - 1);
+        // the checksum is checked when a range covers the whole block
+        assertCorrupted(compressed, BLOCK_SIZE, BLOCK_SIZE);
+    }
+
+    @Test
+    void rejectsACorruptedStoredBlock() throws IOException {
+        Path file = TestFiles.write(directory, "input.txt", TestFiles.random(200_000, 5));
+        Path compressed = TestFiles.compress(file, 1, blockOptions());
+        BlockHeader blockHeader = readBlockHeader(compressed, 0);
+        assertTrue(blockHeader.isStored());
+        TestFiles.corrupt(compressed, readHeader(compressed).getBlockOffsets()[0] + blockHeader.size() + 100);
+        assertCorrupted(compressed, 0, BLOCK_SIZE);
+    }
+
+    @Test
+    void rejectsACorruptedPayload() throws IOException {
+        Path compressed = compress(1, blockOptions());
+        long blockOffset = readHeader(compressed).getBlockOffsets()[0];
+        BlockHeader blockHeader = readBlockHeader(compressed, 0);
+        TestFiles.corrupt(compressed, blockOffset + blockHeader.size() + blockHeader.getPayloadLength() / 2);
+        assertCorrupted(compressed, 0, BLOCK_SIZE);
+    }
+}
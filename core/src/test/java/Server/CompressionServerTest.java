@@ -0,0 +1,132 @@
+package Server;
+
+import Compression.CompressionOptions;
+import Compression.HuffmanOutputStream;
+import Decompression.HuffmanInputStream;
+import Util.TestFiles;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs requests through a server on a Unix domain socket.
+ */
+class CompressionServerTest {
+
+    @TempDir
+    Path directory;
+
+    private CompressionServer server;
+    private Thread serverThread;
+    private CompressionClient client;
+
+    /**
+     * Runs the requests of the tests: "c" compresses the input, "echo" writes its arguments and
+     * "fail" fails.
+     *
+     * @param args The arguments of the request.
+     * @param in   The input of the request.
+     * @param out  The output of the request.
+     * @throws IOException If the request fails.
+     */
+    private static void handle(String[] args, InputStream in, PrintStream out) throws IOException {
+        switch (args[0]) {
+            case "c":
+                try (HuffmanOutputStream compressed = new HuffmanOutputStream(out, Integer.parseInt(args[1]),
+                        new CompressionOptions().setBlockSize(16 * 1024))) {
+                    in.transferTo(compressed);
+                }
+                break;
+            case "echo":
+                out.write(String.join(" ", args).getBytes(StandardCharsets.UTF_8));
+                break;
+            default:
+                throw new IOException("Invalid command: " + args[0]);
+        }
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        SocketAddress address = CompressionServer.parseAddress(directory.resolve("server.sock").toString());
+        server = new CompressionServer(address, CompressionServerTest::handle);
+        serverThread = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serverThread.start();
+        client = new CompressionClient(address);
+    }
+
+    @AfterEach
+    void stopServer() throws IOException, InterruptedException {
+        server.close();
+        serverThread.join(10_000);
+        assertFalse(Files.exists(directory.resolve("server.sock")));
+    }
+
+    @Test
+    void compressesTheInputOfARequest() throws IOException {
+        byte[] data = TestFiles.text(300_000, 109);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        client.send(new String[]{"c", "2"}, new ByteArrayInputStream(data), out);
+        assertTrue(out.size() < data.length);
+        try (InputStream in = new HuffmanInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void runsRequestsWithoutInput() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        client.send(new String[]{"echo", "a", "é"}, null, out);
+        assertEquals("echo a é", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void reportsAFailedRequest() {
+        IOException e = assertThrows(IOException.class,
+                () -> client.send(new String[]{"x"}, null, new ByteArrayOutputStream()));
+        assertEquals("Invalid command: x", e.getMessage());
+    }
+
+    @Test
+    void rejectsTooManyArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> client.send(new String[0], null, new ByteArrayOutputStream()));
+        assertThrows(IllegalArgumentException.class, () -> client.send(
+                new String[CompressionServer.MAX_ARGUMENTS + 1], null, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void parsesAddresses() throws IOException {
+        assertInstanceOf(UnixDomainSocketAddress.class, CompressionServer.parseAddress("unix:server.sock"));
+        InetSocketAddress port = (InetSocketAddress) CompressionServer.parseAddress("4321");
+        assertTrue(port.getAddress().isLoopbackAddress());
+        assertEquals(4321, port.getPort());
+        assertEquals(4322, ((InetSocketAddress) CompressionServer.parseAddress("127.0.0.1:4322")).getPort());
+        assertThrows(IllegalArgumentException.class, () -> CompressionServer.parseAddress("192.0.2.1:4323"));
+    }
+}
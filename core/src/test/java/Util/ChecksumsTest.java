@@ -0,0 +1,65 @@
+package Util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the checksums of files and of pieces combined into one.
+ */
+class ChecksumsTest {
+
+    /**
+     * Calculates the CRC32C of a piece of data.
+     *
+     * @param data   The data.
+     * @param offset The offset of the piece.
+     * @param length The length of the piece.
+     * @return The checksum.
+     */
+    private static int crc32c(byte[] data, int offset, int length) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(data, offset, length);
+        return (int) checksum.getValue();
+    }
+
+    @Test
+    void combinesTheChecksumsOfTwoPieces() {
+        byte[] data = TestFiles.random(100_000, 73);
+        int whole = crc32c(data, 0, data.length);
+        for (int split : new int[]{0, 1, 7, 4096, 65_537, data.length - 1, data.length}) {
+            int first = crc32c(data, 0, split);
+            int second = crc32c(data, split, data.length - split);
+            assertEquals(whole, Checksums.combine(first, second, data.length - split), "split at " + split);
+        }
+    }
+
+    @Test
+    void combinesTheChecksumsOfManyPieces() {
+        byte[] data = TestFiles.text(50_000, 79);
+        int combined = crc32c(data, 0, 0);
+        for (int offset = 0; offset < data.length; offset += 999) {
+            int length = Math.min(999, data.length - offset);
+            combined = Checksums.combine(combined, crc32c(data, offset, length), length);
+        }
+        assertEquals(crc32c(data, 0, data.length), combined);
+    }
+
+    @Test
+    void checksumsARegionOfAFile(@TempDir Path directory) throws IOException {
+        byte[] data = TestFiles.random(300_000, 83);
+        Path file = Files.write(directory.resolve("data.bin"), data);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertEquals(crc32c(data, 0, data.length), Checksums.of(channel, 0, data.length));
+            assertEquals(crc32c(data, 12_345, 200_000), Checksums.of(channel, 12_345, 200_000));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the code word lengths and the canonical code words of Huffman trees.
+ */
+class HuffmanTreeTest {
+
+    /**
+     * Builds the code words of a frequency table.
+     *
+     * @param frequencies The frequency of each symbol.
+     * @param maxLength   The maximum code word length.
+     * @return The code word of each symbol.
+     */
+    private static CodeWord[] buildCodeWords(long[] frequencies, int maxLength) {
+        HuffmanTree tree = new HuffmanTree(frequencies, maxLength);
+        tree.buildTree();
+        return tree.buildCodeWords();
+    }
+
+    /**
+     * Checks that code words form a complete prefix code no longer than the maximum length.
+     *
+     * @param codeWords The code words.
+     * @param maxLength The maximum code word length.
+     */
+    private static void assertPrefixCode(CodeWord[] codeWords, int maxLength) {
+        double kraftSum = 0;
+        for (int i = 0; i < codeWords.length; i++) {
+            CodeWord codeWord = codeWords[i];
+            assertTrue(codeWord.length >= 1 && codeWord.length <= maxLength, "length of symbol " + i);
+            kraftSum += Math.pow(2, -codeWord.length);
+            for (int j = 0; j < i; j++) {
+                CodeWord other = codeWords[j];
+                int shorter = Math.min(codeWord.length, other.length);
+                assertFalse(codeWord.bits >>> (codeWord.length - shorter) == other.bits >>> (other.length - shorter),
+                        "symbol " + j + " is a prefix of symbol " + i + " or the other way around");
+            }
+        }
+        assertEquals(1.0, kraftSum, 1e-9);
+    }
+
+    @Test
+    void limitsTheCodeWordLengths() {
+        // Fibonacci frequencies give the deepest tree, one more level per symbol
+        long[] frequencies = new long[40];
+        frequencies[0] = 1;
+        frequencies[1] = 1;
+        for (int i = 2; i < frequencies.length; i++) {
+            frequencies[i] = frequencies[i - 1] + frequencies[i - 2];
+        }
+        assertPrefixCode(buildCodeWords(frequencies, CodeWord.MAX_LENGTH), CodeWord.MAX_LENGTH);
+        for (int maxLength : new int[]{6, 8, 12, 20}) {
+            assertPrefixCode(buildCodeWords(frequencies, maxLength), maxLength);
+        }
+    }
+
+    @Test
+    void keepsTheOptimalLengthsWhenTheyFit() {
+        long[] frequencies = new long[300];
+        Random random = new Random(89);
+        for (int i = 0; i < frequencies.length; i++) {
+            frequencies[i] = 1 + random.nextInt(1000);
+        }
+        HuffmanTree tree = new HuffmanTree(frequencies);
+        tree.buildTree();
+        assertPrefixCode(tree.buildCodeWords(), CodeWord.MAX_LENGTH);
+        assertEquals(tree.getOptimalBits(), tree.getEncodedBits());
+
+        HuffmanTree limited = new HuffmanTree(frequencies, 9);
+        limited.buildTree();
+        assertPrefixCode(limited.buildCodeWords(), 9);
+        assertTrue(limited.getEncodedBits() >= limited.getOptimalBits());
+    }
+
+    @Test
+    void raisesALimitTooShortForTheAlphabet() {
+        long[] frequencies = new long[100];
+        Arrays.fill(frequencies, 1);
+        // 100 symbols need code words of at least 7 bits
+        assertPrefixCode(buildCodeWords(frequencies, 3), 7);
+    }
+
+    @Test
+    void assignsCanonicalCodesInSymbolOrder() {
+        CodeWord[] codeWords = HuffmanTree.assignCanonicalCodes(new int[]{2, 1, 3, 3});
+        assertEquals(0b10, codeWords[0].bits);
+        assertEquals(0b0, codeWords[1].bits);
+        assertEquals(0b110, codeWords[2].bits);
+        assertEquals(0b111, codeWords[3].bits);
+    }
+
+    @Test
+    void rejectsAnInvalidMaximumLength() {
+        assertThrows(IllegalArgumentException.class, () -> new HuffmanTree(new long[]{1, 2}, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HuffmanTree(new long[]{1, 2}, CodeWord.MAX_LENGTH + 1));
+    }
+}
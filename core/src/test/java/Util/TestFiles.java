@@ -0,0 +1,136 @@
+package Util;
+
+import Compression.CompressionOptions;
+import Compression.HuffmanCompressor;
+import Decompression.DecompressionOptions;
+import Decompression.HuffmanDecompressor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Creates the inputs of the tests and runs the compressor and the decompressor on them.
+ */
+public final class TestFiles {
+
+    private static final String[] WORDS = {
+            "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "huffman", "code", "word",
+            "symbol", "block", "tree", "canonical", "length", "prefix", "stream", "sync", "point",
+            "checksum", "dictionary", "archive", "range", "offset", "window", "match", "literal"
+    };
+
+    /**
+     * Prevents instantiation.
+     */
+    private TestFiles() {
+    }
+
+    /**
+     * Generates text made of random words, which every number of bytes per symbol compresses.
+     *
+     * @param length The number of bytes.
+     * @param seed   The seed of the words.
+     * @return The text.
+     */
+    public static byte[] text(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            text.append(random.nextInt(12) == 0 ? ".\n" : " ");
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Generates random bytes, which are stored rather than encoded.
+     *
+     * @param length The number of bytes.
+     * @param seed   The seed of the bytes.
+     * @return The bytes.
+     */
+    public static byte[] random(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes an input file. The file is put in a directory of its own, since the compressed file is
+     * written next to that directory.
+     *
+     * @param directory The temporary directory of the test.
+     * @param name      The name of the file.
+     * @param data      The contents of the file.
+     * @return The path of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static Path write(Path directory, String name, byte[] data) throws IOException {
+        Path inputDirectory = Files.createDirectories(directory.resolve("in"));
+        return Files.write(inputDirectory.resolve(name), data);
+    }
+
+    /**
+     * Compresses a file.
+     *
+     * @param file          The file.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param options       The compression options.
+     * @return The path of the compressed file.
+     */
+    public static Path compress(Path file, int numberOfBytes, CompressionOptions options) {
+        new HuffmanCompressor(file.toString(), numberOfBytes, options).compress(quiet());
+        Path compressed = Path.of(file.getParent() + "\\Compressed." + numberOfBytes + "." + file.getFileName() + ".hc");
+        if (!Files.isRegularFile(compressed)) {
+            throw new AssertionError("No compressed file was written for " + file);
+        }
+        return compressed;
+    }
+
+    /**
+     * Decompresses a file and reads the decompressed file.
+     *
+     * @param compressed The compressed file.
+     * @param options    The decompression options.
+     * @return The decompressed bytes.
+     * @throws IOException If the file is corrupted.
+     */
+    public static byte[] decompress(Path compressed, DecompressionOptions options) throws IOException {
+        new HuffmanDecompressor(compressed.toString(), options).decompress(quiet());
+        String path = compressed.toString();
+        int nameIndex = path.lastIndexOf('\\') + 1;
+        // "Compressed.<n>.<name>.hc" is decompressed to "Decompressed.<n>.<name>"
+        Path decompressed = Path.of(path.substring(0, nameIndex) + "Decompressed."
+                + path.substring(nameIndex + "Compressed.".length(), path.length() - ".hc".length()));
+        return Files.readAllBytes(decompressed);
+    }
+
+    /**
+     * Changes one byte of a file.
+     *
+     * @param file     The file.
+     * @param position The position of the byte.
+     * @throws IOException If the file cannot be changed.
+     */
+    public static void corrupt(Path file, long position) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[Math.toIntExact(position)] ^= 0x5A;
+        Files.write(file, bytes);
+    }
+
+    /**
+     * Retrieves a stream that discards the statistics the compressor and the decompressor print.
+     *
+     * @return The stream.
+     */
+    public static PrintStream quiet() {
+        return new PrintStream(OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,295 @@
+package Compression;
+
+import Util.ArchiveEntry;
+import Util.ArchiveIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Compresses many files into a single archive in one run.
+ * Every file becomes an entry of its own, compressed as a streamed compressed file with its own
+ * number of bytes. The entries are compressed concurrently on a fixed number of threads and written
+ * in order as they complete, at most two entries per thread are kept in memory. Entries larger than
+ * {@link #IN_MEMORY_LIMIT} are compressed into a temporary file instead and copied into the archive.
+ * The index of the archive, see {@link ArchiveIndex}, is written last.
+ */
+public class ArchiveCompressor {
+
+    // Number of bytes that stands for choosing the number of bytes of every entry from a sample of it
+    public static final int AUTO = 0;
+
+    // Largest original file that is compressed in memory
+    public static final long IN_MEMORY_LIMIT = 64L << 20;
+
+    private final int numberOfBytes;
+    private final CompressionOptions options;
+
+    // The file of each entry by name, in the order the entries are added
+    private final Map<String, Path> entries = new LinkedHashMap<>();
+
+    /**
+     * Constructs an ArchiveCompressor.
+     *
+     * @param numberOfBytes The number of bytes in each symbol, or {@link #AUTO}.
+     * @param options       The settings of the compression, the I/O mode is not used.
+     */
+    public ArchiveCompressor(int numberOfBytes, CompressionOptions options) {
+        if (numberOfBytes < AUTO || numberOfBytes > 255) {
+            throw new IllegalArgumentException("Number of bytes must be between 1 and 255");
+        }
+        this.numberOfBytes = numberOfBytes;
+        this.options = options;
+    }
+
+    /**
+     * Adds a file as an entry.
+     *
+     * @param name The name of the entry, a relative path with '/' separating directories.
+     * @param file The file.
+     * @return This compressor.
+     */
+    public ArchiveCompressor add(String name, Path file) {
+        if (entries.putIfAbsent(name, file) != null) {
+            throw new IllegalArgumentException("Duplicate archive entry: " + name);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a file, or all files below a directory, as entries.
+     * A file is named by its file name, and the files below a directory by their path relative to
+     * the parent of the directory, so the directory itself is part of their names.
+     *
+     * @param input The file or directory.
+     * @return This compressor.
+     * @throws IOException If the directory cannot be listed.
+     */
+    public ArchiveCompressor addInput(Path input) throws IOException {
+        if (!Files.isDirectory(input)) {
+            return add(input.getFileName().toString(), input);
+        }
+        Path base = input.toAbsolutePath().normalize().getParent();
+        try (Stream<Path> files = Files.walk(input)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                Path relative = base == null ? file : base.relativize(file.toAbsolutePath().normalize());
+                add(relative.toString().replace(relative.getFileSystem().getSeparator(), "/"), file);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Retrieves the number of entries added so far.
+     *
+     * @return The number of entries.
+     */
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Compresses all entries into an archive.
+     *
+     * @param archivePath The path of the archive to create.
+     * @return The index of the archive.
+     * @throws IOException If a file cannot be read or the archive cannot be written.
+     */
+    public ArchiveIndex compress(Path archivePath) throws IOException {
+        List<String> names = new ArrayList<>(entries.keySet());
+        int threads = options.getThreads();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<CompressedEntry>> pending = new ArrayDeque<>();
+
+        try (FileChannel output = FileChannel.open(archivePath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream(ArchiveIndex.HEADER_SIZE);
+            ArchiveIndex.writeHeader(new DataOutputStream(header));
+            writeFully(output, ByteBuffer.wrap(header.toByteArray()));
+
+            List<ArchiveEntry> archiveEntries = new ArrayList<>(names.size());
+            int submitted = 0;
+            for (int entry = 0; entry < names.size(); entry++) {
+                while (submitted < names.size() && submitted - entry < 2 * threads) {
+                    String name = names.get(submitted);
+                    Path file = entries.get(name);
+                    pending.add(executor.submit(() -> compressEntry(file)));
+                    submitted++;
+                }
+
+                CompressedEntry compressed = pending.poll().get();
+                long offset = output.position();
+                long compressedSize = compressed.writeTo(output);
+                archiveEntries.add(new ArchiveEntry(names.get(entry), compressed.numberOfBytes,
+                        compressed.originalSize, offset, compressedSize, compressed.checksum));
+            }
+
+            ArchiveIndex index = new ArchiveIndex(archiveEntries);
+            writeFully(output, ByteBuffer.wrap(index.toByteArray(output.position())));
+            return index;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            executor.shutdownNow();
+            discard(pending);
+        }
+    }
+
+    /**
+     * Removes the temporary files of entries that were compressed but not written to the archive.
+     * Entries that are still being compressed are left alone, the executor has been shut down.
+     *
+     * @param pending The entries that were not written.
+     */
+    private static void discard(Deque<Future<CompressedEntry>> pending) {
+        for (Future<CompressedEntry> future : pending) {
+            if (!future.isDone() || future.isCancelled()) {
+                continue;
+            }
+            try {
+                Path temporaryFile = future.get().temporaryFile;
+                if (temporaryFile != null) {
+                    Files.deleteIfExists(temporaryFile);
+                }
+            } catch (ExecutionException e) {
+                // the entry failed, it has removed its temporary file itself
+            } catch (IOException e) {
+                // the archive has failed already, a temporary file left behind is not worth another error
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Compresses one file, in memory or into a temporary file depending on its size.
+     *
+     * @param file The file.
+     * @return The compressed entry.
+     * @throws IOException If an I/O error occurs.
+     */
+    private CompressedEntry compressEntry(Path file) throws IOException {
+        int entryNumberOfBytes = numberOfBytes;
+        if (entryNumberOfBytes == AUTO) {
+            SymbolWidthEstimator estimator = new SymbolWidthEstimator(file.toString());
+            estimator.estimate();
+            entryNumberOfBytes = estimator.getNumberOfBytes();
+        }
+
+        long originalSize = Files.size(file);
+        // a small file gets a block of its own size, so small entries do not allocate whole blocks
+        long blockSize = options.getBlockSize() > 0 ? options.getBlockSize() : HuffmanOutputStream.DEFAULT_BLOCK_SIZE;
+        blockSize = Math.max(1, Math.min(blockSize, originalSize));
+
+        Path temporaryFile = originalSize > IN_MEMORY_LIMIT ? Files.createTempFile("huffman-archive", ".hc") : null;
+        ByteArrayOutputStream memory = temporaryFile == null ? new ByteArrayOutputStream((int) originalSize / 2 + 64) : null;
+        OutputStream target = temporaryFile == null ? memory : new BufferedOutputStream(Files.newOutputStream(temporaryFile));
+        CRC32C checksum = new CRC32C();
+        try (InputStream in = new CheckedInputStream(Files.newInputStream(file), checksum);
+             OutputStream out = new HuffmanOutputStream(target, entryNumberOfBytes, (int) blockSize, options)) {
+            in.transferTo(out);
+        } catch (IOException | RuntimeException e) {
+            if (temporaryFile != null) {
+                Files.deleteIfExists(temporaryFile);
+            }
+            throw e;
+        }
+        byte[] data = memory == null ? null : memory.toByteArray();
+        return new CompressedEntry(entryNumberOfBytes, originalSize, (int) checksum.getValue(), data, temporaryFile);
+    }
+
+    /**
+     * Writes a buffer to the current position of a channel.
+     *
+     * @param channel The channel to write to.
+     * @param buffer  The bytes to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * The compressed data of one entry, held in memory or in a temporary file, and what the index records about it.
+     */
+    private static final class CompressedEntry {
+
+        private final int numberOfBytes;
+        private final long originalSize;
+        private final int checksum;
+        private final byte[] data;
+        private final Path temporaryFile;
+
+        /**
+         * Constructs a CompressedEntry.
+         *
+         * @param numberOfBytes The number of bytes in each symbol.
+         * @param originalSize  The size of the original file.
+         * @param checksum      The CRC32C of the original file.
+         * @param data          The compressed data, or null if it is in a temporary file.
+         * @param temporaryFile The temporary file holding the compressed data, or null.
+         */
+        private CompressedEntry(int numberOfBytes, long originalSize, int checksum, byte[] data, Path temporaryFile) {
+            this.numberOfBytes = numberOfBytes;
+            this.originalSize = originalSize;
+            this.checksum = checksum;
+            this.data = data;
+            this.temporaryFile = temporaryFile;
+        }
+
+        /**
+         * Appends the compressed data to the archive and removes the temporary file.
+         *
+         * @param output The channel of the archive, positioned at its end.
+         * @return The number of bytes written.
+         * @throws IOException If an I/O error occurs.
+         */
+        private long writeTo(FileChannel output) throws IOException {
+            if (data != null) {
+                writeFully(output, ByteBuffer.wrap(data));
+                return data.length;
+            }
+            try (FileChannel input = FileChannel.open(temporaryFile, StandardOpenOption.READ)) {
+                long size = input.size();
+                long position = 0;
+                while (position < size) {
+                    position += input.transferTo(position, size - position, output);
+                }
+                return size;
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+    }
+}
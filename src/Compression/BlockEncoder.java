@@ -0,0 +1,434 @@
+package Compression;
+
+import Util.BlockHeader;
+import Util.ByteWrapper;
+import Util.CodeWord;
+import Util.Dictionary;
+import Util.HuffmanTree;
+import Util.LzAlphabet;
+import Util.Metrics;
+import Util.MetricsListener;
+import Util.Phase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * Encodes blocks of data, each with its own frequency table and code words.
+ * Blocks can be encoded concurrently. A block that Huffman coding would not shrink is stored as is.
+ * Given a dictionary, a block is encoded with the code table of the dictionary instead of its own
+ * whenever that makes the block smaller.
+ * With an alphabet limit, the code table of a block only holds its most frequent symbols, and the
+ * other symbols are escaped and coded as literal bytes.
+ * At a level of at least one, each block is parsed into literals and matches first, which are then
+ * Huffman coded as an LZ77 block.
+ * The encoder adds up what the code word length limit costs over all blocks it encodes.
+ */
+class BlockEncoder {
+
+    private final int numberOfBytes;
+    private final int bufferSize;
+    private final int maxCodeLength;
+    private final MetricsListener metricsListener;
+    private final Dictionary dictionary;
+    private final int syncInterval;
+    private final boolean interleaved;
+    private final int alphabetLimit;
+    private final int level;
+    private final int windowSize;
+    private final int searchDepth;
+
+    // Total length of the encoded blocks with unlimited and with limited code word lengths
+    private final LongAdder optimalBits = new LongAdder();
+    private final LongAdder encodedBits = new LongAdder();
+
+    /**
+     * Constructs a BlockEncoder.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param bufferSize    The size of the encoder's output buffer in bytes.
+     * @param options       The code word length limit, metrics listener, dictionary, sync interval,
+     *                      interleaving, alphabet limit and LZ77 level the blocks are encoded with.
+     */
+    BlockEncoder(int numberOfBytes, int bufferSize, CompressionOptions options) {
+        Dictionary dictionary = options.getDictionary();
+        if (dictionary != null && dictionary.getNumberOfBytes() != numberOfBytes) {
+            throw new IllegalArgumentException("The dictionary was trained for " + dictionary.getNumberOfBytes()
+                    + " bytes per symbol, not " + numberOfBytes);
+        }
+        this.numberOfBytes = numberOfBytes;
+        this.bufferSize = bufferSize;
+        this.maxCodeLength = options.getMaxCodeLength();
+        this.metricsListener = options.getMetricsListener();
+        this.dictionary = dictionary;
+        this.syncInterval = options.getSyncInterval();
+        this.interleaved = options.isInterleaved();
+        this.alphabetLimit = options.getAlphabetLimit();
+        this.level = options.getLevel();
+        this.windowSize = options.getWindowSize();
+        this.searchDepth = options.getSearchDepth();
+        if (level > 0 && (dictionary != null || interleaved || alphabetLimit > 0)) {
+            throw new IllegalArgumentException("LZ77 blocks have code tables of their own, they cannot be combined "
+                    + "with a dictionary, interleaving or an alphabet limit");
+        }
+    }
+
+    /**
+     * Encodes a block of data with its own code words.
+     *
+     * @param data   The bytes of the block.
+     * @param length The number of bytes in the block.
+     * @return The block header followed by the encoded data and the sync points, or by the
+     * original bytes for a stored block, and the checksum of the original bytes.
+     * @throws IOException If an I/O error occurs.
+     */
+    byte[] encode(byte[] data, int length) throws IOException {
+        if (level > 0) {
+            return encodeLz77(data, length);
+        }
+        int mod = length % numberOfBytes;
+        Metrics.Timer timer = Metrics.start(metricsListener, Phase.HISTOGRAM);
+        FrequencyTable frequencyTable = countSymbols(data, length - mod);
+        int[] symbols = frequencyTable.sortedSymbols();
+        CRC32C checksum = new CRC32C();
+        checksum.update(data, 0, length);
+        timer.stop(length);
+
+        timer = Metrics.start(metricsListener, Phase.TREE_BUILD);
+        HuffmanTree huffmanTree = new HuffmanTree(frequencyTable.getFrequencies(symbols), maxCodeLength);
+        huffmanTree.buildTree();
+        timer.stop(length);
+
+        timer = Metrics.start(metricsListener, Phase.CODE_GENERATION);
+        CodeWord[] codeWords = huffmanTree.buildCodeWords();
+        CodeWord[] literalCodeWords = null;
+        if (frequencyTable instanceof EscapeFrequencyTable && ((EscapeFrequencyTable) frequencyTable).hasEscapes()) {
+            literalCodeWords = buildLiteralCodeWords(((EscapeFrequencyTable) frequencyTable).getLiteralFrequencies());
+        }
+        timer.stop(length);
+
+        // only the last block can end with bytes that do not form a whole symbol
+        byte[] blockTail = Arrays.copyOfRange(data, length - mod, length);
+        BlockHeader blockHeader = literalCodeWords == null
+                ? FileCompressorManager.createBlockHeader(frequencyTable, symbols, codeWords, length / numberOfBytes,
+                blockTail, syncInterval)
+                : createEscapedBlockHeader((EscapeFrequencyTable) frequencyTable, symbols, codeWords, literalCodeWords,
+                length / numberOfBytes, blockTail);
+        // the code table of a dictionary has no escape symbol
+        CodeWord[] dictionaryCodeWords = dictionary == null || literalCodeWords != null
+                ? null : dictionaryCodeWords(frequencyTable, symbols);
+        if (dictionaryCodeWords != null) {
+            long payloadLength = BlockHeader.payloadLength(frequencyTable.getFrequencies(symbols), dictionaryCodeWords);
+            BlockHeader dictionaryHeader = BlockHeader.dictionary(length / numberOfBytes, dictionary, blockTail,
+                    syncInterval, payloadLength);
+            if (dictionaryHeader.encodedLength() <= blockHeader.encodedLength()) {
+                blockHeader = dictionaryHeader;
+                codeWords = dictionaryCodeWords;
+            }
+        }
+        // an interleaved block has no sync points, but a jump table and up to a byte of padding per stream
+        BlockHeader encodedHeader = interleaved ? blockHeader.interleaved(blockHeader.getPayloadLength()
+                + BlockHeader.JUMP_TABLE_SIZE + BlockHeader.STREAMS - 1) : blockHeader;
+        if (FileCompressorManager.shouldStore(encodedHeader, length)) {
+            return encodeStored(data, length, checksum);
+        }
+        if (!blockHeader.usesDictionary()) {
+            optimalBits.add(huffmanTree.getOptimalBits());
+            encodedBits.add(huffmanTree.getEncodedBits());
+        }
+        if (interleaved) {
+            return encodeInterleaved(blockHeader, frequencyTable, symbols, codeWords, literalCodeWords, data, length,
+                    checksum);
+        }
+
+        ByteArrayOutputStream encodedBlock = new ByteArrayOutputStream(
+                (int) blockHeader.getPayloadLength() + 8 * blockHeader.getSyncPointCount() + BlockHeader.CHECKSUM_SIZE + 64);
+        DataOutputStream writer = new DataOutputStream(encodedBlock);
+        timer = Metrics.start(metricsListener, Phase.HEADER);
+        blockHeader.write(writer);
+        timer.stop(blockHeader.size());
+
+        timer = Metrics.start(metricsListener, Phase.ENCODE);
+        // the encoded data of a small block fits a buffer of its own size
+        int encoderBufferSize = (int) Math.min(bufferSize, blockHeader.getPayloadLength() + 16);
+        HuffmanEncoder encoder = new HuffmanEncoder(frequencyTable, symbols, codeWords, literalCodeWords, writer,
+                encoderBufferSize, syncInterval);
+        encoder.encode(data, length - mod);
+        encoder.finish();
+        BlockHeader.writeSyncPoints(writer, encoder.getSyncPoints());
+        BlockHeader.writeChecksum(writer, checksum);
+        timer.stop(length);
+        Metrics.blockProcessed(metricsListener, blockHeader, length);
+        return encodedBlock.toByteArray();
+    }
+
+    /**
+     * Parses a block into literals and matches and encodes them as an LZ77 block.
+     * The matches only reach back within the block, its trailing bytes that do not form a whole symbol are stored in the header.
+     *
+     * @param data   The bytes of the block.
+     * @param length The number of bytes in the block.
+     * @return The block header followed by the encoded data, or by the original bytes for a stored
+     * block, and the checksum of the original bytes.
+     * @throws IOException If an I/O error occurs.
+     */
+    private byte[] encodeLz77(byte[] data, int length) throws IOException {
+        int mod = length % numberOfBytes;
+        Metrics.Timer timer = Metrics.start(metricsListener, Phase.HISTOGRAM);
+        MatchFinder matchFinder = MatchFinder.forLevel(level, windowSize, searchDepth);
+        matchFinder.parse(data, length - mod);
+        CRC32C checksum = new CRC32C();
+        checksum.update(data, 0, length);
+        timer.stop(length);
+
+        timer = Metrics.start(metricsListener, Phase.CODE_GENERATION);
+        CodeWord[] codeWords = buildAlphabetCodeWords(matchFinder.getSymbolFrequencies(), LzAlphabet.MAX_CODE_LENGTH);
+        CodeWord[] distanceCodeWords = buildAlphabetCodeWords(matchFinder.getDistanceFrequencies(),
+                LzAlphabet.MAX_CODE_LENGTH);
+        timer.stop(length);
+
+        long payloadLength = BlockHeader.payloadLength(matchFinder.getSymbolFrequencies(), codeWords,
+                matchFinder.getDistanceFrequencies(), distanceCodeWords, matchFinder.getExtraBits());
+        BlockHeader blockHeader = BlockHeader.lz77(length / numberOfBytes, codeLengths(codeWords),
+                codeLengths(distanceCodeWords), Arrays.copyOfRange(data, length - mod, length), payloadLength);
+        if (FileCompressorManager.shouldStore(blockHeader, length)) {
+            return encodeStored(data, length, checksum);
+        }
+
+        ByteArrayOutputStream encodedBlock = new ByteArrayOutputStream((int) blockHeader.encodedLength());
+        DataOutputStream writer = new DataOutputStream(encodedBlock);
+        timer = Metrics.start(metricsListener, Phase.HEADER);
+        blockHeader.write(writer);
+        timer.stop(blockHeader.size());
+
+        timer = Metrics.start(metricsListener, Phase.ENCODE);
+        LzEncoder encoder = new LzEncoder(codeWords, distanceCodeWords, writer,
+                (int) Math.min(bufferSize, payloadLength + 16));
+        encoder.encode(matchFinder.getTokens(), matchFinder.getTokenCount());
+        encoder.finish();
+        BlockHeader.writeChecksum(writer, checksum);
+        timer.stop(length);
+        Metrics.blockProcessed(metricsListener, blockHeader, length);
+        return encodedBlock.toByteArray();
+    }
+
+    /**
+     * Writes a block as a stored block, for data that coding would not shrink.
+     *
+     * @param data     The bytes of the block.
+     * @param length   The number of bytes in the block.
+     * @param checksum The checksum of the bytes of the block.
+     * @return The stored block header followed by the original bytes and the checksum.
+     * @throws IOException If an I/O error occurs.
+     */
+    private byte[] encodeStored(byte[] data, int length, CRC32C checksum) throws IOException {
+        Metrics.Timer timer = Metrics.start(metricsListener, Phase.ENCODE);
+        BlockHeader storedHeader = BlockHeader.stored(length);
+        ByteArrayOutputStream storedBlock = new ByteArrayOutputStream(
+                length + storedHeader.size() + BlockHeader.CHECKSUM_SIZE);
+        DataOutputStream writer = new DataOutputStream(storedBlock);
+        storedHeader.write(writer);
+        writer.write(data, 0, length);
+        BlockHeader.writeChecksum(writer, checksum);
+        timer.stop(length);
+        Metrics.blockProcessed(metricsListener, storedHeader, length);
+        return storedBlock.toByteArray();
+    }
+
+    /**
+     * Encodes the symbols of a block into interleaved bit streams, symbol i into stream i mod {@link BlockHeader#STREAMS}.
+     * The streams are encoded one after the other, since their lengths go into the jump table in front of them.
+     *
+     * @param blockHeader      The header of the block as a single bit stream.
+     * @param frequencyTable   The frequency table built from the block.
+     * @param symbols          The indices of the symbols in ascending symbol order.
+     * @param codeWords        The code word of each symbol, in the same order.
+     * @param literalCodeWords The code word of each byte value of an escaped symbol, or null without escapes.
+     * @param data             The bytes of the block.
+     * @param length           The number of bytes in the block.
+     * @param checksum         The checksum of the bytes of the block.
+     * @return The interleaved block header followed by the jump table, the streams and the checksum.
+     * @throws IOException If an I/O error occurs.
+     */
+    private byte[] encodeInterleaved(BlockHeader blockHeader, FrequencyTable frequencyTable, int[] symbols,
+                                     CodeWord[] codeWords, CodeWord[] literalCodeWords, byte[] data, int length,
+                                     CRC32C checksum) throws IOException {
+        Metrics.Timer timer = Metrics.start(metricsListener, Phase.ENCODE);
+        ByteArrayOutputStream[] streams = new ByteArrayOutputStream[BlockHeader.STREAMS];
+        long payloadLength = BlockHeader.JUMP_TABLE_SIZE;
+        for (int stream = 0; stream < streams.length; stream++) {
+            // each stream holds about an equal share of the encoded data
+            int streamSize = (int) (blockHeader.getPayloadLength() / streams.length) + 16;
+            streams[stream] = new ByteArrayOutputStream(streamSize);
+            HuffmanEncoder encoder = new HuffmanEncoder(frequencyTable, symbols, codeWords, literalCodeWords,
+                    streams[stream], Math.min(bufferSize, streamSize), syncInterval);
+            encoder.encodeInterleaved(data, length - length % numberOfBytes, stream, streams.length);
+            encoder.finish();
+            payloadLength += streams[stream].size();
+        }
+        timer.stop(length);
+
+        BlockHeader interleavedHeader = blockHeader.interleaved(payloadLength);
+        ByteArrayOutputStream encodedBlock = new ByteArrayOutputStream((int) interleavedHeader.encodedLength());
+        DataOutputStream writer = new DataOutputStream(encodedBlock);
+        timer = Metrics.start(metricsListener, Phase.HEADER);
+        interleavedHeader.write(writer);
+        for (int stream = 0; stream < streams.length - 1; stream++) {
+            writer.writeInt(streams[stream].size());
+        }
+        timer.stop(interleavedHeader.size() + BlockHeader.JUMP_TABLE_SIZE);
+
+        for (ByteArrayOutputStream stream : streams) {
+            stream.writeTo(writer);
+        }
+        BlockHeader.writeChecksum(writer, checksum);
+        Metrics.blockProcessed(metricsListener, interleavedHeader, length);
+        return encodedBlock.toByteArray();
+    }
+
+    /**
+     * Counts the symbols of a block. With an alphabet limit, a sketch picks the candidates for the
+     * code table first, and only the candidates are counted exactly.
+     *
+     * @param data   The bytes of the block.
+     * @param length The number of bytes to count, a multiple of the number of bytes in each symbol.
+     * @return The frequency table of the block.
+     */
+    private FrequencyTable countSymbols(byte[] data, int length) {
+        if (alphabetLimit == 0) {
+            FrequencyTable frequencyTable = FrequencyTable.create(numberOfBytes);
+            frequencyTable.count(data, length);
+            return frequencyTable;
+        }
+        SpaceSavingSketch sketch = new SpaceSavingSketch(numberOfBytes, alphabetLimit);
+        sketch.count(data, length);
+        EscapeFrequencyTable frequencyTable = new EscapeFrequencyTable(numberOfBytes, sketch.symbols());
+        frequencyTable.count(data, length);
+        frequencyTable.pruneRareSymbols();
+        return frequencyTable;
+    }
+
+    /**
+     * Builds the literal code table of a block with escapes.
+     *
+     * @param literalFrequencies The frequency of each byte value in the escaped symbols.
+     * @return The canonical code word of each byte value, of length 0 for the values that do not occur.
+     */
+    private static CodeWord[] buildLiteralCodeWords(long[] literalFrequencies) {
+        return buildAlphabetCodeWords(literalFrequencies, BlockHeader.MAX_LITERAL_CODE_LENGTH);
+    }
+
+    /**
+     * Builds the code table of a fixed alphabet, whose code word lengths are stored for every value.
+     *
+     * @param valueFrequencies The frequency of each value of the alphabet.
+     * @param maxLength        The longest code word allowed.
+     * @return The canonical code word of each value, of length 0 for the values that do not occur.
+     */
+    private static CodeWord[] buildAlphabetCodeWords(long[] valueFrequencies, int maxLength) {
+        // only the values that occur take part in the tree
+        int[] values = new int[valueFrequencies.length];
+        int count = 0;
+        for (int value = 0; value < valueFrequencies.length; value++) {
+            if (valueFrequencies[value] > 0) {
+                values[count++] = value;
+            }
+        }
+        int[] codeLengths = new int[valueFrequencies.length];
+        if (count > 0) {
+            long[] frequencies = new long[count];
+            for (int i = 0; i < count; i++) {
+                frequencies[i] = valueFrequencies[values[i]];
+            }
+            HuffmanTree huffmanTree = new HuffmanTree(frequencies, maxLength);
+            huffmanTree.buildTree();
+            CodeWord[] codeWords = huffmanTree.buildCodeWords();
+            for (int i = 0; i < count; i++) {
+                codeLengths[values[i]] = codeWords[i].length;
+            }
+        }
+
+        // the decoder assigns the canonical code words from the lengths of all values
+        return HuffmanTree.assignCanonicalCodes(codeLengths);
+    }
+
+    /**
+     * Collects the lengths of code words.
+     *
+     * @param codeWords The code words.
+     * @return The length of each code word.
+     */
+    private static int[] codeLengths(CodeWord[] codeWords) {
+        int[] codeLengths = new int[codeWords.length];
+        for (int i = 0; i < codeWords.length; i++) {
+            codeLengths[i] = codeWords[i].length;
+        }
+        return codeLengths;
+    }
+
+    /**
+     * Creates the header of a block with escapes.
+     *
+     * @param frequencyTable   The frequency table built from the block.
+     * @param symbols          The indices of the symbols in ascending symbol order, followed by the escape symbol.
+     * @param codeWords        The code word of each symbol, in the same order.
+     * @param literalCodeWords The code word of each byte value of an escaped symbol.
+     * @param symbolCount      The number of symbols in the block.
+     * @param tail             The trailing bytes that do not form a whole symbol.
+     * @return The block header.
+     */
+    private BlockHeader createEscapedBlockHeader(EscapeFrequencyTable frequencyTable, int[] symbols,
+                                                 CodeWord[] codeWords, CodeWord[] literalCodeWords,
+                                                 long symbolCount, byte[] tail) {
+        ByteWrapper[] sortedSymbols = new ByteWrapper[symbols.length - 1];
+        int[] codeLengths = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            if (i < sortedSymbols.length) {
+                sortedSymbols[i] = frequencyTable.symbol(symbols[i]);
+            }
+            codeLengths[i] = codeWords[i].length;
+        }
+        int[] literalCodeLengths = new int[BlockHeader.LITERALS];
+        for (int literal = 0; literal < BlockHeader.LITERALS; literal++) {
+            literalCodeLengths[literal] = literalCodeWords[literal].length;
+        }
+        long payloadLength = BlockHeader.payloadLength(frequencyTable.getFrequencies(symbols), codeWords,
+                frequencyTable.getLiteralFrequencies(), literalCodeWords);
+        return BlockHeader.escaped(symbolCount, sortedSymbols, codeLengths, literalCodeLengths, tail, syncInterval,
+                payloadLength);
+    }
+
+    /**
+     * Looks up the code words of the symbols of a block in the dictionary.
+     *
+     * @param frequencyTable The frequency table built from the block.
+     * @param symbols        The indices of the symbols in ascending symbol order.
+     * @return The code word of each symbol in the same order, or null if the dictionary lacks one of the symbols.
+     */
+    private CodeWord[] dictionaryCodeWords(FrequencyTable frequencyTable, int[] symbols) {
+        CodeWord[] codeWords = new CodeWord[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            int index = dictionary.indexOf(frequencyTable.symbol(symbols[i]));
+            if (index < 0) {
+                return null;
+            }
+            codeWords[i] = dictionary.getCodeWords()[index];
+        }
+        return codeWords;
+    }
+
+    /**
+     * Calculates how much longer the blocks encoded so far with their own code words got because of the
+     * code word length limit.
+     *
+     * @return The extra length of the encoded data as a fraction of its length with unlimited code words.
+     */
+    double getLengthLimitOverhead() {
+        long optimal = optimalBits.sum();
+        return optimal == 0 ? 0 : (double) (encodedBits.sum() - optimal) / optimal;
+    }
+}
@@ -0,0 +1,376 @@
+package Compression;
+
+import Util.BlockHeader;
+import Util.CodeWord;
+import Util.Dictionary;
+import Util.IoMode;
+import Util.LzAlphabet;
+import Util.MetricsListener;
+
+import java.util.Objects;
+
+/**
+ * Optional settings of a compression run.
+ * The setters return the options themselves so that several settings can be chained.
+ */
+public class CompressionOptions {
+
+    // Largest block that is held in memory while it is encoded
+    public static final long MAX_BLOCK_SIZE = 1L << 30;
+
+    // Code word length limit unless another one is set, which keeps the trie walk after a lookup short
+    // and on typical inputs costs less than 0.1% of the compressed size
+    public static final int DEFAULT_MAX_CODE_LENGTH = 20;
+
+    // Highest LZ77 level
+    public static final int MAX_LEVEL = 9;
+
+    private int threads = 1;
+    private IoMode ioMode = IoMode.STREAM;
+    private int maxCodeLength = DEFAULT_MAX_CODE_LENGTH;
+    private long blockSize = 0;
+    private MetricsListener metricsListener = MetricsListener.NONE;
+    private Dictionary dictionary;
+    private int syncInterval = FileCompressorManager.SYNC_INTERVAL;
+    private int pipelineDepth = 2;
+    private boolean interleaved;
+    private int alphabetLimit = 0;
+    private int level = 0;
+    private int windowSize = 0;
+    private int searchDepth = 0;
+
+    /**
+     * Retrieves the number of threads used to analyze and encode the file.
+     *
+     * @return The number of threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads used to analyze and encode the file.
+     * With a single thread the file is read sequentially.
+     *
+     * @param threads The number of threads, at least one.
+     * @return These options.
+     */
+    public CompressionOptions setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Retrieves the block size.
+     *
+     * @return The number of bytes in each block, or 0 if the file is encoded as a single block.
+     */
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Sets the block size.
+     * In block mode each block of the file gets its own code words, and the blocks are
+     * encoded concurrently on the configured number of threads.
+     *
+     * @param blockSize The number of bytes in each block, or 0 to encode the file as a single block.
+     * @return These options.
+     */
+    public CompressionOptions setBlockSize(long blockSize) {
+        if (blockSize < 0 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 0 and " + MAX_BLOCK_SIZE + " bytes");
+        }
+        this.blockSize = blockSize;
+        return this;
+    }
+
+    /**
+     * Retrieves the way the files are read and written.
+     *
+     * @return The I/O mode.
+     */
+    public IoMode getIoMode() {
+        return ioMode;
+    }
+
+    /**
+     * Sets the way the files are read and written.
+     *
+     * @param ioMode The I/O mode.
+     * @return These options.
+     */
+    public CompressionOptions setIoMode(IoMode ioMode) {
+        this.ioMode = ioMode;
+        return this;
+    }
+
+    /**
+     * Retrieves the maximum code word length.
+     *
+     * @return The maximum number of bits in a code word.
+     */
+    public int getMaxCodeLength() {
+        return maxCodeLength;
+    }
+
+    /**
+     * Sets the maximum code word length.
+     * Shorter limits cost a little compression on skewed data or large alphabets. The limit is
+     * raised when a block has more distinct symbols than code words of the limited length.
+     *
+     * @param maxCodeLength The maximum number of bits in a code word, between 1 and {@value CodeWord#MAX_LENGTH}.
+     * @return These options.
+     */
+    public CompressionOptions setMaxCodeLength(int maxCodeLength) {
+        if (maxCodeLength < 1 || maxCodeLength > CodeWord.MAX_LENGTH) {
+            throw new IllegalArgumentException("Maximum code word length must be between 1 and " + CodeWord.MAX_LENGTH);
+        }
+        this.maxCodeLength = maxCodeLength;
+        return this;
+    }
+
+    /**
+     * Retrieves the listener that receives the metrics of the run.
+     *
+     * @return The metrics listener, {@link MetricsListener#NONE} if metrics are disabled.
+     */
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Sets the listener that receives the metrics of the run.
+     * The phases are reported from the threads that run them.
+     *
+     * @param metricsListener The metrics listener, or {@link MetricsListener#NONE} to disable metrics.
+     * @return These options.
+     */
+    public CompressionOptions setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = Objects.requireNonNull(metricsListener);
+        return this;
+    }
+
+    /**
+     * Retrieves the dictionary whose code table the blocks may be encoded with.
+     *
+     * @return The dictionary, or null if every block carries its own code table.
+     */
+    public Dictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Sets the dictionary whose code table the blocks may be encoded with.
+     * A block is encoded with the dictionary when the dictionary has a code word for each of its
+     * symbols and the block comes out smaller than with its own code table. A file compressed with
+     * a dictionary is always compressed in blocks, of {@link HuffmanOutputStream#DEFAULT_BLOCK_SIZE}
+     * bytes unless another block size is set, and can only be decompressed with the same dictionary.
+     *
+     * @param dictionary The dictionary, or null to give every block its own code table.
+     * @return These options.
+     */
+    public CompressionOptions setDictionary(Dictionary dictionary) {
+        this.dictionary = dictionary;
+        return this;
+    }
+
+    /**
+     * Retrieves the sync interval.
+     *
+     * @return The number of symbols between two sync points of a block.
+     */
+    public int getSyncInterval() {
+        return syncInterval;
+    }
+
+    /**
+     * Sets the sync interval.
+     * The sync points of a block are the checkpoints a range of the original file is decoded from,
+     * and the parts a block is split into when it is decoded in parallel. A shorter interval makes
+     * seeking faster, since fewer symbols before the range are decoded, at the cost of 8 bytes of
+     * index per sync point.
+     *
+     * @param syncInterval The number of symbols between two sync points, at least one.
+     * @return These options.
+     */
+    public CompressionOptions setSyncInterval(int syncInterval) {
+        if (syncInterval < 1) {
+            throw new IllegalArgumentException("Sync interval must be at least 1 symbol");
+        }
+        this.syncInterval = syncInterval;
+        return this;
+    }
+
+    /**
+     * Checks whether the symbols of each block are encoded into interleaved bit streams.
+     *
+     * @return True if the blocks are interleaved.
+     */
+    public boolean isInterleaved() {
+        return interleaved;
+    }
+
+    /**
+     * Sets whether the symbols of each block are encoded into {@link BlockHeader#STREAMS} interleaved
+     * bit streams, which the decoder advances in the same loop so that the code words of different
+     * streams are resolved in parallel by the processor. Interleaved blocks cost a jump table of
+     * {@link BlockHeader#JUMP_TABLE_SIZE} bytes and have no sync points, so each block is decoded
+     * by one thread and a range is decoded from the start of its block. A file with interleaved
+     * blocks is always compressed in blocks, of {@link HuffmanOutputStream#DEFAULT_BLOCK_SIZE} bytes
+     * unless another block size is set.
+     *
+     * @param interleaved Whether to interleave the blocks.
+     * @return These options.
+     */
+    public CompressionOptions setInterleaved(boolean interleaved) {
+        this.interleaved = interleaved;
+        return this;
+    }
+
+    /**
+     * Retrieves the limit on the number of distinct symbols in the code table of a block.
+     *
+     * @return The largest number of symbols in a code table, or 0 if the alphabet is not limited.
+     */
+    public int getAlphabetLimit() {
+        return alphabetLimit;
+    }
+
+    /**
+     * Sets the limit on the number of distinct symbols in the code table of a block.
+     * The most frequent symbols of each block are found with a sketch of this many counters, so the
+     * memory used to count a block no longer grows with its number of distinct symbols. Symbols
+     * outside the code table, and those seen only once, are encoded as an escape code word followed
+     * by their bytes, coded with a literal code table of {@value BlockHeader#LITERALS} entries. This
+     * keeps the code tables of wide symbols small on data with few repeated symbols. A file with a
+     * limited alphabet is always compressed in blocks, of {@link HuffmanOutputStream#DEFAULT_BLOCK_SIZE}
+     * bytes unless another block size is set.
+     *
+     * @param alphabetLimit The largest number of symbols in a code table, or 0 not to limit the alphabet.
+     * @return These options.
+     */
+    public CompressionOptions setAlphabetLimit(int alphabetLimit) {
+        if (alphabetLimit < 0) {
+            throw new IllegalArgumentException("Alphabet limit must not be negative");
+        }
+        this.alphabetLimit = alphabetLimit;
+        return this;
+    }
+
+    /**
+     * Retrieves the LZ77 level.
+     *
+     * @return The level from 1 to {@value #MAX_LEVEL}, or 0 if the blocks are not parsed into matches.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the LZ77 level, which trades compression speed for compression ratio.
+     * At a level of at least one, the bytes of each block are parsed into literals and matches that
+     * repeat earlier bytes of the block, found with hash chains, and these are Huffman coded instead
+     * of the symbols. This pays off on data that repeats longer strings than a symbol, such as text,
+     * documents and executables. Higher levels search a larger window, compare more candidates per
+     * position and, from level 4 on, defer a match if the next byte starts a longer one. The matches
+     * are made of bytes, so LZ77 blocks are best combined with one byte per symbol. They cannot be
+     * combined with a dictionary, interleaving or an alphabet limit, and have no sync points. A file
+     * compressed at a level is always compressed in blocks, of {@link HuffmanOutputStream#DEFAULT_BLOCK_SIZE}
+     * bytes unless another block size is set, and matches never reach outside their block.
+     *
+     * @param level The level from 1 (fastest) to {@value #MAX_LEVEL} (smallest), or 0 for no matches.
+     * @return These options.
+     */
+    public CompressionOptions setLevel(int level) {
+        if (level < 0 || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("Level must be between 0 and " + MAX_LEVEL);
+        }
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * Retrieves the LZ77 window size.
+     *
+     * @return The farthest a match reaches back in bytes, or 0 for the window size of the level.
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Sets the LZ77 window size, overriding the one of the level.
+     * A larger window finds repetitions that are farther apart, at the cost of 4 bytes of memory per
+     * byte of window while a block is parsed. Matches never reach outside their block, so a window
+     * larger than the block size has no effect.
+     *
+     * @param windowSize The farthest a match reaches back, from {@value LzAlphabet#MIN_MATCH} to
+     *                   {@value LzAlphabet#MAX_WINDOW} bytes, or 0 for the window size of the level.
+     * @return These options.
+     */
+    public CompressionOptions setWindowSize(int windowSize) {
+        if (windowSize != 0 && (windowSize < LzAlphabet.MIN_MATCH || windowSize > LzAlphabet.MAX_WINDOW)) {
+            throw new IllegalArgumentException("Window size must be between " + LzAlphabet.MIN_MATCH + " and "
+                    + LzAlphabet.MAX_WINDOW + " bytes");
+        }
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    /**
+     * Retrieves the LZ77 search depth.
+     *
+     * @return The number of candidates compared per position, or 0 for the search depth of the level.
+     */
+    public int getSearchDepth() {
+        return searchDepth;
+    }
+
+    /**
+     * Sets the LZ77 search depth, overriding the one of the level.
+     * Each position is compared with at most this many earlier positions that start with the same
+     * bytes, the most recent first. A deeper search finds longer matches and takes longer.
+     *
+     * @param searchDepth The number of candidates compared per position, at least one, or 0 for the search depth of the level.
+     * @return These options.
+     */
+    public CompressionOptions setSearchDepth(int searchDepth) {
+        if (searchDepth < 0) {
+            throw new IllegalArgumentException("Search depth must not be negative");
+        }
+        this.searchDepth = searchDepth;
+        return this;
+    }
+
+    /**
+     * Retrieves the depth of the I/O pipeline.
+     *
+     * @return The number of chunks read ahead of and written behind the encoder, 0 if the pipeline is disabled.
+     */
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    /**
+     * Sets the depth of the I/O pipeline of a sequential compression.
+     * The file is read ahead on one thread and written behind on another while the encoder runs
+     * on the calling thread, in chunks of a fixed set of buffers, so the run takes about as long as
+     * the slower of I/O and encoder instead of their sum. A deeper pipeline evens out bursts at the
+     * cost of two more chunks of memory per step.
+     *
+     * @param pipelineDepth The number of chunks in each direction, or 0 to read and write on the calling thread.
+     * @return These options.
+     */
+    public CompressionOptions setPipelineDepth(int pipelineDepth) {
+        if (pipelineDepth < 0) {
+            throw new IllegalArgumentException("Pipeline depth must not be negative");
+        }
+        this.pipelineDepth = pipelineDepth;
+        return this;
+    }
+
+}
@@ -0,0 +1,124 @@
+package Compression;
+
+import Util.ByteWrapper;
+import Util.CodeWord;
+import Util.Dictionary;
+import Util.HuffmanTree;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Trains a {@link Dictionary} on sample files.
+ * The symbols of all samples are counted into one frequency table, and the dictionary holds the
+ * length limited Huffman code of the combined frequencies. For single byte symbols every byte value
+ * is counted once more, so the dictionary has a code word for any byte and covers any file; wider
+ * symbols that occur in none of the samples have no code word, and blocks containing them are
+ * encoded with their own code table.
+ */
+public class DictionaryTrainer {
+
+    private final int numberOfBytes;
+    private final int maxCodeLength;
+    private final int chunkSize;
+    private final FrequencyTable frequencyTable;
+
+    // Number of samples and whole symbols counted so far
+    private int sampleCount;
+    private long symbolCount;
+
+    /**
+     * Constructs a DictionaryTrainer.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param maxCodeLength The maximum code word length.
+     */
+    public DictionaryTrainer(int numberOfBytes, int maxCodeLength) {
+        if (numberOfBytes < 1 || numberOfBytes > 255) {
+            throw new IllegalArgumentException("Number of bytes must be between 1 and 255");
+        }
+        if (maxCodeLength < 1 || maxCodeLength > CodeWord.MAX_LENGTH) {
+            throw new IllegalArgumentException("Maximum code word length must be between 1 and " + CodeWord.MAX_LENGTH);
+        }
+        this.numberOfBytes = numberOfBytes;
+        this.maxCodeLength = maxCodeLength;
+        this.chunkSize = 1_000_000 - (1_000_000 % numberOfBytes);
+        this.frequencyTable = FrequencyTable.create(numberOfBytes);
+    }
+
+    /**
+     * Counts the symbols of a sample file.
+     * Trailing bytes that do not form a whole symbol are left out.
+     *
+     * @param path The path of the sample file.
+     * @throws IOException If the file cannot be read.
+     */
+    public void addSample(Path path) throws IOException {
+        try (InputStream reader = Files.newInputStream(path)) {
+            byte[] buffer = new byte[chunkSize];
+            int bytesRead;
+
+            // chunks are always filled completely, so only the end of the file can split a symbol
+            while ((bytesRead = reader.readNBytes(buffer, 0, chunkSize)) > 0) {
+                int length = bytesRead - bytesRead % numberOfBytes;
+                frequencyTable.count(buffer, length);
+                symbolCount += length / numberOfBytes;
+            }
+        }
+        sampleCount++;
+    }
+
+    /**
+     * Retrieves the number of samples counted so far.
+     *
+     * @return The number of sample files.
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Retrieves the number of symbols counted so far.
+     *
+     * @return The number of whole symbols in all samples.
+     */
+    public long getSymbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * Builds the dictionary from the symbols counted so far.
+     *
+     * @return The dictionary.
+     */
+    public Dictionary train() {
+        // the counts of the samples stay as they are, so more samples can be added afterwards
+        FrequencyTable frequencyTable = FrequencyTable.create(numberOfBytes);
+        frequencyTable.merge(this.frequencyTable);
+        if (numberOfBytes == 1) {
+            byte[] allBytes = new byte[256];
+            for (int i = 0; i < allBytes.length; i++) {
+                allBytes[i] = (byte) i;
+            }
+            frequencyTable.count(allBytes, allBytes.length);
+        }
+        int[] symbols = frequencyTable.sortedSymbols();
+        if (symbols.length == 0) {
+            throw new IllegalStateException("The samples hold no whole symbol");
+        }
+
+        HuffmanTree huffmanTree = new HuffmanTree(frequencyTable.getFrequencies(symbols), maxCodeLength);
+        huffmanTree.buildTree();
+        CodeWord[] codeWords = huffmanTree.buildCodeWords();
+
+        ByteWrapper[] sortedSymbols = new ByteWrapper[symbols.length];
+        int[] codeLengths = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            sortedSymbols[i] = frequencyTable.symbol(symbols[i]);
+            codeLengths[i] = codeWords[i].length;
+        }
+        return new Dictionary(numberOfBytes, sortedSymbols, codeLengths);
+    }
+}
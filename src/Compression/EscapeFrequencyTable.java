@@ -0,0 +1,232 @@
+package Compression;
+
+import Util.BlockHeader;
+import Util.ByteWrapper;
+
+import java.util.Arrays;
+
+/**
+ * Frequency table limited to a given set of candidate symbols, for a block whose alphabet is capped.
+ * Every other symbol is counted as the escape symbol, which gets the index after the candidates,
+ * and its bytes are counted as literals that are coded with a table of their own. The memory used
+ * depends on the number of candidates only, not on the number of distinct symbols of the block.
+ * <p>
+ * The candidates are looked up in a chained hash table keyed on their bytes, so neither counting
+ * nor looking up a symbol allocates any objects.
+ */
+public class EscapeFrequencyTable extends FrequencyTable {
+
+    // Candidates seen fewer times cost more in the code table than escaped
+    static final int MIN_COUNT = 2;
+
+    // Per candidate: its bytes, its frequency and the next candidate + 1 in its bucket
+    private final byte[] keys;
+    private final long[] counts;
+    private final int[] next;
+    private final int size;
+
+    // The first candidate + 1 of each bucket, 0 for an empty bucket
+    private final int[] buckets;
+    private final int shift;
+
+    private long escapeCount;
+    private final long[] literalCounts = new long[BlockHeader.LITERALS];
+
+    /**
+     * Constructs an EscapeFrequencyTable.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param candidates    The bytes of the distinct candidate symbols, one after the other.
+     */
+    public EscapeFrequencyTable(int numberOfBytes, byte[] candidates) {
+        super(numberOfBytes);
+        this.keys = candidates;
+        this.size = candidates.length / numberOfBytes;
+        this.counts = new long[size];
+        this.next = new int[size];
+        int bucketCount = Integer.highestOneBit(Math.max(2 * size - 1, 1)) << 1;
+        this.buckets = new int[bucketCount];
+        this.shift = 64 - Integer.numberOfTrailingZeros(bucketCount);
+        for (int candidate = 0; candidate < size; candidate++) {
+            int bucket = (int) (hash(keys, candidate * numberOfBytes, numberOfBytes) >>> shift);
+            next[candidate] = buckets[bucket];
+            buckets[bucket] = candidate + 1;
+        }
+    }
+
+    /**
+     * Finds the candidate a symbol is counted by.
+     *
+     * @param chunk  The bytes holding the symbol.
+     * @param offset The offset of the first byte of the symbol.
+     * @return The index of the candidate, or -1 if the symbol is not a candidate.
+     */
+    private int find(byte[] chunk, int offset) {
+        int candidate = buckets[(int) (hash(chunk, offset, numberOfBytes) >>> shift)] - 1;
+        while (candidate >= 0 && !Arrays.equals(keys, candidate * numberOfBytes, (candidate + 1) * numberOfBytes,
+                chunk, offset, offset + numberOfBytes)) {
+            candidate = next[candidate] - 1;
+        }
+        return candidate;
+    }
+
+    /**
+     * Counts the symbols of a chunk of the input, the escaped ones as the escape symbol and their bytes as literals.
+     *
+     * @param chunk  The bytes to count.
+     * @param length The number of bytes to count, a multiple of the number of bytes in each symbol.
+     */
+    @Override
+    public void count(byte[] chunk, int length) {
+        for (int i = 0; i < length; i += numberOfBytes) {
+            int candidate = find(chunk, i);
+            if (candidate >= 0) {
+                counts[candidate]++;
+            } else {
+                escape(chunk, i, 1);
+            }
+        }
+    }
+
+    /**
+     * Counts occurrences of the escape symbol followed by the bytes of a symbol.
+     *
+     * @param chunk  The bytes holding the symbol.
+     * @param offset The offset of the first byte of the symbol.
+     * @param count  The number of occurrences.
+     */
+    private void escape(byte[] chunk, int offset, long count) {
+        escapeCount += count;
+        for (int i = 0; i < numberOfBytes; i++) {
+            literalCounts[chunk[offset + i] & 0xFF] += count;
+        }
+    }
+
+    /**
+     * Escapes the candidates counted fewer than {@value #MIN_COUNT} times, whose code table entries
+     * would take up more room than their escaped occurrences.
+     */
+    public void pruneRareSymbols() {
+        for (int candidate = 0; candidate < size; candidate++) {
+            if (counts[candidate] > 0 && counts[candidate] < MIN_COUNT) {
+                escape(keys, candidate * numberOfBytes, counts[candidate]);
+                counts[candidate] = 0;
+            }
+        }
+    }
+
+    /**
+     * Adds the counts of another frequency table with the same candidates to this one, such as a
+     * table that counted another part of the same block. Tables are merged before their rare symbols are pruned.
+     *
+     * @param other A frequency table with escapes for the same number of bytes and the same candidates.
+     * @throws IllegalArgumentException If the other table has other candidates.
+     */
+    @Override
+    public void merge(FrequencyTable other) {
+        if (!(other instanceof EscapeFrequencyTable) || other.numberOfBytes != numberOfBytes
+                || !Arrays.equals(((EscapeFrequencyTable) other).keys, keys)) {
+            throw new IllegalArgumentException("Only frequency tables with the same candidates can be merged");
+        }
+        EscapeFrequencyTable table = (EscapeFrequencyTable) other;
+        // the same candidates in the same order have the same indices
+        for (int candidate = 0; candidate < size; candidate++) {
+            counts[candidate] += table.counts[candidate];
+        }
+        escapeCount += table.escapeCount;
+        for (int literal = 0; literal < literalCounts.length; literal++) {
+            literalCounts[literal] += table.literalCounts[literal];
+        }
+    }
+
+    /**
+     * Retrieves the index of the symbol starting at the given offset.
+     *
+     * @param chunk  The bytes holding the symbol.
+     * @param offset The offset of the first byte of the symbol.
+     * @return The index of the symbol, or the index of the escape symbol if the symbol is escaped.
+     */
+    @Override
+    public int indexOf(byte[] chunk, int offset) {
+        int candidate = find(chunk, offset);
+        return candidate >= 0 && counts[candidate] > 0 ? candidate : size;
+    }
+
+    /**
+     * Retrieves the upper bound of the symbol indices.
+     *
+     * @return The number of candidates plus one for the escape symbol.
+     */
+    @Override
+    public int capacity() {
+        return size + 1;
+    }
+
+    /**
+     * Retrieves the frequency of a symbol.
+     *
+     * @param index The index of the symbol.
+     * @return The number of times the symbol was counted.
+     */
+    @Override
+    public long frequency(int index) {
+        return index == size ? escapeCount : counts[index];
+    }
+
+    /**
+     * Retrieves the bytes of a symbol.
+     *
+     * @param index The index of a candidate.
+     * @return The symbol.
+     */
+    @Override
+    public ByteWrapper symbol(int index) {
+        return new ByteWrapper(Arrays.copyOfRange(keys, index * numberOfBytes, (index + 1) * numberOfBytes));
+    }
+
+    /**
+     * Retrieves the indices of all counted candidates in ascending symbol order, followed by the
+     * index of the escape symbol if any symbol is escaped.
+     *
+     * @return The indices of the counted symbols.
+     */
+    @Override
+    public int[] sortedSymbols() {
+        Integer[] candidates = new Integer[size];
+        int count = 0;
+        for (int candidate = 0; candidate < size; candidate++) {
+            if (counts[candidate] > 0) {
+                candidates[count++] = candidate;
+            }
+        }
+        Arrays.sort(candidates, 0, count, (a, b) -> Arrays.compareUnsigned(
+                keys, a * numberOfBytes, (a + 1) * numberOfBytes, keys, b * numberOfBytes, (b + 1) * numberOfBytes));
+
+        int[] symbols = new int[escapeCount > 0 ? count + 1 : count];
+        for (int i = 0; i < count; i++) {
+            symbols[i] = candidates[i];
+        }
+        if (escapeCount > 0) {
+            symbols[count] = size;
+        }
+        return symbols;
+    }
+
+    /**
+     * Checks whether any symbol is escaped.
+     *
+     * @return True if the escape symbol has been counted.
+     */
+    public boolean hasEscapes() {
+        return escapeCount > 0;
+    }
+
+    /**
+     * Retrieves how often each byte value occurs in the escaped symbols.
+     *
+     * @return The frequency of each of the {@value BlockHeader#LITERALS} byte values.
+     */
+    public long[] getLiteralFrequencies() {
+        return literalCounts.clone();
+    }
+}
@@ -1,12 +1,34 @@
 package Compression;
 
+import Util.BlockHeader;
 import Util.ByteWrapper;
+import Util.CodeWord;
+import Util.Dictionary;
+import Util.HuffmanHeader;
+import Util.ChannelOutputStream;
+import Util.IoMode;
+import Util.MappedInputStream;
+import Util.Metrics;
+import Util.Phase;
+import Util.ReadAheadInputStream;
+import Util.WriteBehindOutputStream;
 
 import java.io.*;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
 
 /**
  * Manages file compression operations including building frequency tables, writing headers,
@@ -14,14 +36,24 @@ import java.util.Map;
  */
 public class FileCompressorManager {
 
+    // Number of symbols between two sync points of a block unless another interval is set
+    public static final int SYNC_INTERVAL = 1 << 20;
+
     private final int numberOfBytes;
 
     private final String filePath;
 
     private final int chunkSize;
 
+    private final CompressionOptions options;
+
+    private final BlockEncoder blockEncoder;
+
     // Counter for the number of matches found during compression
-    private int fileMatches;
+    private long fileMatches;
+
+    // Trailing bytes of the file that do not form a whole symbol
+    private byte[] tail = new byte[0];
 
     /**
      * Constructs a FileCompressorManager.
@@ -30,10 +62,26 @@ public class FileCompressorManager {
      * @param numberOfBytes The number of bytes to process at once.
      */
     public FileCompressorManager(String filePath, int numberOfBytes) {
+        this(filePath, numberOfBytes, new CompressionOptions());
+    }
+
+    /**
+     * Constructs a FileCompressorManager.
+     *
+     * @param filePath      The path to the file to be compressed.
+     * @param numberOfBytes The number of bytes to process at once.
+     * @param options       The settings of the compression.
+     */
+    public FileCompressorManager(String filePath, int numberOfBytes, CompressionOptions options) {
+        if (numberOfBytes < 1 || numberOfBytes > 255) {
+            throw new IllegalArgumentException("Number of bytes must be between 1 and 255");
+        }
         this.filePath = filePath;
         this.numberOfBytes = numberOfBytes;
+        this.options = options;
         // Calculate the chunk size ensuring it's a multiple of the number of bytes
         this.chunkSize = 1_000_000 - (1_000_000 % numberOfBytes);
+        this.blockEncoder = new BlockEncoder(numberOfBytes, chunkSize, options);
     }
 
     /**
@@ -77,6 +125,15 @@ public class FileCompressorManager {
         return (double) getCompressedFileSize() / getOriginalFileSize();
     }
 
+    /**
+     * Calculates how much longer the blocks encoded so far got because of the code word length limit.
+     *
+     * @return The extra length of the encoded data as a fraction of its length with unlimited code words.
+     */
+    public double getLengthLimitOverhead() {
+        return blockEncoder.getLengthLimitOverhead();
+    }
+
     /**
      * Builds a frequency table for the bytes in the file.
      *
@@ -84,29 +141,27 @@ public class FileCompressorManager {
      * @param filePath      The path to the file to be compressed.
      * @return The frequency table.
      */
-    public Map<ByteWrapper, Integer> buildFrequencyTable(int numberOfBytes, String filePath) {
-        Map<ByteWrapper, Integer> frequencyTable = new HashMap<>();
+    public FrequencyTable buildFrequencyTable(int numberOfBytes, String filePath) {
+        if (options.getThreads() > 1) {
+            return buildFrequencyTableInParallel(numberOfBytes, filePath);
+        }
+
+        FrequencyTable frequencyTable = FrequencyTable.create(numberOfBytes);
 
-        try (InputStream reader = new FileInputStream(filePath)) {
+        try (InputStream reader = openInput()) {
             byte[] buffer = new byte[chunkSize];
             int bytesRead;
 
-            while ((bytesRead = reader.read(buffer)) != -1) {
+            // chunks are always filled completely, so only the end of the file can split a symbol
+            while ((bytesRead = reader.readNBytes(buffer, 0, chunkSize)) > 0) {
                 // Process the bytes in the buffer
-                for (int i = 0; i <= bytesRead - numberOfBytes; i += numberOfBytes) {
-                    this.fileMatches++;
-                    byte[] nByteUnit = Arrays.copyOfRange(buffer, i, i + numberOfBytes);
-                    ByteWrapper byteWrapper = new ByteWrapper(nByteUnit);
-                    frequencyTable.put(byteWrapper, frequencyTable.getOrDefault(byteWrapper, 0) + 1);
-                }
-
-                // Process the remaining bytes
                 int mod = bytesRead % numberOfBytes;
+                frequencyTable.count(buffer, bytesRead - mod);
+                this.fileMatches += bytesRead / numberOfBytes;
+
+                // Keep the remaining bytes, they are stored as is in the header
                 if (mod != 0) {
-                    this.fileMatches++;
-                    byte[] nByteUnit = Arrays.copyOfRange(buffer, bytesRead - mod, bytesRead);
-                    ByteWrapper byteWrapper = new ByteWrapper(nByteUnit);
-                    frequencyTable.put(byteWrapper, frequencyTable.getOrDefault(byteWrapper, 0) + 1);
+                    this.tail = Arrays.copyOfRange(buffer, bytesRead - mod, bytesRead);
                 }
             }
         } catch (IOException e) {
@@ -116,118 +171,293 @@ public class FileCompressorManager {
     }
 
     /**
-     * Writes the header of the compressed file.
+     * Builds a frequency table for the bytes in the file using several threads.
+     * The whole symbols of the file are split into segments at symbol boundaries, the segments
+     * are counted on a fork-join pool and their tables are merged, so the symbols and their counts
+     * are the same as when the file is read sequentially.
      *
-     * @param codeWords The code words generated during compression.
+     * @param numberOfBytes The number of bytes to process at once.
+     * @param filePath      The path to the file to be compressed.
+     * @return The frequency table.
      */
-    private void writeHeader(Map<ByteWrapper, String> codeWords) {
-        // write the header of the file (number of code words, code words)
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(getOutputFilePath()))) {
-            writer.write(codeWords.size() + "\n");
-            writer.write(fileMatches + "\n");
-            // write the code words
-            for (Map.Entry<ByteWrapper, String> entry : codeWords.entrySet()) {
-                writer.write(entry.getValue() + "," + entry.getKey().toString() + "\n");
-            }
+    private FrequencyTable buildFrequencyTableInParallel(int numberOfBytes, String filePath) {
+        int threads = options.getThreads();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            int mod = (int) (fileSize % numberOfBytes);
+            long end = fileSize - mod;
+            this.fileMatches = end / numberOfBytes;
+
+            // a few segments per thread keep the threads busy when some segments are slower
+            long segmentSize = Math.max(chunkSize, end / (4L * threads));
+            segmentSize -= segmentSize % numberOfBytes;
+            FrequencyTable frequencyTable = pool.invoke(
+                    new FrequencyCountTask(channel, numberOfBytes, 0, end, segmentSize, chunkSize, options.getIoMode()));
+
+            // Keep the remaining bytes, they are stored as is in the header
+            this.tail = new byte[mod];
+            readFully(channel, ByteBuffer.wrap(tail), end);
+            return frequencyTable;
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Opens the file to be compressed for reading.
+     * Unless the pipeline is disabled, the next chunks are read on a thread of their own while the
+     * current chunk is counted or encoded.
+     *
+     * @return A stream over the whole file.
+     * @throws IOException If the file cannot be opened.
+     */
+    private InputStream openInput() throws IOException {
+        InputStream input = options.getIoMode() == IoMode.MAPPED
+                ? MappedInputStream.open(Path.of(filePath)) : new FileInputStream(filePath);
+        if (options.getPipelineDepth() > 0) {
+            return new ReadAheadInputStream(input, chunkSize, options.getPipelineDepth());
         }
+        return input;
     }
 
     /**
-     * Writes the compressed content of the file.
+     * Creates the compressed file and opens it for writing.
+     * Unless the pipeline is disabled, full chunks are written on a thread of their own while the
+     * next chunk is encoded.
      *
-     * @param codeWords The code words generated during compression.
+     * @return A stream that writes the compressed file from its start.
+     * @throws IOException If the file cannot be created.
      */
-    private void writeContent(Map<ByteWrapper, String> codeWords) {
+    private OutputStream openOutput() throws IOException {
+        OutputStream output = options.getIoMode() == IoMode.MAPPED
+                ? ChannelOutputStream.open(Path.of(getOutputFilePath()), chunkSize)
+                : new BufferedOutputStream(new FileOutputStream(getOutputFilePath()));
+        if (options.getPipelineDepth() > 0) {
+            return new WriteBehindOutputStream(output, chunkSize, options.getPipelineDepth());
+        }
+        return output;
+    }
 
-        try (InputStream reader = new FileInputStream(filePath)) {
+    /**
+     * Creates the header of a block from its code table.
+     *
+     * @param frequencyTable The frequency table built from the block.
+     * @param symbols        The indices of the symbols in ascending symbol order.
+     * @param codeWords      The code word of each symbol, in the same order.
+     * @param symbolCount    The number of whole symbols in the block.
+     * @param tail           The trailing bytes of the block that do not form a whole symbol.
+     * @param syncInterval   The number of symbols between two sync points.
+     * @return The block header.
+     */
+    static BlockHeader createBlockHeader(FrequencyTable frequencyTable, int[] symbols, CodeWord[] codeWords,
+                                         long symbolCount, byte[] tail, int syncInterval) {
+        // the header stores the symbols in ascending order together with their code word lengths
+        ByteWrapper[] sortedSymbols = new ByteWrapper[symbols.length];
+        int[] codeLengths = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            sortedSymbols[i] = frequencyTable.symbol(symbols[i]);
+            codeLengths[i] = codeWords[i].length;
+        }
+        long payloadLength = BlockHeader.payloadLength(frequencyTable.getFrequencies(symbols), codeWords);
+        return new BlockHeader(symbolCount, sortedSymbols, codeLengths, tail, syncInterval, payloadLength);
+    }
+
+    /**
+     * Checks whether a block is smaller stored as is than Huffman coded.
+     * The size of the Huffman coded block is known from its header before any data is encoded.
+     *
+     * @param blockHeader The header of the Huffman coded block.
+     * @param length      The number of original bytes in the block.
+     * @return True if the block should be stored.
+     */
+    static boolean shouldStore(BlockHeader blockHeader, long length) {
+        return blockHeader.encodedLength() >= BlockHeader.stored(length).encodedLength();
+    }
+
+    /**
+     * Writes the header of the compressed file.
+     * Without blocks, the whole file is a single block that directly follows the file header.
+     *
+     * @param writer      The stream of the compressed file, positioned at its start.
+     * @param blockHeader The header of the single block.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void writeHeader(DataOutputStream writer, BlockHeader blockHeader) throws IOException {
+        long originalSize = getOriginalFileSize();
+        long[] blockOffsets = new long[1];
+        HuffmanHeader header = new HuffmanHeader(numberOfBytes, originalSize, originalSize, blockOffsets);
+        blockOffsets[0] = header.size();
+        header.write(writer);
+        blockHeader.write(writer);
+    }
+
+    /**
+     * Writes the compressed content of the file, followed by its sync points and its checksum.
+     *
+     * @param writer         The stream of the compressed file, positioned after the headers.
+     * @param frequencyTable The frequency table built from the file.
+     * @param symbols        The indices of the symbols in ascending symbol order.
+     * @param codeWords      The code word of each symbol, in the same order.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void writeContent(DataOutputStream writer, FrequencyTable frequencyTable, int[] symbols, CodeWord[] codeWords)
+            throws IOException {
+
+        try (InputStream reader = openInput()) {
+            HuffmanEncoder encoder = new HuffmanEncoder(frequencyTable, symbols, codeWords, writer, chunkSize,
+                    options.getSyncInterval());
+            CRC32C checksum = new CRC32C();
             byte[] buffer = new byte[chunkSize];
             int bytesRead;
-            StringBuilder compressedFile = new StringBuilder();
-
-            try (FileOutputStream writer = new FileOutputStream(getOutputFilePath(), true)) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-                while ((bytesRead = reader.read(buffer)) != -1) {
-                    for (int i = 0; i <= bytesRead - numberOfBytes; i += numberOfBytes) {
-                        byte[] nByteUnit = Arrays.copyOfRange(buffer, i, i + numberOfBytes);
-                        ByteWrapper byteWrapper = new ByteWrapper(nByteUnit);
-                        compressedFile.append(codeWords.get(byteWrapper));
-                        while (compressedFile.length() >= 8) {
-                            String chunk = compressedFile.substring(0, 8);
-                            compressedFile.delete(0, 8);
-                            int x = Integer.parseInt(chunk, 2);
-                            byte y = (byte) x;
-                            baos.write(y);
-                        }
-                    }
-                    int mod = bytesRead % numberOfBytes;
-                    if (mod != 0) {
-                        byte[] nByteUnit = Arrays.copyOfRange(buffer, bytesRead - mod, bytesRead);
-                        ByteWrapper byteWrapper = new ByteWrapper(nByteUnit);
-                        compressedFile.append(codeWords.get(byteWrapper));
-                        while (compressedFile.length() >= 8) {
-                            String chunk = compressedFile.substring(0, 8);
-                            compressedFile.delete(0, 8);
-                            int x = Integer.parseInt(chunk, 2);
-                            byte y = (byte) x;
-                            baos.write(y);
-                        }
-                    }
-                    writer.write(baos.toByteArray());
-                    baos.reset();
-                }
 
-                if(!compressedFile.isEmpty()) {
-                    byte[] compressedFileBytes = stringToBytes(compressedFile);
-                    for (byte x : compressedFileBytes) {
-                        writer.write(x);
-                    }
-                }
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+            // the trailing bytes are part of the header, so only whole symbols are encoded, but all bytes are checked
+            while ((bytesRead = reader.readNBytes(buffer, 0, chunkSize)) > 0) {
+                checksum.update(buffer, 0, bytesRead);
+                encoder.encode(buffer, bytesRead - bytesRead % numberOfBytes);
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            encoder.finish();
+            BlockHeader.writeSyncPoints(writer, encoder.getSyncPoints());
+            BlockHeader.writeChecksum(writer, checksum);
         }
     }
 
     /**
      * Compresses the file using the provided code words.
+     * The compressed file stays open from the header to the checksum. If Huffman coding
+     * would not shrink the file, it is copied as a stored block without encoding it.
      *
-     * @param codeWords The code words generated during compression.
+     * @param frequencyTable The frequency table built from the file.
+     * @param symbols        The indices of the symbols in ascending symbol order.
+     * @param codeWords      The code word of each symbol, in the same order.
      */
-    public void compressFile(Map<ByteWrapper, String> codeWords) {
+    public void compressFile(FrequencyTable frequencyTable, int[] symbols, CodeWord[] codeWords) {
+        BlockHeader blockHeader = createBlockHeader(frequencyTable, symbols, codeWords, fileMatches, tail,
+                options.getSyncInterval());
+        long originalSize = getOriginalFileSize();
+        if (shouldStore(blockHeader, originalSize)) {
+            blockHeader = BlockHeader.stored(originalSize);
+        }
 
-        writeHeader(codeWords);
-        writeContent(codeWords);
+        try (DataOutputStream writer = new DataOutputStream(openOutput())) {
+            Metrics.Timer timer = Metrics.start(options.getMetricsListener(), Phase.HEADER);
+            writeHeader(writer, blockHeader);
+            timer.stop(writer.size());
+
+            timer = Metrics.start(options.getMetricsListener(), Phase.ENCODE);
+            if (blockHeader.isStored()) {
+                try (CheckedInputStream reader = new CheckedInputStream(openInput(), new CRC32C())) {
+                    reader.transferTo(writer);
+                    BlockHeader.writeChecksum(writer, reader.getChecksum());
+                }
+            } else {
+                writeContent(writer, frequencyTable, symbols, codeWords);
+            }
+            timer.stop(originalSize);
+            Metrics.blockProcessed(options.getMetricsListener(), blockHeader, originalSize);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
 
     }
 
     /**
-     * Converts a binary string to a byte array.
-     *
-     * @param binaryString The binary string to convert.
-     * @return The byte array.
+     * Compresses the file in independently encoded blocks.
+     * Each block gets its own frequency table and code words. Blocks are encoded concurrently
+     * and written in order as they complete, at most two blocks per thread are kept in memory.
+     * The file header with the offset of each block is written last. Without a block size, as when
+     * only a dictionary is set, the blocks are {@link HuffmanOutputStream#DEFAULT_BLOCK_SIZE} bytes.
      */
-    public byte[] stringToBytes(StringBuilder binaryString) {
-        int length = binaryString.length();
-        int numOfBytes = (length + 7) / 8; // Calculate the number of bytes needed
-        int paddedLength = numOfBytes * 8; // Calculate the total length after padding
+    public void compressBlocks() {
+        long blockSize = options.getBlockSize() > 0 ? options.getBlockSize() : HuffmanOutputStream.DEFAULT_BLOCK_SIZE;
+        blockSize = Math.max(numberOfBytes, blockSize - blockSize % numberOfBytes);
+        int threads = options.getThreads();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try (FileChannel input = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(Path.of(getOutputFilePath()),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long originalSize = input.size();
+            int blockCount = Math.toIntExact((originalSize + blockSize - 1) / blockSize);
+            long[] blockOffsets = new long[blockCount];
+            long dictionaryId = options.getDictionary() == null ? Dictionary.NONE : options.getDictionary().getId();
+            HuffmanHeader header = new HuffmanHeader(numberOfBytes, dictionaryId, originalSize, blockSize, blockOffsets);
+
+            // the blocks follow the header, which is written once all offsets are known
+            output.position(header.size());
+            Deque<Future<byte[]>> pending = new ArrayDeque<>();
+            int submitted = 0;
+            for (int block = 0; block < blockCount; block++) {
+                while (submitted < blockCount && submitted - block < 2 * threads) {
+                    long start = submitted * blockSize;
+                    int length = (int) Math.min(blockSize, originalSize - start);
+                    pending.add(executor.submit(() -> encodeBlock(input, start, length)));
+                    submitted++;
+                }
 
-        // Pad the binary string with zeros if needed
-        binaryString = new StringBuilder(String.format("%-" + paddedLength + "s", binaryString).replace(' ', '0'));
+                ByteBuffer encodedBlock = ByteBuffer.wrap(pending.poll().get());
+                blockOffsets[block] = output.position();
+                while (encodedBlock.hasRemaining()) {
+                    output.write(encodedBlock);
+                }
+            }
 
-        byte[] bytes = new byte[numOfBytes];
+            Metrics.Timer timer = Metrics.start(options.getMetricsListener(), Phase.HEADER);
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(header.size());
+            header.write(new DataOutputStream(headerBytes));
+            ByteBuffer headerBuffer = ByteBuffer.wrap(headerBytes.toByteArray());
+            while (headerBuffer.hasRemaining()) {
+                output.write(headerBuffer, headerBuffer.position());
+            }
+            timer.stop(header.size());
+        } catch (IOException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-        for (int i = 0; i < numOfBytes; i++) {
-            String chunk = binaryString.substring(i * 8, (i * 8) + 8);
-            byte b = (byte) Integer.parseInt(chunk, 2);
-            bytes[i] = b;
+    /**
+     * Encodes one block of the file with its own code words.
+     *
+     * @param input  The channel of the file, read with positional reads only.
+     * @param start  The offset of the block in the file.
+     * @param length The number of bytes in the block.
+     * @return The block header followed by the encoded data.
+     * @throws IOException If an I/O error occurs.
+     */
+    private byte[] encodeBlock(FileChannel input, long start, int length) throws IOException {
+        byte[] data = new byte[length];
+        if (options.getIoMode() == IoMode.MAPPED) {
+            new MappedInputStream(input, start, start + length).readNBytes(data, 0, length);
+        } else {
+            readFully(input, ByteBuffer.wrap(data), start);
         }
+        return blockEncoder.encode(data, length);
+    }
+
 
-        return bytes;
+    /**
+     * Fills a buffer from a channel with positional reads.
+     *
+     * @param channel  The channel to read from.
+     * @param buffer   The buffer to fill.
+     * @param position The position in the channel to read the first byte from.
+     * @throws IOException If an I/O error occurs or the channel ends before the buffer is full.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
     }
 
 }
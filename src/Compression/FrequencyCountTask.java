@@ -0,0 +1,89 @@
+package Compression;
+
+import Util.ChannelInputStream;
+import Util.IoMode;
+import Util.MappedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the symbols of a segment of a file on a fork-join pool.
+ * Segments larger than the split size are halved at a symbol boundary and counted in parallel,
+ * and the frequency tables of both halves are merged when they complete.
+ */
+class FrequencyCountTask extends RecursiveTask<FrequencyTable> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final FileChannel channel;
+    private final int numberOfBytes;
+    private final long start;
+    private final long end;
+    private final long splitSize;
+    private final int chunkSize;
+    private final IoMode ioMode;
+
+    /**
+     * Constructs a FrequencyCountTask.
+     *
+     * @param channel       The channel of the file, read with positional reads only.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param start         The offset of the first byte of the segment, a multiple of numberOfBytes.
+     * @param end           The offset after the last byte of the segment, a multiple of numberOfBytes.
+     * @param splitSize     The size above which the segment is split, a multiple of numberOfBytes.
+     * @param chunkSize     The size of the read buffer, a multiple of numberOfBytes.
+     * @param ioMode        The way the segment is read.
+     */
+    FrequencyCountTask(FileChannel channel, int numberOfBytes, long start, long end, long splitSize, int chunkSize,
+                       IoMode ioMode) {
+        this.channel = channel;
+        this.numberOfBytes = numberOfBytes;
+        this.start = start;
+        this.end = end;
+        this.splitSize = splitSize;
+        this.chunkSize = chunkSize;
+        this.ioMode = ioMode;
+    }
+
+    /**
+     * Counts the segment, splitting it if it is too large.
+     *
+     * @return The frequency table of the segment.
+     */
+    @Override
+    protected FrequencyTable compute() {
+        if (end - start > splitSize) {
+            // split in the middle, rounded down to a symbol boundary
+            long middle = start + ((end - start) / 2) / numberOfBytes * numberOfBytes;
+            FrequencyCountTask left = new FrequencyCountTask(channel, numberOfBytes, start, middle, splitSize, chunkSize, ioMode);
+            FrequencyCountTask right = new FrequencyCountTask(channel, numberOfBytes, middle, end, splitSize, chunkSize, ioMode);
+            left.fork();
+            FrequencyTable frequencyTable = right.compute();
+            frequencyTable.merge(left.join());
+            return frequencyTable;
+        }
+
+        FrequencyTable frequencyTable = FrequencyTable.create(numberOfBytes);
+        byte[] buffer = new byte[(int) Math.min(chunkSize, end - start)];
+        try (InputStream in = ioMode == IoMode.MAPPED
+                ? new MappedInputStream(channel, start, end)
+                : new ChannelInputStream(channel, start)) {
+            long remaining = end - start;
+            while (remaining > 0) {
+                int length = (int) Math.min(buffer.length, remaining);
+                if (in.readNBytes(buffer, 0, length) != length) {
+                    throw new IOException("Unexpected end of file");
+                }
+                frequencyTable.count(buffer, length);
+                remaining -= length;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return frequencyTable;
+    }
+}
@@ -0,0 +1,159 @@
+package Compression;
+
+import Util.ByteWrapper;
+
+/**
+ * Counts how often each symbol occurs in the file and maps each symbol to an index.
+ * The same index is used to look up the code word of a symbol while encoding, so no
+ * objects have to be created per symbol in either pass.
+ * The backend is chosen from the number of bytes in each symbol, see {@link #create(int)}.
+ */
+public abstract class FrequencyTable {
+
+    protected final int numberOfBytes;
+
+    /**
+     * Constructs a FrequencyTable.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     */
+    protected FrequencyTable(int numberOfBytes) {
+        this.numberOfBytes = numberOfBytes;
+    }
+
+    /**
+     * Creates the frequency table best suited for the symbol size.
+     * Symbols of one or two bytes are counted in a direct histogram, symbols of up to
+     * eight bytes in an open addressing hash table keyed on the symbol packed into a long,
+     * and wider symbols in a hash map of {@link ByteWrapper} keys.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @return The frequency table.
+     */
+    public static FrequencyTable create(int numberOfBytes) {
+        if (numberOfBytes <= HistogramFrequencyTable.MAX_NUMBER_OF_BYTES) {
+            return new HistogramFrequencyTable(numberOfBytes);
+        }
+        if (numberOfBytes <= PackedFrequencyTable.MAX_NUMBER_OF_BYTES) {
+            return new PackedFrequencyTable(numberOfBytes);
+        }
+        return new WrapperFrequencyTable(numberOfBytes);
+    }
+
+    /**
+     * Counts the symbols of a chunk of the input.
+     *
+     * @param chunk  The bytes to count.
+     * @param length The number of bytes to count, a multiple of the number of bytes in each symbol.
+     */
+    public abstract void count(byte[] chunk, int length);
+
+    /**
+     * Adds the counts of another frequency table to this one.
+     *
+     * @param other A frequency table for the same number of bytes.
+     */
+    public abstract void merge(FrequencyTable other);
+
+    /**
+     * Retrieves the index of the symbol starting at the given offset.
+     *
+     * @param chunk  The bytes holding the symbol.
+     * @param offset The offset of the first byte of the symbol.
+     * @return The index of the symbol, or -1 if it has not been counted.
+     */
+    public abstract int indexOf(byte[] chunk, int offset);
+
+    /**
+     * Retrieves the upper bound of the symbol indices.
+     *
+     * @return The number of indices that may be in use.
+     */
+    public abstract int capacity();
+
+    /**
+     * Retrieves the frequency of a symbol.
+     *
+     * @param index The index of the symbol.
+     * @return The number of times the symbol was counted.
+     */
+    public abstract long frequency(int index);
+
+    /**
+     * Retrieves the bytes of a symbol.
+     *
+     * @param index The index of the symbol.
+     * @return The symbol.
+     */
+    public abstract ByteWrapper symbol(int index);
+
+    /**
+     * Retrieves the indices of all counted symbols in ascending symbol order.
+     *
+     * @return The indices of the counted symbols.
+     */
+    public abstract int[] sortedSymbols();
+
+    /**
+     * Retrieves the frequencies of the given symbols.
+     *
+     * @param symbols The indices of the symbols.
+     * @return The frequency of each symbol, in the same order.
+     */
+    public long[] getFrequencies(int[] symbols) {
+        long[] frequencies = new long[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            frequencies[i] = frequency(symbols[i]);
+        }
+        return frequencies;
+    }
+
+    /**
+     * Packs a symbol of up to eight bytes into a long, keeping the unsigned order of the symbols.
+     *
+     * @param chunk         The bytes holding the symbol.
+     * @param offset        The offset of the first byte of the symbol.
+     * @param numberOfBytes The number of bytes in the symbol.
+     * @return The packed symbol.
+     */
+    static long pack(byte[] chunk, int offset, int numberOfBytes) {
+        long key = 0;
+        for (int i = 0; i < numberOfBytes; i++) {
+            key = (key << 8) | (chunk[offset + i] & 0xFF);
+        }
+        return key;
+    }
+
+    /**
+     * Hashes a symbol of any width, for hash tables keyed on the bytes of the symbols.
+     *
+     * @param chunk         The bytes holding the symbol.
+     * @param offset        The offset of the first byte of the symbol.
+     * @param numberOfBytes The number of bytes in the symbol.
+     * @return The hash, with all bits mixed so that any range of them can select a bucket.
+     */
+    static long hash(byte[] chunk, int offset, int numberOfBytes) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < numberOfBytes; i++) {
+            hash = (hash ^ (chunk[offset + i] & 0xFF)) * 0x100000001B3L;
+        }
+        // Fibonacci hashing spreads the low bits that FNV mixes poorly over the high bits
+        return hash * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Unpacks a symbol packed by {@link #pack(byte[], int, int)}.
+     *
+     * @param key           The packed symbol.
+     * @param numberOfBytes The number of bytes in the symbol.
+     * @return The symbol.
+     */
+    static ByteWrapper unpack(long key, int numberOfBytes) {
+        byte[] bytes = new byte[numberOfBytes];
+        for (int i = numberOfBytes - 1; i >= 0; i--) {
+            bytes[i] = (byte) key;
+            key >>>= 8;
+        }
+        return new ByteWrapper(bytes);
+    }
+}
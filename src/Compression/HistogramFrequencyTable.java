@@ -0,0 +1,125 @@
+package Compression;
+
+import Util.ByteWrapper;
+
+/**
+ * Frequency table for symbols of one or two bytes.
+ * The symbol value itself is the index into a flat histogram, so counting and
+ * looking up a symbol are a single array access.
+ */
+public class HistogramFrequencyTable extends FrequencyTable {
+
+    // Widest symbol counted in a histogram, 2^16 counters
+    static final int MAX_NUMBER_OF_BYTES = 2;
+
+    private final long[] counts;
+
+    /**
+     * Constructs a HistogramFrequencyTable.
+     *
+     * @param numberOfBytes The number of bytes in each symbol, one or two.
+     */
+    public HistogramFrequencyTable(int numberOfBytes) {
+        super(numberOfBytes);
+        this.counts = new long[1 << (8 * numberOfBytes)];
+    }
+
+    /**
+     * Counts the symbols of a chunk of the input.
+     *
+     * @param chunk  The bytes to count.
+     * @param length The number of bytes to count, a multiple of the number of bytes in each symbol.
+     */
+    @Override
+    public void count(byte[] chunk, int length) {
+        if (numberOfBytes == 1) {
+            for (int i = 0; i < length; i++) {
+                counts[chunk[i] & 0xFF]++;
+            }
+        } else {
+            for (int i = 0; i < length; i += 2) {
+                counts[((chunk[i] & 0xFF) << 8) | (chunk[i + 1] & 0xFF)]++;
+            }
+        }
+    }
+
+    /**
+     * Adds the counts of another frequency table to this one.
+     *
+     * @param other A frequency table for the same number of bytes.
+     */
+    @Override
+    public void merge(FrequencyTable other) {
+        long[] otherCounts = ((HistogramFrequencyTable) other).counts;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += otherCounts[i];
+        }
+    }
+
+    /**
+     * Retrieves the index of the symbol starting at the given offset.
+     *
+     * @param chunk  The bytes holding the symbol.
+     * @param offset The offset of the first byte of the symbol.
+     * @return The value of the symbol, which is its index.
+     */
+    @Override
+    public int indexOf(byte[] chunk, int offset) {
+        if (numberOfBytes == 1) {
+            return chunk[offset] & 0xFF;
+        }
+        return ((chunk[offset] & 0xFF) << 8) | (chunk[offset + 1] & 0xFF);
+    }
+
+    /**
+     * Retrieves the upper bound of the symbol indices.
+     *
+     * @return The number of possible symbols.
+     */
+    @Override
+    public int capacity() {
+        return counts.length;
+    }
+
+    /**
+     * Retrieves the frequency of a symbol.
+     *
+     * @param index The index of the symbol.
+     * @return The number of times the symbol was counted.
+     */
+    @Override
+    public long frequency(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Retrieves the bytes of a symbol.
+     *
+     * @param index The index of the symbol.
+     * @return The symbol.
+     */
+    @Override
+    public ByteWrapper symbol(int index) {
+        return unpack(index, numberOfBytes);
+    }
+
+    /**
+     * Retrieves the indices of all counted symbols in ascending symbol order.
+     *
+     * @return The indices of the counted symbols.
+     */
+    @Override
+    public int[] sortedSymbols() {
+        int size = 0;
+        for (long count : counts) {
+            if (count > 0) size++;
+        }
+        // the histogram is already in symbol order
+        int[] symbols = new int[size];
+        int position = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) symbols[position++] = i;
+        }
+        return symbols;
+    }
+}
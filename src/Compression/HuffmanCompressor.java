@@ -1,9 +1,12 @@
 package Compression;
 
-import Util.ByteWrapper;
+import Util.CodeWord;
 import Util.HuffmanTree;
+import Util.Metrics;
+import Util.MetricsListener;
+import Util.Phase;
 
-import java.util.Map;
+import java.io.PrintStream;
 
 /**
  * Compresses a file using Huffman coding algorithm.
@@ -12,6 +15,7 @@ public class HuffmanCompressor {
 
     private final String filePath;
     private final int numberOfBytes;
+    private final CompressionOptions options;
 
     /**
      * Constructor to initialize the compressor with file path and number of bytes.
@@ -20,8 +24,20 @@ public class HuffmanCompressor {
      * @param numberOfBytes The number of bytes to process at once.
      */
     public HuffmanCompressor(String filePath, int numberOfBytes) {
+        this(filePath, numberOfBytes, new CompressionOptions());
+    }
+
+    /**
+     * Constructor to initialize the compressor with file path, number of bytes and settings.
+     *
+     * @param filePath      The path to the file to be compressed.
+     * @param numberOfBytes The number of bytes to process at once.
+     * @param options       The settings of the compression.
+     */
+    public HuffmanCompressor(String filePath, int numberOfBytes, CompressionOptions options) {
         this.filePath = filePath;
         this.numberOfBytes = numberOfBytes;
+        this.options = options;
     }
 
     /**
@@ -31,19 +47,52 @@ public class HuffmanCompressor {
      * compressed file size, and compression ratio.
      */
     public void compress() {
+        compress(System.out);
+    }
+
+    /**
+     * Method to perform the compression and print its statistics to the given stream.
+     *
+     * @param out The stream the statistics are printed to.
+     */
+    public void compress(PrintStream out) {
         double startTime = System.currentTimeMillis();
-        FileCompressorManager fileCompressorManager = new FileCompressorManager(filePath, numberOfBytes);
-        Map<ByteWrapper, Integer> frequencyTable = fileCompressorManager.buildFrequencyTable(numberOfBytes, filePath);
-        HuffmanTree huffmanTree = new HuffmanTree(frequencyTable);
-        huffmanTree.buildTree();
-        Map<ByteWrapper, String> codeWords = huffmanTree.buildCodeWords();
-        fileCompressorManager.compressFile(codeWords);
+        FileCompressorManager fileCompressorManager = new FileCompressorManager(filePath, numberOfBytes, options);
+        MetricsListener metricsListener = options.getMetricsListener();
+        long originalSize = fileCompressorManager.getOriginalFileSize();
+        double lengthLimitOverhead;
+        if (options.getBlockSize() > 0 || options.getDictionary() != null || options.isInterleaved()
+                || options.getAlphabetLimit() > 0 || options.getLevel() > 0) {
+            // a dictionary, interleaving, the alphabet limit and LZ77 matching apply per block, so files compressed with them are always split into blocks
+            fileCompressorManager.compressBlocks();
+            lengthLimitOverhead = fileCompressorManager.getLengthLimitOverhead();
+        } else {
+            Metrics.Timer timer = Metrics.start(metricsListener, Phase.HISTOGRAM);
+            FrequencyTable frequencyTable = fileCompressorManager.buildFrequencyTable(numberOfBytes, filePath);
+            int[] symbols = frequencyTable.sortedSymbols();
+            timer.stop(originalSize);
+
+            timer = Metrics.start(metricsListener, Phase.TREE_BUILD);
+            HuffmanTree huffmanTree = new HuffmanTree(frequencyTable.getFrequencies(symbols), options.getMaxCodeLength());
+            huffmanTree.buildTree();
+            timer.stop(originalSize);
+
+            timer = Metrics.start(metricsListener, Phase.CODE_GENERATION);
+            CodeWord[] codeWords = huffmanTree.buildCodeWords();
+            timer.stop(originalSize);
+
+            fileCompressorManager.compressFile(frequencyTable, symbols, codeWords);
+            long optimalBits = huffmanTree.getOptimalBits();
+            lengthLimitOverhead = optimalBits == 0 ? 0 : (double) (huffmanTree.getEncodedBits() - optimalBits) / optimalBits;
+        }
+        metricsListener.completed(originalSize, fileCompressorManager.getCompressedFileSize());
         double endTime = System.currentTimeMillis();
         double elapsedTime = (endTime - startTime) / 1000.0;
-        System.out.println("Compression execution time: " + elapsedTime + " seconds");
-        System.out.println("Original file size: " + fileCompressorManager.getOriginalFileSize() + " bytes");
-        System.out.println("New file size: " + fileCompressorManager.getCompressedFileSize() + " bytes");
-        System.out.println("Compression ratio: " + fileCompressorManager.getCompressionRatio());
+        out.println("Compression execution time: " + elapsedTime + " seconds");
+        out.println("Original file size: " + fileCompressorManager.getOriginalFileSize() + " bytes");
+        out.println("New file size: " + fileCompressorManager.getCompressedFileSize() + " bytes");
+        out.println("Compression ratio: " + fileCompressorManager.getCompressionRatio());
+        out.println("Code length limit overhead: " + String.format("%.4f", 100 * lengthLimitOverhead) + "%");
     }
 
 }
@@ -0,0 +1,232 @@
+package Compression;
+
+import Util.CodeWord;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Encodes symbols with their Huffman code words into a packed bit stream.
+ * Code words are appended to a 64-bit accumulator that is drained into a byte buffer
+ * a whole byte at a time, and the byte buffer is written to the output when it fills up.
+ * Every syncInterval symbols the encoder records the bit offset of the next symbol, so decoding
+ * can later start at any of these sync points.
+ * <p>
+ * Given a literal code table, the last symbol is the escape symbol of a block with escapes: every
+ * symbol the frequency table maps to it is written as the escape code word followed by the code
+ * words of its bytes.
+ */
+public class HuffmanEncoder {
+
+    private final FrequencyTable frequencyTable;
+    private final int numberOfBytes;
+
+    // The code word of each symbol, indexed like the frequency table
+    private final long[] codeBits;
+    private final byte[] codeLengths;
+    private final OutputStream out;
+
+    // The index of the escape symbol, or -1 without escapes, and the code word of each byte value of an escaped symbol
+    private final int escape;
+    private final long[] literalBits;
+    private final byte[] literalLengths;
+
+    private final byte[] buffer;
+    private int position;
+
+    // Number of bytes written to the output before the current buffer
+    private long bytesWritten;
+
+    private final int syncInterval;
+    private int symbolsUntilSync;
+    private long[] syncPoints = new long[16];
+    private int syncPointCount;
+
+    // The bits that have not been written to the buffer yet, aligned to the most significant bit
+    private long bitBuffer;
+    private int bitCount;
+
+    /**
+     * Constructs a HuffmanEncoder.
+     *
+     * @param frequencyTable The frequency table that maps symbols to their indices.
+     * @param symbols        The indices of the symbols in ascending symbol order.
+     * @param codeWords      The code word of each symbol, in the same order.
+     * @param out            The stream the encoded bits are written to.
+     * @param bufferSize     The size of the output buffer in bytes.
+     * @param syncInterval   The number of symbols between sync points.
+     */
+    public HuffmanEncoder(FrequencyTable frequencyTable, int[] symbols, CodeWord[] codeWords, OutputStream out,
+                          int bufferSize, int syncInterval) {
+        this(frequencyTable, symbols, codeWords, null, out, bufferSize, syncInterval);
+    }
+
+    /**
+     * Constructs a HuffmanEncoder for a block with escapes.
+     *
+     * @param frequencyTable   The frequency table that maps symbols to their indices.
+     * @param symbols          The indices of the symbols in ascending symbol order, followed by the escape symbol.
+     * @param codeWords        The code word of each symbol, in the same order.
+     * @param literalCodeWords The code word of each byte value of an escaped symbol, or null without escapes.
+     * @param out              The stream the encoded bits are written to.
+     * @param bufferSize       The size of the output buffer in bytes.
+     * @param syncInterval     The number of symbols between sync points.
+     */
+    public HuffmanEncoder(FrequencyTable frequencyTable, int[] symbols, CodeWord[] codeWords,
+                          CodeWord[] literalCodeWords, OutputStream out, int bufferSize, int syncInterval) {
+        this.frequencyTable = frequencyTable;
+        this.numberOfBytes = frequencyTable.numberOfBytes;
+        this.codeBits = new long[frequencyTable.capacity()];
+        this.codeLengths = new byte[frequencyTable.capacity()];
+        for (int i = 0; i < symbols.length; i++) {
+            codeBits[symbols[i]] = codeWords[i].bits;
+            codeLengths[symbols[i]] = (byte) codeWords[i].length;
+        }
+        this.escape = literalCodeWords == null ? -1 : symbols[symbols.length - 1];
+        this.literalBits = new long[literalCodeWords == null ? 0 : literalCodeWords.length];
+        this.literalLengths = new byte[literalBits.length];
+        for (int i = 0; i < literalBits.length; i++) {
+            literalBits[i] = literalCodeWords[i].bits;
+            literalLengths[i] = (byte) literalCodeWords[i].length;
+        }
+        this.out = out;
+        this.buffer = new byte[Math.max(bufferSize, 16)];
+        this.syncInterval = syncInterval;
+        this.symbolsUntilSync = syncInterval;
+    }
+
+    /**
+     * Encodes the symbols of a chunk of the input.
+     *
+     * @param chunk  The bytes to encode.
+     * @param length The number of bytes to encode, a multiple of the number of bytes in each symbol.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void encode(byte[] chunk, int length) throws IOException {
+        int i = 0;
+        while (i < length) {
+            if (symbolsUntilSync == 0) {
+                // a sync point is only recorded once another symbol follows it
+                recordSyncPoint();
+                symbolsUntilSync = syncInterval;
+            }
+
+            // encode up to the next sync point without checking for it after every symbol
+            int end = (int) Math.min(length, i + (long) symbolsUntilSync * numberOfBytes);
+            symbolsUntilSync -= (end - i) / numberOfBytes;
+            for (; i < end; i += numberOfBytes) {
+                int symbol = frequencyTable.indexOf(chunk, i);
+                write(codeBits[symbol], codeLengths[symbol]);
+                if (symbol == escape) {
+                    writeLiterals(chunk, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes every step-th symbol of a chunk of the input, for one of the bit streams of an
+     * interleaved block. Interleaved blocks are decoded from their start, so no sync points are recorded.
+     *
+     * @param chunk  The bytes to encode.
+     * @param length The number of bytes to encode, a multiple of the number of bytes in each symbol.
+     * @param first  The index of the first symbol to encode.
+     * @param step   The number of symbols from one encoded symbol to the next.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void encodeInterleaved(byte[] chunk, int length, int first, int step) throws IOException {
+        int stride = step * numberOfBytes;
+        for (long i = (long) first * numberOfBytes; i < length; i += stride) {
+            int symbol = frequencyTable.indexOf(chunk, (int) i);
+            write(codeBits[symbol], codeLengths[symbol]);
+            if (symbol == escape) {
+                writeLiterals(chunk, (int) i);
+            }
+        }
+    }
+
+    /**
+     * Appends the literal code words of the bytes of an escaped symbol.
+     *
+     * @param chunk  The bytes holding the symbol.
+     * @param offset The offset of the first byte of the symbol.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void writeLiterals(byte[] chunk, int offset) throws IOException {
+        for (int i = offset; i < offset + numberOfBytes; i++) {
+            int literal = chunk[i] & 0xFF;
+            write(literalBits[literal], literalLengths[literal]);
+        }
+    }
+
+    /**
+     * Records the current bit offset in the encoded data as a sync point.
+     */
+    private void recordSyncPoint() {
+        if (syncPointCount == syncPoints.length) {
+            syncPoints = Arrays.copyOf(syncPoints, 2 * syncPoints.length);
+        }
+        syncPoints[syncPointCount++] = (bytesWritten + position) * 8 + bitCount;
+    }
+
+    /**
+     * Retrieves the sync points recorded so far.
+     *
+     * @return The bit offset in the encoded data of every syncInterval-th symbol, starting with the first interval.
+     */
+    public long[] getSyncPoints() {
+        return Arrays.copyOf(syncPoints, syncPointCount);
+    }
+
+    /**
+     * Appends a code word to the bit stream.
+     *
+     * @param bits   The bits of the code word, right aligned.
+     * @param length The number of bits in the code word.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void write(long bits, int length) throws IOException {
+        if (bitCount + length > 64) {
+            // at most 7 bits stay behind, so any code word of up to 57 bits fits afterwards
+            drain();
+        }
+        bitBuffer |= bits << (64 - bitCount - length);
+        bitCount += length;
+    }
+
+    /**
+     * Moves all whole bytes from the accumulator into the output buffer.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    private void drain() throws IOException {
+        if (position + 8 > buffer.length) {
+            out.write(buffer, 0, position);
+            bytesWritten += position;
+            position = 0;
+        }
+        while (bitCount >= 8) {
+            buffer[position++] = (byte) (bitBuffer >>> 56);
+            bitBuffer <<= 8;
+            bitCount -= 8;
+        }
+    }
+
+    /**
+     * Writes the remaining bits, padding the last byte with zeros, and flushes the output buffer.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public void finish() throws IOException {
+        drain();
+        if (bitCount > 0) {
+            buffer[position++] = (byte) (bitBuffer >>> 56);
+            bitBuffer = 0;
+            bitCount = 0;
+        }
+        out.write(buffer, 0, position);
+        bytesWritten += position;
+        position = 0;
+    }
+}
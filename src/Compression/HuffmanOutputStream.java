@@ -0,0 +1,211 @@
+package Compression;
+
+import Util.BlockHeader;
+import Util.Dictionary;
+import Util.HuffmanHeader;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Output stream that compresses the bytes written to it.
+ * The bytes are collected into blocks of a fixed size, and every full block is encoded with
+ * its own code words and written to the underlying stream right away, so the memory used does
+ * not depend on the amount of data. The output is a streamed compressed file, which can be
+ * read with {@link Decompression.HuffmanInputStream} or decompressed like any other compressed file.
+ */
+public class HuffmanOutputStream extends OutputStream {
+
+    // Number of bytes collected into a block when no block size is given
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 22;
+
+    private final DataOutputStream out;
+    private final int numberOfBytes;
+    private final BlockEncoder blockEncoder;
+
+    private final byte[] block;
+    private int length;
+    private boolean closed;
+
+    /**
+     * Constructs a HuffmanOutputStream with the default block size.
+     *
+     * @param out           The stream the compressed data is written to.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @throws IOException If the header cannot be written.
+     */
+    public HuffmanOutputStream(OutputStream out, int numberOfBytes) throws IOException {
+        this(out, numberOfBytes, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a HuffmanOutputStream.
+     *
+     * @param out           The stream the compressed data is written to.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param blockSize     The number of bytes in each block, rounded down to whole symbols.
+     * @throws IOException If the header cannot be written.
+     */
+    public HuffmanOutputStream(OutputStream out, int numberOfBytes, int blockSize) throws IOException {
+        this(out, numberOfBytes, blockSize, (Dictionary) null);
+    }
+
+    /**
+     * Constructs a HuffmanOutputStream that encodes blocks with the code table of a dictionary where it pays off.
+     *
+     * @param out           The stream the compressed data is written to.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param blockSize     The number of bytes in each block, rounded down to whole symbols.
+     * @param dictionary    The dictionary, trained for the same number of bytes, or null.
+     * @throws IOException If the header cannot be written.
+     */
+    public HuffmanOutputStream(OutputStream out, int numberOfBytes, int blockSize, Dictionary dictionary)
+            throws IOException {
+        this(out, numberOfBytes, blockSize, new CompressionOptions().setDictionary(dictionary));
+    }
+
+    /**
+     * Constructs a HuffmanOutputStream with the block size, code word length limit, metrics listener,
+     * dictionary and sync interval of the given options.
+     *
+     * @param out           The stream the compressed data is written to.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param options       The settings of the compression, without a block size blocks of
+     *                      {@value #DEFAULT_BLOCK_SIZE} bytes are used.
+     * @throws IOException If the header cannot be written.
+     */
+    public HuffmanOutputStream(OutputStream out, int numberOfBytes, CompressionOptions options) throws IOException {
+        this(out, numberOfBytes, options.getBlockSize() > 0 ? (int) options.getBlockSize() : DEFAULT_BLOCK_SIZE,
+                options);
+    }
+
+    /**
+     * Constructs a HuffmanOutputStream.
+     *
+     * @param out           The stream the compressed data is written to.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param blockSize     The number of bytes in each block, rounded down to whole symbols.
+     * @param options       The settings of the compression, the block size and I/O mode are not used.
+     * @throws IOException If the header cannot be written.
+     */
+    HuffmanOutputStream(OutputStream out, int numberOfBytes, int blockSize, CompressionOptions options)
+            throws IOException {
+        if (numberOfBytes < 1 || numberOfBytes > 255) {
+            throw new IllegalArgumentException("Number of bytes must be between 1 and 255");
+        }
+        if (blockSize < 1 || blockSize > CompressionOptions.MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + CompressionOptions.MAX_BLOCK_SIZE + " bytes");
+        }
+        this.out = new DataOutputStream(out);
+        this.numberOfBytes = numberOfBytes;
+        this.blockEncoder = new BlockEncoder(numberOfBytes, 1_000_000 - (1_000_000 % numberOfBytes), options);
+        this.block = new byte[Math.max(numberOfBytes, blockSize - blockSize % numberOfBytes)];
+        Dictionary dictionary = options.getDictionary();
+        long dictionaryId = dictionary == null ? Dictionary.NONE : dictionary.getId();
+        HuffmanHeader.streamed(numberOfBytes, dictionaryId, block.length).write(this.out);
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param b The byte to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[length++] = (byte) b;
+        if (length == block.length) {
+            writeBlock(length);
+        }
+    }
+
+    /**
+     * Writes the given bytes.
+     *
+     * @param b   The buffer holding the bytes.
+     * @param off The offset in the buffer of the first byte.
+     * @param len The number of bytes to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        ensureOpen();
+        while (len > 0) {
+            int count = Math.min(len, block.length - length);
+            System.arraycopy(b, off, block, length, count);
+            length += count;
+            off += count;
+            len -= count;
+            if (length == block.length) {
+                writeBlock(length);
+            }
+        }
+    }
+
+    /**
+     * Encodes the whole symbols collected so far as a block of their own and flushes the
+     * underlying stream. Bytes that do not form a whole symbol stay for the next block.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        int wholeSymbols = length - length % numberOfBytes;
+        if (wholeSymbols > 0) {
+            writeBlock(wholeSymbols);
+        }
+        out.flush();
+    }
+
+    /**
+     * Encodes the remaining bytes, marks the end of the stream and closes the underlying stream.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (length > 0) {
+                writeBlock(length);
+            }
+            BlockHeader.endOfStream().write(out);
+            // the end of the stream holds no bytes, so its checksum is the checksum of no data
+            BlockHeader.writeChecksum(out, new CRC32C());
+        } finally {
+            closed = true;
+            out.close();
+        }
+    }
+
+    /**
+     * Encodes the first bytes of the collected block and keeps the rest for the next block.
+     *
+     * @param count The number of bytes to encode.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void writeBlock(int count) throws IOException {
+        out.write(blockEncoder.encode(block, count));
+        System.arraycopy(block, count, block, 0, length - count);
+        length -= count;
+    }
+
+    /**
+     * Checks that the stream has not been closed.
+     *
+     * @throws IOException If the stream has been closed.
+     */
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package Compression;
+
+import Util.CodeWord;
+import Util.LzAlphabet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes the literals and matches of an LZ77 block into a packed bit stream.
+ * A literal is written as its code word in the literal and length code table. A match is written
+ * as the code word of its length code followed by the extra bits of its length, then the code word
+ * of its distance code followed by the extra bits of its distance. The bits are packed most
+ * significant bit first, through a 64-bit accumulator as in {@link HuffmanEncoder}.
+ */
+class LzEncoder {
+
+    // The code word of each literal and length code and of each distance code
+    private final long[] codeBits = new long[LzAlphabet.SYMBOLS];
+    private final byte[] codeLengths = new byte[LzAlphabet.SYMBOLS];
+    private final long[] distanceBits = new long[LzAlphabet.DISTANCE_CODES];
+    private final byte[] distanceLengths = new byte[LzAlphabet.DISTANCE_CODES];
+    private final OutputStream out;
+
+    private final byte[] buffer;
+    private int position;
+
+    // The bits that have not been written to the buffer yet, aligned to the most significant bit
+    private long bitBuffer;
+    private int bitCount;
+
+    /**
+     * Constructs an LzEncoder.
+     *
+     * @param codeWords         The code word of each of the {@value LzAlphabet#SYMBOLS} literal and length codes.
+     * @param distanceCodeWords The code word of each of the {@value LzAlphabet#DISTANCE_CODES} distance codes.
+     * @param out               The stream the encoded bits are written to.
+     * @param bufferSize        The size of the output buffer in bytes.
+     */
+    LzEncoder(CodeWord[] codeWords, CodeWord[] distanceCodeWords, OutputStream out, int bufferSize) {
+        for (int code = 0; code < LzAlphabet.SYMBOLS; code++) {
+            codeBits[code] = codeWords[code].bits;
+            codeLengths[code] = (byte) codeWords[code].length;
+        }
+        for (int code = 0; code < LzAlphabet.DISTANCE_CODES; code++) {
+            distanceBits[code] = distanceCodeWords[code].bits;
+            distanceLengths[code] = (byte) distanceCodeWords[code].length;
+        }
+        this.out = out;
+        // a drain moves up to 8 bytes into the buffer
+        this.buffer = new byte[Math.max(bufferSize, 16)];
+    }
+
+    /**
+     * Encodes tokens as packed by {@link MatchFinder}.
+     *
+     * @param tokens     The literals and matches.
+     * @param tokenCount The number of tokens to encode.
+     * @throws IOException If an I/O error occurs.
+     */
+    void encode(int[] tokens, int tokenCount) throws IOException {
+        for (int i = 0; i < tokenCount; i++) {
+            int token = tokens[i];
+            if (token >= 0) {
+                write(codeBits[token], codeLengths[token]);
+                continue;
+            }
+
+            int match = ~token;
+            int length = (match & 0xFF) + LzAlphabet.MIN_MATCH;
+            int distance = (match >>> 8) + 1;
+            int lengthCode = LzAlphabet.lengthCode(length);
+            int distanceCode = LzAlphabet.distanceCode(distance);
+            int symbol = LzAlphabet.LITERALS + lengthCode;
+            write(codeBits[symbol], codeLengths[symbol]);
+            write(length - LzAlphabet.lengthBase(lengthCode), LzAlphabet.lengthExtraBits(lengthCode));
+            write(distanceBits[distanceCode], distanceLengths[distanceCode]);
+            write(distance - LzAlphabet.distanceBase(distanceCode), LzAlphabet.distanceExtraBits(distanceCode));
+        }
+    }
+
+    /**
+     * Appends bits to the bit stream.
+     *
+     * @param bits   The bits, right aligned.
+     * @param length The number of bits.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void write(long bits, int length) throws IOException {
+        if (bitCount + length > 64) {
+            // at most 7 bits stay behind, so any code word or extra bits fit afterwards
+            drain();
+        }
+        bitBuffer |= bits << (64 - bitCount - length);
+        bitCount += length;
+    }
+
+    /**
+     * Moves all whole bytes from the accumulator into the output buffer.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    private void drain() throws IOException {
+        if (position + 8 > buffer.length) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        while (bitCount >= 8) {
+            buffer[position++] = (byte) (bitBuffer >>> 56);
+            bitBuffer <<= 8;
+            bitCount -= 8;
+        }
+    }
+
+    /**
+     * Writes the remaining bits, padding the last byte with zeros, and flushes the output buffer.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    void finish() throws IOException {
+        drain();
+        if (bitCount > 0) {
+            buffer[position++] = (byte) (bitBuffer >>> 56);
+            bitBuffer = 0;
+            bitCount = 0;
+        }
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+}
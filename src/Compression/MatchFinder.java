@@ -0,0 +1,277 @@
+package Compression;
+
+import Util.LzAlphabet;
+
+import java.util.Arrays;
+
+/**
+ * Parses a block into literals and matches with hash chains.
+ * Every position is filed under a hash of its next {@value LzAlphabet#MIN_MATCH} bytes, and the
+ * positions with the same hash are chained from the most recent one back, so the candidates for a
+ * match are found without scanning the window. At most the search depth of candidates are compared
+ * per position, and the search stops early at a match of the nice length. A match of the shortest
+ * length farther back than {@value #TOO_FAR} bytes is passed over, since the extra bits of its
+ * distance cost more than its literals. With lazy matching, a
+ * match is only taken if the next position does not start a longer one, otherwise a literal is
+ * emitted and the longer match is taken instead.
+ * <p>
+ * Each token is packed into an int: a literal is its byte value, a match is the complement of its
+ * distance - 1 shifted left by 8 bits plus its length - {@value LzAlphabet#MIN_MATCH}, which is
+ * always negative. The frequencies of the literal and length codes and of the distance codes are
+ * counted while parsing, together with the number of extra bits, so the code tables and the length
+ * of the encoded block are known without another pass over the tokens.
+ */
+class MatchFinder {
+
+    // Number of bits of the hash of the bytes a position starts with
+    private static final int HASH_BITS = 16;
+
+    // Farthest distance of a match of the shortest length, whose extra bits cost more beyond it than its literals
+    private static final int TOO_FAR = 4096;
+
+    // Window size, search depth, nice length and lazy matching of each level, level 0 does not use matches
+    private static final int[] LEVEL_WINDOW = {0, 1 << 16, 1 << 16, 1 << 18, 1 << 20, 1 << 20, 1 << 22, 1 << 22,
+            1 << 23, 1 << 23};
+    private static final int[] LEVEL_DEPTH = {0, 4, 8, 16, 16, 32, 64, 128, 512, 4096};
+    private static final int[] LEVEL_NICE_LENGTH = {0, 16, 32, 64, 64, 128, 128, 258, 258, 258};
+    private static final boolean[] LEVEL_LAZY = {false, false, false, false, true, true, true, true, true, true};
+
+    private final int windowSize;
+    private final int searchDepth;
+    private final int niceLength;
+    private final boolean lazy;
+
+    // The most recent position of each hash + 1, 0 if none, and the previous position with the same hash of each position in the window
+    private int[] head;
+    private int[] previous;
+    private int windowMask;
+
+    private int[] tokens = new int[0];
+    private int tokenCount;
+    private final long[] symbolFrequencies = new long[LzAlphabet.SYMBOLS];
+    private final long[] distanceFrequencies = new long[LzAlphabet.DISTANCE_CODES];
+    private long extraBits;
+
+    /**
+     * Constructs a MatchFinder.
+     *
+     * @param windowSize  The farthest a match reaches back, at most {@value LzAlphabet#MAX_WINDOW} bytes.
+     * @param searchDepth The number of candidates compared per position, at least one.
+     * @param niceLength  The match length that stops the search.
+     * @param lazy        Whether a match is deferred if the next position starts a longer one.
+     */
+    MatchFinder(int windowSize, int searchDepth, int niceLength, boolean lazy) {
+        this.windowSize = windowSize;
+        this.searchDepth = searchDepth;
+        this.niceLength = Math.min(niceLength, LzAlphabet.MAX_MATCH);
+        this.lazy = lazy;
+    }
+
+    /**
+     * Creates a MatchFinder for a level, whose window size and search depth can be overridden.
+     *
+     * @param level       The level, from 1 to {@link CompressionOptions#MAX_LEVEL}.
+     * @param windowSize  The farthest a match reaches back, or 0 for the window size of the level.
+     * @param searchDepth The number of candidates compared per position, or 0 for the search depth of the level.
+     * @return The match finder.
+     */
+    static MatchFinder forLevel(int level, int windowSize, int searchDepth) {
+        return new MatchFinder(windowSize > 0 ? windowSize : LEVEL_WINDOW[level],
+                searchDepth > 0 ? searchDepth : LEVEL_DEPTH[level], LEVEL_NICE_LENGTH[level], LEVEL_LAZY[level]);
+    }
+
+    /**
+     * Parses bytes into literals and matches, replacing the tokens and frequencies of the previous parse.
+     *
+     * @param data   The bytes to parse.
+     * @param length The number of bytes to parse.
+     */
+    void parse(byte[] data, int length) {
+        // a window larger than the data would only cost memory
+        int window = Math.min(windowSize, Math.max(length, 1));
+        int chainSize = Integer.highestOneBit(Math.max(window - 1, 1)) << 1;
+        if (previous == null || previous.length != chainSize) {
+            previous = new int[chainSize];
+        }
+        windowMask = chainSize - 1;
+        if (head == null) {
+            head = new int[1 << HASH_BITS];
+        } else {
+            Arrays.fill(head, 0);
+        }
+        if (tokens.length < length) {
+            tokens = new int[length];
+        }
+        tokenCount = 0;
+        Arrays.fill(symbolFrequencies, 0);
+        Arrays.fill(distanceFrequencies, 0);
+        extraBits = 0;
+
+        int position = 0;
+        while (position < length) {
+            long match = findMatch(data, position, length, window);
+            insert(data, position, length);
+            int matchLength = (int) match;
+            if (lazy && matchLength >= LzAlphabet.MIN_MATCH && matchLength < niceLength && position + 1 < length
+                    && (int) findMatch(data, position + 1, length, window) > matchLength) {
+                // the next position starts a longer match, which the next step takes
+                addLiteral(data[position]);
+                position++;
+                continue;
+            }
+            if (matchLength < LzAlphabet.MIN_MATCH) {
+                addLiteral(data[position]);
+                position++;
+                continue;
+            }
+
+            addMatch(matchLength, (int) (match >>> 32));
+            for (int next = position + 1; next < position + matchLength; next++) {
+                insert(data, next, length);
+            }
+            position += matchLength;
+        }
+    }
+
+    /**
+     * Finds the longest earlier occurrence of the bytes at a position, within the window and the search depth.
+     *
+     * @param data     The bytes being parsed.
+     * @param position The position to find a match for.
+     * @param length   The number of bytes being parsed.
+     * @param window   The farthest the match may reach back.
+     * @return The distance of the match in the high 32 bits and its length in the low 32 bits,
+     * or a length below {@value LzAlphabet#MIN_MATCH} if there is no match.
+     */
+    private long findMatch(byte[] data, int position, int length, int window) {
+        if (position + LzAlphabet.MIN_MATCH > length) {
+            return 0;
+        }
+        int maxLength = Math.min(LzAlphabet.MAX_MATCH, length - position);
+        int bestLength = LzAlphabet.MIN_MATCH - 1;
+        int bestDistance = 0;
+        int candidate = head[hash(data, position)] - 1;
+        for (int chain = searchDepth; candidate >= 0 && position - candidate <= window && chain > 0; chain--) {
+            // the byte after the best match so far rules out most candidates with a single comparison
+            if (data[candidate + bestLength] == data[position + bestLength]) {
+                int matchLength = Arrays.mismatch(data, candidate, candidate + maxLength,
+                        data, position, position + maxLength);
+                if (matchLength < 0) {
+                    matchLength = maxLength;
+                }
+                if (matchLength > bestLength && (matchLength > LzAlphabet.MIN_MATCH || position - candidate <= TOO_FAR)) {
+                    bestLength = matchLength;
+                    bestDistance = position - candidate;
+                    if (matchLength >= niceLength || matchLength == maxLength) {
+                        break;
+                    }
+                }
+            }
+            int next = previous[candidate & windowMask] - 1;
+            if (next >= candidate) {
+                // the slot was taken over by a later position, the chain ends here
+                break;
+            }
+            candidate = next;
+        }
+        return bestDistance == 0 ? 0 : (long) bestDistance << 32 | bestLength;
+    }
+
+    /**
+     * Files a position under the hash of the bytes it starts with.
+     *
+     * @param data     The bytes being parsed.
+     * @param position The position.
+     * @param length   The number of bytes being parsed.
+     */
+    private void insert(byte[] data, int position, int length) {
+        if (position + LzAlphabet.MIN_MATCH > length) {
+            return;
+        }
+        int hash = hash(data, position);
+        previous[position & windowMask] = head[hash];
+        head[hash] = position + 1;
+    }
+
+    /**
+     * Hashes the {@value LzAlphabet#MIN_MATCH} bytes starting at a position.
+     *
+     * @param data     The bytes being parsed.
+     * @param position The position of the first byte.
+     * @return The hash, {@value #HASH_BITS} bits wide.
+     */
+    private static int hash(byte[] data, int position) {
+        int bytes = (data[position] & 0xFF) << 16 | (data[position + 1] & 0xFF) << 8 | (data[position + 2] & 0xFF);
+        return (bytes * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+
+    /**
+     * Appends a literal to the tokens.
+     *
+     * @param literal The byte.
+     */
+    private void addLiteral(byte literal) {
+        tokens[tokenCount++] = literal & 0xFF;
+        symbolFrequencies[literal & 0xFF]++;
+    }
+
+    /**
+     * Appends a match to the tokens.
+     *
+     * @param length   The number of bytes the match repeats.
+     * @param distance How far back the repeated bytes start.
+     */
+    private void addMatch(int length, int distance) {
+        tokens[tokenCount++] = ~((distance - 1) << 8 | (length - LzAlphabet.MIN_MATCH));
+        int lengthCode = LzAlphabet.lengthCode(length);
+        int distanceCode = LzAlphabet.distanceCode(distance);
+        symbolFrequencies[LzAlphabet.LITERALS + lengthCode]++;
+        distanceFrequencies[distanceCode]++;
+        extraBits += LzAlphabet.lengthExtraBits(lengthCode) + LzAlphabet.distanceExtraBits(distanceCode);
+    }
+
+    /**
+     * Retrieves the tokens of the last parse.
+     *
+     * @return The packed literals and matches, of which the first {@link #getTokenCount()} are valid.
+     */
+    int[] getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Retrieves the number of tokens of the last parse.
+     *
+     * @return The number of literals and matches.
+     */
+    int getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Retrieves the frequencies of the literal and length codes of the last parse.
+     *
+     * @return The frequency of each of the {@value LzAlphabet#SYMBOLS} codes.
+     */
+    long[] getSymbolFrequencies() {
+        return symbolFrequencies;
+    }
+
+    /**
+     * Retrieves the frequencies of the distance codes of the last parse.
+     *
+     * @return The frequency of each of the {@value LzAlphabet#DISTANCE_CODES} codes.
+     */
+    long[] getDistanceFrequencies() {
+        return distanceFrequencies;
+    }
+
+    /**
+     * Retrieves the number of extra bits that follow the length and distance codes of the last parse.
+     *
+     * @return The number of extra bits.
+     */
+    long getExtraBits() {
+        return extraBits;
+    }
+}
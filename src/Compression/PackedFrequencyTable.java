@@ -0,0 +1,192 @@
+package Compression;
+
+import Util.ByteWrapper;
+
+import java.util.Arrays;
+
+/**
+ * Frequency table for symbols of three to eight bytes.
+ * Each symbol is packed into a long and stored in an open addressing hash table with
+ * linear probing, so neither counting nor looking up a symbol allocates any objects.
+ * Symbols get consecutive indices in the order they are first seen.
+ */
+public class PackedFrequencyTable extends FrequencyTable {
+
+    // Widest symbol that fits in a long
+    static final int MAX_NUMBER_OF_BYTES = 8;
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    // Hash table slots: the packed symbol and its index + 1, 0 marks an empty slot
+    private long[] slotKeys;
+    private int[] slotIndices;
+    private int shift;
+
+    // Per index: the packed symbol and its frequency
+    private long[] keys;
+    private long[] counts;
+    private int size;
+
+    /**
+     * Constructs a PackedFrequencyTable.
+     *
+     * @param numberOfBytes The number of bytes in each symbol, at most eight.
+     */
+    public PackedFrequencyTable(int numberOfBytes) {
+        super(numberOfBytes);
+        this.slotKeys = new long[INITIAL_CAPACITY];
+        this.slotIndices = new int[INITIAL_CAPACITY];
+        this.shift = 64 - Integer.numberOfTrailingZeros(INITIAL_CAPACITY);
+        this.keys = new long[INITIAL_CAPACITY / 2];
+        this.counts = new long[INITIAL_CAPACITY / 2];
+    }
+
+    /**
+     * Finds the hash table slot of a packed symbol.
+     *
+     * @param key The packed symbol.
+     * @return The slot holding the symbol, or the empty slot it would be inserted into.
+     */
+    private int slotOf(long key) {
+        int mask = slotKeys.length - 1;
+        // Fibonacci hashing spreads the packed bytes over the high bits
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        while (slotIndices[slot] != 0 && slotKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Counts occurrences of a packed symbol, adding it to the table if needed.
+     *
+     * @param key   The packed symbol.
+     * @param count The number of occurrences.
+     */
+    private void add(long key, long count) {
+        int slot = slotOf(key);
+        int index = slotIndices[slot] - 1;
+        if (index < 0) {
+            if (2 * (size + 1) > slotKeys.length) {
+                grow();
+                slot = slotOf(key);
+            }
+            index = size++;
+            slotKeys[slot] = key;
+            slotIndices[slot] = index + 1;
+            keys[index] = key;
+        }
+        counts[index] += count;
+    }
+
+    /**
+     * Doubles the hash table and the per index arrays, keeping the load factor at most one half.
+     */
+    private void grow() {
+        long[] oldSlotKeys = slotKeys;
+        int[] oldSlotIndices = slotIndices;
+        slotKeys = new long[2 * oldSlotKeys.length];
+        slotIndices = new int[2 * oldSlotIndices.length];
+        shift--;
+        for (int i = 0; i < oldSlotKeys.length; i++) {
+            if (oldSlotIndices[i] != 0) {
+                int slot = slotOf(oldSlotKeys[i]);
+                slotKeys[slot] = oldSlotKeys[i];
+                slotIndices[slot] = oldSlotIndices[i];
+            }
+        }
+        keys = Arrays.copyOf(keys, slotKeys.length / 2);
+        counts = Arrays.copyOf(counts, slotKeys.length / 2);
+    }
+
+    /**
+     * Counts the symbols of a chunk of the input.
+     *
+     * @param chunk  The bytes to count.
+     * @param length The number of bytes to count, a multiple of the number of bytes in each symbol.
+     */
+    @Override
+    public void count(byte[] chunk, int length) {
+        for (int i = 0; i < length; i += numberOfBytes) {
+            add(pack(chunk, i, numberOfBytes), 1);
+        }
+    }
+
+    /**
+     * Adds the counts of another frequency table to this one.
+     *
+     * @param other A frequency table for the same number of bytes.
+     */
+    @Override
+    public void merge(FrequencyTable other) {
+        PackedFrequencyTable table = (PackedFrequencyTable) other;
+        for (int i = 0; i < table.size; i++) {
+            add(table.keys[i], table.counts[i]);
+        }
+    }
+
+    /**
+     * Retrieves the index of the symbol starting at the given offset.
+     *
+     * @param chunk  The bytes holding the symbol.
+     * @param offset The offset of the first byte of the symbol.
+     * @return The index of the symbol, or -1 if it has not been counted.
+     */
+    @Override
+    public int indexOf(byte[] chunk, int offset) {
+        return slotIndices[slotOf(pack(chunk, offset, numberOfBytes))] - 1;
+    }
+
+    /**
+     * Retrieves the upper bound of the symbol indices.
+     *
+     * @return The number of distinct symbols counted.
+     */
+    @Override
+    public int capacity() {
+        return size;
+    }
+
+    /**
+     * Retrieves the frequency of a symbol.
+     *
+     * @param index The index of the symbol.
+     * @return The number of times the symbol was counted.
+     */
+    @Override
+    public long frequency(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Retrieves the bytes of a symbol.
+     *
+     * @param index The index of the symbol.
+     * @return The symbol.
+     */
+    @Override
+    public ByteWrapper symbol(int index) {
+        return unpack(keys[index], numberOfBytes);
+    }
+
+    /**
+     * Retrieves the indices of all counted symbols in ascending symbol order.
+     *
+     * @return The indices of the counted symbols.
+     */
+    @Override
+    public int[] sortedSymbols() {
+        // flipping the sign bit makes the signed sort order match the unsigned symbol order
+        long[] sortedKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            sortedKeys[i] = keys[i] ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(sortedKeys);
+
+        int[] symbols = new int[size];
+        for (int i = 0; i < size; i++) {
+            symbols[i] = slotIndices[slotOf(sortedKeys[i] ^ Long.MIN_VALUE)] - 1;
+        }
+        return symbols;
+    }
+}
@@ -0,0 +1,186 @@
+package Compression;
+
+import java.util.Arrays;
+
+/**
+ * Finds the most frequent symbols of a block in a fixed amount of memory with the Space-Saving
+ * algorithm. At most the given number of symbols are counted at a time; a symbol that is not
+ * counted yet replaces the symbol with the smallest count and starts from that count plus one.
+ * Every symbol that occurs more often than the number of symbols divided by the number of counters
+ * is guaranteed to be counted at the end, so the counted symbols are the candidates for the code table.
+ * <p>
+ * The counters are kept in a min-heap ordered by count, and looked up in a chained hash table
+ * keyed on the bytes of the symbols, so counting a symbol allocates no objects.
+ */
+class SpaceSavingSketch {
+
+    private final int numberOfBytes;
+    private final int capacity;
+
+    // Per counter: the bytes of its symbol, its count and the next counter + 1 in its bucket
+    private final byte[] keys;
+    private final long[] counts;
+    private final int[] next;
+
+    // The first counter + 1 of each bucket, 0 for an empty bucket
+    private final int[] buckets;
+    private final int shift;
+
+    // The counters ordered by count, the smallest first, and the position of each counter in the heap
+    private final int[] heap;
+    private final int[] heapPositions;
+    private int size;
+
+    /**
+     * Constructs a SpaceSavingSketch.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param capacity      The number of symbols counted at a time, at least one.
+     */
+    SpaceSavingSketch(int numberOfBytes, int capacity) {
+        this.numberOfBytes = numberOfBytes;
+        this.capacity = capacity;
+        this.keys = new byte[Math.multiplyExact(capacity, numberOfBytes)];
+        this.counts = new long[capacity];
+        this.next = new int[capacity];
+        int bucketCount = Integer.highestOneBit(Math.max(2 * capacity - 1, 1)) << 1;
+        this.buckets = new int[bucketCount];
+        this.shift = 64 - Integer.numberOfTrailingZeros(bucketCount);
+        this.heap = new int[capacity];
+        this.heapPositions = new int[capacity];
+    }
+
+    /**
+     * Counts the symbols of a chunk of the input.
+     *
+     * @param chunk  The bytes to count.
+     * @param length The number of bytes to count, a multiple of the number of bytes in each symbol.
+     */
+    void count(byte[] chunk, int length) {
+        for (int i = 0; i < length; i += numberOfBytes) {
+            add(chunk, i);
+        }
+    }
+
+    /**
+     * Counts one occurrence of a symbol, replacing the symbol with the smallest count if all counters are taken.
+     *
+     * @param chunk  The bytes holding the symbol.
+     * @param offset The offset of the first byte of the symbol.
+     */
+    private void add(byte[] chunk, int offset) {
+        int bucket = (int) (FrequencyTable.hash(chunk, offset, numberOfBytes) >>> shift);
+        int counter = buckets[bucket] - 1;
+        while (counter >= 0 && !Arrays.equals(keys, counter * numberOfBytes, (counter + 1) * numberOfBytes,
+                chunk, offset, offset + numberOfBytes)) {
+            counter = next[counter] - 1;
+        }
+
+        if (counter < 0) {
+            if (size < capacity) {
+                counter = size++;
+                heap[counter] = counter;
+                heapPositions[counter] = counter;
+                siftUp(counter);
+            } else {
+                // the new symbol takes over the smallest count, which bounds how much its count is overestimated
+                counter = heap[0];
+                unlink(counter);
+            }
+            System.arraycopy(chunk, offset, keys, counter * numberOfBytes, numberOfBytes);
+            next[counter] = buckets[bucket];
+            buckets[bucket] = counter + 1;
+        }
+        counts[counter]++;
+        siftDown(heapPositions[counter]);
+    }
+
+    /**
+     * Removes a counter from the bucket of its symbol.
+     *
+     * @param counter The counter.
+     */
+    private void unlink(int counter) {
+        int bucket = (int) (FrequencyTable.hash(keys, counter * numberOfBytes, numberOfBytes) >>> shift);
+        if (buckets[bucket] == counter + 1) {
+            buckets[bucket] = next[counter];
+            return;
+        }
+        int previous = buckets[bucket] - 1;
+        while (next[previous] != counter + 1) {
+            previous = next[previous] - 1;
+        }
+        next[previous] = next[counter];
+    }
+
+    /**
+     * Moves a counter towards the root of the heap until its parent has no larger count.
+     *
+     * @param position The position of the counter in the heap.
+     */
+    private void siftUp(int position) {
+        int counter = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[heap[parent]] <= counts[counter]) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(counter, position);
+    }
+
+    /**
+     * Moves a counter away from the root of the heap until neither child has a smaller count.
+     *
+     * @param position The position of the counter in the heap.
+     */
+    private void siftDown(int position) {
+        int counter = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[heap[child]] >= counts[counter]) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(counter, position);
+    }
+
+    /**
+     * Puts a counter at a position of the heap.
+     *
+     * @param counter  The counter.
+     * @param position The position in the heap.
+     */
+    private void place(int counter, int position) {
+        heap[position] = counter;
+        heapPositions[counter] = position;
+    }
+
+    /**
+     * Retrieves the number of symbols that are counted.
+     *
+     * @return The number of counters in use.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the symbols that are counted.
+     *
+     * @return The bytes of the counted symbols, one after the other, in no particular order.
+     */
+    byte[] symbols() {
+        return Arrays.copyOf(keys, size * numberOfBytes);
+    }
+}
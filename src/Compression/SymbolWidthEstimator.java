@@ -0,0 +1,196 @@
+package Compression;
+
+import Util.BlockHeader;
+import Util.ByteWrapper;
+import Util.ChannelInputStream;
+import Util.HuffmanHeader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Chooses the number of bytes in each symbol from a sample of the file.
+ * Evenly spaced chunks of at most an eighth of the file are counted for every candidate number of
+ * bytes, so the estimate costs about as much as one count of the file. The chunks are framed into
+ * symbols from the start of the file just like a full compression. The compressed size is predicted
+ * from the entropy of the sampled symbols plus the size of the code table, and the number of bytes
+ * with the smallest prediction wins.
+ */
+public class SymbolWidthEstimator {
+
+    // Largest number of bytes that is tried
+    public static final int MAX_NUMBER_OF_BYTES = 8;
+
+    // Largest number of sampled chunks
+    private static final int SAMPLE_COUNT = 32;
+
+    // A multiple of every candidate number of bytes, so each sample starts at a symbol boundary for all of them
+    private static final int SAMPLE_SIZE = 840 * 39;
+
+    // Fewest sampled chunks, files up to their size are counted whole
+    private static final int MIN_SAMPLE_COUNT = 2;
+
+    // The sampled chunks make up at most this fraction of a file larger than the fewest chunks
+    private static final int SAMPLE_FRACTION = 8;
+
+    // Size of the header of a file of a single block
+    private static final int FILE_HEADER_SIZE = new HuffmanHeader(1, 0, 0, new long[1]).size();
+
+    // Size of the file header and the fixed fields and checksum of a block, without code table, tail and payload
+    private static final long FIXED_HEADER_SIZE = FILE_HEADER_SIZE
+            + new BlockHeader(0, new ByteWrapper[0], new int[0], new byte[0], 1, 0).encodedLength();
+
+    // Size of the file header and the header and checksum of a stored block
+    private static final long STORED_HEADER_SIZE = FILE_HEADER_SIZE + BlockHeader.stored(0).encodedLength();
+
+    private final String filePath;
+
+    private long originalSize;
+    private int numberOfBytes = 1;
+    private long predictedSize;
+
+    /**
+     * Constructs a SymbolWidthEstimator.
+     *
+     * @param filePath The path to the file to be compressed.
+     */
+    public SymbolWidthEstimator(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Samples the file and predicts the compressed size for every candidate number of bytes.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public void estimate() throws IOException {
+        byte[][] samples = readSamples();
+        predictedSize = Long.MAX_VALUE;
+        for (int candidate = 1; candidate <= MAX_NUMBER_OF_BYTES; candidate++) {
+            long size = predictSize(samples, candidate);
+            if (size < predictedSize) {
+                predictedSize = size;
+                numberOfBytes = candidate;
+            }
+        }
+    }
+
+    /**
+     * Reads evenly spaced chunks of the file, or the whole file if it is small.
+     *
+     * @return The sampled chunks.
+     * @throws IOException If an I/O error occurs.
+     */
+    private byte[][] readSamples() throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            originalSize = channel.size();
+            if (originalSize <= (long) MIN_SAMPLE_COUNT * SAMPLE_SIZE) {
+                byte[] sample = new byte[(int) originalSize];
+                try (InputStream in = new ChannelInputStream(channel, 0)) {
+                    in.readNBytes(sample, 0, sample.length);
+                }
+                return new byte[][]{sample};
+            }
+
+            int sampleCount = (int) Math.max(MIN_SAMPLE_COUNT,
+                    Math.min(SAMPLE_COUNT, originalSize / SAMPLE_FRACTION / SAMPLE_SIZE));
+            long stride = originalSize / sampleCount;
+            stride -= stride % SAMPLE_SIZE;
+            byte[][] samples = new byte[sampleCount][SAMPLE_SIZE];
+            for (int i = 0; i < sampleCount; i++) {
+                try (InputStream in = new ChannelInputStream(channel, i * stride)) {
+                    in.readNBytes(samples[i], 0, SAMPLE_SIZE);
+                }
+            }
+            return samples;
+        }
+    }
+
+    /**
+     * Predicts the size of the compressed file for one number of bytes.
+     * The entropy of the sampled symbols is scaled up to the whole file. The symbols the sample
+     * missed are estimated from how many symbols it saw exactly once and exactly twice, since
+     * they all add to the code table.
+     *
+     * @param samples       The sampled chunks.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @return The predicted size of the compressed file in bytes.
+     */
+    private long predictSize(byte[][] samples, int numberOfBytes) {
+        FrequencyTable frequencyTable = FrequencyTable.create(numberOfBytes);
+        for (byte[] sample : samples) {
+            frequencyTable.count(sample, sample.length - sample.length % numberOfBytes);
+        }
+
+        long sampleSymbols = 0;
+        long distinctSymbols = 0;
+        long singletons = 0;
+        long doubletons = 0;
+        for (int i = 0; i < frequencyTable.capacity(); i++) {
+            long frequency = frequencyTable.frequency(i);
+            sampleSymbols += frequency;
+            distinctSymbols += frequency > 0 ? 1 : 0;
+            singletons += frequency == 1 ? 1 : 0;
+            doubletons += frequency == 2 ? 1 : 0;
+        }
+        long fileSymbols = originalSize / numberOfBytes;
+        if (sampleSymbols == 0) {
+            return STORED_HEADER_SIZE + originalSize;
+        }
+
+        double entropyBits = 0;
+        for (int i = 0; i < frequencyTable.capacity(); i++) {
+            long frequency = frequencyTable.frequency(i);
+            if (frequency > 0) {
+                entropyBits += frequency * (Math.log((double) sampleSymbols / frequency) / Math.log(2));
+            }
+        }
+
+        double scale = (double) fileSymbols / sampleSymbols;
+        double payloadBytes = Math.max(entropyBits * scale, fileSymbols) / 8;
+        // Chao1 estimate of the distinct symbols of the whole file, bounded by every singleton
+        // of the sample standing for as many unseen symbols as the sample is scaled up by
+        double unseenSymbols = (double) singletons * singletons / (2.0 * Math.max(doubletons, 1));
+        double tableSymbols = distinctSymbols + Math.min(unseenSymbols, singletons * (scale - 1));
+        tableSymbols = Math.min(tableSymbols, fileSymbols);
+        if (numberOfBytes < 8) {
+            tableSymbols = Math.min(tableSymbols, 1L << (8 * numberOfBytes));
+        }
+
+        // each symbol of the code table takes its front coded bytes and its code word length
+        double tableBytes = tableSymbols * (numberOfBytes + 2);
+        long huffmanSize = (long) (FIXED_HEADER_SIZE + payloadBytes + tableBytes) + originalSize % numberOfBytes;
+        // data that would not shrink is stored as is
+        return Math.min(huffmanSize, STORED_HEADER_SIZE + originalSize);
+    }
+
+    /**
+     * Retrieves the chosen number of bytes.
+     *
+     * @return The number of bytes in each symbol with the smallest predicted compressed size.
+     */
+    public int getNumberOfBytes() {
+        return numberOfBytes;
+    }
+
+    /**
+     * Retrieves the predicted size of the compressed file.
+     *
+     * @return The predicted size in bytes for the chosen number of bytes.
+     */
+    public long getPredictedSize() {
+        return predictedSize;
+    }
+
+    /**
+     * Retrieves the predicted compression ratio.
+     *
+     * @return The predicted compressed size divided by the size of the file.
+     */
+    public double getPredictedRatio() {
+        return originalSize == 0 ? 1 : (double) predictedSize / originalSize;
+    }
+}
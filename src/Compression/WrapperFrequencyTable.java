@@ -0,0 +1,139 @@
+package Compression;
+
+import Util.ByteWrapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frequency table for symbols wider than eight bytes, which do not fit in a long.
+ * Symbols are kept as {@link ByteWrapper} keys of a hash map and get consecutive
+ * indices in the order they are first seen.
+ */
+public class WrapperFrequencyTable extends FrequencyTable {
+
+    private final Map<ByteWrapper, Integer> indices;
+    private final List<ByteWrapper> symbols;
+    private long[] counts;
+
+    /**
+     * Constructs a WrapperFrequencyTable.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     */
+    public WrapperFrequencyTable(int numberOfBytes) {
+        super(numberOfBytes);
+        this.indices = new HashMap<>();
+        this.symbols = new ArrayList<>();
+        this.counts = new long[16];
+    }
+
+    /**
+     * Counts occurrences of a symbol, adding it to the table if needed.
+     *
+     * @param symbol The symbol.
+     * @param count  The number of occurrences.
+     */
+    private void add(ByteWrapper symbol, long count) {
+        Integer index = indices.get(symbol);
+        if (index == null) {
+            index = symbols.size();
+            indices.put(symbol, index);
+            symbols.add(symbol);
+            if (index == counts.length) {
+                counts = Arrays.copyOf(counts, 2 * counts.length);
+            }
+        }
+        counts[index] += count;
+    }
+
+    /**
+     * Counts the symbols of a chunk of the input.
+     *
+     * @param chunk  The bytes to count.
+     * @param length The number of bytes to count, a multiple of the number of bytes in each symbol.
+     */
+    @Override
+    public void count(byte[] chunk, int length) {
+        for (int i = 0; i < length; i += numberOfBytes) {
+            add(new ByteWrapper(Arrays.copyOfRange(chunk, i, i + numberOfBytes)), 1);
+        }
+    }
+
+    /**
+     * Adds the counts of another frequency table to this one.
+     *
+     * @param other A frequency table for the same number of bytes.
+     */
+    @Override
+    public void merge(FrequencyTable other) {
+        WrapperFrequencyTable table = (WrapperFrequencyTable) other;
+        for (int i = 0; i < table.symbols.size(); i++) {
+            add(table.symbols.get(i), table.counts[i]);
+        }
+    }
+
+    /**
+     * Retrieves the index of the symbol starting at the given offset.
+     *
+     * @param chunk  The bytes holding the symbol.
+     * @param offset The offset of the first byte of the symbol.
+     * @return The index of the symbol, or -1 if it has not been counted.
+     */
+    @Override
+    public int indexOf(byte[] chunk, int offset) {
+        Integer index = indices.get(new ByteWrapper(Arrays.copyOfRange(chunk, offset, offset + numberOfBytes)));
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Retrieves the upper bound of the symbol indices.
+     *
+     * @return The number of distinct symbols counted.
+     */
+    @Override
+    public int capacity() {
+        return symbols.size();
+    }
+
+    /**
+     * Retrieves the frequency of a symbol.
+     *
+     * @param index The index of the symbol.
+     * @return The number of times the symbol was counted.
+     */
+    @Override
+    public long frequency(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Retrieves the bytes of a symbol.
+     *
+     * @param index The index of the symbol.
+     * @return The symbol.
+     */
+    @Override
+    public ByteWrapper symbol(int index) {
+        return symbols.get(index);
+    }
+
+    /**
+     * Retrieves the indices of all counted symbols in ascending symbol order.
+     *
+     * @return The indices of the counted symbols.
+     */
+    @Override
+    public int[] sortedSymbols() {
+        ByteWrapper[] sorted = symbols.toArray(new ByteWrapper[0]);
+        Arrays.sort(sorted);
+        int[] sortedIndices = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sortedIndices[i] = indices.get(sorted[i]);
+        }
+        return sortedIndices;
+    }
+}
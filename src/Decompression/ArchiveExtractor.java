@@ -0,0 +1,151 @@
+package Decompression;
+
+import Util.ArchiveEntry;
+import Util.ArchiveIndex;
+import Util.ChannelInputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Extracts entries from an archive created by {@link Compression.ArchiveCompressor}.
+ * The index at the end of the archive locates every entry, so extracting a single entry reads
+ * only the index and the compressed data of that entry. Several entries are decompressed
+ * concurrently, and the size and CRC32C of every extracted file are checked against the index.
+ */
+public class ArchiveExtractor {
+
+    private final Path archivePath;
+    private final DecompressionOptions options;
+    private final ArchiveIndex index;
+
+    /**
+     * Constructs an ArchiveExtractor and reads the index of the archive.
+     *
+     * @param archivePath The path of the archive.
+     * @param options     The settings of the decompression, the I/O mode is not used.
+     * @throws IOException If an I/O error occurs or the file is not an archive.
+     */
+    public ArchiveExtractor(Path archivePath, DecompressionOptions options) throws IOException {
+        this.archivePath = archivePath;
+        this.options = options;
+        try (FileChannel input = FileChannel.open(archivePath, StandardOpenOption.READ)) {
+            this.index = ArchiveIndex.read(input);
+        }
+    }
+
+    /**
+     * Retrieves the index of the archive.
+     *
+     * @return The index.
+     */
+    public ArchiveIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Extracts all entries.
+     *
+     * @param outputDirectory The directory the entries are extracted into.
+     * @throws IOException If an I/O error occurs or an entry is corrupted.
+     */
+    public void extract(Path outputDirectory) throws IOException {
+        extractEntries(outputDirectory, index.getEntries());
+    }
+
+    /**
+     * Extracts the entries with the given names.
+     *
+     * @param outputDirectory The directory the entries are extracted into.
+     * @param names           The names of the entries.
+     * @throws IOException If an I/O error occurs or an entry is corrupted.
+     */
+    public void extract(Path outputDirectory, Collection<String> names) throws IOException {
+        List<ArchiveEntry> entries = new ArrayList<>(names.size());
+        for (String name : names) {
+            ArchiveEntry entry = index.find(name);
+            if (entry == null) {
+                throw new IllegalArgumentException("No entry named " + name + " in the archive");
+            }
+            entries.add(entry);
+        }
+        extractEntries(outputDirectory, entries);
+    }
+
+    /**
+     * Extracts entries concurrently on the configured number of threads.
+     *
+     * @param outputDirectory The directory the entries are extracted into.
+     * @param entries         The entries.
+     * @throws IOException If an I/O error occurs or an entry is corrupted.
+     */
+    private void extractEntries(Path outputDirectory, List<ArchiveEntry> entries) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(options.getThreads());
+        Path root = outputDirectory.toAbsolutePath().normalize();
+
+        try (FileChannel input = FileChannel.open(archivePath, StandardOpenOption.READ)) {
+            List<Future<Void>> extracted = new ArrayList<>(entries.size());
+            for (ArchiveEntry entry : entries) {
+                extracted.add(executor.submit(() -> {
+                    extractEntry(input, entry, root);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : extracted) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Decompresses one entry into its file and checks it against the index.
+     *
+     * @param input The channel of the archive, read with positional reads only.
+     * @param entry The entry.
+     * @param root  The absolute directory the entries are extracted into.
+     * @throws IOException If an I/O error occurs or the entry is corrupted.
+     */
+    private void extractEntry(FileChannel input, ArchiveEntry entry, Path root) throws IOException {
+        Path target = root.resolve(entry.getName()).normalize();
+        if (!target.startsWith(root) || target.equals(root)) {
+            throw new IOException("Corrupted archive: entry " + entry.getName() + " points outside the output directory");
+        }
+        Files.createDirectories(target.getParent());
+
+        CRC32C checksum = new CRC32C();
+        long size;
+        try (InputStream in = new HuffmanInputStream(new ChannelInputStream(input, entry.getOffset()),
+                options.getDictionaries());
+             OutputStream out = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(target)), checksum)) {
+            size = in.transferTo(out);
+        }
+        if (size != entry.getOriginalSize() || (int) checksum.getValue() != entry.getChecksum()) {
+            throw new IOException("Corrupted archive: checksum mismatch in entry " + entry.getName());
+        }
+    }
+}
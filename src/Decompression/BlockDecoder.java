@@ -0,0 +1,103 @@
+package Decompression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Decodes the payload of a coded block into its symbols.
+ * Either a whole block is decoded at once, or it is started, its symbols are decoded with any number
+ * of calls to {@link #decodeSymbols(InputStream, byte[], int, int)}, and it is finished.
+ * A decoder holds the decoding state of one block; copies share the tables built from the block
+ * header and decode different parts of a block concurrently.
+ */
+public interface BlockDecoder {
+
+    /**
+     * Creates a decoder with the same code tables and its own decoding state.
+     *
+     * @return The new decoder.
+     */
+    BlockDecoder copy();
+
+    /**
+     * Decodes symbols from the input stream and writes their bytes to the output stream.
+     *
+     * @param in            The stream of encoded bits, positioned after the block header.
+     * @param payloadLength The number of encoded bytes, no more bytes are read from the input.
+     * @param out           The stream the decoded bytes are written to.
+     * @param symbolCount   The number of symbols to decode.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    void decode(InputStream in, long payloadLength, OutputStream out, long symbolCount) throws IOException;
+
+    /**
+     * Decodes symbols starting in the middle of a byte of the encoded data, for example at a sync point of a block.
+     *
+     * @param in            The stream of encoded bits, positioned at the byte holding the first bit.
+     * @param payloadLength The number of encoded bytes, no more bytes are read from the input.
+     * @param skipBits      The number of leading bits of the first byte that belong to earlier symbols.
+     * @param out           The stream the decoded bytes are written to.
+     * @param symbolCount   The number of symbols to decode.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    void decode(InputStream in, long payloadLength, int skipBits, OutputStream out, long symbolCount)
+            throws IOException;
+
+    /**
+     * Decodes all symbols of an interleaved block.
+     *
+     * @param in            The stream of the payload, positioned at the jump table.
+     * @param payloadLength The number of bytes of the jump table and the streams.
+     * @param out           The stream the decoded bytes are written to.
+     * @param symbolCount   The number of symbols to decode.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    void decodeInterleaved(InputStream in, long payloadLength, OutputStream out, long symbolCount) throws IOException;
+
+    /**
+     * Prepares the decoder for the encoded data of a block, or of a part of a block.
+     *
+     * @param in            The stream of encoded bits, positioned at the byte holding the first bit.
+     * @param payloadLength The number of encoded bytes, no more bytes are read from the input.
+     * @param skipBits      The number of leading bits of the first byte that belong to earlier symbols.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    void start(InputStream in, long payloadLength, int skipBits) throws IOException;
+
+    /**
+     * Prepares the decoder for the payload of an interleaved block.
+     *
+     * @param in            The stream of the payload, positioned at the jump table, left positioned after the payload.
+     * @param payloadLength The number of bytes of the jump table and the streams.
+     * @throws IOException If an I/O error occurs or the jump table is corrupted.
+     */
+    void startInterleaved(InputStream in, long payloadLength) throws IOException;
+
+    /**
+     * Decodes the next symbols and stores their bytes in a buffer.
+     *
+     * @param in          The stream of encoded bits.
+     * @param buffer      The buffer the decoded bytes are stored in, with room for all symbols.
+     * @param offset      The offset in the buffer of the first decoded byte.
+     * @param symbolCount The number of symbols to decode.
+     * @return The offset in the buffer after the last decoded byte.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    int decodeSymbols(InputStream in, byte[] buffer, int offset, int symbolCount) throws IOException;
+
+    /**
+     * Retrieves the position of the next code word in a block decoded from a single bit stream.
+     *
+     * @return The number of bits consumed since the start of the first byte given to {@link #start(InputStream, long, int)}.
+     */
+    long getBitPosition();
+
+    /**
+     * Skips the encoded data that has not been read yet and checks that the block ended where it should.
+     *
+     * @param in The stream of encoded bits, left positioned right after the encoded data.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    void finish(InputStream in) throws IOException;
+}
@@ -0,0 +1,135 @@
+package Decompression;
+
+import Util.IoMode;
+import Util.MetricsListener;
+
+import java.util.Objects;
+
+/**
+ * Optional settings of a decompression run.
+ * The setters return the options themselves so that several settings can be chained.
+ */
+public class DecompressionOptions {
+
+    private int threads = 1;
+    private IoMode ioMode = IoMode.STREAM;
+    private MetricsListener metricsListener = MetricsListener.NONE;
+    private DictionaryCache dictionaries = new DictionaryCache();
+    private int pipelineDepth = 2;
+
+    /**
+     * Retrieves the number of threads used to decode the file.
+     *
+     * @return The number of threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads used to decode the file.
+     * With a single thread the file is decoded sequentially, otherwise the parts of the blocks
+     * between sync points are decoded concurrently.
+     *
+     * @param threads The number of threads, at least one.
+     * @return These options.
+     */
+    public DecompressionOptions setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Retrieves the way the files are read and written.
+     *
+     * @return The I/O mode.
+     */
+    public IoMode getIoMode() {
+        return ioMode;
+    }
+
+    /**
+     * Sets the way the files are read and written.
+     *
+     * @param ioMode The I/O mode.
+     * @return These options.
+     */
+    public DecompressionOptions setIoMode(IoMode ioMode) {
+        this.ioMode = ioMode;
+        return this;
+    }
+
+    /**
+     * Retrieves the listener that receives the metrics of the run.
+     *
+     * @return The metrics listener, {@link MetricsListener#NONE} if metrics are disabled.
+     */
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Sets the listener that receives the metrics of the run.
+     * The phases are reported from the threads that run them.
+     *
+     * @param metricsListener The metrics listener, or {@link MetricsListener#NONE} to disable metrics.
+     * @return These options.
+     */
+    public DecompressionOptions setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = Objects.requireNonNull(metricsListener);
+        return this;
+    }
+
+    /**
+     * Retrieves the dictionaries that compressed files may refer to.
+     *
+     * @return The dictionary cache.
+     */
+    public DictionaryCache getDictionaries() {
+        return dictionaries;
+    }
+
+    /**
+     * Sets the dictionaries that compressed files may refer to.
+     * Sharing one cache between decompressions keeps the decoding tables of each dictionary from
+     * being built more than once.
+     *
+     * @param dictionaries The dictionary cache.
+     * @return These options.
+     */
+    public DecompressionOptions setDictionaries(DictionaryCache dictionaries) {
+        this.dictionaries = Objects.requireNonNull(dictionaries);
+        return this;
+    }
+
+    /**
+     * Retrieves the depth of the I/O pipeline.
+     *
+     * @return The number of chunks read ahead of and written behind the decoder, 0 if the pipeline is disabled.
+     */
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    /**
+     * Sets the depth of the I/O pipeline of a sequential decompression.
+     * The file is read ahead on one thread and written behind on another while the decoder runs
+     * on the calling thread, in chunks of a fixed set of buffers, so the run takes about as long as
+     * the slower of I/O and decoder instead of their sum. A deeper pipeline evens out bursts at the
+     * cost of two more chunks of memory per step.
+     *
+     * @param pipelineDepth The number of chunks in each direction, or 0 to read and write on the calling thread.
+     * @return These options.
+     */
+    public DecompressionOptions setPipelineDepth(int pipelineDepth) {
+        if (pipelineDepth < 0) {
+            throw new IllegalArgumentException("Pipeline depth must not be negative");
+        }
+        this.pipelineDepth = pipelineDepth;
+        return this;
+    }
+
+}
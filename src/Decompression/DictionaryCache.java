@@ -0,0 +1,88 @@
+package Decompression;
+
+import Util.Dictionary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the dictionaries that compressed files may refer to, together with their decoding tables.
+ * A dictionary file is read once per path, and the decoding tables of a dictionary are built the
+ * first time a block needs them; every later block or file encoded with the dictionary gets a copy
+ * of the same decoder, so repeated decompressions read no code table at all.
+ * The cache is thread safe and can be shared by any number of decompressions.
+ */
+public class DictionaryCache {
+
+    private final Map<Long, Dictionary> dictionaries = new ConcurrentHashMap<>();
+    private final Map<Path, Dictionary> files = new ConcurrentHashMap<>();
+    private final Map<Long, HuffmanDecoder> decoders = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a dictionary to the cache.
+     *
+     * @param dictionary The dictionary.
+     * @return This cache.
+     */
+    public DictionaryCache add(Dictionary dictionary) {
+        dictionaries.putIfAbsent(dictionary.getId(), dictionary);
+        return this;
+    }
+
+    /**
+     * Reads a dictionary file and adds the dictionary to the cache, unless the file has been read before.
+     *
+     * @param path The path of the dictionary file.
+     * @return The dictionary.
+     * @throws IOException If the file cannot be read or is not a dictionary.
+     */
+    public Dictionary load(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        Dictionary dictionary = files.get(key);
+        if (dictionary == null) {
+            dictionary = Dictionary.read(key);
+            files.put(key, dictionary);
+            add(dictionary);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Retrieves the dictionary a compressed file refers to.
+     *
+     * @param id The id of the dictionary.
+     * @return The dictionary.
+     * @throws IOException If no dictionary with the id has been added.
+     */
+    public Dictionary get(long id) throws IOException {
+        Dictionary dictionary = dictionaries.get(id);
+        if (dictionary == null) {
+            throw new IOException("The file was compressed with dictionary " + Dictionary.formatId(id)
+                    + ", which has not been given");
+        }
+        return dictionary;
+    }
+
+    /**
+     * Retrieves a decoder for the code table of a dictionary.
+     *
+     * @param dictionary A dictionary of this cache.
+     * @return A decoder with its own decoding state that shares the cached decoding tables.
+     * @throws IOException If the code words of the dictionary do not form a prefix code.
+     */
+    HuffmanDecoder decoder(Dictionary dictionary) throws IOException {
+        HuffmanDecoder decoder = decoders.get(dictionary.getId());
+        if (decoder == null) {
+            int numberOfBytes = dictionary.getNumberOfBytes();
+            decoder = new HuffmanDecoder(dictionary.getSymbols(), dictionary.getCodeWords(),
+                    1_000_000 - (1_000_000 % numberOfBytes));
+            HuffmanDecoder cached = decoders.putIfAbsent(dictionary.getId(), decoder);
+            if (cached != null) {
+                decoder = cached;
+            }
+        }
+        return decoder.copy();
+    }
+}
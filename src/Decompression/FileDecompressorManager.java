@@ -1,11 +1,35 @@
 package Decompression;
 
-import Util.ByteWrapper;
+import Util.BlockHeader;
+import Util.ChannelInputStream;
+import Util.ChannelOutputStream;
+import Util.Checksums;
+import Util.Dictionary;
+import Util.HuffmanHeader;
+import Util.IoMode;
+import Util.MappedInputStream;
+import Util.Metrics;
+import Util.MetricsListener;
+import Util.Phase;
+import Util.ReadAheadInputStream;
+import Util.WriteBehindOutputStream;
 
 import java.io.*;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
 
 /**
  * Manages file decompression operations including reading headers, writing files,
@@ -13,10 +37,20 @@ import java.util.Map;
  */
 public class FileDecompressorManager {
 
+    // Size of the chunks the compressed file is read ahead in, the chunk size of the symbols is only known after the header
+    private static final int READ_AHEAD_CHUNK_SIZE = 1 << 20;
+
     private final String filePath;
+    private final DecompressionOptions options;
+    private final MetricsListener metricsListener;
+    private int numberOfBytes;
     private int chunkSize;
-    private int bytesRead;
-    private int fileMatches;
+
+    // The dictionary named in the file header, or null if the file was compressed without one
+    private Dictionary dictionary;
+
+    // Number of whole symbols in the file that are still to be decoded
+    private long fileMatches;
 
     /**
      * Constructs a FileDecompressorManager.
@@ -24,8 +58,19 @@ public class FileDecompressorManager {
      * @param filePath The path to the file to be decompressed.
      */
     public FileDecompressorManager(String filePath) {
+        this(filePath, new DecompressionOptions());
+    }
+
+    /**
+     * Constructs a FileDecompressorManager.
+     *
+     * @param filePath The path to the file to be decompressed.
+     * @param options  The settings of the decompression.
+     */
+    public FileDecompressorManager(String filePath, DecompressionOptions options) {
         this.filePath = filePath;
-        this.bytesRead = 0;
+        this.options = options;
+        this.metricsListener = options.getMetricsListener();
     }
 
     /**
@@ -40,134 +85,724 @@ public class FileDecompressorManager {
         return filePath.substring(0, lastSlashIndex + 1) + "Decompressed." + fileWithExtension.substring(11);
     }
 
+    /**
+     * Retrieves the size of the compressed file.
+     *
+     * @return The size of the compressed file.
+     */
+    public long getCompressedFileSize() {
+        return new File(filePath).length();
+    }
+
+    /**
+     * Retrieves the size of the decompressed file.
+     *
+     * @return The size of the decompressed file.
+     */
+    public long getDecompressedFileSize() {
+        return new File(getExtractedFileName()).length();
+    }
+
+    /**
+     * Opens the compressed file for reading from the given position to its end.
+     * Unless the pipeline is disabled, the next chunks are read on a thread of their own while the
+     * current chunk is decoded, until the stream is closed.
+     *
+     * @param input    The channel of the compressed file.
+     * @param position The position of the first byte to read.
+     * @return A stream over the rest of the compressed file.
+     * @throws IOException If an I/O error occurs.
+     */
+    private DataInputStream openReader(FileChannel input, long position) throws IOException {
+        InputStream region = openRegion(input, position, input.size());
+        if (options.getPipelineDepth() > 0) {
+            return new DataInputStream(new ReadAheadInputStream(region, READ_AHEAD_CHUNK_SIZE, options.getPipelineDepth()));
+        }
+        return new DataInputStream(options.getIoMode() == IoMode.MAPPED ? region : new BufferedInputStream(region));
+    }
+
+    /**
+     * Creates the decompressed file and opens it for writing.
+     * Unless the pipeline is disabled, full chunks are written on a thread of their own while the
+     * next chunk is decoded.
+     *
+     * @return A stream that writes the decompressed file from its start.
+     * @throws IOException If the file cannot be created.
+     */
+    private OutputStream openOutput() throws IOException {
+        OutputStream output = options.getIoMode() == IoMode.MAPPED
+                ? ChannelOutputStream.open(Path.of(getExtractedFileName()), chunkSize)
+                : new FileOutputStream(getExtractedFileName(), false);
+        if (options.getPipelineDepth() > 0) {
+            return new WriteBehindOutputStream(output, chunkSize, options.getPipelineDepth());
+        }
+        return output;
+    }
+
+    /**
+     * Opens a region of the compressed file for reading, for one part of a parallel decompression.
+     *
+     * @param input The channel of the compressed file.
+     * @param start The position of the first byte of the region.
+     * @param end   The position after the last byte of the region.
+     * @return A stream over the region.
+     */
+    private InputStream openRegion(FileChannel input, long start, long end) {
+        if (options.getIoMode() == IoMode.MAPPED) {
+            return new MappedInputStream(input, start, end);
+        }
+        return new ChannelInputStream(input, start);
+    }
+
     /**
      * Reads the header of the compressed file.
      *
-     * @return The map of codewords.
-     */
-    private Map<String, ByteWrapper> readHeader() {
-        Map<String, ByteWrapper> codewords = new HashMap<>();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-
-            // read the size of the map
-            line = reader.readLine();
-            this.bytesRead += line.length() + 1;
-            int size = Integer.parseInt(line);
-            line = reader.readLine();
-            this.bytesRead += line.length() + 1;
-            this.fileMatches = Integer.parseInt(line);
-
-            // read the codewords
-            for(int i = 0; i < size; i++) {
-                line = reader.readLine();
-                this.bytesRead += line.length() + 1;
-                String[] parts = line.split(",");
-                int numberOfBytes = parts.length - 1;
-                this.chunkSize = 1_000_000 - (1_000_000 % numberOfBytes);
-                String codeword = parts[0];
-                byte[] byteArr = new byte[parts.length - 1];
-                for(int j = 1; j < parts.length; j++) {
-                    byteArr[j - 1] = Byte.parseByte(parts[j]);
+     * @param reader The stream of the compressed file, positioned at its start.
+     * @return The header of the compressed file.
+     * @throws IOException If an I/O error occurs or the file is not a compressed file.
+     */
+    private HuffmanHeader readHeader(DataInputStream reader) throws IOException {
+        Metrics.Timer timer = Metrics.start(metricsListener, Phase.HEADER);
+        HuffmanHeader header = HuffmanHeader.read(reader);
+        timer.stop(header.size());
+        this.numberOfBytes = header.getNumberOfBytes();
+        // a streamed file does not record its size, so its symbols cannot be checked
+        this.fileMatches = header.isStreamed() ? 0 : header.getOriginalSize() / numberOfBytes;
+        this.chunkSize = 1_000_000 - (1_000_000 % numberOfBytes);
+        if (header.usesDictionary()) {
+            this.dictionary = options.getDictionaries().get(header.getDictionaryId());
+            if (dictionary.getNumberOfBytes() != numberOfBytes) {
+                throw new IOException("Corrupted compressed data: dictionary does not match the number of bytes");
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Creates the decoder of a block.
+     * Blocks encoded with a dictionary share the decoding tables cached for the dictionary,
+     * the others rebuild the canonical code words from their code word lengths, and from the
+     * literal code word lengths if they have escapes. LZ77 blocks get a decoder of their own.
+     *
+     * @param blockHeader The header of the block.
+     * @return The decoder.
+     * @throws IOException If the code words do not form a prefix code.
+     */
+    private BlockDecoder createDecoder(BlockHeader blockHeader) throws IOException {
+        if (blockHeader.usesDictionary()) {
+            return options.getDictionaries().decoder(dictionary);
+        }
+        if (blockHeader.isLz77()) {
+            return new LzDecoder(blockHeader, numberOfBytes);
+        }
+        return HuffmanDecoder.forBlock(blockHeader, numberOfBytes, chunkSize);
+    }
+
+    /**
+     * Decompresses the file using Huffman coding.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public void decompressFile() throws IOException {
+        if (options.getThreads() > 1 && hasBlockIndex()) {
+            decompressFileInParallel();
+            return;
+        }
+
+        try (FileChannel input = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+             DataInputStream reader = openReader(input, 0)) {
+            HuffmanHeader header = readHeader(reader);
+            try (OutputStream writer = openOutput()) {
+                decompressBlocks(input, reader, header.size(), writer, header);
+            }
+        }
+    }
+
+    /**
+     * Checks the compressed file without writing the decompressed file.
+     * Every block is decoded, one after the other, and the checksum of its bytes is compared with
+     * the checksum stored in the block. The checksums do not cover the block index and the sync
+     * points, which parallel and range decompression start from, so each recorded block offset is
+     * compared with where the block really starts and each sync point with the bit position the
+     * decoder reached there.
+     *
+     * @throws IOException If an I/O error occurs or the compressed data is corrupted.
+     */
+    public void verify() throws IOException {
+        try (FileChannel input = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+             DataInputStream reader = openReader(input, 0)) {
+            HuffmanHeader header = readHeader(reader);
+            decompressBlocks(input, reader, header.size(), OutputStream.nullOutputStream(), header);
+        }
+    }
+
+    /**
+     * Decompresses a range of the original file without decoding the rest of it.
+     * The block offsets and the sync points of the blocks form an index of checkpoints, each mapping
+     * an offset in the original file to a bit offset in the compressed file. Decoding starts one
+     * checkpoint before the last one before the range, so that checkpoint is checked by decoding up
+     * to it, and ends at the first checkpoint after the range, so at most three sync intervals of
+     * symbols are decoded in vain.
+     * Streamed files have no block index, their bytes before the range are decoded and dropped.
+     * The checksums of the blocks cover whole blocks, so they are checked for the blocks the range
+     * decodes in full; the other blocks are checked against their sync points, which does not catch
+     * a corruption that keeps every code word the same length. {@link #verify()} checks a whole file.
+     *
+     * @param offset The offset in the original file of the first byte of the range.
+     * @param length The number of bytes in the range, the range ends at the end of the file at the latest.
+     * @param out    The stream the bytes of the range are written to.
+     * @return The number of bytes written.
+     * @throws IOException If an I/O error occurs or the compressed data is corrupted.
+     */
+    public long decompressRange(long offset, long length, OutputStream out) throws IOException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Range must not start before the file or have a negative length");
+        }
+
+        try (FileChannel input = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            HuffmanHeader header = readHeader(new DataInputStream(new BufferedInputStream(new ChannelInputStream(input, 0))));
+            if (header.isStreamed()) {
+                return decompressStreamedRange(input, offset, length, out);
+            }
+            long originalSize = header.getOriginalSize();
+            if (offset > originalSize) {
+                throw new IllegalArgumentException("Range starts after the end of the file, which has "
+                        + originalSize + " bytes");
+            }
+
+            long end = offset + Math.min(length, originalSize - offset);
+            long blockSize = header.getBlockSize();
+            long[] blockOffsets = header.getBlockOffsets();
+            for (long position = offset; position < end; ) {
+                if (blockSize <= 0 || position / blockSize >= blockOffsets.length) {
+                    throw new IOException("Corrupted compressed data: block index does not cover the file");
+                }
+                long block = position / blockSize;
+                long blockStart = block * blockSize;
+                long blockLength = Math.min(blockSize, originalSize - blockStart);
+                long count = Math.min(end, blockStart + blockLength) - position;
+                decompressBlockRange(input, header, (int) block, blockOffsets[(int) block], blockLength,
+                        position - blockStart, count, out);
+                position += count;
+            }
+            return end - offset;
+        }
+    }
+
+    /**
+     * Decompresses a range of the original bytes of one block.
+     * Decoding starts at the sync point before the one the range starts after, and runs to the sync
+     * point or the end of the block after the range. Each sync point on the way is
+     * compared with the bit position the decoder reached there, and a block decoded from its start
+     * to its end is compared with its checksum, so a corrupted sync point or payload fails instead of
+     * returning wrong bytes. The bytes of the range are written before the checks at the end of
+     * their part.
+     *
+     * @param input       The channel of the compressed file.
+     * @param header      The header of the compressed file.
+     * @param block       The number of the block in the file.
+     * @param blockOffset The position of the block in the compressed file.
+     * @param blockLength The number of original bytes in the block.
+     * @param from        The offset in the block of the first byte of the range.
+     * @param count       The number of bytes in the range, all inside the block.
+     * @param out         The stream the bytes of the range are written to.
+     * @throws IOException If an I/O error occurs or the compressed data is corrupted.
+     */
+    private void decompressBlockRange(FileChannel input, HuffmanHeader header, int block, long blockOffset,
+                                      long blockLength, long from, long count, OutputStream out) throws IOException {
+        int numberOfBytes = header.getNumberOfBytes();
+        Metrics.Timer timer = Metrics.start(metricsListener, Phase.HEADER);
+        BlockHeader blockHeader = BlockHeader.read(
+                new DataInputStream(new BufferedInputStream(new ChannelInputStream(input, blockOffset))),
+                numberOfBytes, dictionary);
+        long payloadStart = blockOffset + blockHeader.size();
+        long payloadLength = blockHeader.getPayloadLength();
+        if (payloadStart + payloadLength > input.size()) {
+            throw new IOException("Corrupted compressed data: block exceeds the file");
+        }
+
+        if (blockHeader.isStored()) {
+            timer.stop(blockHeader.size());
+            if (payloadLength != blockLength) {
+                throw new IOException("Corrupted compressed data: stored block does not match the block index");
+            }
+            timer = Metrics.start(metricsListener, Phase.DECODE);
+            WritableByteChannel writer = Channels.newChannel(out);
+            for (long position = payloadStart + from, end = position + count; position < end; ) {
+                position += input.transferTo(position, end - position, writer);
+            }
+            if (count == blockLength) {
+                BlockHeader.verifyChecksum(new DataInputStream(new ChannelInputStream(input, payloadStart + payloadLength)),
+                        Checksums.of(input, payloadStart, payloadLength), block);
+            }
+            timer.stop(count);
+            return;
+        }
+
+        long symbolCount = blockHeader.getSymbolCount();
+        long symbolBytes = symbolCount * numberOfBytes;
+        byte[] tail = blockHeader.getTail();
+        if (symbolBytes + tail.length != blockLength) {
+            throw new IOException("Corrupted compressed data: block does not match the block index");
+        }
+        DataInputStream trailer = new DataInputStream(new BufferedInputStream(
+                new ChannelInputStream(input, payloadStart + payloadLength)));
+        long[] syncPoints = blockHeader.readSyncPoints(trailer);
+        int checksum = trailer.readInt();
+        checkSyncPoints(syncPoints, blockHeader, block);
+        timer.stop(blockHeader.size() + 8L * syncPoints.length);
+
+        timer = Metrics.start(metricsListener, Phase.DECODE);
+        long end = from + count;
+        long symbolEnd = Math.min(end, symbolBytes);
+        long position = from;
+        // the parts the range touches are decoded in full, to the sync point after them, and so is the
+        // part before them, so the sync point the range starts from is checked before its bytes are written
+        long syncInterval = partLength(blockHeader);
+        int checkpoint = (int) Math.max(Math.min(position, symbolBytes) / numberOfBytes / syncInterval - 1, 0);
+        long symbol = checkpoint * syncInterval;
+        long lastSymbol = Math.min(symbolCount, ((symbolEnd + numberOfBytes - 1) / numberOfBytes + syncInterval - 1)
+                / syncInterval * syncInterval);
+        boolean wholeBlock = symbol == 0 && lastSymbol == symbolCount;
+        if (position >= symbolEnd && !wholeBlock) {
+            // only the tail is in the range, it is stored in the block header
+            lastSymbol = symbol;
+        }
+        if (symbol < lastSymbol) {
+            long startBit = checkpoint == 0 ? 0 : syncPoints[checkpoint - 1];
+            // the decoder counts bits from the start of the byte holding the first one
+            long firstByteBit = startBit / 8 * 8;
+
+            BlockDecoder decoder = createDecoder(blockHeader);
+            CRC32C decoded = new CRC32C();
+            int symbolsPerBuffer = Math.max(chunkSize / numberOfBytes, 1);
+            byte[] buffer = new byte[symbolsPerBuffer * numberOfBytes];
+            try (InputStream in = openRegion(input, payloadStart + startBit / 8, payloadStart + payloadLength)) {
+                if (blockHeader.isInterleaved()) {
+                    decoder.startInterleaved(in, payloadLength);
+                } else {
+                    decoder.start(in, payloadLength - startBit / 8, (int) (startBit % 8));
+                }
+                while (symbol < lastSymbol) {
+                    // a buffer never reaches past the next sync point
+                    int symbols = (int) Math.min(Math.min(symbolsPerBuffer, lastSymbol - symbol),
+                            syncInterval - symbol % syncInterval);
+                    int length = decoder.decodeSymbols(in, buffer, 0, symbols);
+                    long bufferStart = symbol * numberOfBytes;
+                    symbol += symbols;
+                    if (wholeBlock) {
+                        decoded.update(buffer, 0, length);
+                    }
+                    // the parts are decoded beyond the range on both sides
+                    long writeStart = Math.max(position, bufferStart);
+                    long writeEnd = Math.min(symbolEnd, bufferStart + length);
+                    if (writeStart < writeEnd) {
+                        out.write(buffer, (int) (writeStart - bufferStart), (int) (writeEnd - writeStart));
+                        position = writeEnd;
+                    }
+                    if (blockHeader.hasSyncPoints() && symbol % syncInterval == 0 && symbol < symbolCount
+                            && firstByteBit + decoder.getBitPosition() != syncPoints[(int) (symbol / syncInterval) - 1]) {
+                        throw new IOException("Corrupted compressed data: invalid sync point in block " + block);
+                    }
                 }
-                ByteWrapper byteWrapper = new ByteWrapper(byteArr);
-                codewords.put(codeword, byteWrapper);
+                if (blockHeader.hasSyncPoints() && symbol == symbolCount && payloadLength > 0
+                        && (firstByteBit + decoder.getBitPosition() + 7) / 8 != payloadLength) {
+                    // the code words of the last part end in the last byte of the payload
+                    throw new IOException("Corrupted compressed data: invalid sync point in block " + block);
+                }
+                decoder.finish(in);
+            }
+            if (wholeBlock) {
+                decoded.update(tail);
+                BlockHeader.verifyChecksum(checksum, (int) decoded.getValue(), block);
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
         }
+        if (end > symbolBytes) {
+            int tailStart = (int) (Math.max(from, symbolBytes) - symbolBytes);
+            out.write(tail, tailStart, (int) (end - symbolBytes) - tailStart);
+        }
+        timer.stop(count);
+    }
 
-        return codewords;
+    /**
+     * Checks that the sync points of a block lie in its encoded data in ascending order, at least
+     * one bit per symbol apart, before any of them is decoded from.
+     *
+     * @param syncPoints  The bit offset of each sync point.
+     * @param blockHeader The header of the block.
+     * @param block       The number of the block in the file, for the error message.
+     * @throws IOException If a sync point cannot be where its symbol starts.
+     */
+    private static void checkSyncPoints(long[] syncPoints, BlockHeader blockHeader, int block) throws IOException {
+        long previous = 0;
+        for (long syncPoint : syncPoints) {
+            // every code word has at least one bit
+            if (syncPoint - previous < blockHeader.getSyncInterval() || syncPoint >= 8 * blockHeader.getPayloadLength()) {
+                throw new IOException("Corrupted compressed data: invalid sync point in block " + block);
+            }
+            previous = syncPoint;
+        }
     }
 
     /**
-     * Writes the decompressed data to the output file.
+     * Decompresses a range of a streamed file.
+     * Without a block index the blocks before the range can only be found by decoding them.
      *
-     * @param fileContent The content of the file to be decompressed.
-     * @param codewords    The map of codewords.
-     * @return The remaining code to be written.
+     * @param input  The channel of the compressed file.
+     * @param offset The offset in the original file of the first byte of the range.
+     * @param length The number of bytes in the range.
+     * @param out    The stream the bytes of the range are written to.
+     * @return The number of bytes written, fewer than the length if the file ends first.
+     * @throws IOException If an I/O error occurs, the compressed data is corrupted or the file ends before the range.
      */
-    private StringBuilder writeFile(StringBuilder fileContent, Map<String, ByteWrapper> codewords) {
+    private long decompressStreamedRange(FileChannel input, long offset, long length, OutputStream out)
+            throws IOException {
+        Metrics.Timer timer = Metrics.start(metricsListener, Phase.DECODE);
+        try (InputStream in = new HuffmanInputStream(new ChannelInputStream(input, 0), options.getDictionaries())) {
+            try {
+                in.skipNBytes(offset);
+            } catch (EOFException e) {
+                throw new IllegalArgumentException("Range starts after the end of the file");
+            }
+            byte[] buffer = new byte[chunkSize];
+            long written = 0;
+            int read;
+            while (written < length && (read = in.read(buffer, 0, (int) Math.min(buffer.length, length - written))) > 0) {
+                out.write(buffer, 0, read);
+                written += read;
+            }
+            timer.stop(written);
+            return written;
+        }
+    }
 
-        StringBuilder currentCode = new StringBuilder();
-        // write the decoded data to the new file
-        try (FileOutputStream writer = new FileOutputStream(getExtractedFileName(), true)) {
-            // Write the encoded data to the output file
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    /**
+     * Checks whether the compressed file records where its blocks start.
+     * Streamed files do not, so their blocks can only be found by decoding them in order.
+     *
+     * @return True if the file has a block index.
+     * @throws IOException If an I/O error occurs or the file is not a compressed file.
+     */
+    private boolean hasBlockIndex() throws IOException {
+        try (DataInputStream reader = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath)))) {
+            return !HuffmanHeader.read(reader).isStreamed();
+        }
+    }
 
-            for (int i = 0; i < fileContent.length(); i++) {
-                if(fileMatches == 0)
+    /**
+     * Decodes the blocks of the compressed file one after the other.
+     *
+     * @param input    The channel of the compressed file.
+     * @param reader   The stream of the compressed file, positioned after the file header, closed once the blocks are decoded.
+     * @param position The position of the first block in the compressed file.
+     * @param writer   The stream of the decompressed file.
+     * @param header   The header of the compressed file.
+     * @throws IOException If an I/O error occurs, the checksum of a block does not match its bytes,
+     *                     or the block index or a sync point does not match the blocks.
+     */
+    private void decompressBlocks(FileChannel input, DataInputStream reader, long position, OutputStream writer,
+                                  HuffmanHeader header) throws IOException {
+        try {
+            // the blocks follow the header back to back, so they can be decoded in order
+            for (int block = 0; header.isStreamed() || block < header.getBlockOffsets().length; block++) {
+                if (!header.isStreamed() && header.getBlockOffsets()[block] != position) {
+                    throw new IOException("Corrupted compressed data: block index does not match block " + block);
+                }
+                // read the header of the block and rebuild its canonical code words
+                Metrics.Timer timer = Metrics.start(metricsListener, Phase.HEADER);
+                BlockHeader blockHeader = BlockHeader.read(reader, header.getNumberOfBytes(), dictionary);
+                if (header.isStreamed() && blockHeader.isEndOfStream()) {
+                    BlockHeader.verifyChecksum(reader, (int) new CRC32C().getValue(), block);
                     break;
+                }
+                if (blockHeader.isStored()) {
+                    timer.stop(blockHeader.size());
+                    long payloadStart = position + blockHeader.size();
+                    timer = Metrics.start(metricsListener, Phase.DECODE);
+                    copyStoredBlock(input, payloadStart, blockHeader.getPayloadLength(), writer);
+                    int checksum = Checksums.of(input, payloadStart, blockHeader.getPayloadLength());
+                    timer.stop(blockHeader.getPayloadLength());
+                    Metrics.blockProcessed(metricsListener, blockHeader, blockHeader.getPayloadLength());
+                    fileMatches -= blockHeader.getPayloadLength() / header.getNumberOfBytes();
+                    // the reader has buffered some of the stored bytes, so the checksum and the next block are read with a new one
+                    reader.close();
+                    reader = openReader(input, payloadStart + blockHeader.getPayloadLength());
+                    BlockHeader.verifyChecksum(reader, checksum, block);
+                    position += blockHeader.encodedLength();
+                    continue;
+                }
+                BlockDecoder decoder = createDecoder(blockHeader);
+                timer.stop(blockHeader.size());
 
-                currentCode.append(fileContent.charAt(i));
-
-                // Check if the current code matches any codeword
-                if (codewords.containsKey(currentCode.toString())) {
-                    // Write the decoded byte to the output file
-                    fileMatches--;
-                    byte[] arr = codewords.get(currentCode.toString()).getBytes();
-                    baos.write(arr);
-                    currentCode.setLength(0);
+                // the encoded data follows the block header directly
+                long originalBytes = blockHeader.getSymbolCount() * header.getNumberOfBytes() + blockHeader.getTail().length;
+                timer = Metrics.start(metricsListener, Phase.DECODE);
+                CheckedOutputStream checked = new CheckedOutputStream(writer, new CRC32C());
+                long[] decodedSyncPoints = new long[0];
+                if (blockHeader.isInterleaved()) {
+                    decoder.decodeInterleaved(reader, blockHeader.getPayloadLength(), checked, blockHeader.getSymbolCount());
+                } else if (blockHeader.getSyncPointCount() > 0) {
+                    decodedSyncPoints = decodeWithSyncPoints(decoder, reader, blockHeader, checked);
+                } else {
+                    decoder.decode(reader, blockHeader.getPayloadLength(), checked, blockHeader.getSymbolCount());
                 }
+                checked.write(blockHeader.getTail());
+                timer.stop(originalBytes);
+                Metrics.blockProcessed(metricsListener, blockHeader, originalBytes);
+                fileMatches -= blockHeader.getSymbolCount();
 
+                // the sync points are not covered by the checksum, but parallel and range decompression start from them
+                if (!Arrays.equals(blockHeader.readSyncPoints(reader), decodedSyncPoints)) {
+                    throw new IOException("Corrupted compressed data: invalid sync point in block " + block);
+                }
+                BlockHeader.verifyChecksum(reader, (int) checked.getChecksum().getValue(), block);
+                position += blockHeader.encodedLength();
             }
+        } finally {
+            // a reader opened after a stored block is closed here, closing the first one again does nothing
+            reader.close();
+        }
+
+        if (!header.isStreamed() && fileMatches != 0) {
+            throw new IOException("Corrupted compressed data: missing symbols");
+        }
+    }
 
-            if(baos.size() > 0)
-                writer.write(baos.toByteArray());
+    /**
+     * Decodes a block from its start and records the bit position of every sync point on the way.
+     *
+     * @param decoder     The decoder of the block.
+     * @param reader      The stream of encoded bits, positioned after the block header, left positioned after the encoded data.
+     * @param blockHeader The header of the block.
+     * @param out         The stream the decoded bytes are written to.
+     * @return The bit offset in the encoded data of each sync point, as decoded.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    private long[] decodeWithSyncPoints(BlockDecoder decoder, DataInputStream reader, BlockHeader blockHeader,
+                                        OutputStream out) throws IOException {
+        long[] syncPoints = new long[blockHeader.getSyncPointCount()];
+        long syncInterval = blockHeader.getSyncInterval();
+        long symbolCount = blockHeader.getSymbolCount();
+        int symbolsPerBuffer = Math.max(chunkSize / numberOfBytes, 1);
+        byte[] buffer = new byte[symbolsPerBuffer * numberOfBytes];
 
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        decoder.start(reader, blockHeader.getPayloadLength(), 0);
+        for (long symbol = 0; symbol < symbolCount; ) {
+            long sinceSync = symbol % syncInterval;
+            if (symbol > 0 && sinceSync == 0) {
+                syncPoints[(int) (symbol / syncInterval) - 1] = decoder.getBitPosition();
+            }
+            // a buffer never reaches past the next sync point
+            int count = (int) Math.min(Math.min(symbolsPerBuffer, symbolCount - symbol), syncInterval - sinceSync);
+            out.write(buffer, 0, decoder.decodeSymbols(reader, buffer, 0, count));
+            symbol += count;
         }
-        return currentCode;
+        decoder.finish(reader);
+        return syncPoints;
     }
 
     /**
-     * Decompresses the file using Huffman coding.
+     * Copies a stored block from the compressed file to the decompressed file with channel
+     * transfers, so the bytes do not pass through the Java heap.
      *
-     * @throws IOException If an I/O error occurs.
+     * @param input    The channel of the compressed file.
+     * @param position The position of the stored bytes in the compressed file.
+     * @param length   The number of stored bytes.
+     * @param writer   The stream of the decompressed file, as opened by {@link #openOutput()}, or any
+     *                 other stream the bytes are copied to through the heap.
+     * @throws IOException If an I/O error occurs or the compressed file is too short.
      */
-    public void decompressFile() throws IOException {
+    private static void copyStoredBlock(FileChannel input, long position, long length, OutputStream writer)
+            throws IOException {
+        if (position + length > input.size()) {
+            throw new IOException("Corrupted compressed data: stored block exceeds the file");
+        }
+        if (writer instanceof WriteBehindOutputStream) {
+            // the chunks written so far go first, then the stored bytes bypass the pipeline
+            writer = ((WriteBehindOutputStream) writer).unwrap();
+        }
+        if (writer instanceof ChannelOutputStream) {
+            ((ChannelOutputStream) writer).transferFrom(input, position, length);
+            return;
+        }
 
-        // read the header of the file
-        Map<String, ByteWrapper> codeWords = readHeader();
+        // the file output stream is unbuffered, so its channel is positioned after the bytes written so far
+        WritableByteChannel output = writer instanceof FileOutputStream
+                ? ((FileOutputStream) writer).getChannel() : Channels.newChannel(writer);
+        while (length > 0) {
+            long transferred = input.transferTo(position, length, output);
+            position += transferred;
+            length -= transferred;
+        }
+    }
+
+    /**
+     * Decompresses the file using several threads.
+     * The block offsets locate every block and the sync points split each block into parts that
+     * are decoded independently. Every part knows where its bytes go in the original file, so the
+     * output file is sized up front and each part writes its bytes in place with positional writes.
+     * Each part also returns the checksum of its bytes, and the checksums of the parts of a block are
+     * combined and compared with the checksum of the block once all parts are decoded.
+     *
+     * @throws IOException If an I/O error occurs or the checksum of a block does not match its bytes.
+     */
+    private void decompressFileInParallel() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(options.getThreads());
 
-        OutputStream outputStream = new FileOutputStream(getExtractedFileName(), false);
+        try (FileChannel input = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+             RandomAccessFile output = new RandomAccessFile(getExtractedFileName(), "rw")) {
+            HuffmanHeader header = readHeader(new DataInputStream(new BufferedInputStream(new ChannelInputStream(input, 0))));
+            long inputSize = input.size();
+            int numberOfBytes = header.getNumberOfBytes();
+            output.setLength(0);
+            output.setLength(header.getOriginalSize());
+            FileChannel writer = output.getChannel();
 
-        // Clear the file by truncating it to zero length
-        outputStream.close();
+            List<DecodedBlock> blocks = new ArrayList<>();
+            long outputPosition = 0;
+            long[] blockOffsets = header.getBlockOffsets();
+            for (int block = 0; block < blockOffsets.length; block++) {
+                long blockOffset = blockOffsets[block];
+                Metrics.Timer timer = Metrics.start(metricsListener, Phase.HEADER);
+                BlockHeader blockHeader = BlockHeader.read(
+                        new DataInputStream(new BufferedInputStream(new ChannelInputStream(input, blockOffset))),
+                        numberOfBytes, dictionary);
+                long payloadStart = blockOffset + blockHeader.size();
+                long payloadLength = blockHeader.getPayloadLength();
+                if (blockHeader.isStored()) {
+                    timer.stop(blockHeader.size());
+                    // stored blocks are copied right away, the channel transfer needs no decoding
+                    timer = Metrics.start(metricsListener, Phase.DECODE);
+                    copyStoredBlock(input, payloadStart, payloadLength, new ChannelOutputStream(writer, outputPosition));
+                    int checksum = Checksums.of(input, payloadStart, payloadLength);
+                    BlockHeader.verifyChecksum(new DataInputStream(new ChannelInputStream(input, payloadStart + payloadLength)),
+                            checksum, block);
+                    timer.stop(payloadLength);
+                    Metrics.blockProcessed(metricsListener, blockHeader, payloadLength);
+                    outputPosition += payloadLength;
+                    fileMatches -= payloadLength / numberOfBytes;
+                    continue;
+                }
+                DataInputStream trailer = new DataInputStream(new BufferedInputStream(
+                        new ChannelInputStream(input, payloadStart + payloadLength)));
+                long[] syncPoints = blockHeader.readSyncPoints(trailer);
+                DecodedBlock decodedBlock = new DecodedBlock(block, blockHeader, trailer.readInt());
+                blocks.add(decodedBlock);
+                BlockDecoder decoder = createDecoder(blockHeader);
+                timer.stop(blockHeader.size() + 8L * syncPoints.length);
 
-        // read the encoded data
-        try (InputStream reader = new FileInputStream(filePath)) {
-            // skip the bytes of the header that have already been read
-            reader.skip(this.bytesRead);
-            byte[] buffer = new byte[chunkSize];
-            int bytesRead;
-            StringBuilder encodedData = new StringBuilder();
+                long symbolCount = blockHeader.getSymbolCount();
+                // interleaved and LZ77 blocks have no sync points and are decoded as a single part
+                long syncInterval = partLength(blockHeader);
+                for (int part = 0; part <= syncPoints.length; part++) {
+                    long startBit = part == 0 ? 0 : syncPoints[part - 1];
+                    long endByte = part == syncPoints.length ? payloadLength : (syncPoints[part] + 7) / 8;
+                    if (startBit < 0 || startBit / 8 > endByte || endByte > payloadLength
+                            || payloadStart + endByte > inputSize) {
+                        throw new IOException("Corrupted compressed data: invalid sync point");
+                    }
 
-            while ((bytesRead = reader.read(buffer)) != -1) {
-                // Check if bytesRead is less than 1024 to handle the last chunk
-                for(byte b : buffer) {
-                    encodedData.append(byteToBinaryString(b));
+                    long firstSymbol = part * syncInterval;
+                    int partSymbols = (int) Math.min(syncInterval, symbolCount - firstSymbol);
+                    long partPosition = outputPosition + firstSymbol * numberOfBytes;
+                    decodedBlock.parts.add(executor.submit(() -> {
+                        Metrics.Timer partTimer = Metrics.start(metricsListener, Phase.DECODE);
+                        CheckedOutputStream out = new CheckedOutputStream(new ChannelOutputStream(writer, partPosition),
+                                new CRC32C());
+                        try (InputStream in = openRegion(input, payloadStart + startBit / 8, payloadStart + endByte)) {
+                            if (blockHeader.isInterleaved()) {
+                                decoder.copy().decodeInterleaved(in, payloadLength, out, partSymbols);
+                            } else {
+                                decoder.copy().decode(in, endByte - startBit / 8, (int) (startBit % 8), out, partSymbols);
+                            }
+                        }
+                        partTimer.stop((long) partSymbols * numberOfBytes);
+                        return (int) out.getChecksum().getValue();
+                    }));
                 }
-                encodedData = writeFile(encodedData, codeWords);
+
+                outputPosition += symbolCount * numberOfBytes;
+                new ChannelOutputStream(writer, outputPosition).write(blockHeader.getTail());
+                outputPosition += blockHeader.getTail().length;
+                Metrics.blockProcessed(metricsListener, blockHeader, symbolCount * numberOfBytes + blockHeader.getTail().length);
+                fileMatches -= symbolCount;
+            }
+
+            if (fileMatches != 0 || outputPosition != header.getOriginalSize()) {
+                throw new IOException("Corrupted compressed data: missing symbols");
+            }
+
+            for (DecodedBlock block : blocks) {
+                block.verify(numberOfBytes);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            executor.shutdownNow();
         }
     }
 
     /**
-     * Converts a byte to a binary string.
+     * Retrieves the number of symbols a block is split into parts of, each starting at a sync point.
      *
-     * @param b The byte to convert.
-     * @return The binary string representation of the byte.
+     * @param blockHeader The header of the block.
+     * @return The sync interval of the block, or its number of symbols if it has no sync points.
      */
-    public static String byteToBinaryString(byte b) {
-        StringBuilder binaryString = new StringBuilder(8);
-        for (int i = 7; i >= 0; i--) {
-            binaryString.append((b >> i) & 1);
+    private static long partLength(BlockHeader blockHeader) {
+        return blockHeader.hasSyncPoints() ? blockHeader.getSyncInterval() : Math.max(blockHeader.getSymbolCount(), 1);
+    }
+
+    /**
+     * A block decoded in parts by a parallel decompression, whose checksum is checked once its parts are decoded.
+     */
+    private static final class DecodedBlock {
+
+        private final int block;
+        private final BlockHeader blockHeader;
+        private final int checksum;
+
+        // The parts of the block in order, each returning the checksum of its bytes
+        private final List<Future<Integer>> parts = new ArrayList<>();
+
+        /**
+         * Constructs a DecodedBlock.
+         *
+         * @param block       The number of the block in the file.
+         * @param blockHeader The header of the block.
+         * @param checksum    The checksum stored in the block.
+         */
+        private DecodedBlock(int block, BlockHeader blockHeader, int checksum) {
+            this.block = block;
+            this.blockHeader = blockHeader;
+            this.checksum = checksum;
+        }
+
+        /**
+         * Waits for the parts of the block and compares their combined checksum with the checksum of the block.
+         *
+         * @param numberOfBytes The number of bytes in each symbol.
+         * @throws ExecutionException   If a part failed.
+         * @throws InterruptedException If the thread is interrupted while waiting.
+         * @throws IOException          If the checksums differ.
+         */
+        private void verify(int numberOfBytes) throws ExecutionException, InterruptedException, IOException {
+            long symbolCount = blockHeader.getSymbolCount();
+            long syncInterval = partLength(blockHeader);
+            int combined = (int) new CRC32C().getValue();
+            for (int part = 0; part < parts.size(); part++) {
+                long partSymbols = Math.min(syncInterval, symbolCount - part * syncInterval);
+                combined = Checksums.combine(combined, parts.get(part).get(), partSymbols * numberOfBytes);
+            }
+            CRC32C tail = new CRC32C();
+            tail.update(blockHeader.getTail());
+            combined = Checksums.combine(combined, (int) tail.getValue(), blockHeader.getTail().length);
+            BlockHeader.verifyChecksum(checksum, combined, block);
         }
-        return binaryString.toString();
     }
 }
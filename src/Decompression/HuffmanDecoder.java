@@ -0,0 +1,759 @@
+package Decompression;
+
+import Util.BlockHeader;
+import Util.ByteWrapper;
+import Util.CodeWord;
+import Util.HuffmanTree;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Table-driven decoder for Huffman coded bit streams.
+ * Instead of matching the stream one bit at a time, the decoder peeks at the next
+ * {@value #LOOKUP_BITS} bits and resolves a whole code word with a single table lookup.
+ * Code words longer than the lookup width continue from the trie node reached after
+ * the lookup bits.
+ * <p>
+ * The symbols of an interleaved block are spread over {@link BlockHeader#STREAMS} bit streams.
+ * Its payload is read into memory and each stream is tracked by its bit position only, so the
+ * lookups of the streams do not depend on each other and the processor overlaps them.
+ * <p>
+ * In a block with escapes, the escape symbol is followed by the literal code words of the bytes of
+ * the escaped symbol. Literal code words are short enough to be resolved by a single lookup each.
+ * <p>
+ * The tables are never modified after construction, copies of a decoder share them
+ * and can decode different parts of a block concurrently.
+ */
+public class HuffmanDecoder implements BlockDecoder {
+
+    // Number of bits resolved by a single lookup in the primary table
+    private static final int LOOKUP_BITS = 11;
+
+    // Marks a trie child that is not part of any code word
+    private static final int NO_NODE = 0;
+
+    // A symbol decoded from an interleaved block is packed with its code word length in the low bits
+    private static final int LENGTH_BITS = 8;
+    private static final long LENGTH_MASK = (1 << LENGTH_BITS) - 1;
+
+    // Reads 8 bytes of an interleaved payload at once, most significant bit first
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    // Reads the stream lengths of the jump table of an interleaved payload
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    // The bytes of each symbol, null for the escape symbol
+    private final byte[][] symbols;
+    private final int symbolWidth;
+
+    // The index of the escape symbol, or -1 without escapes, and the same index as packed by decodeAt
+    private final int escape;
+    private final long escapeDecoded;
+
+    // Literal table entries: the byte value and the code word length, 0 if no literal code word has this prefix
+    private final byte[] literalValue;
+    private final byte[] literalLength;
+
+    // Primary table entries: symbol index for code words that fit the lookup width,
+    // otherwise the trie node reached after consuming all lookup bits
+    private final int[] lookupValue;
+
+    // Primary table entries: code word length, or 0 when the trie walk has to continue
+    private final byte[] lookupLength;
+
+    // Binary trie of all code words, two slots per node (0 and 1 child).
+    // Positive values point to internal nodes, negative values encode leaves as -(symbol + 1).
+    private int[] trie;
+    private int trieSize;
+
+    private final int bufferSize;
+
+    // The bits that have been read but not yet consumed, aligned to the most significant bit
+    private long bitBuffer;
+    private int bitCount;
+
+    private byte[] inputBuffer;
+    private int inputPosition;
+    private int inputLength;
+
+    // Number of encoded bytes that have not been read from the input yet
+    private long inputRemaining;
+
+    // Number of encoded bytes given to start, and the zero bits shifted in once they ran out
+    private long inputTotal;
+    private int paddingBits;
+
+    // The payload of an interleaved block, followed by 8 bytes of padding so every stream can be read 8 bytes at a time
+    private boolean interleaved;
+    private byte[] payload;
+
+    // The bit position of the next code word in each stream and of the end of each stream, and the stream of the next symbol
+    private final long[] streamPositions = new long[BlockHeader.STREAMS];
+    private final long[] streamEnds = new long[BlockHeader.STREAMS];
+    private int nextStream;
+
+    /**
+     * Constructs a HuffmanDecoder from the code table read from the header of a compressed file.
+     *
+     * @param symbols    The symbols of the code table.
+     * @param codeWords  The code word of each symbol.
+     * @param bufferSize The size of the input and output buffers in bytes.
+     * @throws IOException If the code words do not form a prefix code.
+     */
+    public HuffmanDecoder(ByteWrapper[] symbols, CodeWord[] codeWords, int bufferSize) throws IOException {
+        this(symbols, codeWords, null, symbols.length > 0 ? symbols[0].getBytes().length : 1, bufferSize);
+    }
+
+    /**
+     * Constructs a HuffmanDecoder for a block that may have escapes.
+     *
+     * @param symbols          The symbols of the code table.
+     * @param codeWords        The code word of each symbol, followed by the code word of the escape symbol if the block has escapes.
+     * @param literalCodeWords The code word of each byte value of an escaped symbol, or null without escapes.
+     * @param numberOfBytes    The number of bytes in each symbol.
+     * @param bufferSize       The size of the input and output buffers in bytes.
+     * @throws IOException If the code words do not form prefix codes.
+     */
+    public HuffmanDecoder(ByteWrapper[] symbols, CodeWord[] codeWords, CodeWord[] literalCodeWords, int numberOfBytes,
+                          int bufferSize) throws IOException {
+        int tableSize = literalCodeWords == null ? symbols.length : symbols.length + 1;
+        this.bufferSize = bufferSize;
+        this.symbolWidth = numberOfBytes;
+        this.symbols = new byte[tableSize][];
+        this.trie = new int[2 * Math.max(tableSize, 2)];
+        this.trieSize = 1;
+
+        for (int symbol = 0; symbol < tableSize; symbol++) {
+            if (symbol < symbols.length) {
+                this.symbols[symbol] = symbols[symbol].getBytes();
+            }
+            insertCodeWord(codeWords[symbol], symbol);
+        }
+        this.escape = literalCodeWords == null ? -1 : symbols.length;
+        this.escapeDecoded = literalCodeWords == null ? Long.MAX_VALUE : (long) escape << LENGTH_BITS;
+
+        this.lookupValue = new int[1 << LOOKUP_BITS];
+        this.lookupLength = new byte[1 << LOOKUP_BITS];
+        buildLookupTable();
+
+        this.literalValue = new byte[literalCodeWords == null ? 0 : 1 << LOOKUP_BITS];
+        this.literalLength = new byte[literalValue.length];
+        if (literalCodeWords != null) {
+            buildLiteralTable(literalCodeWords);
+        }
+    }
+
+    /**
+     * Creates the decoder of a block from the code tables in its header.
+     *
+     * @param blockHeader   The header of a Huffman coded block.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param bufferSize    The size of the input and output buffers in bytes.
+     * @return The decoder.
+     * @throws IOException If the code words do not form prefix codes.
+     */
+    public static HuffmanDecoder forBlock(BlockHeader blockHeader, int numberOfBytes, int bufferSize)
+            throws IOException {
+        CodeWord[] codeWords = HuffmanTree.assignCanonicalCodes(blockHeader.getCodeLengths());
+        CodeWord[] literalCodeWords = blockHeader.hasEscapes()
+                ? HuffmanTree.assignCanonicalCodes(blockHeader.getLiteralCodeLengths()) : null;
+        return new HuffmanDecoder(blockHeader.getSymbols(), codeWords, literalCodeWords, numberOfBytes, bufferSize);
+    }
+
+    /**
+     * Constructs a HuffmanDecoder that shares the tables of another decoder.
+     *
+     * @param decoder The decoder to share the tables with.
+     */
+    private HuffmanDecoder(HuffmanDecoder decoder) {
+        this.bufferSize = decoder.bufferSize;
+        this.symbols = decoder.symbols;
+        this.symbolWidth = decoder.symbolWidth;
+        this.escape = decoder.escape;
+        this.escapeDecoded = decoder.escapeDecoded;
+        this.literalValue = decoder.literalValue;
+        this.literalLength = decoder.literalLength;
+        this.trie = decoder.trie;
+        this.trieSize = decoder.trieSize;
+        this.lookupValue = decoder.lookupValue;
+        this.lookupLength = decoder.lookupLength;
+    }
+
+    /**
+     * Creates a decoder with the same code table and its own decoding state.
+     *
+     * @return The new decoder.
+     */
+    @Override
+    public HuffmanDecoder copy() {
+        return new HuffmanDecoder(this);
+    }
+
+    /**
+     * Adds a code word to the trie.
+     *
+     * @param codeWord The code word.
+     * @param symbol   The index of the symbol the code word represents.
+     * @throws IOException If the code word collides with another code word.
+     */
+    private void insertCodeWord(CodeWord codeWord, int symbol) throws IOException {
+        int node = 0;
+        for (int i = codeWord.length - 1; i >= 0; i--) {
+            int slot = 2 * node + (int) ((codeWord.bits >>> i) & 1);
+            if (trie[slot] < 0 || (i == 0 && trie[slot] != NO_NODE)) {
+                throw new IOException("Corrupted compressed data: invalid code table");
+            }
+            if (i == 0) {
+                trie[slot] = -(symbol + 1);
+            } else {
+                if (trie[slot] == NO_NODE) {
+                    if (2 * trieSize + 2 > trie.length) {
+                        trie = Arrays.copyOf(trie, 2 * trie.length);
+                    }
+                    trie[slot] = trieSize++;
+                }
+                node = trie[slot];
+            }
+        }
+    }
+
+    /**
+     * Fills the primary lookup table by walking the trie along every possible
+     * prefix of {@value #LOOKUP_BITS} bits.
+     */
+    private void buildLookupTable() {
+        for (int prefix = 0; prefix < (1 << LOOKUP_BITS); prefix++) {
+            int node = 0;
+            int length = 0;
+            lookupValue[prefix] = -1;
+            while (length < LOOKUP_BITS) {
+                int bit = (prefix >>> (LOOKUP_BITS - 1 - length)) & 1;
+                int child = trie[2 * node + bit];
+                length++;
+                if (child < 0) {
+                    // a whole code word fits in the prefix
+                    lookupValue[prefix] = -child - 1;
+                    lookupLength[prefix] = (byte) length;
+                    break;
+                }
+                if (child == NO_NODE) {
+                    // no code word starts with this prefix
+                    break;
+                }
+                node = child;
+                if (length == LOOKUP_BITS) {
+                    // the code word is longer than the lookup width
+                    lookupValue[prefix] = node;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the literal lookup table, each code word taking up all entries whose prefix it is.
+     * The longest literal code word, {@value BlockHeader#MAX_LITERAL_CODE_LENGTH} bits, is as wide as the lookup.
+     *
+     * @param literalCodeWords The code word of each byte value, of length 0 for unused values.
+     * @throws IOException If the code words do not form a prefix code.
+     */
+    private void buildLiteralTable(CodeWord[] literalCodeWords) throws IOException {
+        for (int literal = 0; literal < literalCodeWords.length; literal++) {
+            CodeWord codeWord = literalCodeWords[literal];
+            if (codeWord.length == 0) {
+                continue;
+            }
+            if (codeWord.length > LOOKUP_BITS || (codeWord.bits >>> codeWord.length) != 0) {
+                throw new IOException("Corrupted compressed data: invalid code table");
+            }
+            int first = (int) (codeWord.bits << (LOOKUP_BITS - codeWord.length));
+            for (int prefix = first; prefix < first + (1 << (LOOKUP_BITS - codeWord.length)); prefix++) {
+                if (literalLength[prefix] != 0) {
+                    throw new IOException("Corrupted compressed data: invalid code table");
+                }
+                literalValue[prefix] = (byte) literal;
+                literalLength[prefix] = (byte) codeWord.length;
+            }
+        }
+    }
+
+    /**
+     * Decodes symbols from the input stream and writes their bytes to the output stream.
+     *
+     * @param in            The stream of encoded bits, positioned after the block header.
+     * @param payloadLength The number of encoded bytes, no more bytes are read from the input.
+     * @param out           The stream the decoded bytes are written to.
+     * @param symbolCount   The number of symbols to decode.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    @Override
+    public void decode(InputStream in, long payloadLength, OutputStream out, long symbolCount) throws IOException {
+        decode(in, payloadLength, 0, out, symbolCount);
+    }
+
+    /**
+     * Decodes symbols starting in the middle of a byte of the encoded data,
+     * for example at a sync point of a block.
+     *
+     * @param in            The stream of encoded bits, positioned at the byte holding the first bit.
+     * @param payloadLength The number of encoded bytes, no more bytes are read from the input.
+     * @param skipBits      The number of leading bits of the first byte that belong to earlier symbols.
+     * @param out           The stream the decoded bytes are written to.
+     * @param symbolCount   The number of symbols to decode.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    @Override
+    public void decode(InputStream in, long payloadLength, int skipBits, OutputStream out, long symbolCount)
+            throws IOException {
+        start(in, payloadLength, skipBits);
+        decodeAll(in, out, symbolCount);
+    }
+
+    /**
+     * Decodes all symbols of an interleaved block.
+     *
+     * @param in            The stream of the payload, positioned at the jump table.
+     * @param payloadLength The number of bytes of the jump table and the streams.
+     * @param out           The stream the decoded bytes are written to.
+     * @param symbolCount   The number of symbols to decode.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    @Override
+    public void decodeInterleaved(InputStream in, long payloadLength, OutputStream out, long symbolCount)
+            throws IOException {
+        startInterleaved(in, payloadLength);
+        decodeAll(in, out, symbolCount);
+    }
+
+    /**
+     * Decodes the given number of symbols of a started block and finishes it.
+     *
+     * @param in          The stream of encoded bits.
+     * @param out         The stream the decoded bytes are written to.
+     * @param symbolCount The number of symbols to decode.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    private void decodeAll(InputStream in, OutputStream out, long symbolCount) throws IOException {
+        // all symbols have the same width, so the output buffer is filled without checking it per symbol
+        byte[] outputBuffer = new byte[Math.max(bufferSize, symbolWidth)];
+        int symbolsPerBuffer = outputBuffer.length / symbolWidth;
+        if (symbolsPerBuffer >= BlockHeader.STREAMS) {
+            // whole groups of symbols keep an interleaved block on the path that decodes all streams at once
+            symbolsPerBuffer -= symbolsPerBuffer % BlockHeader.STREAMS;
+        }
+
+        for (long remaining = symbolCount; remaining > 0; ) {
+            int count = (int) Math.min(remaining, symbolsPerBuffer);
+            out.write(outputBuffer, 0, decodeSymbols(in, outputBuffer, 0, count));
+            remaining -= count;
+        }
+
+        finish(in);
+    }
+
+    /**
+     * Prepares the decoder for the encoded data of a block, or of a part of a block.
+     * The symbols are then decoded with any number of calls to
+     * {@link #decodeSymbols(InputStream, byte[], int, int)}, followed by a call to {@link #finish(InputStream)}.
+     *
+     * @param in            The stream of encoded bits, positioned at the byte holding the first bit.
+     * @param payloadLength The number of encoded bytes, no more bytes are read from the input.
+     * @param skipBits      The number of leading bits of the first byte that belong to earlier symbols.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void start(InputStream in, long payloadLength, int skipBits) throws IOException {
+        // small blocks get a buffer of their own size, so decoding many of them does not allocate whole buffers
+        int inputSize = (int) Math.max(1, Math.min(bufferSize, payloadLength));
+        if (inputBuffer == null || inputBuffer.length < inputSize) {
+            inputBuffer = new byte[inputSize];
+        }
+        inputPosition = 0;
+        inputLength = 0;
+        inputRemaining = payloadLength;
+        inputTotal = payloadLength;
+        paddingBits = 0;
+        bitBuffer = 0;
+        bitCount = 0;
+        interleaved = false;
+        if (skipBits > 0) {
+            refill(in);
+            consume(skipBits);
+        }
+    }
+
+    /**
+     * Prepares the decoder for the payload of an interleaved block, which is read into memory.
+     * The symbols are then decoded with {@link #decodeSymbols(InputStream, byte[], int, int)} and
+     * {@link #finish(InputStream)} as for a single bit stream.
+     *
+     * @param in            The stream of the payload, positioned at the jump table, left positioned after the payload.
+     * @param payloadLength The number of bytes of the jump table and the streams.
+     * @throws IOException If an I/O error occurs or the jump table is corrupted.
+     */
+    @Override
+    public void startInterleaved(InputStream in, long payloadLength) throws IOException {
+        if (payloadLength < BlockHeader.JUMP_TABLE_SIZE || payloadLength > Integer.MAX_VALUE - 16) {
+            throw new IOException("Corrupted compressed data: invalid interleaved block");
+        }
+        int size = (int) payloadLength;
+        if (payload == null || payload.length < size + 8) {
+            payload = new byte[size + 8];
+        }
+        if (in.readNBytes(payload, 0, size) != size) {
+            throw new IOException("Corrupted compressed data: interleaved block exceeds the file");
+        }
+
+        long start = BlockHeader.JUMP_TABLE_SIZE;
+        for (int stream = 0; stream < BlockHeader.STREAMS; stream++) {
+            long length = stream < BlockHeader.STREAMS - 1
+                    ? (int) INTS.get(payload, 4 * stream) & 0xFFFFFFFFL : size - start;
+            if (length < 0 || start + length > size) {
+                throw new IOException("Corrupted compressed data: invalid jump table");
+            }
+            streamPositions[stream] = 8 * start;
+            streamEnds[stream] = 8 * (start + length);
+            start += length;
+        }
+        nextStream = 0;
+        inputRemaining = 0;
+        interleaved = true;
+    }
+
+    /**
+     * Decodes the next symbols and stores their bytes in a buffer.
+     *
+     * @param in          The stream of encoded bits.
+     * @param buffer      The buffer the decoded bytes are stored in, with room for all symbols.
+     * @param offset      The offset in the buffer of the first decoded byte.
+     * @param symbolCount The number of symbols to decode.
+     * @return The offset in the buffer after the last decoded byte.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    @Override
+    public int decodeSymbols(InputStream in, byte[] buffer, int offset, int symbolCount) throws IOException {
+        if (interleaved) {
+            return decodeInterleavedSymbols(buffer, offset, symbolCount);
+        }
+        for (int remaining = symbolCount; remaining > 0; remaining--) {
+            if (bitCount < LOOKUP_BITS) {
+                refill(in);
+            }
+
+            int prefix = (int) (bitBuffer >>> (64 - LOOKUP_BITS));
+            int length = lookupLength[prefix];
+            int symbol;
+            if (length != 0) {
+                symbol = lookupValue[prefix];
+                consume(length);
+            } else {
+                symbol = decodeLongCodeWord(in, lookupValue[prefix]);
+            }
+            if (symbol == escape) {
+                offset = decodeLiterals(in, buffer, offset);
+                continue;
+            }
+
+            byte[] bytes = symbols[symbol];
+            System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+            offset += bytes.length;
+        }
+        return offset;
+    }
+
+    /**
+     * Retrieves the position of the next code word in a block decoded from a single bit stream.
+     *
+     * @return The number of bits consumed since the start of the first byte given to {@link #start(InputStream, long, int)}.
+     */
+    @Override
+    public long getBitPosition() {
+        // the bytes still in the input buffer and the bits still in the bit buffer have not been consumed
+        long bytesRead = inputTotal - inputRemaining - (inputLength - inputPosition);
+        return 8 * bytesRead + paddingBits - bitCount;
+    }
+
+    /**
+     * Decodes the next symbols of an interleaved block, advancing all streams in the same loop.
+     *
+     * @param buffer      The buffer the decoded bytes are stored in, with room for all symbols.
+     * @param offset      The offset in the buffer of the first decoded byte.
+     * @param symbolCount The number of symbols to decode.
+     * @return The offset in the buffer after the last decoded byte.
+     * @throws IOException If the encoded data is corrupted.
+     */
+    private int decodeInterleavedSymbols(byte[] buffer, int offset, int symbolCount) throws IOException {
+        byte[] payload = this.payload;
+        int remaining = symbolCount;
+        try {
+            // the symbols up to the first stream, left over from the previous call
+            for (; remaining > 0 && nextStream != 0; remaining--) {
+                offset = decodeStreamSymbol(buffer, offset);
+            }
+
+            // the loop is written out for the four streams, the lookups of one round are independent of each other
+            long position0 = streamPositions[0];
+            long position1 = streamPositions[1];
+            long position2 = streamPositions[2];
+            long position3 = streamPositions[3];
+            for (; remaining >= BlockHeader.STREAMS; remaining -= BlockHeader.STREAMS) {
+                long decoded0 = decodeAt(payload, position0);
+                long decoded1 = decodeAt(payload, position1);
+                long decoded2 = decodeAt(payload, position2);
+                long decoded3 = decodeAt(payload, position3);
+                if (decoded0 >= escapeDecoded || decoded1 >= escapeDecoded
+                        || decoded2 >= escapeDecoded || decoded3 >= escapeDecoded) {
+                    // a round with an escaped symbol is decoded one stream at a time, the literals follow the escape
+                    streamPositions[0] = position0;
+                    streamPositions[1] = position1;
+                    streamPositions[2] = position2;
+                    streamPositions[3] = position3;
+                    for (int stream = 0; stream < BlockHeader.STREAMS; stream++) {
+                        offset = decodeStreamSymbol(buffer, offset);
+                    }
+                    position0 = streamPositions[0];
+                    position1 = streamPositions[1];
+                    position2 = streamPositions[2];
+                    position3 = streamPositions[3];
+                    continue;
+                }
+                position0 += decoded0 & LENGTH_MASK;
+                position1 += decoded1 & LENGTH_MASK;
+                position2 += decoded2 & LENGTH_MASK;
+                position3 += decoded3 & LENGTH_MASK;
+                offset = copySymbol(decoded0, buffer, offset);
+                offset = copySymbol(decoded1, buffer, offset);
+                offset = copySymbol(decoded2, buffer, offset);
+                offset = copySymbol(decoded3, buffer, offset);
+            }
+            streamPositions[0] = position0;
+            streamPositions[1] = position1;
+            streamPositions[2] = position2;
+            streamPositions[3] = position3;
+
+            for (; remaining > 0; remaining--) {
+                offset = decodeStreamSymbol(buffer, offset);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // only corrupted code words run past the padding at the end of the payload
+            throw new IOException("Corrupted compressed data: invalid code word");
+        }
+        return offset;
+    }
+
+    /**
+     * Decodes the next symbol of an interleaved block from the stream it belongs to.
+     *
+     * @param buffer The buffer the decoded bytes are stored in.
+     * @param offset The offset in the buffer of the decoded bytes.
+     * @return The offset in the buffer after the decoded bytes.
+     * @throws IOException If the encoded data is corrupted.
+     */
+    private int decodeStreamSymbol(byte[] buffer, int offset) throws IOException {
+        int stream = nextStream;
+        long decoded = decodeAt(payload, streamPositions[stream]);
+        streamPositions[stream] += decoded & LENGTH_MASK;
+        nextStream = (stream + 1) % BlockHeader.STREAMS;
+        if (decoded >= escapeDecoded) {
+            return decodeLiteralsAt(stream, buffer, offset);
+        }
+        return copySymbol(decoded, buffer, offset);
+    }
+
+    /**
+     * Decodes the literal bytes of an escaped symbol of an interleaved block.
+     *
+     * @param stream The stream of the escaped symbol, positioned after the escape code word.
+     * @param buffer The buffer the decoded bytes are stored in.
+     * @param offset The offset in the buffer of the decoded bytes.
+     * @return The offset in the buffer after the decoded bytes.
+     * @throws IOException If the encoded data is corrupted.
+     */
+    private int decodeLiteralsAt(int stream, byte[] buffer, int offset) throws IOException {
+        long position = streamPositions[stream];
+        for (int i = 0; i < symbolWidth; i++) {
+            long window = (long) LONGS.get(payload, (int) (position >>> 3)) << (position & 7);
+            int prefix = (int) (window >>> (64 - LOOKUP_BITS));
+            if (literalLength[prefix] == 0) {
+                throw new IOException("Corrupted compressed data: invalid code word");
+            }
+            buffer[offset++] = literalValue[prefix];
+            position += literalLength[prefix];
+        }
+        streamPositions[stream] = position;
+        return offset;
+    }
+
+    /**
+     * Decodes the code word at a bit position of an interleaved payload.
+     * The 8 bytes from the byte holding the first bit hold at least {@value CodeWord#MAX_LENGTH}
+     * bits of the code word, enough for the longest one.
+     *
+     * @param payload  The payload of the block.
+     * @param position The bit position of the code word.
+     * @return The index of the symbol shifted left by {@value #LENGTH_BITS}, plus the length of the code word.
+     * @throws IOException If no code word starts at the position.
+     */
+    private long decodeAt(byte[] payload, long position) throws IOException {
+        long window = (long) LONGS.get(payload, (int) (position >>> 3)) << (position & 7);
+        int prefix = (int) (window >>> (64 - LOOKUP_BITS));
+        int length = lookupLength[prefix];
+        if (length != 0) {
+            return ((long) lookupValue[prefix] << LENGTH_BITS) | length;
+        }
+
+        // a code word longer than the lookup width continues from the trie node reached after the lookup bits
+        int node = lookupValue[prefix];
+        if (node < 0) {
+            throw new IOException("Corrupted compressed data: invalid code word");
+        }
+        for (length = LOOKUP_BITS; length < CodeWord.MAX_LENGTH; ) {
+            int bit = (int) (window >>> (63 - length)) & 1;
+            length++;
+            int child = trie[2 * node + bit];
+            if (child < 0) {
+                return ((long) (-child - 1) << LENGTH_BITS) | length;
+            }
+            if (child == NO_NODE) {
+                break;
+            }
+            node = child;
+        }
+        throw new IOException("Corrupted compressed data: invalid code word");
+    }
+
+    /**
+     * Stores the bytes of a decoded symbol in a buffer.
+     *
+     * @param decoded The symbol as returned by {@link #decodeAt(byte[], long)}.
+     * @param buffer  The buffer the bytes are stored in.
+     * @param offset  The offset in the buffer of the bytes.
+     * @return The offset in the buffer after the bytes.
+     */
+    private int copySymbol(long decoded, byte[] buffer, int offset) {
+        byte[] bytes = symbols[(int) (decoded >>> LENGTH_BITS)];
+        System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+        return offset + bytes.length;
+    }
+
+    /**
+     * Skips the encoded data that has not been read yet.
+     * For an interleaved block, whose payload has been read already, checks that no stream was read past its end.
+     *
+     * @param in The stream of encoded bits, left positioned right after the encoded data.
+     * @throws IOException If an I/O error occurs or a stream of an interleaved block ran past its end.
+     */
+    @Override
+    public void finish(InputStream in) throws IOException {
+        if (interleaved) {
+            for (int stream = 0; stream < BlockHeader.STREAMS; stream++) {
+                if (streamPositions[stream] > streamEnds[stream]) {
+                    throw new IOException("Corrupted compressed data: invalid code word");
+                }
+            }
+        }
+        in.skipNBytes(inputRemaining);
+        inputRemaining = 0;
+    }
+
+    /**
+     * Decodes the literal bytes that follow the escape code word of an escaped symbol.
+     *
+     * @param in     The stream of encoded bits.
+     * @param buffer The buffer the decoded bytes are stored in.
+     * @param offset The offset in the buffer of the decoded bytes.
+     * @return The offset in the buffer after the decoded bytes.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    private int decodeLiterals(InputStream in, byte[] buffer, int offset) throws IOException {
+        for (int i = 0; i < symbolWidth; i++) {
+            if (bitCount < LOOKUP_BITS) {
+                refill(in);
+            }
+            int prefix = (int) (bitBuffer >>> (64 - LOOKUP_BITS));
+            int length = literalLength[prefix];
+            if (length == 0) {
+                throw new IOException("Corrupted compressed data: invalid code word");
+            }
+            buffer[offset++] = literalValue[prefix];
+            consume(length);
+        }
+        return offset;
+    }
+
+    /**
+     * Continues decoding a code word that is longer than the lookup width by walking the trie bit by bit.
+     * The bit buffer is topped up once up front, so the walk itself never has to refill it.
+     *
+     * @param in   The stream of encoded bits.
+     * @param node The trie node reached after the lookup bits, or -1 if no code word has this prefix.
+     * @return The index of the decoded symbol.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    private int decodeLongCodeWord(InputStream in, int node) throws IOException {
+        if (node < 0) {
+            throw new IOException("Corrupted compressed data: invalid code word");
+        }
+        // code words are at most CodeWord.MAX_LENGTH bits, so a single refill holds the whole code word
+        if (bitCount < CodeWord.MAX_LENGTH) {
+            refill(in);
+        }
+        consume(LOOKUP_BITS);
+        while (true) {
+            int bit = (int) (bitBuffer >>> 63);
+            consume(1);
+            int child = trie[2 * node + bit];
+            if (child < 0) {
+                return -child - 1;
+            }
+            if (child == NO_NODE) {
+                throw new IOException("Corrupted compressed data: invalid code word");
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Drops the given number of bits from the bit buffer.
+     *
+     * @param length The number of bits to drop.
+     */
+    private void consume(int length) {
+        bitBuffer <<= length;
+        bitCount -= length;
+    }
+
+    /**
+     * Tops up the bit buffer with whole bytes from the input.
+     * Once the input is exhausted, zero bits are shifted in; the symbol count
+     * stops the decoder before they are ever used as real data.
+     *
+     * @param in The stream of encoded bits.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void refill(InputStream in) throws IOException {
+        while (bitCount <= 56) {
+            if (inputPosition == inputLength) {
+                inputPosition = 0;
+                inputLength = 0;
+                if (inputRemaining > 0) {
+                    inputLength = in.read(inputBuffer, 0, (int) Math.min(inputBuffer.length, inputRemaining));
+                }
+                if (inputLength <= 0) {
+                    inputLength = 0;
+                    paddingBits += 64 - bitCount;
+                    bitCount = 64;
+                    return;
+                }
+                inputRemaining -= inputLength;
+            }
+            bitBuffer |= (long) (inputBuffer[inputPosition++] & 0xFF) << (56 - bitCount);
+            bitCount += 8;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package Decompression;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 
 /**
  * Manages file decompression operations including reading headers and
@@ -9,6 +11,7 @@ import java.io.IOException;
 public class HuffmanDecompressor {
 
     private final String filePath;
+    private final DecompressionOptions options;
 
     /**
      * Constructs a HuffmanDecompressor.
@@ -16,7 +19,18 @@ public class HuffmanDecompressor {
      * @param filePath The path to the file to be decompressed.
      */
     public HuffmanDecompressor(String filePath) {
+        this(filePath, new DecompressionOptions());
+    }
+
+    /**
+     * Constructs a HuffmanDecompressor.
+     *
+     * @param filePath The path to the file to be decompressed.
+     * @param options  The settings of the decompression.
+     */
+    public HuffmanDecompressor(String filePath, DecompressionOptions options) {
         this.filePath = filePath;
+        this.options = options;
     }
 
     /**
@@ -27,11 +41,54 @@ public class HuffmanDecompressor {
      * @throws IOException If an I/O error occurs.
      */
     public void decompress() throws IOException {
+        decompress(System.out);
+    }
+
+    /**
+     * Method to perform the decompression and print its statistics to the given stream.
+     *
+     * @param out The stream the statistics are printed to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void decompress(PrintStream out) throws IOException {
         double startTime = System.currentTimeMillis();
-        FileDecompressorManager fileDecompressorManager = new FileDecompressorManager(filePath);
+        FileDecompressorManager fileDecompressorManager = new FileDecompressorManager(filePath, options);
         fileDecompressorManager.decompressFile();
+        options.getMetricsListener().completed(fileDecompressorManager.getCompressedFileSize(),
+                fileDecompressorManager.getDecompressedFileSize());
         double endTime = System.currentTimeMillis();
         double elapsedTime = (endTime - startTime) / 1000.0;
-        System.out.println("Decompression execution time: " + elapsedTime + " seconds");
+        out.println("Decompression execution time: " + elapsedTime + " seconds");
+    }
+
+    /**
+     * Checks that every block of the compressed file decodes to the bytes it was compressed from,
+     * and that the block index and the sync points lead to the blocks and symbols they record,
+     * without writing the decompressed file, and prints the result to the given stream.
+     *
+     * @param out The stream the result is printed to.
+     * @throws IOException If an I/O error occurs or the compressed data is corrupted.
+     */
+    public void verify(PrintStream out) throws IOException {
+        double startTime = System.currentTimeMillis();
+        FileDecompressorManager fileDecompressorManager = new FileDecompressorManager(filePath, options);
+        fileDecompressorManager.verify();
+        double endTime = System.currentTimeMillis();
+        double elapsedTime = (endTime - startTime) / 1000.0;
+        out.println("Verified " + filePath + ": all block checksums, block offsets and sync points match");
+        out.println("Verification execution time: " + elapsedTime + " seconds");
+    }
+
+    /**
+     * Decompresses a range of the original file, starting from the nearest checkpoint before it.
+     *
+     * @param offset The offset in the original file of the first byte of the range.
+     * @param length The number of bytes in the range, the range ends at the end of the file at the latest.
+     * @param out    The stream the bytes of the range are written to.
+     * @return The number of bytes written.
+     * @throws IOException If an I/O error occurs or the compressed data is corrupted.
+     */
+    public long decompressRange(long offset, long length, OutputStream out) throws IOException {
+        return new FileDecompressorManager(filePath, options).decompressRange(offset, length, out);
     }
 }
@@ -0,0 +1,232 @@
+package Decompression;
+
+import Util.BlockHeader;
+import Util.Dictionary;
+import Util.HuffmanHeader;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Input stream that decompresses a compressed file read from another stream.
+ * The blocks are decoded in order, a buffer full of symbols at a time, so the memory used
+ * does not depend on the size of the blocks, except for LZ77 blocks, which are decoded whole. Both streamed files and files with a block
+ * index can be read, the block index is not needed. A file compressed with a dictionary needs a
+ * {@link DictionaryCache} that holds the dictionary. The checksum of every block is checked as
+ * soon as the block is decoded, so corrupted data is reported before the bytes after the block are read.
+ */
+public class HuffmanInputStream extends InputStream {
+
+    private final DataInputStream in;
+    private final int numberOfBytes;
+    private final boolean streamed;
+    private final DictionaryCache dictionaries;
+    private final Dictionary dictionary;
+
+    // Number of blocks left in a file with a block index
+    private int blocksRemaining;
+
+    // The block being decoded and the number of its symbols, or stored bytes, that are still to be read
+    private BlockHeader blockHeader;
+    private BlockDecoder decoder;
+    private long symbolsRemaining;
+    private long storedRemaining;
+    private boolean finished;
+
+    // The number of the block being decoded and the checksum of its bytes decoded so far
+    private long block = -1;
+    private final CRC32C checksum = new CRC32C();
+
+    // Decoded bytes that have not been read yet
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    /**
+     * Constructs a HuffmanInputStream and reads the header of the compressed file.
+     *
+     * @param in The stream of the compressed file, positioned at its start.
+     * @throws IOException If an I/O error occurs or the stream is not a compressed file.
+     */
+    public HuffmanInputStream(InputStream in) throws IOException {
+        this(in, new DictionaryCache());
+    }
+
+    /**
+     * Constructs a HuffmanInputStream that finds the dictionary of the file in a cache and reads
+     * the header of the compressed file.
+     *
+     * @param in           The stream of the compressed file, positioned at its start.
+     * @param dictionaries The dictionaries the file may refer to.
+     * @throws IOException If an I/O error occurs, the stream is not a compressed file or its dictionary is missing.
+     */
+    public HuffmanInputStream(InputStream in, DictionaryCache dictionaries) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        HuffmanHeader header = HuffmanHeader.read(this.in);
+        this.numberOfBytes = header.getNumberOfBytes();
+        this.streamed = header.isStreamed();
+        this.dictionaries = dictionaries;
+        this.dictionary = header.usesDictionary() ? dictionaries.get(header.getDictionaryId()) : null;
+        if (dictionary != null && dictionary.getNumberOfBytes() != numberOfBytes) {
+            throw new IOException("Corrupted compressed data: dictionary does not match the number of bytes");
+        }
+        this.blocksRemaining = streamed ? 0 : header.getBlockOffsets().length;
+        // a file of small blocks, such as an archive entry, does not need a buffer larger than a block
+        long blockSize = Math.min(header.getBlockSize(), 1_000_000 - (1_000_000 % numberOfBytes));
+        this.buffer = new byte[(int) Math.max(blockSize, 255)];
+    }
+
+    /**
+     * Reads the next byte.
+     *
+     * @return The next byte, or -1 at the end of the data.
+     * @throws IOException If an I/O error occurs or the compressed data is corrupted.
+     */
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Reads up to the given number of bytes.
+     *
+     * @param b   The buffer to read into.
+     * @param off The offset in the buffer of the first byte.
+     * @param len The maximum number of bytes to read.
+     * @return The number of bytes read, or -1 at the end of the data.
+     * @throws IOException If an I/O error occurs or the compressed data is corrupted.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        int count = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * Retrieves the number of decoded bytes that can be read without decoding more symbols.
+     *
+     * @return The number of buffered bytes.
+     */
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    /**
+     * Decodes the next part of the data into the buffer.
+     *
+     * @return False if the end of the data has been reached.
+     * @throws IOException If an I/O error occurs or the compressed data is corrupted.
+     */
+    private boolean fill() throws IOException {
+        while (true) {
+            if (blockHeader == null && !nextBlock()) {
+                return false;
+            }
+
+            position = 0;
+            if (blockHeader.isStored()) {
+                if (storedRemaining == 0) {
+                    BlockHeader.verifyChecksum(in, (int) checksum.getValue(), block);
+                    blockHeader = null;
+                    continue;
+                }
+                limit = (int) Math.min(storedRemaining, buffer.length);
+                in.readFully(buffer, 0, limit);
+                checksum.update(buffer, 0, limit);
+                storedRemaining -= limit;
+                return true;
+            }
+            if (symbolsRemaining > 0) {
+                int count = (int) Math.min(symbolsRemaining, buffer.length / numberOfBytes);
+                limit = decoder.decodeSymbols(in, buffer, 0, count);
+                checksum.update(buffer, 0, limit);
+                symbolsRemaining -= count;
+                return true;
+            }
+
+            // all symbols of the block are decoded, its trailing bytes come last
+            decoder.finish(in);
+            blockHeader.readSyncPoints(in);
+            byte[] tail = blockHeader.getTail();
+            checksum.update(tail);
+            BlockHeader.verifyChecksum(in, (int) checksum.getValue(), block);
+            blockHeader = null;
+            if (tail.length > 0) {
+                System.arraycopy(tail, 0, buffer, 0, tail.length);
+                limit = tail.length;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reads the header of the next block and prepares the decoder for it.
+     *
+     * @return False if there are no more blocks.
+     * @throws IOException If an I/O error occurs or the compressed data is corrupted.
+     */
+    private boolean nextBlock() throws IOException {
+        if (finished || (!streamed && blocksRemaining == 0)) {
+            finished = true;
+            return false;
+        }
+
+        BlockHeader header = BlockHeader.read(in, numberOfBytes, dictionary);
+        block++;
+        checksum.reset();
+        if (streamed && header.isEndOfStream()) {
+            BlockHeader.verifyChecksum(in, (int) checksum.getValue(), block);
+            finished = true;
+            return false;
+        }
+        blocksRemaining--;
+
+        if (header.isStored()) {
+            storedRemaining = header.getPayloadLength();
+            blockHeader = header;
+            return true;
+        }
+        if (header.usesDictionary()) {
+            decoder = dictionaries.decoder(dictionary);
+        } else if (header.isLz77()) {
+            decoder = new LzDecoder(header, numberOfBytes);
+        } else {
+            decoder = HuffmanDecoder.forBlock(header, numberOfBytes, buffer.length);
+        }
+        if (header.isInterleaved()) {
+            decoder.startInterleaved(in, header.getPayloadLength());
+        } else {
+            decoder.start(in, header.getPayloadLength(), 0);
+        }
+        symbolsRemaining = header.getSymbolCount();
+        blockHeader = header;
+        return true;
+    }
+
+    /**
+     * Closes the underlying stream.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
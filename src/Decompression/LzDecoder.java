@@ -0,0 +1,364 @@
+package Decompression;
+
+import Util.BlockHeader;
+import Util.CodeWord;
+import Util.HuffmanTree;
+import Util.LzAlphabet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Table-driven decoder for LZ77 blocks.
+ * Code words of both alphabets are at most {@value LzAlphabet#MAX_CODE_LENGTH} bits long, so each
+ * is resolved with a single lookup of the next {@value #LOOKUP_BITS} bits. A match copies bytes
+ * decoded earlier in the block, so the payload is read into memory and the whole block is decoded
+ * when it is started; the symbols are then handed out from the decoded bytes. An LZ77 block has no
+ * sync points and is not interleaved, it is always decoded from its start.
+ * <p>
+ * The tables are never modified after construction, copies of a decoder share them
+ * and can decode different blocks with the same code tables concurrently.
+ */
+public class LzDecoder implements BlockDecoder {
+
+    // Number of bits resolved by a single lookup, enough for the longest code word
+    private static final int LOOKUP_BITS = LzAlphabet.MAX_CODE_LENGTH;
+
+    // A table entry packs the decoded value above the code word length
+    private static final int LENGTH_BITS = 4;
+    private static final int LENGTH_MASK = (1 << LENGTH_BITS) - 1;
+
+    // Table entries of the literal and length codes and of the distance codes, 0 if no code word has this prefix
+    private final short[] symbolTable;
+    private final short[] distanceTable;
+
+    private final int symbolWidth;
+
+    // Number of bytes the symbols of the block decode to
+    private final int byteCount;
+
+    // The decoded bytes of the block and the position of the next symbol to hand out
+    private byte[] output;
+    private int outputPosition;
+
+    // The payload of the block and the position of the next byte to shift into the bit buffer
+    private byte[] payload;
+    private int payloadLength;
+    private int payloadPosition;
+
+    // The bits that have been read but not yet consumed, aligned to the most significant bit
+    private long bitBuffer;
+    private int bitCount;
+
+    /**
+     * Constructs an LzDecoder from the code tables in the header of an LZ77 block.
+     *
+     * @param blockHeader   The header of an LZ77 block.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @throws IOException If the code words do not form prefix codes or the block is too large to decode.
+     */
+    public LzDecoder(BlockHeader blockHeader, int numberOfBytes) throws IOException {
+        long byteCount = blockHeader.getSymbolCount() * numberOfBytes;
+        // every token takes at least one bit and decodes to at most the longest match
+        if (byteCount > Integer.MAX_VALUE - 16
+                || byteCount > (blockHeader.getPayloadLength() * 8 + 1) * LzAlphabet.MAX_MATCH) {
+            throw new IOException("Corrupted compressed data: invalid LZ77 block");
+        }
+        this.byteCount = (int) byteCount;
+        this.symbolWidth = numberOfBytes;
+        this.symbolTable = buildTable(blockHeader.getCodeLengths());
+        this.distanceTable = buildTable(blockHeader.getDistanceCodeLengths());
+    }
+
+    /**
+     * Constructs an LzDecoder that shares the tables of another decoder.
+     *
+     * @param decoder The decoder to share the tables with.
+     */
+    private LzDecoder(LzDecoder decoder) {
+        this.symbolTable = decoder.symbolTable;
+        this.distanceTable = decoder.distanceTable;
+        this.symbolWidth = decoder.symbolWidth;
+        this.byteCount = decoder.byteCount;
+    }
+
+    /**
+     * Creates a decoder with the same code tables and its own decoding state.
+     *
+     * @return The new decoder.
+     */
+    @Override
+    public LzDecoder copy() {
+        return new LzDecoder(this);
+    }
+
+    /**
+     * Builds the lookup table of an alphabet from its code word lengths.
+     * Every code word fills all table entries that start with it.
+     *
+     * @param codeLengths The code word length of each value, 0 for unused values.
+     * @return The table entry of every {@value #LOOKUP_BITS}-bit prefix.
+     * @throws IOException If the code words do not form a prefix code.
+     */
+    private static short[] buildTable(int[] codeLengths) throws IOException {
+        short[] table = new short[1 << LOOKUP_BITS];
+        CodeWord[] codeWords = HuffmanTree.assignCanonicalCodes(codeLengths);
+        for (int value = 0; value < codeWords.length; value++) {
+            CodeWord codeWord = codeWords[value];
+            if (codeWord.length == 0) {
+                continue;
+            }
+            if (codeWord.length > LOOKUP_BITS || (codeWord.bits >>> codeWord.length) != 0) {
+                throw new IOException("Corrupted compressed data: invalid code table");
+            }
+            int first = (int) (codeWord.bits << (LOOKUP_BITS - codeWord.length));
+            for (int prefix = first; prefix < first + (1 << (LOOKUP_BITS - codeWord.length)); prefix++) {
+                if (table[prefix] != 0) {
+                    throw new IOException("Corrupted compressed data: invalid code table");
+                }
+                table[prefix] = (short) (value << LENGTH_BITS | codeWord.length);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Decodes the symbols of the block and writes their bytes to the output stream.
+     *
+     * @param in            The stream of encoded bits, positioned after the block header.
+     * @param payloadLength The number of encoded bytes, no more bytes are read from the input.
+     * @param out           The stream the decoded bytes are written to.
+     * @param symbolCount   The number of symbols to decode.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    @Override
+    public void decode(InputStream in, long payloadLength, OutputStream out, long symbolCount) throws IOException {
+        decode(in, payloadLength, 0, out, symbolCount);
+    }
+
+    /**
+     * Decodes the symbols of the block, which always starts at the first bit of its payload.
+     *
+     * @param in            The stream of encoded bits, positioned after the block header.
+     * @param payloadLength The number of encoded bytes, no more bytes are read from the input.
+     * @param skipBits      The number of leading bits to skip, which must be 0.
+     * @param out           The stream the decoded bytes are written to.
+     * @param symbolCount   The number of symbols to decode.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    @Override
+    public void decode(InputStream in, long payloadLength, int skipBits, OutputStream out, long symbolCount)
+            throws IOException {
+        start(in, payloadLength, skipBits);
+        int length = checkedLength(symbolCount);
+        out.write(output, outputPosition, length);
+        outputPosition += length;
+        finish(in);
+    }
+
+    /**
+     * Rejects decoding an LZ77 block as an interleaved block.
+     *
+     * @param in            The stream of the payload.
+     * @param payloadLength The number of bytes of the payload.
+     * @param out           The stream the decoded bytes would be written to.
+     * @param symbolCount   The number of symbols to decode.
+     * @throws IOException Always, an LZ77 block has a single bit stream.
+     */
+    @Override
+    public void decodeInterleaved(InputStream in, long payloadLength, OutputStream out, long symbolCount)
+            throws IOException {
+        startInterleaved(in, payloadLength);
+    }
+
+    /**
+     * Reads the payload of the block and decodes all of its literals and matches.
+     * The symbols are then handed out with {@link #decodeSymbols(InputStream, byte[], int, int)}.
+     *
+     * @param in            The stream of encoded bits, positioned after the block header, left positioned after the payload.
+     * @param payloadLength The number of encoded bytes, no more bytes are read from the input.
+     * @param skipBits      The number of leading bits to skip, which must be 0.
+     * @throws IOException If an I/O error occurs or the encoded data is corrupted.
+     */
+    @Override
+    public void start(InputStream in, long payloadLength, int skipBits) throws IOException {
+        if (skipBits != 0 || payloadLength > Integer.MAX_VALUE - 16) {
+            throw new IOException("Corrupted compressed data: invalid LZ77 block");
+        }
+        this.payloadLength = (int) payloadLength;
+        if (payload == null || payload.length < this.payloadLength) {
+            payload = new byte[this.payloadLength];
+        }
+        if (in.readNBytes(payload, 0, this.payloadLength) != this.payloadLength) {
+            throw new IOException("Corrupted compressed data: LZ77 block exceeds the file");
+        }
+        payloadPosition = 0;
+        bitBuffer = 0;
+        bitCount = 0;
+
+        if (output == null || output.length != byteCount) {
+            output = new byte[byteCount];
+        }
+        outputPosition = 0;
+        decodeBlock();
+    }
+
+    /**
+     * Rejects starting an LZ77 block as an interleaved block.
+     *
+     * @param in            The stream of the payload.
+     * @param payloadLength The number of bytes of the payload.
+     * @throws IOException Always, an LZ77 block has a single bit stream.
+     */
+    @Override
+    public void startInterleaved(InputStream in, long payloadLength) throws IOException {
+        throw new IOException("Corrupted compressed data: an LZ77 block is not interleaved");
+    }
+
+    /**
+     * Decodes all literals and matches of the payload into the decoded bytes of the block.
+     *
+     * @throws IOException If the encoded data is corrupted.
+     */
+    private void decodeBlock() throws IOException {
+        int position = 0;
+        while (position < byteCount) {
+            // a code word, 5 extra bits, a code word and 21 extra bits fit the bits of a single refill
+            if (bitCount < 48) {
+                refill();
+            }
+            int entry = symbolTable[(int) (bitBuffer >>> (64 - LOOKUP_BITS))];
+            if (entry == 0) {
+                throw new IOException("Corrupted compressed data: invalid code word");
+            }
+            consume(entry & LENGTH_MASK);
+            int symbol = entry >>> LENGTH_BITS;
+            if (symbol < LzAlphabet.LITERALS) {
+                output[position++] = (byte) symbol;
+                continue;
+            }
+
+            int lengthCode = symbol - LzAlphabet.LITERALS;
+            int length = LzAlphabet.lengthBase(lengthCode) + readBits(LzAlphabet.lengthExtraBits(lengthCode));
+            entry = distanceTable[(int) (bitBuffer >>> (64 - LOOKUP_BITS))];
+            if (entry == 0) {
+                throw new IOException("Corrupted compressed data: invalid code word");
+            }
+            consume(entry & LENGTH_MASK);
+            int distanceCode = entry >>> LENGTH_BITS;
+            int distance = LzAlphabet.distanceBase(distanceCode) + readBits(LzAlphabet.distanceExtraBits(distanceCode));
+            if (distance > position || length > byteCount - position) {
+                throw new IOException("Corrupted compressed data: invalid match");
+            }
+
+            if (distance >= length) {
+                System.arraycopy(output, position - distance, output, position, length);
+            } else {
+                // the match overlaps the bytes it produces, such as a run of one repeated byte
+                for (int end = position + length; position < end; position++) {
+                    output[position] = output[position - distance];
+                }
+                continue;
+            }
+            position += length;
+        }
+
+        // the zero bits shifted in after the payload are never part of a code word
+        if (8L * payloadPosition - bitCount > 8L * payloadLength) {
+            throw new IOException("Corrupted compressed data: LZ77 block is truncated");
+        }
+    }
+
+    /**
+     * Hands out the next decoded symbols.
+     *
+     * @param in          The stream of encoded bits, not read from since the payload is in memory.
+     * @param buffer      The buffer the decoded bytes are stored in, with room for all symbols.
+     * @param offset      The offset in the buffer of the first decoded byte.
+     * @param symbolCount The number of symbols to hand out.
+     * @return The offset in the buffer after the last decoded byte.
+     * @throws IOException If the block has fewer symbols left.
+     */
+    @Override
+    public int decodeSymbols(InputStream in, byte[] buffer, int offset, int symbolCount) throws IOException {
+        int length = checkedLength(symbolCount);
+        System.arraycopy(output, outputPosition, buffer, offset, length);
+        outputPosition += length;
+        return offset + length;
+    }
+
+    /**
+     * Calculates the number of bytes of the next symbols and checks that the block holds them.
+     *
+     * @param symbolCount The number of symbols.
+     * @return The number of bytes of the symbols.
+     * @throws IOException If the block has fewer symbols left.
+     */
+    private int checkedLength(long symbolCount) throws IOException {
+        long length = symbolCount * symbolWidth;
+        if (length > byteCount - outputPosition) {
+            throw new IOException("Corrupted compressed data: missing symbols");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Finishes the block, whose payload has been read when it was started.
+     *
+     * @param in The stream of encoded bits, already positioned after the payload.
+     */
+    @Override
+    public void finish(InputStream in) {
+    }
+
+    /**
+     * Reads extra bits that follow a code word.
+     *
+     * @param length The number of bits, at most 21.
+     * @return The bits as an unsigned value.
+     */
+    private int readBits(int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int bits = (int) (bitBuffer >>> (64 - length));
+        consume(length);
+        return bits;
+    }
+
+    /**
+     * Retrieves the position of the next code word in the payload.
+     * The whole block is decoded when it is started, so this is the end of its code words from then on.
+     *
+     * @return The number of bits consumed since the start of the payload.
+     */
+    @Override
+    public long getBitPosition() {
+        return 8L * payloadPosition - bitCount;
+    }
+
+    /**
+     * Drops the given number of bits from the bit buffer.
+     *
+     * @param length The number of bits to drop.
+     */
+    private void consume(int length) {
+        bitBuffer <<= length;
+        bitCount -= length;
+    }
+
+    /**
+     * Tops up the bit buffer with whole bytes from the payload.
+     * Past the end of the payload, zero bits are shifted in; the decoded byte count stops the
+     * decoder, and a block that needed them is reported as truncated.
+     */
+    private void refill() {
+        while (bitCount <= 56) {
+            long next = payloadPosition < payloadLength ? payload[payloadPosition] & 0xFF : 0;
+            payloadPosition++;
+            bitBuffer |= next << (56 - bitCount);
+            bitCount += 8;
+        }
+    }
+}
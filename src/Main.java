@@ -1,27 +1,524 @@
+import Compression.ArchiveCompressor;
+import Compression.CompressionOptions;
+import Compression.DictionaryTrainer;
 import Compression.HuffmanCompressor;
+import Compression.HuffmanOutputStream;
+import Compression.SymbolWidthEstimator;
+import Decompression.ArchiveExtractor;
+import Decompression.DecompressionOptions;
+import Decompression.DictionaryCache;
 import Decompression.HuffmanDecompressor;
+import Decompression.HuffmanInputStream;
+import Server.CompressionClient;
+import Server.CompressionServer;
+import Util.ArchiveEntry;
+import Util.ArchiveIndex;
+import Util.Dictionary;
+import Util.IoMode;
+import Util.MetricsListener;
+import Util.MetricsRegistry;
 
+import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public class Main {
 
     public static void main(String[] args) throws IOException {
 
-        if(args[0].equals("c")) {
-            HuffmanCompressor huffmanCompressor = new HuffmanCompressor(args[1], Integer.parseInt(args[2]));
-            huffmanCompressor.compress();
-        } else if(args[0].equals("d")) {
-            HuffmanDecompressor huffmanDecompressor = new HuffmanDecompressor(args[1]);
-            huffmanDecompressor.decompress();
+        if(args[0].equals("c") || args[0].equals("d") || args[0].equals("v")) {
+            run(args, System.in, System.out, new DictionaryCache());
+        } else if(args[0].equals("s")) {
+            serve(args[1]);
+        } else if(args[0].equals("r")) {
+            request(args);
+        } else if(args[0].equals("t")) {
+            train(args);
+        } else if(args[0].equals("a")) {
+            archive(args);
+        } else if(args[0].equals("x")) {
+            extract(args);
+        } else if(args[0].equals("l")) {
+            list(args[1]);
         } else {
             throw new IllegalArgumentException("Invalid argument");
         }
 
     }
 
+    /**
+     * Compress, decompress or verify a file or a stream, for the command line and for requests to the server
+     *
+     * @param args         The command line arguments, starting with c, d or v
+     * @param in           The standard input, read when the path is -
+     * @param out          The standard output, the statistics are printed to it
+     * @param dictionaries The dictionaries read so far, shared by all requests to the server
+     * @throws IOException If an I/O error occurs
+     */
+    private static void run(String[] args, InputStream in, PrintStream out, DictionaryCache dictionaries)
+            throws IOException {
+        if (args.length < 2 || !args[0].equals("c") && !args[0].equals("d") && !args[0].equals("v")) {
+            throw new IllegalArgumentException("Invalid argument");
+        }
+        if(args[0].equals("v")) {
+            DecompressionOptions options = parseDecompressionOptions(parseOptions(args, 2), dictionaries);
+            new HuffmanDecompressor(args[1], options).verify(out);
+        } else if(args[0].equals("c")) {
+            CompressionOptions options = parseCompressionOptions(parseOptions(args, 3), dictionaries);
+            if (args[1].equals("-")) {
+                compressStream(dictionaryNumberOfBytes(args[2], options), options, in, out);
+                return;
+            }
+            HuffmanCompressor huffmanCompressor = new HuffmanCompressor(args[1], chooseNumberOfBytes(args[1], args[2], options, out), options);
+            huffmanCompressor.compress(out);
+            printMetrics(options.getMetricsListener(), out);
+        } else {
+            Map<String, String> parsedOptions = parseOptions(args, 2);
+            String range = parsedOptions.remove("range");
+            DecompressionOptions options = parseDecompressionOptions(parsedOptions, dictionaries);
+            if (range != null) {
+                decompressRange(args[1], range, options, out);
+                return;
+            }
+            if (args[1].equals("-")) {
+                decompressStream(options.getDictionaries(), in, out);
+                return;
+            }
+            HuffmanDecompressor huffmanDecompressor = new HuffmanDecompressor(args[1], options);
+            huffmanDecompressor.decompress(out);
+            printMetrics(options.getMetricsListener(), out);
+        }
+    }
+
+    /**
+     * Run a server that compresses and decompresses for clients until the process is stopped
+     *
+     * @param address The Unix domain socket or loopback port to listen on
+     * @throws IOException If the address cannot be bound
+     */
+    private static void serve(String address) throws IOException {
+        DictionaryCache dictionaries = new DictionaryCache();
+        CompressionServer server = new CompressionServer(CompressionServer.parseAddress(address),
+                (args, in, out) -> run(args, in, out, dictionaries));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // the process is exiting, a socket file left behind is replaced by the next server
+            }
+        }));
+        System.out.println("Listening on " + server.getAddress());
+        server.run();
+    }
+
+    /**
+     * Send a c or d command to a server, the arguments are the address followed by the command;
+     * the standard input is sent when the path is -, and paths are resolved by the server
+     *
+     * @param args The command line arguments
+     * @throws IOException If the server cannot be reached or the command fails
+     */
+    private static void request(String[] args) throws IOException {
+        String[] command = Arrays.copyOfRange(args, 2, args.length);
+        InputStream input = command.length > 1 && command[1].equals("-") ? System.in : null;
+        new CompressionClient(CompressionServer.parseAddress(args[1])).send(command, input, System.out);
+    }
+
+    /**
+     * Get the number of bytes in each symbol, estimating the best one from a sample of the file for "auto"
+     *
+     * @param filePath The path to the file to be compressed
+     * @param n        The number of bytes, or "auto"
+     * @param options  The compression settings, a dictionary or a level fixes the number of bytes for "auto"
+     * @param out      The stream the chosen number of bytes is printed to
+     * @return The number of bytes in each symbol
+     * @throws IOException If an I/O error occurs
+     */
+    private static int chooseNumberOfBytes(String filePath, String n, CompressionOptions options, PrintStream out)
+            throws IOException {
+        if (!n.equals("auto") || options.getDictionary() != null || options.getLevel() > 0) {
+            return dictionaryNumberOfBytes(n, options);
+        }
+        SymbolWidthEstimator estimator = new SymbolWidthEstimator(filePath);
+        estimator.estimate();
+        out.println("Chosen number of bytes: " + estimator.getNumberOfBytes());
+        out.println("Predicted compression ratio: " + estimator.getPredictedRatio());
+        return estimator.getNumberOfBytes();
+    }
+
+    /**
+     * Get the number of bytes in each symbol without looking at the input, "auto" takes the one of the dictionary,
+     * or a single byte for a level, whose matches are made of bytes
+     *
+     * @param n       The number of bytes, or "auto" if a dictionary or a level is set
+     * @param options The compression settings
+     * @return The number of bytes in each symbol
+     * @throws IllegalArgumentException If n is "auto" and neither a dictionary nor a level is set
+     */
+    private static int dictionaryNumberOfBytes(String n, CompressionOptions options) {
+        if (n.equals("auto")) {
+            if (options.getLevel() > 0) {
+                return 1;
+            }
+            if (options.getDictionary() == null) {
+                // a stream cannot be sampled ahead of compressing it
+                throw new IllegalArgumentException("auto needs a file, a --dictionary or a --level, the standard input cannot be sampled");
+            }
+            return options.getDictionary().getNumberOfBytes();
+        }
+        return Integer.parseInt(n);
+    }
+
+    /**
+     * Compress the standard input to the standard output, one block at a time
+     *
+     * @param numberOfBytes The number of bytes in each symbol
+     * @param options       The compression settings, the threads and the I/O mode are not used
+     * @param input         The standard input
+     * @param output        The standard output
+     * @throws IOException If an I/O error occurs
+     */
+    private static void compressStream(int numberOfBytes, CompressionOptions options, InputStream input,
+                                       OutputStream output) throws IOException {
+        try (OutputStream out = new HuffmanOutputStream(output, numberOfBytes, options)) {
+            input.transferTo(out);
+        }
+    }
+
+    /**
+     * Decompress the standard input to the standard output
+     *
+     * @param dictionaries The dictionaries the input may refer to
+     * @param input        The standard input
+     * @param output       The standard output
+     * @throws IOException If an I/O error occurs
+     */
+    private static void decompressStream(DictionaryCache dictionaries, InputStream input, OutputStream output)
+            throws IOException {
+        try (InputStream in = new HuffmanInputStream(input, dictionaries)) {
+            in.transferTo(output);
+        }
+        output.flush();
+    }
+
+    /**
+     * Decompress a range of the original file to the standard output, the range is given as offset:length
+     *
+     * @param filePath The path to the compressed file
+     * @param range    The offset of the first byte and the number of bytes, both with an optional K, M or G suffix
+     * @param options  The decompression settings, the threads are not used
+     * @param output   The standard output
+     * @throws IOException If an I/O error occurs
+     */
+    private static void decompressRange(String filePath, String range, DecompressionOptions options,
+                                        OutputStream output) throws IOException {
+        int separator = range.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid range: " + range + ", expected offset:length");
+        }
+        long offset = parseSize(range.substring(0, separator));
+        long length = parseSize(range.substring(separator + 1));
+        OutputStream out = new BufferedOutputStream(output);
+        new HuffmanDecompressor(filePath, options).decompressRange(offset, length, out);
+        out.flush();
+    }
+
+    /**
+     * Train a dictionary on sample files and save it, the arguments are the dictionary path, the number
+     * of bytes and the samples, followed by the options; a directory stands for all files below it
+     *
+     * @param args The command line arguments
+     * @throws IOException If a sample cannot be read or the dictionary cannot be written
+     */
+    private static void train(String[] args) throws IOException {
+        int firstOption = findFirstOption(args, 3);
+        int maxCodeLength = CompressionOptions.DEFAULT_MAX_CODE_LENGTH;
+        for (Map.Entry<String, String> option : parseOptions(args, firstOption).entrySet()) {
+            if (!option.getKey().equals("max-code-length")) {
+                throw new IllegalArgumentException("Unknown option: --" + option.getKey());
+            }
+            maxCodeLength = Integer.parseInt(option.getValue());
+        }
+
+        List<Path> samples = new ArrayList<>();
+        for (int i = 3; i < firstOption; i++) {
+            try (Stream<Path> files = Files.walk(Path.of(args[i]))) {
+                files.filter(Files::isRegularFile).sorted().forEach(samples::add);
+            }
+        }
+        DictionaryTrainer trainer = new DictionaryTrainer(Integer.parseInt(args[2]), maxCodeLength);
+        for (Path sample : samples) {
+            trainer.addSample(sample);
+        }
+        Dictionary dictionary = trainer.train();
+        dictionary.write(Path.of(args[1]));
+        System.out.println("Samples: " + trainer.getSampleCount() + " files, " + trainer.getSymbolCount() + " symbols");
+        System.out.println("Dictionary symbols: " + dictionary.getSymbols().length);
+        System.out.println("Dictionary id: " + Dictionary.formatId(dictionary.getId()));
+    }
+
+    /**
+     * Compress files into an archive, the arguments are the archive path, the number of bytes and the
+     * inputs, followed by the options; a directory stands for all files below it and @path for the
+     * inputs listed in a file, one per line
+     *
+     * @param args The command line arguments
+     * @throws IOException If an input cannot be read or the archive cannot be written
+     */
+    private static void archive(String[] args) throws IOException {
+        double startTime = System.currentTimeMillis();
+        int firstOption = findFirstOption(args, 3);
+        CompressionOptions options = parseCompressionOptions(withDefaultThreads(parseOptions(args, firstOption)),
+                new DictionaryCache());
+        int numberOfBytes = args[2].equals("auto") && options.getDictionary() == null && options.getLevel() == 0
+                ? ArchiveCompressor.AUTO : dictionaryNumberOfBytes(args[2], options);
+
+        ArchiveCompressor archiveCompressor = new ArchiveCompressor(numberOfBytes, options);
+        for (int i = 3; i < firstOption; i++) {
+            if (args[i].startsWith("@")) {
+                for (String line : Files.readAllLines(Path.of(args[i].substring(1)))) {
+                    if (!line.isBlank()) {
+                        archiveCompressor.addInput(Path.of(line.strip()));
+                    }
+                }
+            } else {
+                archiveCompressor.addInput(Path.of(args[i]));
+            }
+        }
+        ArchiveIndex index = archiveCompressor.compress(Path.of(args[1]));
+
+        long originalSize = 0;
+        for (ArchiveEntry entry : index.getEntries()) {
+            originalSize += entry.getOriginalSize();
+        }
+        long archiveSize = Files.size(Path.of(args[1]));
+        double elapsedTime = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.println("Archive execution time: " + elapsedTime + " seconds");
+        System.out.println("Archived files: " + index.getEntries().size());
+        System.out.println("Original size: " + originalSize + " bytes");
+        System.out.println("Archive size: " + archiveSize + " bytes");
+        System.out.println("Compression ratio: " + (double) archiveSize / originalSize);
+        printMetrics(options.getMetricsListener(), System.out);
+    }
+
+    /**
+     * Extract all entries of an archive, or the named ones, into a directory given by --output,
+     * by default a directory next to the archive named after it
+     *
+     * @param args The command line arguments
+     * @throws IOException If an I/O error occurs or an entry is corrupted
+     */
+    private static void extract(String[] args) throws IOException {
+        double startTime = System.currentTimeMillis();
+        int firstOption = findFirstOption(args, 2);
+        Map<String, String> parsedOptions = withDefaultThreads(parseOptions(args, firstOption));
+        Path archivePath = Path.of(args[1]).toAbsolutePath();
+        String archiveName = archivePath.getFileName().toString();
+        Path outputDirectory = archivePath.resolveSibling("Decompressed." + archiveName.replaceFirst("\\.hca$", ""));
+        if (parsedOptions.containsKey("output")) {
+            outputDirectory = Path.of(parsedOptions.remove("output"));
+        }
+        DecompressionOptions options = parseDecompressionOptions(parsedOptions, new DictionaryCache());
+
+        ArchiveExtractor archiveExtractor = new ArchiveExtractor(archivePath, options);
+        List<String> names = List.of(args).subList(2, firstOption);
+        if (names.isEmpty()) {
+            archiveExtractor.extract(outputDirectory);
+        } else {
+            archiveExtractor.extract(outputDirectory, names);
+        }
+        double elapsedTime = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.println("Extraction execution time: " + elapsedTime + " seconds");
+        System.out.println("Extracted files: " + (names.isEmpty() ? archiveExtractor.getIndex().getEntries().size() : names.size()));
+        System.out.println("Output directory: " + outputDirectory);
+        printMetrics(options.getMetricsListener(), System.out);
+    }
+
+    /**
+     * List the entries of an archive with their sizes, number of bytes and checksums
+     *
+     * @param archivePath The path to the archive
+     * @throws IOException If an I/O error occurs or the file is not an archive
+     */
+    private static void list(String archivePath) throws IOException {
+        ArchiveIndex index = new ArchiveExtractor(Path.of(archivePath), new DecompressionOptions()).getIndex();
+        for (ArchiveEntry entry : index.getEntries()) {
+            System.out.println(String.format("%12d %12d %3d %08x %s", entry.getOriginalSize(), entry.getCompressedSize(),
+                    entry.getNumberOfBytes(), entry.getChecksum(), entry.getName()));
+        }
+    }
+
+    /**
+     * Find the first --name argument after the positional arguments
+     *
+     * @param args The command line arguments
+     * @param from The index of the first argument that may be an option
+     * @return The index of the first option, or the number of arguments if there are none
+     */
+    private static int findFirstOption(String[] args, int from) {
+        int firstOption = from;
+        while (firstOption < args.length && !args[firstOption].startsWith("--")) {
+            firstOption++;
+        }
+        return firstOption;
+    }
+
+    /**
+     * Use all processors unless a number of threads is given, for commands that process many files
+     *
+     * @param options The value of each option by name
+     * @return The same options
+     */
+    private static Map<String, String> withDefaultThreads(Map<String, String> options) {
+        options.putIfAbsent("threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        return options;
+    }
+
+    /**
+     * Print the metrics collected during the run, if they were enabled
+     *
+     * @param metricsListener The listener of the run
+     * @param out             The stream the metrics are printed to
+     */
+    private static void printMetrics(MetricsListener metricsListener, PrintStream out) {
+        if (metricsListener instanceof MetricsRegistry) {
+            out.print(((MetricsRegistry) metricsListener).report());
+        }
+    }
+
+    /**
+     * Parse the options given as --name=value arguments, a --name argument alone stands for --name=true
+     *
+     * @param args The command line arguments
+     * @param from The index of the first option
+     * @return The value of each option by name
+     */
+    private static Map<String, String> parseOptions(String[] args, int from) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = from; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Invalid option: " + args[i]);
+            }
+            int separator = args[i].indexOf('=');
+            if (separator < 0) {
+                options.put(args[i].substring(2), "true");
+            } else {
+                options.put(args[i].substring(2, separator), args[i].substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Build the compression settings from the parsed options
+     *
+     * @param options      The value of each option by name
+     * @param dictionaries The dictionaries read so far, a dictionary file is only read once
+     * @return The compression settings
+     * @throws IOException If the dictionary cannot be read
+     */
+    private static CompressionOptions parseCompressionOptions(Map<String, String> options, DictionaryCache dictionaries)
+            throws IOException {
+        CompressionOptions compressionOptions = new CompressionOptions();
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            switch (option.getKey()) {
+                case "threads" -> compressionOptions.setThreads(Integer.parseInt(option.getValue()));
+                case "block-size" -> compressionOptions.setBlockSize(parseSize(option.getValue()));
+                case "io" -> compressionOptions.setIoMode(IoMode.parse(option.getValue()));
+                case "max-code-length" -> compressionOptions.setMaxCodeLength(Integer.parseInt(option.getValue()));
+                case "metrics" -> compressionOptions.setMetricsListener(parseMetrics(option.getValue()));
+                case "dictionary" -> compressionOptions.setDictionary(dictionaries.load(Path.of(option.getValue())));
+                case "sync-interval" -> compressionOptions.setSyncInterval(Math.toIntExact(parseSize(option.getValue())));
+                case "pipeline" -> compressionOptions.setPipelineDepth(Integer.parseInt(option.getValue()));
+                case "interleaved" -> compressionOptions.setInterleaved(parseSwitch("interleaved", option.getValue()));
+                case "alphabet-limit" -> compressionOptions.setAlphabetLimit(Math.toIntExact(parseSize(option.getValue())));
+                case "level" -> compressionOptions.setLevel(Integer.parseInt(option.getValue()));
+                case "window" -> compressionOptions.setWindowSize(Math.toIntExact(parseSize(option.getValue())));
+                case "depth" -> compressionOptions.setSearchDepth(Integer.parseInt(option.getValue()));
+                default -> throw new IllegalArgumentException("Unknown option: --" + option.getKey());
+            }
+        }
+        return compressionOptions;
+    }
+
+    /**
+     * Build the decompression settings from the parsed options
+     *
+     * @param options      The value of each option by name
+     * @param dictionaries The dictionaries read so far, a dictionary file is only read once
+     * @return The decompression settings
+     * @throws IOException If the dictionary cannot be read
+     */
+    private static DecompressionOptions parseDecompressionOptions(Map<String, String> options,
+                                                                  DictionaryCache dictionaries) throws IOException {
+        DecompressionOptions decompressionOptions = new DecompressionOptions().setDictionaries(dictionaries);
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            switch (option.getKey()) {
+                case "threads" -> decompressionOptions.setThreads(Integer.parseInt(option.getValue()));
+                case "io" -> decompressionOptions.setIoMode(IoMode.parse(option.getValue()));
+                case "metrics" -> decompressionOptions.setMetricsListener(parseMetrics(option.getValue()));
+                case "dictionary" -> decompressionOptions.getDictionaries().load(Path.of(option.getValue()));
+                case "pipeline" -> decompressionOptions.setPipelineDepth(Integer.parseInt(option.getValue()));
+                default -> throw new IllegalArgumentException("Unknown option: --" + option.getKey());
+            }
+        }
+        return decompressionOptions;
+    }
+
+    /**
+     * Parse whether metrics are collected
+     *
+     * @param value true or false
+     * @return A registry collecting the metrics, or the listener that ignores them
+     */
+    private static MetricsListener parseMetrics(String value) {
+        return parseSwitch("metrics", value) ? new MetricsRegistry() : MetricsListener.NONE;
+    }
+
+    /**
+     * Parse an option that is switched on or off
+     *
+     * @param name  The name of the option, for the error message
+     * @param value true or false
+     * @return Whether the option is switched on
+     */
+    private static boolean parseSwitch(String name, String value) {
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException("Invalid " + name + " setting: " + value);
+        }
+        return value.equals("true");
+    }
+
+    /**
+     * Parse a size in bytes with an optional K, M or G suffix
+     *
+     * @param size The size, for example 4096, 64K or 16M
+     * @return The size in bytes
+     */
+    private static long parseSize(String size) {
+        long unit = switch (Character.toUpperCase(size.charAt(size.length() - 1))) {
+            case 'K' -> 1L << 10;
+            case 'M' -> 1L << 20;
+            case 'G' -> 1L << 30;
+            default -> 1;
+        };
+        String digits = unit == 1 ? size : size.substring(0, size.length() - 1);
+        return Long.parseLong(digits) * unit;
+    }
+
     /**
      * Calculate the SHA-256 hash of a file
      *
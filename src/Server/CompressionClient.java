@@ -0,0 +1,143 @@
+package Server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Sends a request to a {@link CompressionServer} and receives its response.
+ * The standard input of the request is sent on a thread of its own while the response is read,
+ * so streams of any size pass through without either side waiting for the other.
+ */
+public class CompressionClient {
+
+    private final SocketAddress address;
+
+    /**
+     * Constructs a CompressionClient.
+     *
+     * @param address The address of the server, see {@link CompressionServer#parseAddress(String)}.
+     */
+    public CompressionClient(SocketAddress address) {
+        this.address = address;
+    }
+
+    /**
+     * Runs a request on the server.
+     *
+     * @param args   The command line arguments of the request, starting with the command.
+     * @param input  The standard input of the request, or null if the request reads none.
+     * @param output The stream the standard output of the request is written to.
+     * @throws IOException If the server cannot be reached or the request fails.
+     */
+    public void send(String[] args, InputStream input, OutputStream output) throws IOException {
+        if (args.length < 1 || args.length > CompressionServer.MAX_ARGUMENTS) {
+            throw new IllegalArgumentException("A request has between 1 and " + CompressionServer.MAX_ARGUMENTS + " arguments");
+        }
+
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new SocketOutputStream(channel)));
+            out.writeInt(CompressionServer.MAGIC);
+            out.writeByte(CompressionServer.VERSION);
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+
+            Upload upload = new Upload(input, out);
+            Thread uploadThread = new Thread(upload, "huffman-client-upload");
+            uploadThread.setDaemon(true);
+            uploadThread.start();
+
+            receive(new DataInputStream(new BufferedInputStream(new SocketInputStream(channel))), output);
+            uploadThread.join();
+            if (upload.failure != null) {
+                throw upload.failure;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Reads the frames of a response up to its last one.
+     *
+     * @param in     The stream of the connection, positioned after the request.
+     * @param output The stream the data of the response is written to.
+     * @throws IOException If an I/O error occurs or the request fails.
+     */
+    private static void receive(DataInputStream in, OutputStream output) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        try {
+            while (true) {
+                int type = in.readUnsignedByte();
+                if (type == CompressionServer.SUCCESS) {
+                    output.flush();
+                    return;
+                }
+                if (type == CompressionServer.FAILURE) {
+                    output.flush();
+                    throw new IOException(in.readUTF());
+                }
+                if (type != CompressionServer.DATA) {
+                    throw new IOException("Invalid response from the server");
+                }
+                for (int remaining = in.readInt(); remaining > 0; ) {
+                    int count = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                    if (count < 0) {
+                        throw new EOFException();
+                    }
+                    output.write(buffer, 0, count);
+                    remaining -= count;
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("The server closed the connection before the request finished");
+        }
+    }
+
+    /**
+     * Sends the standard input of a request and then shuts down the output of the connection.
+     */
+    private static final class Upload implements Runnable {
+
+        private final InputStream input;
+        private final OutputStream out;
+
+        // The error that stopped the upload, or null
+        private volatile IOException failure;
+
+        /**
+         * Constructs an Upload.
+         *
+         * @param input The standard input of the request, or null if there is none.
+         * @param out   The stream of the connection, positioned after the arguments.
+         */
+        private Upload(InputStream input, OutputStream out) {
+            this.input = input;
+            this.out = out;
+        }
+
+        /**
+         * Sends the input.
+         */
+        @Override
+        public void run() {
+            try (out) {
+                if (input != null) {
+                    input.transferTo(out);
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+}
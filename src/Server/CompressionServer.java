@@ -0,0 +1,305 @@
+package Server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-running server that compresses and decompresses on behalf of {@link CompressionClient}s.
+ * A short-lived JVM per file pays for its startup and for running cold code every time; the server
+ * stays warm, so small requests take milliseconds. It listens on a Unix domain socket or a loopback
+ * TCP port only, since requests name files the server reads and writes with its own permissions.
+ * Every connection carries one request and runs on a thread of its own, a virtual thread when the
+ * runtime has them.
+ * <p>
+ * A request is the magic "HUFS", a version byte, the number of arguments (4 bytes) and the arguments
+ * in modified UTF-8, followed by the standard input of the client up to the end of its output.
+ * The response is a sequence of frames: {@link #DATA} frames with a length (4 bytes) and the bytes
+ * of the standard output, ended by {@link #SUCCESS} or by {@link #FAILURE} with a message.
+ */
+public class CompressionServer implements Closeable {
+
+    // "HUFS" in ASCII
+    static final int MAGIC = 0x48554653;
+
+    static final int VERSION = 1;
+
+    // Types of the frames of a response
+    static final int DATA = 0;
+    static final int SUCCESS = 1;
+    static final int FAILURE = 2;
+
+    // Largest number of arguments in a request
+    static final int MAX_ARGUMENTS = 1024;
+
+    // Size of the buffer the standard output of a request is collected in before it is sent as a frame
+    private static final int FRAME_SIZE = 1 << 16;
+
+    // Longest error message sent to a client, well within the limit of modified UTF-8 strings
+    private static final int MAX_MESSAGE_LENGTH = 4096;
+
+    private final SocketAddress address;
+    private final RequestHandler handler;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a CompressionServer and starts listening.
+     * A Unix domain socket left behind by an earlier server is replaced.
+     *
+     * @param address The Unix domain socket or loopback address to listen on, see {@link #parseAddress(String)}.
+     * @param handler The handler that runs the requests.
+     * @throws IOException If the address cannot be bound.
+     */
+    public CompressionServer(SocketAddress address, RequestHandler handler) throws IOException {
+        this.address = address;
+        this.handler = handler;
+        if (address instanceof UnixDomainSocketAddress) {
+            Path path = ((UnixDomainSocketAddress) address).getPath();
+            if (Files.exists(path) && !Files.isRegularFile(path) && !Files.isDirectory(path)) {
+                Files.delete(path);
+            }
+            this.serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            this.serverChannel = ServerSocketChannel.open();
+        }
+        serverChannel.bind(address);
+        this.executor = newRequestExecutor();
+    }
+
+    /**
+     * Parses the address of a server.
+     *
+     * @param address A path to a Unix domain socket, optionally prefixed with "unix:", a port on the
+     *                loopback interface, or a loopback host and a port separated by a colon.
+     * @return The address.
+     * @throws IllegalArgumentException If the host is not a loopback address.
+     * @throws IOException              If the host cannot be resolved.
+     */
+    public static SocketAddress parseAddress(String address) throws IOException {
+        if (address.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(address.substring(5));
+        }
+        if (address.indexOf('/') >= 0 || address.indexOf('\\') >= 0) {
+            return UnixDomainSocketAddress.of(address);
+        }
+
+        int separator = address.lastIndexOf(':');
+        InetAddress host = separator < 0 ? InetAddress.getLoopbackAddress()
+                : InetAddress.getByName(address.substring(0, separator));
+        if (!host.isLoopbackAddress()) {
+            throw new IllegalArgumentException("The server only listens on loopback addresses, not " + host);
+        }
+        return new InetSocketAddress(host, Integer.parseInt(address.substring(separator + 1)));
+    }
+
+    /**
+     * Creates the executor the requests run on.
+     * From Java 21 every request gets a virtual thread of its own, so a request that waits for its
+     * client costs no platform thread. On earlier runtimes idle platform threads are reused.
+     *
+     * @return The executor.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Retrieves the address the server listens on.
+     *
+     * @return The address.
+     */
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     *
+     * @throws IOException If a connection cannot be accepted.
+     */
+    public void run() throws IOException {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (AsynchronousCloseException e) {
+                return;
+            }
+            executor.execute(() -> serve(channel));
+        }
+    }
+
+    /**
+     * Stops accepting connections, lets the running requests finish and removes the Unix domain socket.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        executor.shutdown();
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+    }
+
+    /**
+     * Runs the request of one connection and sends the response.
+     *
+     * @param channel The connection.
+     */
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new SocketInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new SocketOutputStream(channel)));
+            String[] args = readRequest(in);
+
+            PrintStream data = new ResponseStream(new BufferedOutputStream(new FrameOutputStream(out), FRAME_SIZE));
+            String failure = null;
+            try {
+                handler.handle(args, in, data);
+            } catch (IOException | RuntimeException e) {
+                failure = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+            data.flush();
+            if (data.checkError()) {
+                // the client has gone away, there is no one left to respond to
+                return;
+            }
+            if (failure == null) {
+                out.writeByte(SUCCESS);
+            } else {
+                out.writeByte(FAILURE);
+                out.writeUTF(failure.length() > MAX_MESSAGE_LENGTH ? failure.substring(0, MAX_MESSAGE_LENGTH) : failure);
+            }
+            out.flush();
+        } catch (IOException e) {
+            // the connection failed or did not come from a client, there is no one to report it to
+        }
+    }
+
+    /**
+     * Reads the arguments of a request.
+     *
+     * @param in The stream of the connection, positioned at its start.
+     * @return The arguments.
+     * @throws IOException If an I/O error occurs or the connection does not carry a request.
+     */
+    private static String[] readRequest(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+            throw new IOException("Not a compression request");
+        }
+        int count = in.readInt();
+        if (count < 1 || count > MAX_ARGUMENTS) {
+            throw new IOException("Invalid number of arguments: " + count);
+        }
+        String[] args = new String[count];
+        for (int i = 0; i < count; i++) {
+            args[i] = in.readUTF();
+        }
+        return args;
+    }
+
+    /**
+     * Output stream that sends the bytes written to it as data frames.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        /**
+         * Constructs a FrameOutputStream.
+         *
+         * @param out The stream of the connection.
+         */
+        private FrameOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Sends a single byte as a frame of its own.
+         *
+         * @param b The byte to send.
+         * @throws IOException If an I/O error occurs.
+         */
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        /**
+         * Sends the given bytes as one frame.
+         *
+         * @param b   The buffer holding the bytes.
+         * @param off The offset in the buffer of the first byte.
+         * @param len The number of bytes to send.
+         * @throws IOException If an I/O error occurs.
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            out.writeByte(DATA);
+            out.writeInt(len);
+            out.write(b, off, len);
+        }
+
+        /**
+         * Sends the frames written so far.
+         *
+         * @throws IOException If an I/O error occurs.
+         */
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * Print stream over the data frames of a response.
+     * Handlers may close the stream, for example by closing a compressing stream on top of it, but
+     * that only flushes it, since the response goes on with its last frame.
+     */
+    private static final class ResponseStream extends PrintStream {
+
+        /**
+         * Constructs a ResponseStream.
+         *
+         * @param out The stream of data frames.
+         */
+        private ResponseStream(OutputStream out) {
+            super(out);
+        }
+
+        /**
+         * Flushes the stream and leaves it open.
+         */
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
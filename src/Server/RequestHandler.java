@@ -0,0 +1,23 @@
+package Server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+
+/**
+ * Runs the requests a {@link CompressionServer} receives.
+ * A handler is called from many threads at once, one per request.
+ */
+@FunctionalInterface
+public interface RequestHandler {
+
+    /**
+     * Runs one request.
+     *
+     * @param args The command line arguments the client was started with, starting with the command.
+     * @param in   The bytes the client sends, up to the end of its standard input.
+     * @param out  The stream whose bytes the client writes to its standard output.
+     * @throws IOException If the request fails, the message is shown by the client.
+     */
+    void handle(String[] args, InputStream in, PrintStream out) throws IOException;
+}
@@ -0,0 +1,57 @@
+package Server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Objects;
+
+/**
+ * Input stream that reads from a connected socket channel.
+ * Unlike {@link java.nio.channels.Channels#newInputStream}, a read does not hold the lock of the
+ * channel while it blocks, so another thread can write to the same connection at the same time.
+ * Closing the stream does not close the connection, which belongs to whoever opened it.
+ */
+class SocketInputStream extends InputStream {
+
+    private final SocketChannel channel;
+
+    /**
+     * Constructs a SocketInputStream.
+     *
+     * @param channel The connected channel, in blocking mode.
+     */
+    SocketInputStream(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Reads a single byte.
+     *
+     * @return The byte, or -1 at the end of the input.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    /**
+     * Reads up to the given number of bytes, blocking until at least one is available.
+     *
+     * @param b   The buffer to read into.
+     * @param off The offset in the buffer of the first byte.
+     * @param len The largest number of bytes to read.
+     * @return The number of bytes read, or -1 at the end of the input.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        return channel.read(ByteBuffer.wrap(b, off, len));
+    }
+}
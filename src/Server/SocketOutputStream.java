@@ -0,0 +1,68 @@
+package Server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Objects;
+
+/**
+ * Output stream that writes to a connected socket channel.
+ * Unlike {@link java.nio.channels.Channels#newOutputStream}, a write does not hold the lock of the
+ * channel while it blocks, so another thread can read from the same connection at the same time.
+ * Closing the stream shuts down the output of the connection only, so the peer sees the end of its
+ * input while the connection stays open for reading.
+ */
+class SocketOutputStream extends OutputStream {
+
+    private final SocketChannel channel;
+
+    /**
+     * Constructs a SocketOutputStream.
+     *
+     * @param channel The connected channel, in blocking mode.
+     */
+    SocketOutputStream(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param b The byte to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    /**
+     * Writes the given bytes, blocking until all of them are written.
+     *
+     * @param b   The buffer holding the bytes.
+     * @param off The offset in the buffer of the first byte.
+     * @param len The number of bytes to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Shuts down the output of the connection.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.shutdownOutput();
+        }
+    }
+}
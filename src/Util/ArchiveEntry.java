@@ -0,0 +1,90 @@
+package Util;
+
+/**
+ * Describes one file stored in an archive, as recorded in the index of the archive.
+ * The compressed data of the entry is a streamed compressed file of its own, so it can be
+ * decompressed without looking at any other entry.
+ */
+public class ArchiveEntry {
+
+    private final String name;
+    private final int numberOfBytes;
+    private final long originalSize;
+    private final long offset;
+    private final long compressedSize;
+    private final int checksum;
+
+    /**
+     * Constructs an ArchiveEntry.
+     *
+     * @param name           The relative path of the file, with '/' separating directories.
+     * @param numberOfBytes  The number of bytes in each symbol.
+     * @param originalSize   The size of the original file.
+     * @param offset         The offset of the compressed data in the archive.
+     * @param compressedSize The number of bytes of compressed data.
+     * @param checksum       The CRC32C of the original file.
+     */
+    public ArchiveEntry(String name, int numberOfBytes, long originalSize, long offset, long compressedSize,
+                        int checksum) {
+        this.name = name;
+        this.numberOfBytes = numberOfBytes;
+        this.originalSize = originalSize;
+        this.offset = offset;
+        this.compressedSize = compressedSize;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Retrieves the name of the entry.
+     *
+     * @return The relative path of the file, with '/' separating directories.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Retrieves the number of bytes in each symbol.
+     *
+     * @return The number of bytes in each symbol.
+     */
+    public int getNumberOfBytes() {
+        return numberOfBytes;
+    }
+
+    /**
+     * Retrieves the size of the original file.
+     *
+     * @return The size of the original file in bytes.
+     */
+    public long getOriginalSize() {
+        return originalSize;
+    }
+
+    /**
+     * Retrieves where the compressed data starts.
+     *
+     * @return The offset of the compressed data in the archive.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Retrieves the size of the compressed data.
+     *
+     * @return The number of bytes of compressed data.
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * Retrieves the checksum of the original file.
+     *
+     * @return The CRC32C of the original file.
+     */
+    public int getChecksum() {
+        return checksum;
+    }
+}
@@ -0,0 +1,196 @@
+package Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents the central index of an archive of compressed files.
+ * The entries are written one after the other behind a short archive header, and the index is
+ * written last, once the offset and size of every entry are known. A trailer at the very end
+ * points to the index, so a single entry can be found and extracted without reading the others.
+ * The layout is:
+ * <pre>
+ *   magic          4 bytes  "HUFA"
+ *   version        1 byte
+ *   entries        the compressed data of each entry, a streamed compressed file each
+ *   entryCount     4 bytes  number of entries
+ *   index          per entry: the name in modified UTF-8 preceded by its length (2 bytes),
+ *                  numberOfBytes (1 byte), originalSize (8 bytes), offset (8 bytes),
+ *                  compressedSize (8 bytes) and the CRC32C of the original file (4 bytes)
+ *   indexOffset    8 bytes  offset of entryCount
+ *   magic          4 bytes  "HUFA"
+ * </pre>
+ */
+public class ArchiveIndex {
+
+    // "HUFA" in ASCII
+    public static final int MAGIC = 0x48554641;
+
+    public static final int VERSION = 1;
+
+    // Size of the magic and the version at the start of the archive
+    public static final int HEADER_SIZE = 5;
+
+    // Size of the index offset and the magic at the end of the archive
+    private static final int TRAILER_SIZE = 12;
+
+    private final List<ArchiveEntry> entries;
+
+    /**
+     * Constructs an ArchiveIndex.
+     *
+     * @param entries The entries in the order they are stored in the archive.
+     */
+    public ArchiveIndex(List<ArchiveEntry> entries) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    /**
+     * Retrieves the entries.
+     *
+     * @return The entries in the order they are stored in the archive.
+     */
+    public List<ArchiveEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Finds an entry by its name.
+     *
+     * @param name The name of the entry.
+     * @return The entry, or null if the archive has no entry of that name.
+     */
+    public ArchiveEntry find(String name) {
+        for (ArchiveEntry entry : entries) {
+            if (entry.getName().equals(name)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the header at the start of an archive.
+     *
+     * @param out The stream to write the header to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    /**
+     * Writes the index followed by the trailer.
+     *
+     * @param out         The stream to write the index to.
+     * @param indexOffset The offset in the archive the index is written at.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void write(DataOutputStream out, long indexOffset) throws IOException {
+        out.writeInt(entries.size());
+        for (ArchiveEntry entry : entries) {
+            out.writeUTF(entry.getName());
+            out.writeByte(entry.getNumberOfBytes());
+            out.writeLong(entry.getOriginalSize());
+            out.writeLong(entry.getOffset());
+            out.writeLong(entry.getCompressedSize());
+            out.writeInt(entry.getChecksum());
+        }
+        out.writeLong(indexOffset);
+        out.writeInt(MAGIC);
+    }
+
+    /**
+     * Reads the index of an archive.
+     * Only the header, the trailer and the index are read.
+     *
+     * @param channel The channel of the archive.
+     * @return The index.
+     * @throws IOException If an I/O error occurs or the file is not an archive.
+     */
+    public static ArchiveIndex read(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE + 4 + TRAILER_SIZE) {
+            throw new IOException("Not a Huffman archive");
+        }
+        DataInputStream header = readRegion(channel, 0, HEADER_SIZE);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a Huffman archive");
+        }
+        int version = header.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported archive version: " + version);
+        }
+
+        DataInputStream trailer = readRegion(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+        long indexOffset = trailer.readLong();
+        if (trailer.readInt() != MAGIC || indexOffset < HEADER_SIZE || indexOffset > size - TRAILER_SIZE - 4) {
+            throw new IOException("Corrupted archive: invalid trailer");
+        }
+
+        DataInputStream in = readRegion(channel, indexOffset, Math.toIntExact(size - TRAILER_SIZE - indexOffset));
+        int entryCount = in.readInt();
+        if (entryCount < 0) {
+            throw new IOException("Corrupted archive: invalid index");
+        }
+        List<ArchiveEntry> entries = new ArrayList<>();
+        for (int i = 0; i < entryCount; i++) {
+            String name = in.readUTF();
+            int numberOfBytes = in.readUnsignedByte();
+            long originalSize = in.readLong();
+            long offset = in.readLong();
+            long compressedSize = in.readLong();
+            int checksum = in.readInt();
+            if (numberOfBytes == 0 || originalSize < 0 || offset < HEADER_SIZE || compressedSize < 0
+                    || offset + compressedSize > indexOffset) {
+                throw new IOException("Corrupted archive: invalid index entry " + name);
+            }
+            entries.add(new ArchiveEntry(name, numberOfBytes, originalSize, offset, compressedSize, checksum));
+        }
+        return new ArchiveIndex(entries);
+    }
+
+    /**
+     * Reads a region of a channel into memory.
+     *
+     * @param channel  The channel to read from.
+     * @param position The position of the first byte of the region.
+     * @param length   The number of bytes in the region.
+     * @return A stream over the bytes of the region.
+     * @throws IOException If an I/O error occurs or the channel ends before the region.
+     */
+    private static DataInputStream readRegion(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return new DataInputStream(new ByteArrayInputStream(buffer.array()));
+    }
+
+    /**
+     * Serializes the index and the trailer.
+     *
+     * @param indexOffset The offset in the archive the index is written at.
+     * @return The bytes of the index followed by the trailer.
+     */
+    public byte[] toByteArray(long indexOffset) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            write(new DataOutputStream(bytes), indexOffset);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
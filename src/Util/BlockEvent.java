@@ -0,0 +1,41 @@
+package Util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a block that has been encoded or decoded.
+ */
+@Name("huffman.Block")
+@Label("Huffman Block")
+@Category("Huffman")
+@Description("A block of a Huffman compressed file")
+class BlockEvent extends Event {
+
+    @Label("Original Bytes")
+    @DataAmount
+    long originalBytes;
+
+    @Label("Compressed Bytes")
+    @DataAmount
+    long compressedBytes;
+
+    @Label("Stored")
+    boolean stored;
+
+    @Label("Alphabet Size")
+    int alphabetSize;
+
+    @Label("Literal/Length Codes")
+    int literalLengthCodes;
+
+    @Label("Distance Codes")
+    int distanceCodes;
+
+    @Label("Max Code Length")
+    int maxCodeLength;
+}
@@ -0,0 +1,842 @@
+package Util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.Checksum;
+
+/**
+ * Represents the header of one block of a compressed file.
+ * Every block carries its own code table, stored as the code word length of each symbol;
+ * the decoder rebuilds the canonical code words from them.
+ * <p>
+ * The encoded data of a block is followed by its sync points: the bit offset in the encoded
+ * data of every syncInterval-th symbol. Decoding can start at any sync point, so the parts
+ * of a block between sync points can be decoded independently. The layout is:
+ * <pre>
+ *   blockType      1 byte   0 for a Huffman coded block, 1 for a stored block, 2 for a dictionary block,
+ *                           3 for an LZ77 block, plus 4 for an interleaved block, plus 8 for a Huffman coded block with escapes
+ *   symbolCount    8 bytes  number of encoded symbols in the payload
+ *   tableSize      4 bytes  number of distinct symbols
+ *   symbols        the distinct symbols in ascending order, each stored as the number
+ *                  of leading bytes shared with the previous symbol (1 byte) followed
+ *                  by the remaining bytes
+ *   codeLengths    tableSize bytes, the code word length of each symbol in symbol order,
+ *                  followed by the code word length of the escape symbol in a block with escapes
+ *   literalLengths 256 bytes in a block with escapes only, the code word length of each byte value
+ *                  in the escaped symbols, 0 for the values that do not occur
+ *   tailLength     1 byte   number of trailing bytes that do not form a whole symbol
+ *   tail           tailLength bytes, stored as is
+ *   syncInterval   4 bytes  number of symbols between sync points
+ *   payloadLength  8 bytes  number of bytes of encoded data following the header
+ *   payload        payloadLength bytes of encoded data
+ *   syncPoints     8 bytes per sync point, the bit offset of symbol k * syncInterval for k &gt;= 1
+ *   checksum       4 bytes  CRC32C of the original bytes of the block, the decoded symbols followed by the tail
+ * </pre>
+ * Data that Huffman coding would not shrink is written as a stored block instead, which holds
+ * the original bytes as is, without a code table or sync points:
+ * <pre>
+ *   blockType      1 byte   1
+ *   payloadLength  8 bytes  number of stored bytes following the header
+ *   payload        payloadLength bytes of original data
+ *   checksum       4 bytes  CRC32C of the payload
+ * </pre>
+ * The checksum comes last so that it can be calculated while the block is written, and it is
+ * checked whenever a whole block is decoded.
+ * <p>
+ * In an interleaved block, flagged by {@value #INTERLEAVED} added to the type of a Huffman coded or
+ * dictionary block, symbol i is encoded into bit stream i mod {@value #STREAMS}. A decoder advances
+ * all streams in the same loop, so the code words of the streams are resolved independently of
+ * each other instead of one after the other. The payload starts with a jump table, the length of
+ * each stream but the last (4 bytes each), followed by the streams. An interleaved block has no
+ * sync points, it is always decoded from its start.
+ * <p>
+ * The alphabet of a block with escapes, flagged by {@value #ESCAPED} added to the type of a Huffman
+ * coded block, holds only part of its symbols. Every other symbol is encoded as the code word of an
+ * escape symbol, which comes after the symbols in the canonical order, followed by the code words
+ * of its bytes in the literal code table. Literal code words are at most
+ * {@value #MAX_LITERAL_CODE_LENGTH} bits long. An escaped symbol is one symbol of the bit stream,
+ * so sync points and interleaved streams work the same as without escapes.
+ * A block encoded with the code table of a {@link Dictionary} leaves out the symbols and code
+ * lengths, the dictionary named in the file header supplies them. Otherwise it is laid out like
+ * a Huffman coded block:
+ * <pre>
+ *   blockType      1 byte   2
+ *   symbolCount    8 bytes
+ *   tailLength     1 byte
+ *   tail           tailLength bytes
+ *   syncInterval   4 bytes
+ *   payloadLength  8 bytes
+ *   payload        payloadLength bytes of encoded data
+ *   syncPoints     8 bytes per sync point
+ *   checksum       4 bytes
+ * </pre>
+ * The bytes of an LZ77 block are parsed into literals and matches that repeat earlier bytes of the
+ * same block, and these are Huffman coded with the two alphabets of {@link LzAlphabet}. Matches
+ * never reach outside the block, so blocks stay independent of each other. The decoder needs all
+ * earlier bytes of the block to resolve a match, so an LZ77 block has no sync points and is not
+ * interleaved:
+ * <pre>
+ *   blockType       1 byte   3
+ *   symbolCount     8 bytes  number of symbols formed by the bytes of the payload
+ *   codeLengths     {@value LzAlphabet#SYMBOLS} bytes, the code word length of each literal and length code,
+ *                   0 for the unused ones
+ *   distanceLengths {@value LzAlphabet#DISTANCE_CODES} bytes, the code word length of each distance code,
+ *                   0 for the unused ones
+ *   tailLength      1 byte
+ *   tail            tailLength bytes
+ *   payloadLength   8 bytes
+ *   payload         payloadLength bytes of encoded literals and matches
+ *   checksum        4 bytes
+ * </pre>
+ */
+public class BlockHeader {
+
+    private static final int HUFFMAN = 0;
+    private static final int STORED = 1;
+    private static final int DICTIONARY = 2;
+    private static final int LZ77 = 3;
+
+    // Added to the type of a block whose symbols are encoded into interleaved bit streams
+    private static final int INTERLEAVED = 4;
+
+    // Added to the type of a Huffman coded block whose rare symbols are escaped and coded as literal bytes
+    private static final int ESCAPED = 8;
+
+    // Number of byte values of the literal code table of a block with escapes
+    public static final int LITERALS = 256;
+
+    // Longest literal code word, short enough for a decoder to resolve it with a single table lookup
+    public static final int MAX_LITERAL_CODE_LENGTH = 11;
+
+    // Number of bit streams of an interleaved block
+    public static final int STREAMS = 4;
+
+    // Size of the jump table at the start of the payload of an interleaved block
+    public static final int JUMP_TABLE_SIZE = 4 * (STREAMS - 1);
+
+    // Size of the checksum at the end of every block
+    public static final int CHECKSUM_SIZE = 4;
+
+    private final long symbolCount;
+    private final ByteWrapper[] symbols;
+    private final int[] codeLengths;
+    private final byte[] tail;
+    private final int syncInterval;
+    private final long payloadLength;
+    private final int blockType;
+    private final boolean interleaved;
+    private final int[] literalCodeLengths;
+    private final int[] distanceCodeLengths;
+
+    /**
+     * Constructs a BlockHeader.
+     *
+     * @param symbolCount   The number of encoded symbols in the payload.
+     * @param symbols       The distinct symbols in ascending order.
+     * @param codeLengths   The code word length of each symbol.
+     * @param tail          The trailing bytes that do not form a whole symbol.
+     * @param syncInterval  The number of symbols between sync points.
+     * @param payloadLength The number of bytes of encoded data.
+     */
+    public BlockHeader(long symbolCount, ByteWrapper[] symbols, int[] codeLengths, byte[] tail,
+                       int syncInterval, long payloadLength) {
+        this(symbolCount, symbols, codeLengths, tail, syncInterval, payloadLength, HUFFMAN, false, null, null);
+    }
+
+    /**
+     * Constructs a BlockHeader of any type.
+     *
+     * @param symbolCount   The number of encoded symbols in the payload.
+     * @param symbols       The distinct symbols in ascending order.
+     * @param codeLengths   The code word length of each symbol.
+     * @param tail          The trailing bytes that do not form a whole symbol.
+     * @param syncInterval  The number of symbols between sync points.
+     * @param payloadLength The number of bytes of encoded or stored data.
+     * @param blockType     The type of the block.
+     * @param interleaved        Whether the symbols are encoded into interleaved bit streams.
+     * @param literalCodeLengths  The code word length of each byte value of the escaped symbols, or null without escapes.
+     * @param distanceCodeLengths The code word length of each distance code of an LZ77 block, or null for other blocks.
+     */
+    private BlockHeader(long symbolCount, ByteWrapper[] symbols, int[] codeLengths, byte[] tail,
+                        int syncInterval, long payloadLength, int blockType, boolean interleaved,
+                        int[] literalCodeLengths, int[] distanceCodeLengths) {
+        this.symbolCount = symbolCount;
+        this.symbols = symbols;
+        this.codeLengths = codeLengths;
+        this.tail = tail;
+        this.syncInterval = syncInterval;
+        this.payloadLength = payloadLength;
+        this.blockType = blockType;
+        this.interleaved = interleaved;
+        this.literalCodeLengths = literalCodeLengths;
+        this.distanceCodeLengths = distanceCodeLengths;
+    }
+
+    /**
+     * Creates the header of a stored block.
+     *
+     * @param length The number of original bytes stored in the block.
+     * @return A block header without code table whose payload is the original data.
+     */
+    public static BlockHeader stored(long length) {
+        return new BlockHeader(0, new ByteWrapper[0], new int[0], new byte[0], 1, length, STORED, false, null, null);
+    }
+
+    /**
+     * Creates the header of a block encoded with the code table of a dictionary.
+     *
+     * @param symbolCount   The number of encoded symbols in the payload.
+     * @param dictionary    The dictionary whose code table encodes the block.
+     * @param tail          The trailing bytes that do not form a whole symbol.
+     * @param syncInterval  The number of symbols between sync points.
+     * @param payloadLength The number of bytes of encoded data.
+     * @return A block header that refers to the code table of the dictionary.
+     */
+    public static BlockHeader dictionary(long symbolCount, Dictionary dictionary, byte[] tail,
+                                         int syncInterval, long payloadLength) {
+        return new BlockHeader(symbolCount, dictionary.getSymbols(), dictionary.getCodeLengths(), tail,
+                syncInterval, payloadLength, DICTIONARY, false, null, null);
+    }
+
+    /**
+     * Creates the header of a Huffman coded block with escapes.
+     *
+     * @param symbolCount        The number of encoded symbols in the payload, escaped ones included.
+     * @param symbols            The distinct symbols that are not escaped, in ascending order.
+     * @param codeLengths        The code word length of each symbol, followed by the code word length of the escape symbol.
+     * @param literalCodeLengths The code word length of each of the {@value #LITERALS} byte values, 0 for unused values.
+     * @param tail               The trailing bytes that do not form a whole symbol.
+     * @param syncInterval       The number of symbols between sync points.
+     * @param payloadLength      The number of bytes of encoded data.
+     * @return A block header with the escape and literal code tables.
+     */
+    public static BlockHeader escaped(long symbolCount, ByteWrapper[] symbols, int[] codeLengths,
+                                      int[] literalCodeLengths, byte[] tail, int syncInterval, long payloadLength) {
+        if (codeLengths.length != symbols.length + 1 || literalCodeLengths.length != LITERALS) {
+            throw new IllegalArgumentException("A block with escapes needs an escape code and a code length per byte value");
+        }
+        return new BlockHeader(symbolCount, symbols, codeLengths, tail, syncInterval, payloadLength, HUFFMAN, false,
+                literalCodeLengths, null);
+    }
+
+    /**
+     * Creates the header of an LZ77 block.
+     *
+     * @param symbolCount         The number of symbols formed by the bytes of the payload.
+     * @param codeLengths         The code word length of each of the {@value LzAlphabet#SYMBOLS} literal and length codes, 0 for unused codes.
+     * @param distanceCodeLengths The code word length of each of the {@value LzAlphabet#DISTANCE_CODES} distance codes, 0 for unused codes.
+     * @param tail                The trailing bytes that do not form a whole symbol.
+     * @param payloadLength       The number of bytes of encoded data.
+     * @return A block header with the literal and length and the distance code tables.
+     */
+    public static BlockHeader lz77(long symbolCount, int[] codeLengths, int[] distanceCodeLengths, byte[] tail,
+                                   long payloadLength) {
+        if (codeLengths.length != LzAlphabet.SYMBOLS || distanceCodeLengths.length != LzAlphabet.DISTANCE_CODES) {
+            throw new IllegalArgumentException("An LZ77 block needs a code length per literal, length and distance code");
+        }
+        return new BlockHeader(symbolCount, new ByteWrapper[0], codeLengths, tail, 1, payloadLength, LZ77, false,
+                null, distanceCodeLengths);
+    }
+
+    /**
+     * Creates the header of the same block with its symbols encoded into interleaved bit streams.
+     *
+     * @param payloadLength The number of bytes of the jump table and the streams.
+     * @return A Huffman coded or dictionary block header without sync points.
+     */
+    public BlockHeader interleaved(long payloadLength) {
+        if (blockType == STORED || blockType == LZ77) {
+            throw new IllegalStateException("Only Huffman coded and dictionary blocks can be interleaved");
+        }
+        return new BlockHeader(symbolCount, symbols, codeLengths, tail, syncInterval, payloadLength, blockType, true,
+                literalCodeLengths, null);
+    }
+
+    /**
+     * Checks whether the symbols are encoded into {@link #STREAMS} interleaved bit streams.
+     *
+     * @return True if the payload starts with a jump table and holds a bit stream per stream.
+     */
+    public boolean isInterleaved() {
+        return interleaved;
+    }
+
+    /**
+     * Checks whether rare symbols of the block are escaped and coded as literal bytes.
+     *
+     * @return True if the code table ends with the escape symbol and a literal code table follows it.
+     */
+    public boolean hasEscapes() {
+        return literalCodeLengths != null;
+    }
+
+    /**
+     * Retrieves the code word lengths of the literal code table.
+     *
+     * @return The code word length of each byte value, 0 for unused values, or null for a block without escapes.
+     */
+    public int[] getLiteralCodeLengths() {
+        return literalCodeLengths;
+    }
+
+    /**
+     * Checks whether the bytes of the block are parsed into literals and matches.
+     *
+     * @return True for an LZ77 block, whose code tables are those of {@link LzAlphabet}.
+     */
+    public boolean isLz77() {
+        return blockType == LZ77;
+    }
+
+    /**
+     * Retrieves the code word lengths of the distance code table of an LZ77 block.
+     *
+     * @return The code word length of each distance code, 0 for unused codes, or null for other blocks.
+     */
+    public int[] getDistanceCodeLengths() {
+        return distanceCodeLengths;
+    }
+
+    /**
+     * Checks whether sync points follow the encoded data, so that it can be decoded from the middle.
+     *
+     * @return False for interleaved and LZ77 blocks, which are always decoded from their start.
+     */
+    public boolean hasSyncPoints() {
+        return !interleaved && blockType != LZ77;
+    }
+
+    /**
+     * Checks whether the block holds its original bytes as is.
+     *
+     * @return True for a stored block, false for a Huffman coded block.
+     */
+    public boolean isStored() {
+        return blockType == STORED;
+    }
+
+    /**
+     * Checks whether the block is encoded with the code table of a dictionary.
+     *
+     * @return True if the code table is not part of the block header.
+     */
+    public boolean usesDictionary() {
+        return blockType == DICTIONARY;
+    }
+
+    /**
+     * Creates the empty block that marks the end of a streamed file.
+     *
+     * @return A block header without symbols, trailing bytes or encoded data.
+     */
+    public static BlockHeader endOfStream() {
+        // without symbols the sync interval is never used, it only has to be valid
+        return new BlockHeader(0, new ByteWrapper[0], new int[0], new byte[0], 1, 0);
+    }
+
+    /**
+     * Checks whether this is the empty block that marks the end of a streamed file.
+     * Every other block of a streamed file holds at least one byte.
+     *
+     * @return True if the block has neither symbols nor trailing bytes.
+     */
+    public boolean isEndOfStream() {
+        return blockType == HUFFMAN && !interleaved && literalCodeLengths == null && symbolCount == 0 && tail.length == 0;
+    }
+
+    /**
+     * Calculates the number of bytes needed to encode symbols with the given code word lengths.
+     *
+     * @param frequencies The frequency of each symbol.
+     * @param codeWords   The code word of each symbol.
+     * @return The number of bytes of encoded data, including the padding of the last byte.
+     */
+    public static long payloadLength(long[] frequencies, CodeWord[] codeWords) {
+        return (encodedBits(frequencies, codeWords) + 7) / 8;
+    }
+
+    /**
+     * Calculates the number of bytes needed to encode the symbols of a block with escapes.
+     *
+     * @param frequencies        The frequency of each symbol, the escape symbol included.
+     * @param codeWords          The code word of each symbol.
+     * @param literalFrequencies The frequency of each byte value in the escaped symbols.
+     * @param literalCodeWords   The code word of each byte value.
+     * @return The number of bytes of encoded data, including the padding of the last byte.
+     */
+    public static long payloadLength(long[] frequencies, CodeWord[] codeWords, long[] literalFrequencies,
+                                     CodeWord[] literalCodeWords) {
+        return (encodedBits(frequencies, codeWords) + encodedBits(literalFrequencies, literalCodeWords) + 7) / 8;
+    }
+
+    /**
+     * Calculates the number of bytes needed to encode the literals and matches of an LZ77 block.
+     *
+     * @param frequencies         The frequency of each literal and length code.
+     * @param codeWords           The code word of each literal and length code.
+     * @param distanceFrequencies The frequency of each distance code.
+     * @param distanceCodeWords   The code word of each distance code.
+     * @param extraBits           The number of extra bits that follow the length and distance codes.
+     * @return The number of bytes of encoded data, including the padding of the last byte.
+     */
+    public static long payloadLength(long[] frequencies, CodeWord[] codeWords, long[] distanceFrequencies,
+                                     CodeWord[] distanceCodeWords, long extraBits) {
+        return (encodedBits(frequencies, codeWords) + encodedBits(distanceFrequencies, distanceCodeWords) + extraBits + 7) / 8;
+    }
+
+    /**
+     * Calculates the number of bits of the code words of the given symbols.
+     *
+     * @param frequencies The frequency of each symbol.
+     * @param codeWords   The code word of each symbol.
+     * @return The number of bits.
+     */
+    private static long encodedBits(long[] frequencies, CodeWord[] codeWords) {
+        long bits = 0;
+        for (int i = 0; i < frequencies.length; i++) {
+            bits += frequencies[i] * codeWords[i].length;
+        }
+        return bits;
+    }
+
+    /**
+     * Retrieves the number of encoded symbols.
+     *
+     * @return The number of encoded symbols in the payload.
+     */
+    public long getSymbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * Retrieves the distinct symbols.
+     *
+     * @return The distinct symbols in ascending order.
+     */
+    public ByteWrapper[] getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Retrieves the code word lengths.
+     *
+     * @return The code word length of each symbol, in symbol order.
+     */
+    public int[] getCodeLengths() {
+        return codeLengths;
+    }
+
+    /**
+     * Finds the longest code word.
+     *
+     * @return The length of the longest code word in bits, of both code tables of an LZ77 block,
+     * or 0 if the block has no code table.
+     */
+    public int getMaxCodeLength() {
+        int maxCodeLength = 0;
+        for (int codeLength : codeLengths) {
+            maxCodeLength = Math.max(maxCodeLength, codeLength);
+        }
+        if (distanceCodeLengths != null) {
+            for (int codeLength : distanceCodeLengths) {
+                maxCodeLength = Math.max(maxCodeLength, codeLength);
+            }
+        }
+        return maxCodeLength;
+    }
+
+    /**
+     * Retrieves the trailing bytes.
+     *
+     * @return The trailing bytes that do not form a whole symbol.
+     */
+    public byte[] getTail() {
+        return tail;
+    }
+
+    /**
+     * Retrieves the sync interval.
+     *
+     * @return The number of symbols between sync points.
+     */
+    public int getSyncInterval() {
+        return syncInterval;
+    }
+
+    /**
+     * Calculates the number of sync points that follow the encoded data.
+     *
+     * @return The number of sync points.
+     */
+    public int getSyncPointCount() {
+        return symbolCount == 0 || !hasSyncPoints() ? 0 : Math.toIntExact((symbolCount - 1) / syncInterval);
+    }
+
+    /**
+     * Calculates the size of the block header.
+     *
+     * @return The number of bytes the header takes up in the compressed file.
+     */
+    public int size() {
+        if (blockType == STORED) {
+            return 1 + 8;
+        }
+        if (blockType == DICTIONARY) {
+            return 1 + 8 + 1 + tail.length + 4 + 8;
+        }
+        if (blockType == LZ77) {
+            return 1 + 8 + LzAlphabet.SYMBOLS + LzAlphabet.DISTANCE_CODES + 1 + tail.length + 8;
+        }
+        int escapeTableSize = literalCodeLengths == null ? 0 : 1 + LITERALS;
+        return 1 + 8 + 4 + codeTableSize(symbols) + escapeTableSize + 1 + tail.length + 4 + 8;
+    }
+
+    /**
+     * Calculates the size of a code table as written by {@link #writeCodeTable}.
+     *
+     * @param symbols The distinct symbols in ascending order.
+     * @return The number of bytes the front coded symbols and their code word lengths take up.
+     */
+    static int codeTableSize(ByteWrapper[] symbols) {
+        int size = symbols.length;
+        byte[] previous = new byte[0];
+        for (ByteWrapper symbol : symbols) {
+            byte[] bytes = symbol.getBytes();
+            size += 1 + bytes.length - sharedPrefix(previous, bytes);
+            previous = bytes;
+        }
+        return size;
+    }
+
+    /**
+     * Calculates the size of the whole block.
+     *
+     * @return The number of bytes the header, the payload, the sync points and the checksum take up in the compressed file.
+     */
+    public long encodedLength() {
+        return size() + payloadLength + 8L * getSyncPointCount() + CHECKSUM_SIZE;
+    }
+
+    /**
+     * Counts the leading bytes two symbols have in common.
+     *
+     * @param previous The previous symbol.
+     * @param bytes    The current symbol.
+     * @return The number of leading bytes the symbols share.
+     */
+    private static int sharedPrefix(byte[] previous, byte[] bytes) {
+        int shared = 0;
+        while (shared < previous.length && previous[shared] == bytes[shared]) {
+            shared++;
+        }
+        return shared;
+    }
+
+    /**
+     * Retrieves the length of the encoded data.
+     *
+     * @return The number of bytes of encoded or stored data following the header.
+     */
+    public long getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * Writes the block header.
+     *
+     * @param out The stream to write the header to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeByte(blockType + (interleaved ? INTERLEAVED : 0) + (literalCodeLengths != null ? ESCAPED : 0));
+        if (blockType == STORED) {
+            out.writeLong(payloadLength);
+            return;
+        }
+        out.writeLong(symbolCount);
+        if (blockType == LZ77) {
+            writeCodeLengths(out, codeLengths);
+            writeCodeLengths(out, distanceCodeLengths);
+            out.writeByte(tail.length);
+            out.write(tail);
+            out.writeLong(payloadLength);
+            return;
+        }
+        if (blockType == HUFFMAN) {
+            out.writeInt(symbols.length);
+            // the code word length of the escape symbol follows those of the symbols
+            writeCodeTable(out, symbols, codeLengths);
+            if (literalCodeLengths != null) {
+                writeCodeLengths(out, literalCodeLengths);
+            }
+        }
+
+        out.writeByte(tail.length);
+        out.write(tail);
+        out.writeInt(syncInterval);
+        out.writeLong(payloadLength);
+    }
+
+    /**
+     * Writes a code table, the front coded symbols followed by their code word lengths.
+     *
+     * @param out         The stream to write the code table to.
+     * @param symbols     The distinct symbols in ascending order.
+     * @param codeLengths The code word length of each symbol.
+     * @throws IOException If an I/O error occurs.
+     */
+    static void writeCodeTable(DataOutputStream out, ByteWrapper[] symbols, int[] codeLengths) throws IOException {
+        byte[] previous = new byte[0];
+        for (ByteWrapper symbol : symbols) {
+            byte[] bytes = symbol.getBytes();
+            int shared = sharedPrefix(previous, bytes);
+            out.writeByte(shared);
+            out.write(bytes, shared, bytes.length - shared);
+            previous = bytes;
+        }
+
+        writeCodeLengths(out, codeLengths);
+    }
+
+    /**
+     * Writes code word lengths, one byte each.
+     *
+     * @param out         The stream to write the lengths to.
+     * @param codeLengths The code word lengths.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static void writeCodeLengths(DataOutputStream out, int[] codeLengths) throws IOException {
+        for (int codeLength : codeLengths) {
+            out.writeByte(codeLength);
+        }
+    }
+
+    /**
+     * Writes the sync points that follow the encoded data.
+     *
+     * @param out        The stream to write the sync points to.
+     * @param syncPoints The bit offset of each sync point.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeSyncPoints(DataOutputStream out, long[] syncPoints) throws IOException {
+        for (long syncPoint : syncPoints) {
+            out.writeLong(syncPoint);
+        }
+    }
+
+    /**
+     * Reads the sync points that follow the encoded data.
+     *
+     * @param in The stream to read the sync points from, positioned after the encoded data.
+     * @return The bit offset of each sync point.
+     * @throws IOException If an I/O error occurs.
+     */
+    public long[] readSyncPoints(DataInputStream in) throws IOException {
+        long[] syncPoints = new long[getSyncPointCount()];
+        for (int i = 0; i < syncPoints.length; i++) {
+            syncPoints[i] = in.readLong();
+        }
+        return syncPoints;
+    }
+
+    /**
+     * Writes the checksum that ends a block.
+     *
+     * @param out      The stream to write the checksum to.
+     * @param checksum The CRC32C of the original bytes of the block.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeChecksum(DataOutputStream out, Checksum checksum) throws IOException {
+        out.writeInt((int) checksum.getValue());
+    }
+
+    /**
+     * Reads the checksum that ends a block and compares it with the checksum of the decoded bytes.
+     *
+     * @param in       The stream to read the checksum from, positioned after the sync points or the stored bytes.
+     * @param checksum The CRC32C of the bytes the block decoded to.
+     * @param block    The number of the block in the file, for the error message.
+     * @throws IOException If an I/O error occurs or the checksums differ.
+     */
+    public static void verifyChecksum(DataInputStream in, int checksum, long block) throws IOException {
+        verifyChecksum(in.readInt(), checksum, block);
+    }
+
+    /**
+     * Compares the checksum stored in a block with the checksum of the decoded bytes.
+     *
+     * @param expected The checksum stored in the block.
+     * @param actual   The CRC32C of the bytes the block decoded to.
+     * @param block    The number of the block in the file, for the error message.
+     * @throws IOException If the checksums differ.
+     */
+    public static void verifyChecksum(int expected, int actual, long block) throws IOException {
+        if (expected != actual) {
+            throw new IOException(String.format("Corrupted compressed data: checksum mismatch in block %d (expected %08x, found %08x)",
+                    block, expected, actual));
+        }
+    }
+
+    /**
+     * Reads a block header of a file compressed without a dictionary.
+     *
+     * @param in            The stream to read the header from.
+     * @param numberOfBytes The number of bytes in each symbol, taken from the file header.
+     * @return The block header.
+     * @throws IOException If an I/O error occurs or the header is corrupted.
+     */
+    public static BlockHeader read(DataInputStream in, int numberOfBytes) throws IOException {
+        return read(in, numberOfBytes, null);
+    }
+
+    /**
+     * Reads a block header.
+     *
+     * @param in            The stream to read the header from.
+     * @param numberOfBytes The number of bytes in each symbol, taken from the file header.
+     * @param dictionary    The dictionary named in the file header, or null if the file has none.
+     * @return The block header.
+     * @throws IOException If an I/O error occurs or the header is corrupted.
+     */
+    public static BlockHeader read(DataInputStream in, int numberOfBytes, Dictionary dictionary) throws IOException {
+        int type = in.readUnsignedByte();
+        int blockType = type == STORED ? STORED : type & ~(INTERLEAVED | ESCAPED);
+        boolean interleaved = type != STORED && (type & INTERLEAVED) != 0;
+        boolean escaped = type != STORED && (type & ESCAPED) != 0;
+        if (type == STORED) {
+            long length = in.readLong();
+            if (length < 0) {
+                throw new IOException("Corrupted compressed data: invalid block header");
+            }
+            return stored(length);
+        }
+        if (blockType == LZ77 && type == LZ77) {
+            return readLz77(in);
+        }
+        if ((blockType != HUFFMAN && blockType != DICTIONARY) || (escaped && blockType != HUFFMAN)) {
+            throw new IOException("Corrupted compressed data: unknown block type " + type);
+        }
+        if (blockType == DICTIONARY && dictionary == null) {
+            throw new IOException("Corrupted compressed data: dictionary block in a file without dictionary");
+        }
+
+        long symbolCount = in.readLong();
+        if (symbolCount < 0) {
+            throw new IOException("Corrupted compressed data: invalid block header");
+        }
+        ByteWrapper[] symbols;
+        int[] codeLengths;
+        int[] literalCodeLengths = null;
+        if (blockType == DICTIONARY) {
+            symbols = dictionary.getSymbols();
+            codeLengths = dictionary.getCodeLengths();
+        } else {
+            int tableSize = in.readInt();
+            if (tableSize < 0) {
+                throw new IOException("Corrupted compressed data: invalid block header");
+            }
+            symbols = readSymbols(in, numberOfBytes, tableSize);
+            codeLengths = readCodeLengths(in, escaped ? tableSize + 1 : tableSize);
+            if (escaped) {
+                literalCodeLengths = readSparseCodeLengths(in, LITERALS, MAX_LITERAL_CODE_LENGTH);
+            }
+        }
+
+        byte[] tail = new byte[in.readUnsignedByte()];
+        in.readFully(tail);
+        int syncInterval = in.readInt();
+        long payloadLength = in.readLong();
+        if (syncInterval <= 0 || payloadLength < 0 || (interleaved && payloadLength < JUMP_TABLE_SIZE)) {
+            throw new IOException("Corrupted compressed data: invalid block header");
+        }
+
+        return new BlockHeader(symbolCount, symbols, codeLengths, tail, syncInterval, payloadLength, blockType,
+                interleaved, literalCodeLengths, null);
+    }
+
+    /**
+     * Reads the rest of the header of an LZ77 block, after its block type.
+     *
+     * @param in The stream to read the header from.
+     * @return The block header.
+     * @throws IOException If an I/O error occurs or the header is corrupted.
+     */
+    private static BlockHeader readLz77(DataInputStream in) throws IOException {
+        long symbolCount = in.readLong();
+        int[] codeLengths = readSparseCodeLengths(in, LzAlphabet.SYMBOLS, LzAlphabet.MAX_CODE_LENGTH);
+        int[] distanceCodeLengths = readSparseCodeLengths(in, LzAlphabet.DISTANCE_CODES, LzAlphabet.MAX_CODE_LENGTH);
+        byte[] tail = new byte[in.readUnsignedByte()];
+        in.readFully(tail);
+        long payloadLength = in.readLong();
+        if (symbolCount < 0 || payloadLength < 0) {
+            throw new IOException("Corrupted compressed data: invalid block header");
+        }
+        return lz77(symbolCount, codeLengths, distanceCodeLengths, tail, payloadLength);
+    }
+
+    /**
+     * Reads the code word lengths of a code table over a fixed alphabet, in which unused values have length 0.
+     *
+     * @param in        The stream to read the lengths from.
+     * @param count     The number of values of the alphabet.
+     * @param maxLength The longest code word allowed.
+     * @return The code word length of each value, 0 for unused values.
+     * @throws IOException If an I/O error occurs or a length is out of range.
+     */
+    private static int[] readSparseCodeLengths(DataInputStream in, int count, int maxLength) throws IOException {
+        int[] codeLengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            codeLengths[i] = in.readUnsignedByte();
+            if (codeLengths[i] > maxLength) {
+                throw new IOException("Corrupted compressed data: invalid code word length");
+            }
+        }
+        return codeLengths;
+    }
+
+    /**
+     * Reads the front coded symbols of a code table.
+     *
+     * @param in            The stream to read the symbols from.
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param tableSize     The number of symbols.
+     * @return The symbols in ascending order.
+     * @throws IOException If an I/O error occurs or the symbols are corrupted.
+     */
+    static ByteWrapper[] readSymbols(DataInputStream in, int numberOfBytes, int tableSize) throws IOException {
+        ByteWrapper[] symbols = new ByteWrapper[tableSize];
+        byte[] previous = new byte[numberOfBytes];
+        for (int i = 0; i < tableSize; i++) {
+            int shared = in.readUnsignedByte();
+            if (shared >= numberOfBytes) {
+                throw new IOException("Corrupted compressed data: invalid symbol table");
+            }
+            byte[] bytes = new byte[numberOfBytes];
+            System.arraycopy(previous, 0, bytes, 0, shared);
+            in.readFully(bytes, shared, numberOfBytes - shared);
+            symbols[i] = new ByteWrapper(bytes);
+            previous = bytes;
+        }
+        return symbols;
+    }
+
+    /**
+     * Reads the code word lengths of a code table.
+     *
+     * @param in        The stream to read the lengths from.
+     * @param tableSize The number of symbols.
+     * @return The code word length of each symbol.
+     * @throws IOException If an I/O error occurs or a length is out of range.
+     */
+    static int[] readCodeLengths(DataInputStream in, int tableSize) throws IOException {
+        int[] codeLengths = new int[tableSize];
+        for (int i = 0; i < tableSize; i++) {
+            codeLengths[i] = in.readUnsignedByte();
+            if (codeLengths[i] == 0 || codeLengths[i] > CodeWord.MAX_LENGTH) {
+                throw new IOException("Corrupted compressed data: invalid code word length");
+            }
+        }
+        return codeLengths;
+    }
+}
@@ -5,7 +5,7 @@ import java.util.Arrays;
 /**
  * Wrapper class for byte arrays to enable comparison and hashing.
  */
-public class ByteWrapper {
+public class ByteWrapper implements Comparable<ByteWrapper> {
 
     private final byte[] bytes;
 
@@ -51,6 +51,18 @@ public class ByteWrapper {
         return Arrays.hashCode(bytes);
     }
 
+    /**
+     * Compares the byte array with another byte array, treating the bytes as unsigned values.
+     *
+     * @param other The other byte array to compare with.
+     * @return A negative value, zero or a positive value if this byte array sorts before,
+     *         together with or after the other byte array.
+     */
+    @Override
+    public int compareTo(ByteWrapper other) {
+        return Arrays.compareUnsigned(this.bytes, other.bytes);
+    }
+
     /**
      * Retrieves the string representation of the byte array.
      *
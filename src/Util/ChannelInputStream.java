@@ -0,0 +1,76 @@
+package Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream over a region of a file channel.
+ * The stream reads with positional reads only and keeps its own position, so several
+ * streams can read different parts of the same channel concurrently.
+ * Closing the stream leaves the channel open.
+ */
+public class ChannelInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private long position;
+
+    /**
+     * Constructs a ChannelInputStream.
+     *
+     * @param channel  The channel to read from.
+     * @param position The position in the channel of the first byte to read.
+     */
+    public ChannelInputStream(FileChannel channel, long position) {
+        this.channel = channel;
+        this.position = position;
+    }
+
+    /**
+     * Reads the next byte.
+     *
+     * @return The next byte, or -1 at the end of the channel.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    /**
+     * Reads up to the given number of bytes.
+     *
+     * @param b   The buffer to read into.
+     * @param off The offset in the buffer of the first byte.
+     * @param len The maximum number of bytes to read.
+     * @return The number of bytes read, or -1 at the end of the channel.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int bytesRead = channel.read(ByteBuffer.wrap(b, off, len), position);
+        if (bytesRead > 0) {
+            position += bytesRead;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Skips bytes without reading them.
+     *
+     * @param n The number of bytes to skip.
+     * @return The number of bytes skipped.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.max(0, Math.min(n, channel.size() - position));
+        position += skipped;
+        return skipped;
+    }
+}
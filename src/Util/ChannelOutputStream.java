@@ -0,0 +1,184 @@
+package Util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Output stream over a region of a file channel.
+ * The stream writes with positional writes only and keeps its own position, so several
+ * streams can write different parts of the same channel concurrently.
+ * A buffered stream collects the bytes in a direct buffer, which the channel writes
+ * without copying them to a temporary buffer first.
+ */
+public class ChannelOutputStream extends OutputStream {
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private long position;
+
+    // Bytes that have not been written to the channel yet, null if the stream is not buffered
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructs an unbuffered ChannelOutputStream.
+     * Closing the stream leaves the channel open.
+     *
+     * @param channel  The channel to write to.
+     * @param position The position in the channel of the first byte to write.
+     */
+    public ChannelOutputStream(FileChannel channel, long position) {
+        this(channel, position, 0, false);
+    }
+
+    /**
+     * Constructs a ChannelOutputStream buffered in a direct buffer.
+     * Closing the stream flushes the buffer and leaves the channel open.
+     *
+     * @param channel    The channel to write to.
+     * @param position   The position in the channel of the first byte to write.
+     * @param bufferSize The size of the direct buffer in bytes.
+     */
+    public ChannelOutputStream(FileChannel channel, long position, int bufferSize) {
+        this(channel, position, bufferSize, false);
+    }
+
+    /**
+     * Constructs a ChannelOutputStream.
+     *
+     * @param channel     The channel to write to.
+     * @param position    The position in the channel of the first byte to write.
+     * @param bufferSize  The size of the direct buffer in bytes, or 0 to write through.
+     * @param ownsChannel Whether closing the stream closes the channel.
+     */
+    private ChannelOutputStream(FileChannel channel, long position, int bufferSize, boolean ownsChannel) {
+        this.channel = channel;
+        this.position = position;
+        this.buffer = bufferSize > 0 ? ByteBuffer.allocateDirect(bufferSize) : null;
+        this.ownsChannel = ownsChannel;
+    }
+
+    /**
+     * Creates or truncates a file and opens it for writing.
+     *
+     * @param path       The path to the file.
+     * @param bufferSize The size of the direct buffer in bytes.
+     * @return A buffered stream over the file that closes the file when it is closed.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static ChannelOutputStream open(Path path, int bufferSize) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new ChannelOutputStream(channel, 0, bufferSize, true);
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param b The byte to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        if (buffer == null) {
+            writeFully(ByteBuffer.wrap(new byte[]{(byte) b}));
+            return;
+        }
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) b);
+    }
+
+    /**
+     * Writes the given bytes.
+     *
+     * @param b   The buffer holding the bytes.
+     * @param off The offset in the buffer of the first byte.
+     * @param len The number of bytes to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (buffer == null) {
+            writeFully(ByteBuffer.wrap(b, off, len));
+            return;
+        }
+        while (len > 0) {
+            int length = Math.min(len, buffer.remaining());
+            buffer.put(b, off, length);
+            off += length;
+            len -= length;
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (buffer != null && buffer.position() > 0) {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Copies a region of another channel to the current position with channel transfers,
+     * so the operating system can copy the bytes without passing them through the Java heap.
+     * The buffered bytes are written first. The position of this stream's channel is moved,
+     * which positional writes of other streams do not depend on.
+     *
+     * @param source         The channel to copy from.
+     * @param sourcePosition The position in the source channel of the first byte to copy.
+     * @param count          The number of bytes to copy.
+     * @throws IOException If an I/O error occurs or the source channel ends before count bytes.
+     */
+    public void transferFrom(FileChannel source, long sourcePosition, long count) throws IOException {
+        flush();
+        channel.position(position);
+        while (count > 0) {
+            long transferred = source.transferTo(sourcePosition, count, channel);
+            if (transferred == 0 && sourcePosition >= source.size()) {
+                throw new IOException("Unexpected end of file");
+            }
+            sourcePosition += transferred;
+            position += transferred;
+            count -= transferred;
+        }
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer at the current position.
+     *
+     * @param source The bytes to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+    }
+
+    /**
+     * Flushes the stream and closes the channel if the stream opened it.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
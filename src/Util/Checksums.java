@@ -0,0 +1,119 @@
+package Util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * Helpers for the CRC32C checksums that every block of a compressed file carries.
+ * The checksum of a block covers its original bytes, so decoding a block and checking its
+ * checksum proves that the bytes are the ones that were compressed.
+ */
+public final class Checksums {
+
+    // The CRC32C (Castagnoli) polynomial in reversed bit order
+    private static final int POLYNOMIAL = 0x82F63B78;
+
+    // Largest region of a file that is mapped at once
+    private static final long MAPPING_SIZE = 1L << 26;
+
+    /**
+     * Prevents instantiation.
+     */
+    private Checksums() {
+    }
+
+    /**
+     * Calculates the checksum of a region of a file without copying it to the heap.
+     *
+     * @param channel  The channel of the file.
+     * @param position The position of the first byte of the region.
+     * @param length   The number of bytes in the region.
+     * @return The CRC32C of the region.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static int of(FileChannel channel, long position, long length) throws IOException {
+        CRC32C checksum = new CRC32C();
+        for (long offset = 0; offset < length; offset += MAPPING_SIZE) {
+            long size = Math.min(MAPPING_SIZE, length - offset);
+            checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position + offset, size));
+        }
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Calculates the checksum of two pieces of data from the checksums of the pieces, so that the
+     * parts of a block decoded concurrently can be checked without reading them again.
+     *
+     * @param first        The CRC32C of the first piece.
+     * @param second       The CRC32C of the second piece.
+     * @param secondLength The number of bytes in the second piece.
+     * @return The CRC32C of the first piece followed by the second.
+     */
+    public static int combine(int first, int second, long secondLength) {
+        if (secondLength <= 0) {
+            return first;
+        }
+
+        // the operator that appends one zero bit to the data, then squared to append more zero bits at once
+        int[] odd = new int[32];
+        int[] even = new int[32];
+        odd[0] = POLYNOMIAL;
+        for (int n = 1, row = 1; n < 32; n++, row <<= 1) {
+            odd[n] = row;
+        }
+        square(even, odd);
+        square(odd, even);
+
+        // appending the zero bytes of the second piece to the first piece, one bit of the length at a time
+        int crc = first;
+        while (true) {
+            square(even, odd);
+            if ((secondLength & 1) != 0) {
+                crc = times(even, crc);
+            }
+            secondLength >>>= 1;
+            if (secondLength == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((secondLength & 1) != 0) {
+                crc = times(odd, crc);
+            }
+            secondLength >>>= 1;
+            if (secondLength == 0) {
+                break;
+            }
+        }
+        return crc ^ second;
+    }
+
+    /**
+     * Multiplies a vector by a matrix over GF(2).
+     *
+     * @param matrix The matrix, one column per bit of the vector.
+     * @param vector The vector.
+     * @return The product.
+     */
+    private static int times(int[] matrix, int vector) {
+        int sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Squares a matrix over GF(2).
+     *
+     * @param square The matrix the square is stored in.
+     * @param matrix The matrix to square.
+     */
+    private static void square(int[] square, int[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+}
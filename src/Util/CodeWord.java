@@ -0,0 +1,40 @@
+package Util;
+
+/**
+ * A Huffman code word stored as its bits and their count.
+ * The bits are right aligned, so the first bit of the code word is bit {@code length - 1}.
+ */
+public class CodeWord {
+
+    // Longest code word, it still fits in a 64-bit accumulator that holds up to 7 pending bits
+    public static final int MAX_LENGTH = 57;
+
+    public final long bits;
+    public final int length;
+
+    /**
+     * Constructor to initialize the code word.
+     *
+     * @param bits   The bits of the code word, right aligned.
+     * @param length The number of bits in the code word.
+     */
+    public CodeWord(long bits, int length) {
+        this.bits = bits;
+        this.length = length;
+    }
+
+    /**
+     * Retrieves the code word as a string of '0' and '1' characters.
+     *
+     * @return The binary string representation of the code word.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = length - 1; i >= 0; i--) {
+            sb.append((bits >>> i) & 1);
+        }
+        return sb.toString();
+    }
+
+}
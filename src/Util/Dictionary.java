@@ -0,0 +1,193 @@
+package Util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * A code table trained in advance on samples of similar files.
+ * Blocks encoded with a dictionary refer to it by its id instead of carrying their own code table,
+ * which saves the table in every file when many small files of the same kind are compressed.
+ * The id is derived from the contents of the table, so the same table always has the same id and
+ * a file can only be decompressed with the dictionary it was compressed with. The layout of a
+ * dictionary file is:
+ * <pre>
+ *   magic          4 bytes  "HUFD"
+ *   version        1 byte
+ *   numberOfBytes  1 byte   number of bytes in each symbol
+ *   tableSize      4 bytes  number of distinct symbols
+ *   symbols        the distinct symbols in ascending order, front coded as in a {@link BlockHeader}
+ *   codeLengths    tableSize bytes, the code word length of each symbol in symbol order
+ * </pre>
+ */
+public class Dictionary {
+
+    // "HUFD" in ASCII
+    public static final int MAGIC = 0x48554644;
+
+    public static final int VERSION = 1;
+
+    // Id of the dictionary of files compressed without one
+    public static final long NONE = 0;
+
+    private final int numberOfBytes;
+    private final ByteWrapper[] symbols;
+    private final int[] codeLengths;
+    private final CodeWord[] codeWords;
+    private final long id;
+
+    /**
+     * Constructs a Dictionary.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param symbols       The distinct symbols in ascending order.
+     * @param codeLengths   The code word length of each symbol.
+     */
+    public Dictionary(int numberOfBytes, ByteWrapper[] symbols, int[] codeLengths) {
+        this.numberOfBytes = numberOfBytes;
+        this.symbols = symbols;
+        this.codeLengths = codeLengths;
+        this.codeWords = HuffmanTree.assignCanonicalCodes(codeLengths);
+        this.id = computeId();
+    }
+
+    /**
+     * Derives the id of the dictionary from the first eight bytes of the SHA-256 hash of its code table.
+     *
+     * @return The id, never {@link #NONE}.
+     */
+    private long computeId() {
+        try {
+            ByteArrayOutputStream table = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(table);
+            out.writeByte(numberOfBytes);
+            out.writeInt(symbols.length);
+            BlockHeader.writeCodeTable(out, symbols, codeLengths);
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(table.toByteArray());
+            long id = 0;
+            for (int i = 0; i < 8; i++) {
+                id = (id << 8) | (hash[i] & 0xFF);
+            }
+            // 0 marks files without a dictionary
+            return id == NONE ? 1 : id;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Retrieves the id that compressed files refer to the dictionary by.
+     *
+     * @return The id of the dictionary.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Formats an id as shown to users.
+     *
+     * @param id The id of a dictionary.
+     * @return The id as 16 hexadecimal digits.
+     */
+    public static String formatId(long id) {
+        return String.format("%016x", id);
+    }
+
+    /**
+     * Retrieves the number of bytes in each symbol.
+     *
+     * @return The number of bytes in each symbol.
+     */
+    public int getNumberOfBytes() {
+        return numberOfBytes;
+    }
+
+    /**
+     * Retrieves the symbols of the code table.
+     *
+     * @return The distinct symbols in ascending order.
+     */
+    public ByteWrapper[] getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Retrieves the code word lengths.
+     *
+     * @return The code word length of each symbol, in symbol order.
+     */
+    public int[] getCodeLengths() {
+        return codeLengths;
+    }
+
+    /**
+     * Retrieves the canonical code words.
+     *
+     * @return The code word of each symbol, in symbol order.
+     */
+    public CodeWord[] getCodeWords() {
+        return codeWords;
+    }
+
+    /**
+     * Finds a symbol in the code table.
+     *
+     * @param symbol The symbol.
+     * @return The index of the symbol, or a negative value if the dictionary has no code word for it.
+     */
+    public int indexOf(ByteWrapper symbol) {
+        return Arrays.binarySearch(symbols, symbol);
+    }
+
+    /**
+     * Writes the dictionary to a file.
+     *
+     * @param path The path of the dictionary file.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(numberOfBytes);
+            out.writeInt(symbols.length);
+            BlockHeader.writeCodeTable(out, symbols, codeLengths);
+        }
+    }
+
+    /**
+     * Reads a dictionary from a file.
+     *
+     * @param path The path of the dictionary file.
+     * @return The dictionary.
+     * @throws IOException If an I/O error occurs or the file is not a dictionary.
+     */
+    public static Dictionary read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a Huffman dictionary: " + path);
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported dictionary version: " + version);
+            }
+            int numberOfBytes = in.readUnsignedByte();
+            int tableSize = in.readInt();
+            if (numberOfBytes == 0 || tableSize <= 0) {
+                throw new IOException("Corrupted dictionary: invalid code table");
+            }
+            ByteWrapper[] symbols = BlockHeader.readSymbols(in, numberOfBytes, tableSize);
+            int[] codeLengths = BlockHeader.readCodeLengths(in, tableSize);
+            return new Dictionary(numberOfBytes, symbols, codeLengths);
+        }
+    }
+}
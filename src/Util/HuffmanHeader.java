@@ -0,0 +1,226 @@
+package Util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Represents the binary header of a compressed file.
+ * The file is a sequence of independently encoded blocks, each starting with its own
+ * {@link BlockHeader}. The file header records where each block starts, so the blocks
+ * can be located without decoding the ones before them. The layout is:
+ * <pre>
+ *   magic          4 bytes  "HUFC"
+ *   version        1 byte
+ *   numberOfBytes  1 byte   number of bytes in each symbol
+ *   dictionaryId   8 bytes  id of the {@link Dictionary} the blocks may be encoded with, 0 for none
+ *   originalSize   8 bytes  size of the original file
+ *   blockSize      8 bytes  number of original bytes in each block but the last
+ *   blockCount     4 bytes  number of blocks
+ *   blockOffsets   8 bytes per block, the offset of each block in the compressed file
+ * </pre>
+ * A streamed file is written before its size is known, so it has no block offsets.
+ * Its original size and block count are stored as -1, and its blocks are followed by an
+ * empty block without symbols or trailing bytes that marks the end of the stream.
+ */
+public class HuffmanHeader {
+
+    // "HUFC" in ASCII
+    public static final int MAGIC = 0x48554643;
+
+    public static final int VERSION = 7;
+
+    // Original size and block count of a streamed file
+    private static final int UNKNOWN = -1;
+
+    private final int numberOfBytes;
+    private final long dictionaryId;
+    private final long originalSize;
+    private final long blockSize;
+    private final long[] blockOffsets;
+
+    /**
+     * Constructs a HuffmanHeader.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param originalSize  The size of the original file.
+     * @param blockSize     The number of original bytes in each block but the last.
+     * @param blockOffsets  The offset of each block in the compressed file.
+     */
+    public HuffmanHeader(int numberOfBytes, long originalSize, long blockSize, long[] blockOffsets) {
+        this(numberOfBytes, Dictionary.NONE, originalSize, blockSize, blockOffsets);
+    }
+
+    /**
+     * Constructs the HuffmanHeader of a file compressed with a dictionary.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param dictionaryId  The id of the dictionary, or {@link Dictionary#NONE}.
+     * @param originalSize  The size of the original file.
+     * @param blockSize     The number of original bytes in each block but the last.
+     * @param blockOffsets  The offset of each block in the compressed file.
+     */
+    public HuffmanHeader(int numberOfBytes, long dictionaryId, long originalSize, long blockSize, long[] blockOffsets) {
+        this.numberOfBytes = numberOfBytes;
+        this.dictionaryId = dictionaryId;
+        this.originalSize = originalSize;
+        this.blockSize = blockSize;
+        this.blockOffsets = blockOffsets;
+    }
+
+    /**
+     * Creates the header of a streamed file.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param blockSize     The maximum number of original bytes in each block.
+     * @return The header.
+     */
+    public static HuffmanHeader streamed(int numberOfBytes, long blockSize) {
+        return streamed(numberOfBytes, Dictionary.NONE, blockSize);
+    }
+
+    /**
+     * Creates the header of a streamed file compressed with a dictionary.
+     *
+     * @param numberOfBytes The number of bytes in each symbol.
+     * @param dictionaryId  The id of the dictionary, or {@link Dictionary#NONE}.
+     * @param blockSize     The maximum number of original bytes in each block.
+     * @return The header.
+     */
+    public static HuffmanHeader streamed(int numberOfBytes, long dictionaryId, long blockSize) {
+        return new HuffmanHeader(numberOfBytes, dictionaryId, UNKNOWN, blockSize, null);
+    }
+
+    /**
+     * Checks whether the header belongs to a streamed file.
+     *
+     * @return True if the original size and the block offsets are unknown.
+     */
+    public boolean isStreamed() {
+        return blockOffsets == null;
+    }
+
+    /**
+     * Retrieves the number of bytes in each symbol.
+     *
+     * @return The number of bytes in each symbol.
+     */
+    public int getNumberOfBytes() {
+        return numberOfBytes;
+    }
+
+    /**
+     * Retrieves the id of the dictionary the blocks may be encoded with.
+     *
+     * @return The id of the dictionary, or {@link Dictionary#NONE} if the file was compressed without one.
+     */
+    public long getDictionaryId() {
+        return dictionaryId;
+    }
+
+    /**
+     * Checks whether the file was compressed with a dictionary.
+     *
+     * @return True if the blocks may refer to the code table of a dictionary.
+     */
+    public boolean usesDictionary() {
+        return dictionaryId != Dictionary.NONE;
+    }
+
+    /**
+     * Retrieves the size of the original file.
+     *
+     * @return The size of the original file in bytes, or -1 for a streamed file.
+     */
+    public long getOriginalSize() {
+        return originalSize;
+    }
+
+    /**
+     * Retrieves the block size.
+     *
+     * @return The number of original bytes in each block but the last.
+     */
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Retrieves the block offsets.
+     *
+     * @return The offset of each block in the compressed file, or null for a streamed file.
+     */
+    public long[] getBlockOffsets() {
+        return blockOffsets;
+    }
+
+    /**
+     * Calculates the size of the header.
+     *
+     * @return The number of bytes the header takes up in the compressed file.
+     */
+    public int size() {
+        return isStreamed() ? 34 : 34 + 8 * blockOffsets.length;
+    }
+
+    /**
+     * Writes the header.
+     *
+     * @param out The stream to write the header to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(numberOfBytes);
+        out.writeLong(dictionaryId);
+        out.writeLong(originalSize);
+        out.writeLong(blockSize);
+        if (isStreamed()) {
+            out.writeInt(UNKNOWN);
+            return;
+        }
+        out.writeInt(blockOffsets.length);
+        for (long blockOffset : blockOffsets) {
+            out.writeLong(blockOffset);
+        }
+    }
+
+    /**
+     * Reads a header.
+     *
+     * @param in The stream to read the header from.
+     * @return The header.
+     * @throws IOException If an I/O error occurs or the stream is not a compressed file.
+     */
+    public static HuffmanHeader read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a Huffman compressed file");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported compressed file version: " + version);
+        }
+        int numberOfBytes = in.readUnsignedByte();
+        if (numberOfBytes == 0) {
+            throw new IOException("Corrupted compressed data: invalid number of bytes");
+        }
+        long dictionaryId = in.readLong();
+        long originalSize = in.readLong();
+        long blockSize = in.readLong();
+        int blockCount = in.readInt();
+        if (originalSize == UNKNOWN && blockCount == UNKNOWN && blockSize > 0) {
+            return streamed(numberOfBytes, dictionaryId, blockSize);
+        }
+        if (originalSize < 0 || blockSize < 0 || blockCount < 0) {
+            throw new IOException("Corrupted compressed data: invalid file header");
+        }
+
+        long[] blockOffsets = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blockOffsets[i] = in.readLong();
+        }
+
+        return new HuffmanHeader(numberOfBytes, dictionaryId, originalSize, blockSize, blockOffsets);
+    }
+}
@@ -1,87 +1,320 @@
 package Util;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 
 /**
  * Represents a Huffman tree used for encoding and decoding data.
+ * The tree is built in place on primitive arrays: the frequencies are sorted once, merged with
+ * the linear two-queue method, and the code word lengths are read off the tree without recursion
+ * (Moffat and Katajainen, "In-place calculation of minimum-redundancy codes"). No object is
+ * allocated per node, so alphabets of millions of symbols take little time and memory.
+ * <p>
+ * The code word lengths taken from the tree are limited to a maximum length. When the tree is
+ * deeper than that, the longest code words are cut to the limit and the other lengths are
+ * rebalanced until they form a prefix code again, which costs a little compression.
  */
 public class HuffmanTree {
 
-    private final Map<ByteWrapper, Integer> frequencyTable;
-    private final Map<ByteWrapper, String> codeWords;
-    private HuffmanNode root;
+    private final long[] frequencies;
+    private final int maxLength;
+
+    // The symbols in ascending order of frequency, and the code word length of each symbol in symbol order
+    private int[] order;
+    private int[] codeLengths;
+
+    // Total length of the encoded data with the unlimited and with the limited code word lengths
+    private long optimalBits;
+    private long encodedBits;
+
+    /**
+     * Constructor to initialize the Huffman tree with the symbol frequencies.
+     * The code word lengths are limited to {@value CodeWord#MAX_LENGTH} bits.
+     *
+     * @param frequencies The frequency of each symbol of the data to be encoded, in symbol order.
+     */
+    public HuffmanTree(long[] frequencies) {
+        this(frequencies, CodeWord.MAX_LENGTH);
+    }
 
     /**
-     * Constructor to initialize the Huffman tree with a frequency table.
+     * Constructor to initialize the Huffman tree with the symbol frequencies and the maximum code word length.
      *
-     * @param frequencyTable The frequency table of the data to be encoded.
+     * @param frequencies The frequency of each symbol of the data to be encoded, in symbol order.
+     * @param maxLength   The maximum code word length, raised if there are too many symbols for it.
      */
-    public HuffmanTree(Map<ByteWrapper, Integer> frequencyTable) {
-        this.frequencyTable = frequencyTable;
-        codeWords = new HashMap<>();
+    public HuffmanTree(long[] frequencies, int maxLength) {
+        if (maxLength < 1 || maxLength > CodeWord.MAX_LENGTH) {
+            throw new IllegalArgumentException("Maximum code word length must be between 1 and " + CodeWord.MAX_LENGTH);
+        }
+        this.frequencies = frequencies;
+        this.maxLength = maxLength;
     }
 
     /**
      * Builds the Huffman tree using the frequency table.
+     * Only the depth of each leaf is kept, which is the code word length of its symbol.
      */
     public void buildTree() {
+        int n = frequencies.length;
+        order = new int[n];
+        codeLengths = new int[n];
+        if (n == 0) {
+            return;
+        }
+        if (n == 1) {
+            codeLengths[0] = 1;
+            return;
+        }
 
-        // create a priority queue to store the nodes of the Huffman tree
-        PriorityQueue<HuffmanNode> priorityQueue = new PriorityQueue<>();
+        long[] tree = sortByFrequency();
+
+        // merge the two smallest of the next leaf and the next internal node into internal node t;
+        // the weight of an internal node is replaced by the index of its parent once it is merged
+        int leaf = 0;
+        int node = 0;
+        for (int t = 0; t < n - 1; t++) {
+            for (int child = 0; child < 2; child++) {
+                long weight;
+                if (leaf >= n || (node < t && tree[node] < tree[leaf])) {
+                    weight = tree[node];
+                    tree[node++] = t;
+                } else {
+                    weight = tree[leaf++];
+                }
+                tree[t] = child == 0 ? weight : tree[t] + weight;
+            }
+        }
 
-        // populate the priority queue with the nodes of the Huffman tree
-        for (Map.Entry<ByteWrapper, Integer> entry : frequencyTable.entrySet()) {
-            HuffmanNode huffmanNode = new HuffmanNode(entry.getKey(), entry.getValue());
-            priorityQueue.add(huffmanNode);
+        // the root is the last internal node, every other internal node is one deeper than its parent
+        tree[n - 2] = 0;
+        for (int t = n - 3; t >= 0; t--) {
+            tree[t] = tree[(int) tree[t]] + 1;
         }
 
-        // build the Huffman tree
-        while (priorityQueue.size() > 1) {
+        // hand out the leaves level by level, the most frequent symbols get the shallowest leaves
+        int available = 1;
+        int depth = 0;
+        int internal = n - 2;
+        int next = n - 1;
+        while (available > 0) {
+            int used = 0;
+            while (internal >= 0 && tree[internal] == depth) {
+                used++;
+                internal--;
+            }
+            while (available > used) {
+                codeLengths[order[next--]] = depth;
+                available--;
+            }
+            available = 2 * used;
+            depth++;
+        }
+    }
+
+    /**
+     * Sorts the symbols in ascending order of frequency into the order array.
+     * When the frequencies leave enough bits free, each frequency is packed together with its
+     * symbol into a long and the longs are sorted directly; otherwise the symbols are merge sorted.
+     *
+     * @return The frequencies in ascending order.
+     */
+    private long[] sortByFrequency() {
+        int n = frequencies.length;
+        int symbolBits = 32 - Integer.numberOfLeadingZeros(n - 1);
+        long maxFrequency = 0;
+        for (long frequency : frequencies) {
+            maxFrequency = Math.max(maxFrequency, frequency);
+        }
 
-            // pick the two nodes with the lowest frequency
-            HuffmanNode leftChild = priorityQueue.poll();
-            HuffmanNode rightChild = priorityQueue.poll();
+        long[] sorted = new long[n];
+        if (maxFrequency < 1L << (63 - symbolBits)) {
+            for (int i = 0; i < n; i++) {
+                sorted[i] = frequencies[i] << symbolBits | i;
+            }
+            Arrays.sort(sorted);
+            long mask = (1L << symbolBits) - 1;
+            for (int i = 0; i < n; i++) {
+                order[i] = (int) (sorted[i] & mask);
+                sorted[i] >>>= symbolBits;
+            }
+            return sorted;
+        }
 
-            // create a parent node for the two nodes
-            HuffmanNode parent = new HuffmanNode(leftChild, rightChild);
-            priorityQueue.add(parent);
+        // bottom-up merge sort, alternating between the order array and a buffer
+        int[] source = order;
+        int[] target = new int[n];
+        Arrays.setAll(source, i -> i);
+        for (int width = 1; width < n; width *= 2) {
+            for (int low = 0; low < n; low += 2 * width) {
+                int middle = Math.min(low + width, n);
+                int high = Math.min(low + 2 * width, n);
+                int left = low;
+                int right = middle;
+                for (int i = low; i < high; i++) {
+                    if (right >= high || (left < middle && frequencies[source[left]] <= frequencies[source[right]])) {
+                        target[i] = source[left++];
+                    } else {
+                        target[i] = source[right++];
+                    }
+                }
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        order = source;
+        for (int i = 0; i < n; i++) {
+            sorted[i] = frequencies[order[i]];
         }
+        return sorted;
+    }
 
-        // get the root of the Huffman tree
-        this.root = priorityQueue.poll();
+    /**
+     * Builds the canonical code words for each symbol in the Huffman tree.
+     * Only the code word lengths are taken from the tree; the code words themselves are assigned
+     * in canonical order, so the decoder can rebuild them from the lengths alone.
+     *
+     * @return The code word of each symbol, in symbol order.
+     */
+    public CodeWord[] buildCodeWords() {
+        int[] codeLengths = this.codeLengths.clone();
+
+        optimalBits = encodedBits(codeLengths);
+        limitCodeLengths(codeLengths);
+        encodedBits = encodedBits(codeLengths);
+        return assignCanonicalCodes(codeLengths);
     }
 
     /**
-     * Traverses the Huffman tree to build the code words for each byte.
+     * Limits the code word lengths to the maximum length.
+     * The number of code words of each length is adjusted until the lengths satisfy the Kraft
+     * inequality again, then the lengths are handed out shortest first to the symbols in
+     * descending order of frequency.
      *
-     * @param node     The current node in the traversal.
-     * @param codeWord The code word for the current node.
+     * @param codeLengths The code word length of each symbol, replaced by the limited lengths.
      */
-    private void traverseTree(HuffmanNode node, String codeWord) {
-        // if we reach a leaf node, add the code word to the map
-        if (node.isLeaf()) {
-            codeWords.put(node.data, codeWord);
-        } else {
-            // add a 0 to the code word if we go left and a 1 if we go right
-            traverseTree(node.leftChild, codeWord + "0");
-            traverseTree(node.rightChild, codeWord + "1");
+    private void limitCodeLengths(int[] codeLengths) {
+        // no prefix code with more than 2^limit code words fits in limit bits
+        int limit = maxLength;
+        while ((1L << limit) < codeLengths.length) {
+            limit++;
+        }
+
+        long[] lengthCount = new long[limit + 1];
+        boolean tooLong = false;
+        for (int length : codeLengths) {
+            tooLong |= length > limit;
+            lengthCount[Math.min(length, limit)]++;
+        }
+        if (!tooLong) {
+            return;
+        }
+
+        // a code word of length l takes up 2^(limit - l) of the 2^limit available code space
+        long capacity = 1L << limit;
+        long used = 0;
+        for (int length = 1; length <= limit; length++) {
+            used += lengthCount[length] << (limit - length);
+        }
+
+        // cutting the long code words overfills the code space, lengthen the longest code words
+        // below the limit one at a time until it fits
+        while (used > capacity) {
+            int length = limit - 1;
+            while (lengthCount[length] == 0) {
+                length--;
+            }
+            lengthCount[length]--;
+            lengthCount[length + 1]++;
+            used -= 1L << (limit - length - 1);
+        }
+
+        // hand any code space that is left back to the shortest code words that fit in it
+        for (int length = 2; length <= limit; length++) {
+            long gain = 1L << (limit - length);
+            while (lengthCount[length] > 0 && used + gain <= capacity) {
+                lengthCount[length]--;
+                lengthCount[length - 1]++;
+                used += gain;
+            }
+        }
+
+        // the most frequent symbols get the shortest code words
+        int next = codeLengths.length - 1;
+        for (int length = 1; length <= limit; length++) {
+            for (long i = 0; i < lengthCount[length]; i++) {
+                codeLengths[order[next--]] = length;
+            }
         }
     }
 
     /**
-     * Builds the code words for each byte in the Huffman tree.
+     * Calculates the total length of the encoded data.
      *
-     * @return The map of code words for each byte.
+     * @param codeLengths The code word length of each symbol.
+     * @return The number of bits needed to encode every symbol occurrence.
      */
-    public Map<ByteWrapper, String> buildCodeWords() {
-        if(root.isLeaf()) {
-            codeWords.put(root.data, "0");
-            return codeWords;
+    private long encodedBits(int[] codeLengths) {
+        long bits = 0;
+        for (int i = 0; i < codeLengths.length; i++) {
+            bits += frequencies[i] * codeLengths[i];
+        }
+        return bits;
+    }
+
+    /**
+     * Retrieves the length of the encoded data with the code words that were not limited.
+     *
+     * @return The number of bits of an optimal Huffman code.
+     */
+    public long getOptimalBits() {
+        return optimalBits;
+    }
+
+    /**
+     * Retrieves the length of the encoded data with the limited code words.
+     *
+     * @return The number of bits of the code built by {@link #buildCodeWords()}.
+     */
+    public long getEncodedBits() {
+        return encodedBits;
+    }
+
+    /**
+     * Assigns canonical code words from code word lengths.
+     * Shorter code words come first, and code words of the same length are numbered
+     * consecutively in symbol order.
+     *
+     * @param codeLengths The code word length of each symbol, in symbol order.
+     * @return The code word of each symbol, in symbol order.
+     */
+    public static CodeWord[] assignCanonicalCodes(int[] codeLengths) {
+        int maxLength = 0;
+        for (int length : codeLengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+
+        // count the code words of each length
+        int[] lengthCount = new int[maxLength + 1];
+        for (int length : codeLengths) {
+            lengthCount[length]++;
+        }
+        lengthCount[0] = 0;
+
+        // find the first code word of each length
+        long[] nextCode = new long[maxLength + 1];
+        long code = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code + lengthCount[length - 1]) << 1;
+            nextCode[length] = code;
+        }
+
+        CodeWord[] canonicalCodeWords = new CodeWord[codeLengths.length];
+        for (int i = 0; i < codeLengths.length; i++) {
+            int length = codeLengths[i];
+            canonicalCodeWords[i] = new CodeWord(nextCode[length]++, length);
         }
-        traverseTree(root, "");
-        return codeWords;
+        return canonicalCodeWords;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package Util;
+
+/**
+ * The way files are read and written.
+ */
+public enum IoMode {
+
+    /**
+     * Files are read and written through buffered streams.
+     */
+    STREAM,
+
+    /**
+     * Input files are mapped into memory a window at a time, and output is collected in a direct
+     * buffer that is written to the file channel when it fills up.
+     */
+    MAPPED;
+
+    /**
+     * Parses the name of an I/O mode.
+     *
+     * @param name The name of the mode, "stream" or "mapped".
+     * @return The I/O mode.
+     */
+    public static IoMode parse(String name) {
+        return switch (name) {
+            case "stream" -> STREAM;
+            case "mapped" -> MAPPED;
+            default -> throw new IllegalArgumentException("Unknown I/O mode: " + name);
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package Util;
+
+/**
+ * The alphabets an LZ77 block is Huffman coded with.
+ * The bytes of the block are parsed into literals and matches, where a match repeats a number of
+ * bytes found a distance back in the same block. Literals and match lengths share one alphabet:
+ * symbols 0 to 255 are the literal byte values and the symbols after them are length codes.
+ * Match distances have an alphabet of their own. A length or distance code stands for a range of
+ * values, the offset within the range follows the code word as that many extra bits, most
+ * significant bit first like the code words.
+ * <p>
+ * The length codes are those of DEFLATE, covering {@value #MIN_MATCH} to {@value #MAX_MATCH}
+ * bytes. Distance codes 0 to 3 stand for the distances 1 to 4; above that, every power of two is
+ * split into two codes, so the {@value #DISTANCE_CODES} codes cover every distance up to
+ * {@value #MAX_WINDOW}.
+ */
+public final class LzAlphabet {
+
+    // Number of literal byte values at the start of the literal and length alphabet
+    public static final int LITERALS = 256;
+
+    // Shortest and longest match
+    public static final int MIN_MATCH = 3;
+    public static final int MAX_MATCH = 258;
+
+    // Number of length codes and of symbols of the literal and length alphabet
+    public static final int LENGTH_CODES = 29;
+    public static final int SYMBOLS = LITERALS + LENGTH_CODES;
+
+    // Farthest a match can reach back, and the number of distance codes needed to reach it
+    public static final int MAX_WINDOW = 1 << 23;
+    public static final int DISTANCE_CODES = 46;
+
+    // Longest code word of both alphabets, short enough for a decoder to resolve it with a single table lookup
+    public static final int MAX_CODE_LENGTH = 11;
+
+    // The shortest match length of each length code and the number of extra bits that follow it
+    private static final int[] LENGTH_BASE = {
+            3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+            35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258};
+    private static final int[] LENGTH_EXTRA_BITS = {
+            0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+            3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0};
+
+    // The length code of each match length
+    private static final byte[] LENGTH_CODE = new byte[MAX_MATCH + 1];
+
+    static {
+        for (int code = 0; code < LENGTH_CODES; code++) {
+            int end = code + 1 < LENGTH_CODES ? LENGTH_BASE[code + 1] : MAX_MATCH + 1;
+            for (int length = LENGTH_BASE[code]; length < end; length++) {
+                LENGTH_CODE[length] = (byte) code;
+            }
+        }
+    }
+
+    /**
+     * Prevents instantiation.
+     */
+    private LzAlphabet() {
+    }
+
+    /**
+     * Finds the length code of a match length.
+     *
+     * @param length The match length, from {@value #MIN_MATCH} to {@value #MAX_MATCH}.
+     * @return The length code, from 0 to {@value #LENGTH_CODES} - 1.
+     */
+    public static int lengthCode(int length) {
+        return LENGTH_CODE[length];
+    }
+
+    /**
+     * Retrieves the shortest match length of a length code.
+     *
+     * @param code The length code.
+     * @return The match length the extra bits are added to.
+     */
+    public static int lengthBase(int code) {
+        return LENGTH_BASE[code];
+    }
+
+    /**
+     * Retrieves the number of extra bits that follow a length code.
+     *
+     * @param code The length code.
+     * @return The number of extra bits.
+     */
+    public static int lengthExtraBits(int code) {
+        return LENGTH_EXTRA_BITS[code];
+    }
+
+    /**
+     * Finds the distance code of a match distance.
+     *
+     * @param distance The match distance, from 1 to {@value #MAX_WINDOW}.
+     * @return The distance code, from 0 to {@value #DISTANCE_CODES} - 1.
+     */
+    public static int distanceCode(int distance) {
+        int value = distance - 1;
+        if (value < 4) {
+            return value;
+        }
+        // the highest bit picks the power of two, the bit below it the half of it
+        int highestBit = 31 - Integer.numberOfLeadingZeros(value);
+        return 2 * highestBit + ((value >>> (highestBit - 1)) & 1);
+    }
+
+    /**
+     * Retrieves the shortest match distance of a distance code.
+     *
+     * @param code The distance code.
+     * @return The match distance the extra bits are added to.
+     */
+    public static int distanceBase(int code) {
+        if (code < 4) {
+            return code + 1;
+        }
+        return ((2 | (code & 1)) << distanceExtraBits(code)) + 1;
+    }
+
+    /**
+     * Retrieves the number of extra bits that follow a distance code.
+     *
+     * @param code The distance code.
+     * @return The number of extra bits.
+     */
+    public static int distanceExtraBits(int code) {
+        return code < 4 ? 0 : code / 2 - 1;
+    }
+}
@@ -0,0 +1,163 @@
+package Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Input stream over a region of a file that is mapped into memory one window at a time.
+ * Reads are served straight from the page cache without a system call per read, and the
+ * windows are independent of the channel position, so several streams can read different
+ * parts of the same channel concurrently.
+ */
+public class MappedInputStream extends InputStream {
+
+    // Number of bytes mapped at once
+    private static final long WINDOW_SIZE = 1L << 26;
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long end;
+    private long position;
+    private MappedByteBuffer window;
+
+    /**
+     * Constructs a MappedInputStream over a region of a channel.
+     * Closing the stream leaves the channel open.
+     *
+     * @param channel The channel to read from.
+     * @param start   The position in the channel of the first byte to read.
+     * @param end     The position in the channel after the last byte to read.
+     */
+    public MappedInputStream(FileChannel channel, long start, long end) {
+        this(channel, start, end, false);
+    }
+
+    /**
+     * Constructs a MappedInputStream.
+     *
+     * @param channel     The channel to read from.
+     * @param start       The position in the channel of the first byte to read.
+     * @param end         The position in the channel after the last byte to read.
+     * @param ownsChannel Whether closing the stream closes the channel.
+     */
+    private MappedInputStream(FileChannel channel, long start, long end, boolean ownsChannel) {
+        this.channel = channel;
+        this.position = start;
+        this.end = end;
+        this.ownsChannel = ownsChannel;
+    }
+
+    /**
+     * Opens a whole file for reading.
+     *
+     * @param path The path to the file.
+     * @return A stream over the whole file that closes the file when it is closed.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static MappedInputStream open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        return new MappedInputStream(channel, 0, channel.size(), true);
+    }
+
+    /**
+     * Makes sure the current window has bytes left, mapping the next window if needed.
+     *
+     * @return False if the end of the region has been reached.
+     * @throws IOException If the window cannot be mapped.
+     */
+    private boolean ensureWindow() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        if (position >= end) {
+            return false;
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, end - position));
+        return true;
+    }
+
+    /**
+     * Reads the next byte.
+     *
+     * @return The next byte, or -1 at the end of the region.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public int read() throws IOException {
+        if (!ensureWindow()) {
+            return -1;
+        }
+        position++;
+        return window.get() & 0xFF;
+    }
+
+    /**
+     * Reads up to the given number of bytes.
+     *
+     * @param b   The buffer to read into.
+     * @param off The offset in the buffer of the first byte.
+     * @param len The maximum number of bytes to read.
+     * @return The number of bytes read, or -1 at the end of the region.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureWindow()) {
+            return -1;
+        }
+        int bytesRead = Math.min(len, window.remaining());
+        window.get(b, off, bytesRead);
+        position += bytesRead;
+        return bytesRead;
+    }
+
+    /**
+     * Skips bytes without reading them.
+     *
+     * @param n The number of bytes to skip.
+     * @return The number of bytes skipped.
+     */
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        if (window != null) {
+            if (skipped <= window.remaining()) {
+                window.position(window.position() + (int) skipped);
+            } else {
+                window = null;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Retrieves the number of bytes left in the current window.
+     *
+     * @return The number of bytes that can be read without mapping another window.
+     */
+    @Override
+    public int available() {
+        return window == null ? 0 : window.remaining();
+    }
+
+    /**
+     * Closes the stream, and the channel if the stream opened it.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package Util;
+
+/**
+ * Reports metrics to a listener and to the flight recorder.
+ * When the listener is {@link MetricsListener#NONE} and no flight recording has the events enabled,
+ * the clock is not read and nothing is reported, so disabled metrics cost next to nothing.
+ * Phases are timed per file or per block, never per symbol.
+ */
+public final class Metrics {
+
+    private static final Timer DISABLED = new Timer(MetricsListener.NONE, null, null);
+
+    private Metrics() {
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @param listener The listener the phase is reported to.
+     * @param phase    The phase.
+     * @return The timer to stop when the phase completes.
+     */
+    public static Timer start(MetricsListener listener, Phase phase) {
+        PhaseEvent event = new PhaseEvent();
+        if (!event.isEnabled()) {
+            if (listener == MetricsListener.NONE) {
+                return DISABLED;
+            }
+            event = null;
+        } else {
+            event.begin();
+        }
+        return new Timer(listener, phase, event);
+    }
+
+    /**
+     * Reports a block that has been encoded or decoded, together with its code table.
+     *
+     * @param listener      The listener the block is reported to.
+     * @param blockHeader   The header of the block.
+     * @param originalBytes The number of original bytes in the block.
+     */
+    public static void blockProcessed(MetricsListener listener, BlockHeader blockHeader, long originalBytes) {
+        int alphabetSize = blockHeader.getSymbols().length;
+        int maxCodeLength = blockHeader.getMaxCodeLength();
+        // an LZ77 block has no symbols, its fixed alphabets are measured by the codes in use
+        int literalLengthCodes = blockHeader.isLz77() ? usedCodes(blockHeader.getCodeLengths()) : 0;
+        int distanceCodes = blockHeader.isLz77() ? usedCodes(blockHeader.getDistanceCodeLengths()) : 0;
+        if (blockHeader.isLz77()) {
+            listener.lzCodeTablesBuilt(literalLengthCodes, distanceCodes, maxCodeLength);
+        } else if (!blockHeader.isStored()) {
+            listener.codeTableBuilt(alphabetSize, maxCodeLength);
+        }
+        listener.blockProcessed(originalBytes, blockHeader.encodedLength(), blockHeader.isStored());
+
+        BlockEvent event = new BlockEvent();
+        if (event.shouldCommit()) {
+            event.originalBytes = originalBytes;
+            event.compressedBytes = blockHeader.encodedLength();
+            event.stored = blockHeader.isStored();
+            event.alphabetSize = alphabetSize;
+            event.literalLengthCodes = literalLengthCodes;
+            event.distanceCodes = distanceCodes;
+            event.maxCodeLength = maxCodeLength;
+            event.commit();
+        }
+    }
+
+    /**
+     * Counts the codes of a code table that have a code word.
+     *
+     * @param codeLengths The code word length of each code, 0 for unused codes.
+     * @return The number of used codes.
+     */
+    private static int usedCodes(int[] codeLengths) {
+        int used = 0;
+        for (int codeLength : codeLengths) {
+            if (codeLength > 0) {
+                used++;
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Times one phase.
+     */
+    public static final class Timer {
+
+        private final MetricsListener listener;
+        private final Phase phase;
+        private final PhaseEvent event;
+        private final long start;
+
+        /**
+         * Constructs a Timer and reads the clock if the phase is reported.
+         *
+         * @param listener The listener the phase is reported to.
+         * @param phase    The phase, or null if nothing is reported.
+         * @param event    The started flight recorder event, or null if it is not recorded.
+         */
+        private Timer(MetricsListener listener, Phase phase, PhaseEvent event) {
+            this.listener = listener;
+            this.phase = phase;
+            this.event = event;
+            this.start = phase == null ? 0 : System.nanoTime();
+        }
+
+        /**
+         * Stops timing the phase and reports it.
+         *
+         * @param bytes The number of original bytes the phase processed, or the size of the headers
+         *              for {@link Phase#HEADER}.
+         */
+        public void stop(long bytes) {
+            if (phase == null) {
+                return;
+            }
+            listener.phaseCompleted(phase, System.nanoTime() - start, bytes);
+            if (event != null && event.shouldCommit()) {
+                event.phase = phase.getLabel();
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+    }
+}
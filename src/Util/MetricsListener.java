@@ -0,0 +1,61 @@
+package Util;
+
+/**
+ * Receives the metrics of compressions and decompressions.
+ * Phases of blocks that are processed concurrently are reported from the threads that process
+ * them, so implementations must be thread safe. Every method does nothing by default.
+ */
+public interface MetricsListener {
+
+    // Listener that ignores all metrics, used when metrics are disabled
+    MetricsListener NONE = new MetricsListener() {
+    };
+
+    /**
+     * Called when a phase of a file or of one of its blocks completes.
+     *
+     * @param phase The phase.
+     * @param nanos The time the phase took in nanoseconds.
+     * @param bytes The number of original bytes the phase processed, or the size of the headers for {@link Phase#HEADER}.
+     */
+    default void phaseCompleted(Phase phase, long nanos, long bytes) {
+    }
+
+    /**
+     * Called when the code table of a block has been built or read.
+     *
+     * @param alphabetSize  The number of distinct symbols in the block.
+     * @param maxCodeLength The length of the longest code word in bits.
+     */
+    default void codeTableBuilt(int alphabetSize, int maxCodeLength) {
+    }
+
+    /**
+     * Called when the code tables of an LZ77 block have been built or read.
+     *
+     * @param literalLengthCodes The number of literal and length codes with a code word.
+     * @param distanceCodes      The number of distance codes with a code word.
+     * @param maxCodeLength      The length of the longest code word of both tables in bits.
+     */
+    default void lzCodeTablesBuilt(int literalLengthCodes, int distanceCodes, int maxCodeLength) {
+    }
+
+    /**
+     * Called when a block has been encoded or decoded.
+     *
+     * @param originalBytes   The number of original bytes in the block.
+     * @param compressedBytes The number of bytes the block takes up in the compressed file.
+     * @param stored          Whether the block holds its original bytes as is.
+     */
+    default void blockProcessed(long originalBytes, long compressedBytes, boolean stored) {
+    }
+
+    /**
+     * Called when a compression or decompression completes.
+     *
+     * @param bytesRead    The number of bytes read from the input file.
+     * @param bytesWritten The number of bytes written to the output file.
+     */
+    default void completed(long bytesRead, long bytesWritten) {
+    }
+}
@@ -0,0 +1,230 @@
+package Util;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener that adds up the metrics of one or more compressions and decompressions.
+ * The durations of phases that run concurrently are summed over the threads, so the throughput
+ * of a phase is per thread.
+ */
+public class MetricsRegistry implements MetricsListener {
+
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+    private final LongAdder[] phaseBytes = new LongAdder[Phase.values().length];
+    private final LongAccumulator maxAlphabetSize = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxCodeLength = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxLiteralLengthCodes = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxDistanceCodes = new LongAccumulator(Math::max, 0);
+    private final LongAdder blocks = new LongAdder();
+    private final LongAdder storedBlocks = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    /**
+     * Constructs an empty MetricsRegistry.
+     */
+    public MetricsRegistry() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+            phaseBytes[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Adds the duration and the bytes of a completed phase.
+     *
+     * @param phase The phase.
+     * @param nanos The time the phase took in nanoseconds.
+     * @param bytes The number of bytes the phase processed.
+     */
+    @Override
+    public void phaseCompleted(Phase phase, long nanos, long bytes) {
+        phaseNanos[phase.ordinal()].add(nanos);
+        phaseBytes[phase.ordinal()].add(bytes);
+    }
+
+    /**
+     * Keeps the largest alphabet and the longest code word.
+     *
+     * @param alphabetSize  The number of distinct symbols in the block.
+     * @param maxCodeLength The length of the longest code word in bits.
+     */
+    @Override
+    public void codeTableBuilt(int alphabetSize, int maxCodeLength) {
+        this.maxAlphabetSize.accumulate(alphabetSize);
+        this.maxCodeLength.accumulate(maxCodeLength);
+    }
+
+    /**
+     * Keeps the most literal and length codes, the most distance codes and the longest code word.
+     *
+     * @param literalLengthCodes The number of literal and length codes with a code word.
+     * @param distanceCodes      The number of distance codes with a code word.
+     * @param maxCodeLength      The length of the longest code word of both tables in bits.
+     */
+    @Override
+    public void lzCodeTablesBuilt(int literalLengthCodes, int distanceCodes, int maxCodeLength) {
+        this.maxLiteralLengthCodes.accumulate(literalLengthCodes);
+        this.maxDistanceCodes.accumulate(distanceCodes);
+        this.maxCodeLength.accumulate(maxCodeLength);
+    }
+
+    /**
+     * Counts a processed block.
+     *
+     * @param originalBytes   The number of original bytes in the block.
+     * @param compressedBytes The number of bytes the block takes up in the compressed file.
+     * @param stored          Whether the block holds its original bytes as is.
+     */
+    @Override
+    public void blockProcessed(long originalBytes, long compressedBytes, boolean stored) {
+        blocks.increment();
+        if (stored) {
+            storedBlocks.increment();
+        }
+    }
+
+    /**
+     * Adds the bytes read and written by a completed run.
+     *
+     * @param bytesRead    The number of bytes read from the input file.
+     * @param bytesWritten The number of bytes written to the output file.
+     */
+    @Override
+    public void completed(long bytesRead, long bytesWritten) {
+        this.bytesRead.add(bytesRead);
+        this.bytesWritten.add(bytesWritten);
+    }
+
+    /**
+     * Retrieves the time spent in a phase.
+     *
+     * @param phase The phase.
+     * @return The total duration of the phase in nanoseconds.
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    /**
+     * Retrieves the number of bytes processed by a phase.
+     *
+     * @param phase The phase.
+     * @return The total number of bytes.
+     */
+    public long getPhaseBytes(Phase phase) {
+        return phaseBytes[phase.ordinal()].sum();
+    }
+
+    /**
+     * Calculates the throughput of a phase.
+     *
+     * @param phase The phase.
+     * @return The bytes processed per second of the phase in MB/s, or 0 if the phase did not run.
+     */
+    public double getThroughput(Phase phase) {
+        long nanos = getPhaseNanos(phase);
+        return nanos == 0 ? 0 : getPhaseBytes(phase) * 1000.0 / nanos;
+    }
+
+    /**
+     * Retrieves the largest alphabet of a block.
+     *
+     * @return The largest number of distinct symbols in a block.
+     */
+    public long getMaxAlphabetSize() {
+        return maxAlphabetSize.get();
+    }
+
+    /**
+     * Retrieves the most literal and length codes used by an LZ77 block.
+     *
+     * @return The largest number of literal and length codes with a code word, or 0 if there were no LZ77 blocks.
+     */
+    public long getMaxLiteralLengthCodes() {
+        return maxLiteralLengthCodes.get();
+    }
+
+    /**
+     * Retrieves the most distance codes used by an LZ77 block.
+     *
+     * @return The largest number of distance codes with a code word.
+     */
+    public long getMaxDistanceCodes() {
+        return maxDistanceCodes.get();
+    }
+
+    /**
+     * Retrieves the longest code word of a block.
+     *
+     * @return The length of the longest code word in bits.
+     */
+    public long getMaxCodeLength() {
+        return maxCodeLength.get();
+    }
+
+    /**
+     * Retrieves the number of blocks processed.
+     *
+     * @return The number of blocks, including stored blocks.
+     */
+    public long getBlocks() {
+        return blocks.sum();
+    }
+
+    /**
+     * Retrieves the number of stored blocks processed.
+     *
+     * @return The number of blocks that hold their original bytes as is.
+     */
+    public long getStoredBlocks() {
+        return storedBlocks.sum();
+    }
+
+    /**
+     * Retrieves the number of bytes read from input files.
+     *
+     * @return The number of bytes read.
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * Retrieves the number of bytes written to output files.
+     *
+     * @return The number of bytes written.
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * Formats the metrics as a table of the phases that ran followed by the totals.
+     *
+     * @return The report, one line per phase or total.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            if (getPhaseNanos(phase) > 0) {
+                report.append(String.format("%-16s %10.3f ms %10.1f MB/s%n",
+                        phase.getLabel() + ":", getPhaseNanos(phase) / 1e6, getThroughput(phase)));
+            }
+        }
+        if (getMaxAlphabetSize() > 0 || getMaxLiteralLengthCodes() == 0) {
+            report.append("Alphabet size: ").append(getMaxAlphabetSize()).append(System.lineSeparator());
+        }
+        if (getMaxLiteralLengthCodes() > 0) {
+            report.append("Literal/length codes: ").append(getMaxLiteralLengthCodes()).append(System.lineSeparator());
+            report.append("Distance codes: ").append(getMaxDistanceCodes()).append(System.lineSeparator());
+        }
+        report.append("Max code length: ").append(getMaxCodeLength()).append(System.lineSeparator());
+        report.append("Blocks: ").append(getBlocks()).append(" (").append(getStoredBlocks()).append(" stored)")
+                .append(System.lineSeparator());
+        report.append("Bytes read: ").append(getBytesRead()).append(System.lineSeparator());
+        report.append("Bytes written: ").append(getBytesWritten()).append(System.lineSeparator());
+        return report.toString();
+    }
+}
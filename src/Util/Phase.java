@@ -0,0 +1,45 @@
+package Util;
+
+/**
+ * The phases of a compression or decompression that are timed by the metrics.
+ */
+public enum Phase {
+
+    // Counting the symbols of the input and calculating its checksum
+    HISTOGRAM("Histogram"),
+
+    // Building the Huffman tree from the symbol frequencies
+    TREE_BUILD("Tree build"),
+
+    // Deriving the length limited canonical code words from the tree
+    CODE_GENERATION("Code generation"),
+
+    // Writing or reading the file and block headers, including rebuilding the decoding tables
+    HEADER("Header"),
+
+    // Encoding the symbols, or copying a stored block
+    ENCODE("Encode"),
+
+    // Decoding the symbols, or copying a stored block
+    DECODE("Decode");
+
+    private final String label;
+
+    /**
+     * Constructs a Phase.
+     *
+     * @param label The name of the phase in reports.
+     */
+    Phase(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Retrieves the name of the phase in reports.
+     *
+     * @return The label.
+     */
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,27 @@
+package Util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one phase of a compression or decompression.
+ * The event is only committed while a recording with the event enabled is running.
+ */
+@Name("huffman.Phase")
+@Label("Huffman Phase")
+@Category("Huffman")
+@Description("A phase of a Huffman compression or decompression")
+class PhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Bytes")
+    @Description("Original bytes processed, or the size of the headers")
+    @DataAmount
+    long bytes;
+}
@@ -0,0 +1,211 @@
+package Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Input stream that reads the next chunks of another stream on a thread of its own while the
+ * current chunk is processed, so reading from the disk and encoding or decoding overlap.
+ * The chunks are a fixed set of buffers that travel between the two threads in bounded queues:
+ * the reading thread fills free buffers and the reader of the stream hands them back once it has
+ * read them. The memory used is therefore the same for any amount of data, and the reading thread
+ * waits when it is the given number of chunks ahead.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    // Marks the end of the data in the queue of filled chunks and wakes the reading thread when the stream is closed
+    private static final Chunk END = new Chunk(0);
+
+    private final InputStream in;
+    private final BlockingQueue<Chunk> free;
+    private final BlockingQueue<Chunk> filled;
+    private final Thread thread;
+
+    // The error that stopped the reading thread, or null
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    // The chunk being read and the position of the next byte in it, or null before the first chunk
+    private Chunk current;
+    private int position;
+    private boolean ended;
+
+    /**
+     * Constructs a ReadAheadInputStream and starts reading ahead.
+     *
+     * @param in         The stream to read from.
+     * @param bufferSize The size of each chunk in bytes.
+     * @param depth      The number of chunks that can be read ahead, at least one.
+     */
+    public ReadAheadInputStream(InputStream in, int bufferSize, int depth) {
+        if (depth < 1 || bufferSize < 1) {
+            throw new IllegalArgumentException("Read-ahead needs at least one chunk of at least one byte");
+        }
+        this.in = in;
+        // one more place for the end marker
+        this.free = new ArrayBlockingQueue<>(depth + 1);
+        this.filled = new ArrayBlockingQueue<>(depth + 1);
+        for (int i = 0; i < depth; i++) {
+            free.add(new Chunk(bufferSize));
+        }
+        this.thread = new Thread(this::readAhead, "huffman-read-ahead");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Fills free chunks from the underlying stream until its end, an error or the stream is closed.
+     */
+    private void readAhead() {
+        try {
+            while (true) {
+                Chunk chunk = free.take();
+                if (chunk == END || closed) {
+                    return;
+                }
+                chunk.length = in.readNBytes(chunk.bytes, 0, chunk.bytes.length);
+                if (chunk.length == 0) {
+                    filled.put(END);
+                    return;
+                }
+                filled.put(chunk);
+            }
+        } catch (IOException e) {
+            failure = e;
+            filled.offer(END);
+        } catch (InterruptedException e) {
+            filled.offer(END);
+        }
+    }
+
+    /**
+     * Makes sure the current chunk has bytes left, waiting for the next chunk if needed.
+     *
+     * @return False if the end of the data has been reached.
+     * @throws IOException If the underlying stream failed or the thread is interrupted while waiting.
+     */
+    private boolean ensureChunk() throws IOException {
+        if (current != null && position < current.length) {
+            return true;
+        }
+        if (ended) {
+            return false;
+        }
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current != null) {
+            free.add(current);
+            current = null;
+        }
+
+        Chunk chunk;
+        try {
+            chunk = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (chunk == END) {
+            ended = true;
+            if (failure != null) {
+                throw failure;
+            }
+            return false;
+        }
+        current = chunk;
+        position = 0;
+        return true;
+    }
+
+    /**
+     * Reads the next byte.
+     *
+     * @return The next byte, or -1 at the end of the data.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public int read() throws IOException {
+        if (!ensureChunk()) {
+            return -1;
+        }
+        return current.bytes[position++] & 0xFF;
+    }
+
+    /**
+     * Reads up to the given number of bytes, at most the rest of the current chunk.
+     *
+     * @param b   The buffer to read into.
+     * @param off The offset in the buffer of the first byte.
+     * @param len The maximum number of bytes to read.
+     * @return The number of bytes read, or -1 at the end of the data.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureChunk()) {
+            return -1;
+        }
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current.bytes, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * Retrieves the number of bytes that can be read without waiting for the reading thread.
+     *
+     * @return The number of bytes left in the current chunk.
+     */
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - position;
+    }
+
+    /**
+     * Stops reading ahead, waits for the reading thread and closes the underlying stream.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        free.offer(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * A buffer and the number of bytes it holds.
+     */
+    private static final class Chunk {
+
+        private final byte[] bytes;
+        private int length;
+
+        /**
+         * Constructs an empty Chunk.
+         *
+         * @param size The size of the buffer in bytes.
+         */
+        private Chunk(int size) {
+            this.bytes = new byte[size];
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package Util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Output stream that collects the bytes written to it in chunks and writes full chunks to another
+ * stream on a thread of its own, so encoding or decoding goes on while the previous chunks are
+ * written to the disk. The chunks are a fixed set of buffers that travel between the two threads
+ * in bounded queues, so the memory used is the same for any amount of data, and a writer that gets
+ * the given number of chunks ahead of the disk waits for a chunk to be written.
+ */
+public class WriteBehindOutputStream extends OutputStream {
+
+    // Stops the writing thread
+    private static final Chunk END = new Chunk(0);
+
+    private final OutputStream out;
+    private final int depth;
+    private final BlockingQueue<Chunk> free;
+    private final BlockingQueue<Chunk> filled;
+    private final Thread thread;
+
+    // The error that failed a write of the writing thread, or null
+    private volatile IOException failure;
+    private boolean closed;
+
+    // The chunk being filled, or null if no chunk is taken
+    private Chunk current;
+
+    /**
+     * Constructs a WriteBehindOutputStream and starts its writing thread.
+     *
+     * @param out        The stream to write to.
+     * @param bufferSize The size of each chunk in bytes.
+     * @param depth      The number of chunks, at least one, that can be filled or wait to be written.
+     */
+    public WriteBehindOutputStream(OutputStream out, int bufferSize, int depth) {
+        if (depth < 1 || bufferSize < 1) {
+            throw new IllegalArgumentException("Write-behind needs at least one chunk of at least one byte");
+        }
+        this.out = out;
+        this.depth = depth;
+        this.free = new ArrayBlockingQueue<>(depth);
+        // one more place for the end marker
+        this.filled = new ArrayBlockingQueue<>(depth + 1);
+        for (int i = 0; i < depth; i++) {
+            free.add(new Chunk(bufferSize));
+        }
+        this.thread = new Thread(this::writeBehind, "huffman-write-behind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Writes filled chunks to the underlying stream and hands them back until the stream is closed.
+     * After a failed write the chunks are handed back without writing them, so the writer of the
+     * stream does not wait for them and sees the error instead.
+     */
+    private void writeBehind() {
+        try {
+            while (true) {
+                Chunk chunk = filled.take();
+                if (chunk == END) {
+                    return;
+                }
+                if (failure == null) {
+                    try {
+                        out.write(chunk.bytes, 0, chunk.length);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                chunk.length = 0;
+                free.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            // only a closed stream stops the thread, there is nothing left to write
+        }
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param b The byte to write.
+     * @throws IOException If an earlier write failed or the stream is closed.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        ensureChunk();
+        current.bytes[current.length++] = (byte) b;
+        if (current.length == current.bytes.length) {
+            handOver();
+        }
+    }
+
+    /**
+     * Writes the given bytes, handing every chunk they fill to the writing thread.
+     *
+     * @param b   The buffer holding the bytes.
+     * @param off The offset in the buffer of the first byte.
+     * @param len The number of bytes to write.
+     * @throws IOException If an earlier write failed or the stream is closed.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        while (len > 0) {
+            ensureChunk();
+            int count = Math.min(len, current.bytes.length - current.length);
+            System.arraycopy(b, off, current.bytes, current.length, count);
+            current.length += count;
+            off += count;
+            len -= count;
+            if (current.length == current.bytes.length) {
+                handOver();
+            }
+        }
+    }
+
+    /**
+     * Waits until every byte written so far has been written to the underlying stream, then flushes it.
+     *
+     * @throws IOException If a write failed or the stream is closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Flushes the stream and retrieves the stream it writes to, for writes that bypass the chunks
+     * such as channel transfers. The bytes written to the underlying stream directly come after
+     * the bytes written so far and before the bytes written to this stream afterwards.
+     *
+     * @return The underlying stream.
+     * @throws IOException If a write failed or the stream is closed.
+     */
+    public OutputStream unwrap() throws IOException {
+        flush();
+        return out;
+    }
+
+    /**
+     * Writes the remaining bytes, stops the writing thread and closes the underlying stream.
+     *
+     * @throws IOException If a write failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            closed = true;
+            filled.offer(END);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * Makes sure a chunk with room for more bytes is taken, waiting for the writing thread to hand one back if needed.
+     *
+     * @throws IOException If a write failed or the stream is closed.
+     */
+    private void ensureChunk() throws IOException {
+        if (current == null) {
+            checkOpen();
+            current = take();
+            checkFailure();
+        }
+    }
+
+    /**
+     * Hands the current chunk to the writing thread.
+     *
+     * @throws IOException If a write failed.
+     */
+    private void handOver() throws IOException {
+        filled.add(current);
+        current = null;
+        checkFailure();
+    }
+
+    /**
+     * Hands the current chunk to the writing thread and waits until all chunks are written, by
+     * taking every chunk back once.
+     *
+     * @throws IOException If a write failed or the stream is closed.
+     */
+    private void drain() throws IOException {
+        checkOpen();
+        if (current != null && current.length > 0) {
+            handOver();
+        }
+        Chunk[] chunks = new Chunk[depth];
+        int taken = current == null ? 0 : 1;
+        if (current != null) {
+            chunks[0] = current;
+            current = null;
+        }
+        try {
+            while (taken < depth) {
+                chunks[taken++] = take();
+            }
+        } finally {
+            for (int i = 0; i < taken; i++) {
+                free.add(chunks[i]);
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * Waits for a free chunk.
+     *
+     * @return The chunk.
+     * @throws InterruptedIOException If the thread is interrupted while waiting.
+     */
+    private Chunk take() throws InterruptedIOException {
+        try {
+            return free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Checks that the stream has not been closed.
+     *
+     * @throws IOException If the stream has been closed.
+     */
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * Rethrows the error of a failed write.
+     *
+     * @throws IOException If a write failed.
+     */
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * A buffer and the number of bytes it holds.
+     */
+    private static final class Chunk {
+
+        private final byte[] bytes;
+        private int length;
+
+        /**
+         * Constructs an empty Chunk.
+         *
+         * @param size The size of the buffer in bytes.
+         */
+        private Chunk(int size) {
+            this.bytes = new byte[size];
+        }
+    }
+}